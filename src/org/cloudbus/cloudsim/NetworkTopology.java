@@ -13,11 +13,16 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.network.CachedDelayOracle;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
+import org.cloudbus.cloudsim.network.DelayOracle;
+import org.cloudbus.cloudsim.network.Dijkstra_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
+import org.cloudbus.cloudsim.network.HubLabelDelayOracle;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
 import org.cloudbus.cloudsim.network.TopologicalNode;
+import org.cloudbus.cloudsim.network.TreeDelayOracle;
 
 /**
  * NetworkTopology is a class that implements network layer in CloudSim. It reads a BRITE file and
@@ -29,6 +34,15 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * Links added one by one update the delay matrix incrementally. The oracles that cannot take a
+ * link incrementally are built again on the first delay asked after links were added, so a
+ * topology built link by link costs one build. Many links are better added
+ * between {@link #beginBatch()} and {@link #endBatch()}, which computes the matrices once. For
+ * graphs whose matrices do not fit in memory, {@link #setShortestPathsOnDemand(boolean)} computes
+ * the delays from a node only when they are needed, without the bandwidth matrix.
+ * {@link #setDelayOracleType(int)} chooses among more compact ways to get the delays, and
+ * {@link #setDelayCacheSize(int)} keeps the delays of the pairs of nodes used the most recently.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,6 +50,18 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
+	/** delays between all nodes computed in advance, with the bandwidth matrix */
+	public static final int DENSE_MATRIX = 0;
+
+	/** delays from a node computed with Dijkstra's algorithm when they are needed */
+	public static final int ON_DEMAND = 1;
+
+	/** delays from the lowest common ancestor of the nodes, for topologies without cycles */
+	public static final int TREE = 2;
+
+	/** delays from hub labels, for any topology */
+	public static final int HUB_LABELS = 3;
+
 	protected static int nextIdx = 0;
 
 	private static boolean networkEnabled = false;
@@ -48,6 +74,19 @@ public class NetworkTopology {
 
 	protected static Map<Integer, Integer> map = null;
 
+	protected static Dijkstra_Float shortestPaths = null;
+
+	protected static DelayOracle delayOracle = null;
+
+	private static int delayOracleType = DENSE_MATRIX;
+
+	private static int delayCacheSize = 0;
+
+	private static boolean batch = false;
+
+	/** whether links were added since the delay oracle was last built */
+	private static boolean stale = false;
+
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
 	 * written in the BRITE format and contains topologycal information on simulation entities.
@@ -78,11 +117,33 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		stale = false;
+		shortestPaths = null;
+		delayMatrix = null;
+		bwMatrix = null;
+		switch (delayOracleType) {
+			case ON_DEMAND:
+				shortestPaths = new Dijkstra_Float(graph, false);
+				delayOracle = shortestPaths;
+				break;
+			case TREE:
+				delayOracle = new TreeDelayOracle(graph);
+				break;
+			case HUB_LABELS:
+				delayOracle = new HubLabelDelayOracle(graph);
+				break;
+			default:
+				// creates the delay matrix
+				delayMatrix = new DelayMatrix_Float(graph, false);
+
+				// creates the bw matrix
+				bwMatrix = createBwMatrix(graph, false);
+
+				delayOracle = delayMatrix;
+		}
+		if (delayCacheSize > 0) {
+			delayOracle = new CachedDelayOracle(delayOracle, delayCacheSize);
+		}
 
 		networkEnabled = true;
 	}
@@ -122,10 +183,130 @@ public class NetworkTopology {
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		TopologicalLink link = new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw);
+		boolean linked = isLinked(link);
+		graph.addLink(link);
+
+		if (batch || stale) {
+			return;
+		}
+		if (shortestPaths != null) {
+			shortestPaths.addLink(link, graph.getNumberOfNodes());
+		} else if (delayMatrix != null && !linked) {
+			// a link replacing another one may make paths longer, which needs all paths again
+			delayMatrix.addLink(link, graph.getNumberOfNodes(), false);
+			addBw(link);
+		} else {
+			// the labels and ancestors may all change with a link, they are built again when needed
+			stale = true;
+			return;
+		}
+		if (delayOracle instanceof CachedDelayOracle) {
+			((CachedDelayOracle) delayOracle).clear();
+		}
+
+	}
+
+	/**
+	 * Starts adding links without updating the matrices, until {@link #endBatch()}
+	 */
+	public static void beginBatch() {
+		batch = true;
+	}
+
+	/**
+	 * Computes the matrices once for all the links added since {@link #beginBatch()}
+	 */
+	public static void endBatch() {
+		batch = false;
+		if (graph != null) {
+			generateMatrices();
+		}
+	}
+
+	/**
+	 * Chooses between computing the delays from a node with Dijkstra's algorithm when they are
+	 * needed, and computing the delays between all nodes in advance. Only the latter keeps a
+	 * bandwidth matrix.
+	 * 
+	 * @param onDemand true to compute the delays when they are needed
+	 */
+	public static void setShortestPathsOnDemand(boolean onDemand) {
+		setDelayOracleType(onDemand ? ON_DEMAND : DENSE_MATRIX);
+	}
+
+	public static boolean isShortestPathsOnDemand() {
+		return delayOracleType == ON_DEMAND;
+	}
+
+	/**
+	 * Chooses how the delays between nodes are computed. Only {@link #DENSE_MATRIX} keeps a
+	 * bandwidth matrix and {@link #TREE} needs a topology without cycles.
+	 * 
+	 * @param type {@link #DENSE_MATRIX}, {@link #ON_DEMAND}, {@link #TREE} or {@link #HUB_LABELS}
+	 */
+	public static void setDelayOracleType(int type) {
+		if (type < DENSE_MATRIX || type > HUB_LABELS) {
+			throw new IllegalArgumentException("Unknown delay oracle type " + type);
+		}
+		delayOracleType = type;
+		if (graph != null && !batch) {
+			generateMatrices();
+		}
+	}
+
+	public static int getDelayOracleType() {
+		return delayOracleType;
+	}
+
+	/**
+	 * Keeps the delays of the given number of pairs of nodes used the most recently, for the
+	 * oracles whose delays take more than a lookup.
+	 * 
+	 * @param size the number of pairs of nodes, 0 to cache none
+	 */
+	public static void setDelayCacheSize(int size) {
+		delayCacheSize = size;
+		if (graph != null && !batch) {
+			generateMatrices();
+		}
+	}
 
-		generateMatrices();
+	public static int getDelayCacheSize() {
+		return delayCacheSize;
+	}
+
+	/**
+	 * @return whether the nodes of a link already have a link between them
+	 */
+	private static boolean isLinked(TopologicalLink link) {
+		Iterator<TopologicalLink> iter = graph.getLinkIterator();
+		while (iter.hasNext()) {
+			TopologicalLink edge = iter.next();
+			if ((edge.getSrcNodeID() == link.getSrcNodeID() && edge.getDestNodeID() == link.getDestNodeID())
+					|| (edge.getSrcNodeID() == link.getDestNodeID() && edge.getDestNodeID() == link.getSrcNodeID())) {
+				return true;
+			}
+		}
+		return false;
+	}
 
+	/**
+	 * Adds the bandwidth of a new link to the bw matrix, growing it with the new nodes
+	 * 
+	 * @param link the new link
+	 */
+	private static void addBw(TopologicalLink link) {
+		int nodes = graph.getNumberOfNodes();
+		if (bwMatrix.length < nodes) {
+			double[][] mtx = new double[nodes][nodes];
+			for (int i = 0; i < bwMatrix.length; i++) {
+				System.arraycopy(bwMatrix[i], 0, mtx[i], 0, bwMatrix.length);
+			}
+			bwMatrix = mtx;
+		}
+		bwMatrix[link.getSrcNodeID()][link.getDestNodeID()] = link.getLinkBw();
+		bwMatrix[link.getDestNodeID()][link.getSrcNodeID()] = link.getLinkBw();
 	}
 
 	/**
@@ -219,10 +400,13 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
+		if (stale) {
+			generateMatrices();
+		}
 		if (networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = delayOracle.getDelay(map.get(srcID), map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -242,7 +426,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return networkEnabled || stale;
 	}
 
 }
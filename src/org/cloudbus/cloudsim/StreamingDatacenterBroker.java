@@ -0,0 +1,166 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.util.WorkloadJob;
+
+/**
+ * A broker that reads the jobs of a workload as the simulation reaches their submit times, and
+ * submits their cloudlets at those times, round robin over the created VMs. The jobs must come in
+ * the order of their submit times, as in the traces of the Standard Workload Format. Only the
+ * jobs submitted and not yet returned are held, plus the returned cloudlets unless
+ * {@link #setKeepReturnedCloudlets(boolean)} turns them off.
+ * 
+ * @since CloudSim Toolkit 3.0
+ * @see org.cloudbus.cloudsim.util.WorkloadFileReader#iterator()
+ */
+public class StreamingDatacenterBroker extends DatacenterBroker {
+
+	/** the jobs not yet read */
+	private Iterator<WorkloadJob> jobs;
+
+	/** the job read but not yet submitted */
+	private WorkloadJob nextJob;
+
+	/** how long before its submit time a job is read */
+	private double lookahead;
+
+	private boolean keepReturnedCloudlets = true;
+
+	private boolean streaming = false;
+
+	private int vmIndex = 0;
+
+	private long cloudletsReturned = 0;
+
+	/**
+	 * Instantiates a new broker.
+	 * 
+	 * @param name the name
+	 * @param jobs the jobs, by submit time
+	 * @param lookahead how long before its submit time a job is read and its cloudlet sent
+	 * @throws Exception the exception
+	 */
+	public StreamingDatacenterBroker(String name, Iterator<WorkloadJob> jobs, double lookahead) throws Exception {
+		super(name);
+		this.jobs = jobs;
+		this.lookahead = lookahead;
+	}
+
+	/**
+	 * Submits the cloudlets of the list, then starts submitting the jobs once the VMs are created.
+	 */
+	@Override
+	protected void submitCloudlets() {
+		super.submitCloudlets();
+		if (!streaming && !getVmsCreatedList().isEmpty()) {
+			streaming = true;
+			submitDueJobs();
+		}
+	}
+
+	/**
+	 * Sends the cloudlets of the jobs due before the lookahead, to arrive at their submit times,
+	 * and schedules the next call for the next job.
+	 */
+	protected void submitDueJobs() {
+		double now = CloudSim.clock();
+		while (peekJob() != null && nextJob.getSubmitTime() <= now + lookahead) {
+			Cloudlet cloudlet = nextJob.createCloudlet();
+			cloudlet.setUserId(getId());
+			Vm vm = getVmsCreatedList().get(vmIndex);
+			vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
+			cloudlet.setVmId(vm.getId());
+			send(getVmsToDatacentersMap().get(vm.getId()), Math.max(0, nextJob.getSubmitTime() - now),
+					CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			cloudletsSubmitted++;
+			nextJob = null;
+		}
+		if (peekJob() != null) {
+			schedule(getId(), nextJob.getSubmitTime() - lookahead - now, CloudSimTags.VM_BROKER_EVENT);
+		}
+	}
+
+	/**
+	 * @return the next job, null if there is none left
+	 */
+	private WorkloadJob peekJob() {
+		if (nextJob == null && jobs.hasNext()) {
+			nextJob = jobs.next();
+		}
+		return nextJob;
+	}
+
+	@Override
+	protected void processCloudletReturn(SimEvent ev) {
+		Cloudlet cloudlet = (Cloudlet) ev.getData();
+		if (isKeepReturnedCloudlets()) {
+			getCloudletReceivedList().add(cloudlet);
+		}
+		cloudletsReturned++;
+		cloudletsSubmitted--;
+		if (getCloudletList().size() == 0 && cloudletsSubmitted == 0 && peekJob() == null) {
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": All Cloudlets executed. Finishing...");
+			clearDatacenters();
+			finishExecution();
+		}
+	}
+
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.VM_BROKER_EVENT) {
+			submitDueJobs();
+		} else {
+			super.processOtherEvent(ev);
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+		if (jobs instanceof Closeable) {
+			try {
+				((Closeable) jobs).close();
+			} catch (IOException e) {
+				Log.printLine(getName() + ": " + e.getMessage());
+			}
+		}
+		super.shutdownEntity();
+	}
+
+	public boolean isKeepReturnedCloudlets() {
+		return keepReturnedCloudlets;
+	}
+
+	/**
+	 * @param keepReturnedCloudlets whether the returned cloudlets are added to the received list,
+	 *        which long workloads may not afford
+	 */
+	public void setKeepReturnedCloudlets(boolean keepReturnedCloudlets) {
+		this.keepReturnedCloudlets = keepReturnedCloudlets;
+	}
+
+	/**
+	 * @return the number of cloudlets returned, kept or not
+	 */
+	public long getCloudletsReturned() {
+		return cloudletsReturned;
+	}
+
+	public double getLookahead() {
+		return lookahead;
+	}
+
+}
@@ -16,6 +16,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+import org.cloudbus.cloudsim.distributions.RandomStreams;
+
 /**
  * The UtilizationModelStochastic class implements a model, according to which a Cloudlet generates
  * random CPU utilization every time frame.
@@ -36,7 +38,7 @@ public class UtilizationModelStochastic implements UtilizationModel {
 	 */
 	public UtilizationModelStochastic() {
 		setHistory(new HashMap<Double, Double>());
-		setRandomGenerator(new Random());
+		setRandomGenerator(RandomStreams.split());
 	}
 
 	/**
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -56,6 +57,18 @@ public class CloudSim {
 	@SuppressWarnings("unused")
 	private static boolean traceFlag = false;
 
+	/** The event tracer, <tt>null</tt> if tracing is disabled. */
+	private static EventTracer tracer = null;
+
+	/** Closes the tracer if the JVM exits before the simulation finishes. */
+	private static Thread tracerShutdownHook = null;
+
+	/** The event loop profiler, <tt>null</tt> if profiling is disabled. */
+	private static EventProfiler profiler = null;
+
+	/** Dumps the profile if the JVM exits before the simulation finishes. */
+	private static Thread profilerShutdownHook = null;
+
 	/** The calendar. */
 	private static Calendar calendar = null;
 
@@ -81,6 +94,12 @@ public class CloudSim {
 		initialize();
 		// NOTE: the order for the below 3 lines are important
 		traceFlag = _traceFlag;
+		if (traceFlag) {
+			openTracer();
+		}
+		if (profiler == null && Boolean.getBoolean("cloudsim.profile")) {
+			enableProfiling(Boolean.getBoolean("cloudsim.profile.allocations"));
+		}
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
@@ -110,7 +129,8 @@ public class CloudSim {
 	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
 	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
 	 *            taken from <tt>Calendar.getInstance()</tt>
-	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written. The trace is a binary
+	 *            ring buffer of handled events, see {@link EventTracer}
 	 * @see gridsim.CloudSimShutdown
 	 * @see CloudInformationService.CloudInformationService
 	 * @pre numUser >= 0
@@ -482,6 +502,9 @@ public class CloudSim {
 			e.setId(id);
 			entities.add(e);
 			entitiesByName.put(e.getName(), e);
+			if (tracer != null) {
+				tracer.entityAdded(e);
+			}
 		}
 	}
 
@@ -810,6 +833,9 @@ public class CloudSim {
 	 */
 	public static void runStart() {
 		running = true;
+		if (profiler != null) {
+			startProfiler();
+		}
 		// Start all the entities
 		for (SimEntity ent : entities) {
 			ent.startEntity();
@@ -932,6 +958,9 @@ public class CloudSim {
 			ent.shutdownEntity();
 		}
 
+		closeTracer();
+		stopProfiler();
+
 		// reset all static variables
 		// Private data members
 		entities = null;
@@ -947,6 +976,176 @@ public class CloudSim {
 		abruptTerminate = false;
 	}
 
+	/**
+	 * Opens the event tracer configured by the <tt>cloudsim.trace.*</tt> system properties. Tracing
+	 * is disabled if the trace file cannot be created or the capacity is out of range.
+	 */
+	private static void openTracer() {
+		closeTracer();
+		try {
+			tracer = EventTracer.fromSystemProperties();
+		} catch (IOException e) {
+			printMessage("CloudSim: could not open the event trace: " + e.getMessage());
+			tracer = null;
+			return;
+		} catch (IllegalArgumentException e) {
+			printMessage("CloudSim: could not open the event trace: " + e.getMessage());
+			tracer = null;
+			return;
+		}
+		final EventTracer opened = tracer;
+		tracerShutdownHook = new Thread() {
+
+			@Override
+			public void run() {
+				opened.close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(tracerShutdownHook);
+	}
+
+	/**
+	 * Flushes and closes the event tracer, if any.
+	 */
+	private static void closeTracer() {
+		if (tracer == null) {
+			return;
+		}
+		tracer.close();
+		tracer = null;
+		try {
+			Runtime.getRuntime().removeShutdownHook(tracerShutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is already shutting down
+		}
+		tracerShutdownHook = null;
+	}
+
+	/**
+	 * Enables the event loop profiler for the next run. The profile is exposed through JMX while
+	 * the simulation runs and printed when it finishes. This method has to be called before
+	 * {@link #startSimulation()}.
+	 * 
+	 * @param trackAllocations whether the bytes allocated by the event handlers are measured
+	 * @see EventProfiler
+	 */
+	public static void enableProfiling(boolean trackAllocations) {
+		profiler = new EventProfiler(trackAllocations);
+	}
+
+	/**
+	 * Gets the event loop profiler of the current simulation.
+	 * 
+	 * @return the profiler or <tt>null</tt> if profiling is disabled
+	 */
+	public static EventProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Starts the profiler and makes sure the profile is printed even if the JVM exits before the
+	 * simulation finishes.
+	 */
+	private static void startProfiler() {
+		profiler.start();
+		final EventProfiler started = profiler;
+		profilerShutdownHook = new Thread() {
+
+			@Override
+			public void run() {
+				started.stop();
+				System.out.print(started.dump());
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(profilerShutdownHook);
+	}
+
+	/**
+	 * Stops the profiler, if any, and prints its report.
+	 */
+	private static void stopProfiler() {
+		if (profiler == null) {
+			return;
+		}
+		profiler.stop();
+		System.out.print(profiler.dump());
+		profiler = null;
+		if (profilerShutdownHook != null) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(profilerShutdownHook);
+			} catch (IllegalStateException e) {
+				// the JVM is already shutting down
+			}
+			profilerShutdownHook = null;
+		}
+	}
+
+	/**
+	 * Checks if the handled events have to be timed and reported with
+	 * {@link #eventHandled(SimEntity, SimEvent, long, long)}.
+	 * 
+	 * @return true, if events are being traced or profiled
+	 */
+	static boolean isEventTimingEnabled() {
+		return tracer != null || profiler != null;
+	}
+
+	/**
+	 * Gets the bytes allocated so far by the simulation thread, if the profiler measures
+	 * allocations.
+	 * 
+	 * @return the allocated bytes, or 0 if allocations are not measured
+	 */
+	static long allocatedBytes() {
+		return profiler != null ? profiler.allocatedBytes() : 0;
+	}
+
+	/**
+	 * Called by an entity after it handled an event.
+	 * 
+	 * @param entity the entity that handled the event
+	 * @param ev the event
+	 * @param handlerNanos wall-clock nanoseconds spent in the handler
+	 * @param allocatedBefore the value of {@link #allocatedBytes()} before the handler ran
+	 */
+	static void eventHandled(SimEntity entity, SimEvent ev, long handlerNanos, long allocatedBefore) {
+		if (tracer != null) {
+			tracer.record(ev, handlerNanos);
+		}
+		if (profiler != null) {
+			profiler.record(entity, ev, handlerNanos, allocatedBefore);
+		}
+	}
+
+	/**
+	 * Gets the number of events in the future event queue.
+	 * 
+	 * @return the queue size, or 0 if the simulation is not initialised
+	 */
+	static int getFutureQueueSize() {
+		FutureQueue queue = future;
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * Gets the number of events in the deferred event queue.
+	 * 
+	 * @return the queue size, or 0 if the simulation is not initialised
+	 */
+	static int getDeferredQueueSize() {
+		DeferredQueue queue = deferred;
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * Gets the event tracer of the current simulation.
+	 * 
+	 * @return the tracer or <tt>null</tt> if tracing is disabled
+	 */
+	public static EventTracer getTracer() {
+		return tracer;
+	}
+
 	/**
 	 * Abruptally terminate.
 	 */
@@ -0,0 +1,362 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Built-in profiler of the event loop. It accumulates, per entity class and event tag, the number
+ * of handled events, the total and maximum wall-clock nanoseconds spent in the handlers and,
+ * optionally, the bytes allocated by the handlers. While the simulation runs the profiler is
+ * exposed through JMX (see {@link EventProfilerMBean}); the report is printed when the simulation
+ * finishes.
+ * <p>
+ * Profiling is enabled with {@link CloudSim#enableProfiling(boolean)} or with the
+ * <tt>cloudsim.profile</tt> system property (<tt>cloudsim.profile.allocations</tt> also measures
+ * allocations, which is noticeably more expensive).
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class EventProfiler implements EventProfilerMBean {
+
+	/** The JMX name of the profiler. */
+	public static final String OBJECT_NAME = "org.cloudbus.cloudsim:type=EventProfiler";
+
+	/** Names of the known event tags, used in the reports. */
+	private static final Map<Integer, String> tagNames = new ConcurrentHashMap<Integer, String>();
+
+	static {
+		registerTagNames(CloudSimTags.class, "TRUE", "FALSE", "DEFAULT_BAUD_RATE");
+	}
+
+	/**
+	 * Statistics of the handler of one event tag in one entity class.
+	 */
+	public static class HandlerStats {
+
+		private final String entityClass;
+
+		private final int tag;
+
+		private volatile long count;
+
+		private volatile long totalNanos;
+
+		private volatile long maxNanos;
+
+		private volatile long allocatedBytes;
+
+		HandlerStats(String entityClass, int tag) {
+			this.entityClass = entityClass;
+			this.tag = tag;
+		}
+
+		void add(long nanos, long allocated) {
+			count++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) {
+				maxNanos = nanos;
+			}
+			allocatedBytes += allocated;
+		}
+
+		public String getEntityClass() {
+			return entityClass;
+		}
+
+		public int getTag() {
+			return tag;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-30s %-42s %10d %14.3f %12.1f %12.3f %14d", entityClass, getTagName(tag),
+					count, totalNanos / 1e6, count == 0 ? 0 : (double) totalNanos / count / 1e3, maxNanos / 1e6,
+					allocatedBytes);
+		}
+
+	}
+
+	/** Statistics per entity class, then per tag. */
+	private final Map<Class<?>, Map<Integer, HandlerStats>> stats = new ConcurrentHashMap<Class<?>, Map<Integer, HandlerStats>>();
+
+	private final boolean trackAllocations;
+
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	private volatile long eventsProcessed;
+
+	private long startWallNanos;
+
+	private long endWallNanos = -1;
+
+	private boolean registered;
+
+	/**
+	 * Creates a profiler.
+	 *
+	 * @param trackAllocations whether the bytes allocated by the handlers are measured. It is
+	 *            ignored if the JVM cannot measure per-thread allocations.
+	 */
+	public EventProfiler(boolean trackAllocations) {
+		com.sun.management.ThreadMXBean bean = null;
+		if (trackAllocations && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!bean.isThreadAllocatedMemorySupported()) {
+				bean = null;
+			} else {
+				bean.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+		threadBean = bean;
+		this.trackAllocations = bean != null;
+		startWallNanos = System.nanoTime();
+	}
+
+	/**
+	 * Registers the names of the public integer constants of a class as event tag names, e.g.
+	 * <tt>FogEvents</tt>. Constants sharing a value are reported together.
+	 *
+	 * @param tagClass the class declaring the tags
+	 * @param excluded names of constants that are not event tags
+	 */
+	public static void registerTagNames(Class<?> tagClass, String... excluded) {
+		List<String> excludedNames = Arrays.asList(excluded);
+		for (Field field : tagClass.getFields()) {
+			int modifiers = field.getModifiers();
+			if (!Modifier.isStatic(modifiers) || field.getType() != int.class
+					|| excludedNames.contains(field.getName())) {
+				continue;
+			}
+			try {
+				int tag = field.getInt(null);
+				String name = tagClass.getSimpleName() + "." + field.getName();
+				String existing = tagNames.get(tag);
+				if (existing == null) {
+					tagNames.put(tag, name);
+				} else if (!existing.contains(name)) {
+					tagNames.put(tag, existing + "/" + field.getName());
+				}
+			} catch (IllegalAccessException e) {
+				// not a readable constant
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of an event tag.
+	 *
+	 * @param tag the tag
+	 * @return the registered name, or the number if the tag is unknown
+	 */
+	public static String getTagName(int tag) {
+		String name = tagNames.get(tag);
+		return name != null ? name : Integer.toString(tag);
+	}
+
+	/**
+	 * Marks the start of the run and registers the profiler with the platform MBean server.
+	 */
+	void start() {
+		startWallNanos = System.nanoTime();
+		endWallNanos = -1;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			registered = true;
+		} catch (Exception e) {
+			System.err.println("EventProfiler: could not register the MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Marks the end of the run and unregisters the profiler from the platform MBean server.
+	 */
+	void stop() {
+		endWallNanos = System.nanoTime();
+		if (!registered) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (Exception e) {
+			// already unregistered
+		}
+		registered = false;
+	}
+
+	/**
+	 * Gets the bytes allocated so far by the current thread.
+	 *
+	 * @return the allocated bytes, or 0 if allocations are not tracked
+	 */
+	long allocatedBytes() {
+		if (threadBean == null) {
+			return 0;
+		}
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Records one handled event.
+	 *
+	 * @param entity the entity that handled the event
+	 * @param ev the event
+	 * @param handlerNanos wall-clock nanoseconds spent in the handler
+	 * @param allocatedBefore the value of {@link #allocatedBytes()} before the handler ran
+	 */
+	void record(SimEntity entity, SimEvent ev, long handlerNanos, long allocatedBefore) {
+		long allocated = threadBean == null ? 0 : allocatedBytes() - allocatedBefore;
+		Class<?> entityClass = entity.getClass();
+		Map<Integer, HandlerStats> byTag = stats.get(entityClass);
+		if (byTag == null) {
+			byTag = new ConcurrentHashMap<Integer, HandlerStats>();
+			stats.put(entityClass, byTag);
+		}
+		HandlerStats handler = byTag.get(ev.getTag());
+		if (handler == null) {
+			handler = new HandlerStats(entityClass.getSimpleName(), ev.getTag());
+			byTag.put(ev.getTag(), handler);
+		}
+		handler.add(handlerNanos, allocated);
+		eventsProcessed++;
+	}
+
+	/**
+	 * Gets the statistics of all the handlers, sorted by decreasing total handler time.
+	 *
+	 * @return the handler statistics
+	 */
+	public List<HandlerStats> getHandlerStats() {
+		List<HandlerStats> result = new ArrayList<HandlerStats>();
+		for (Map<Integer, HandlerStats> byTag : stats.values()) {
+			result.addAll(byTag.values());
+		}
+		Collections.sort(result, new Comparator<HandlerStats>() {
+
+			@Override
+			public int compare(HandlerStats a, HandlerStats b) {
+				return Long.compare(b.getTotalNanos(), a.getTotalNanos());
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public double getSimulationClock() {
+		return CloudSim.clock();
+	}
+
+	@Override
+	public double getWallClockSeconds() {
+		long end = endWallNanos >= 0 ? endWallNanos : System.nanoTime();
+		return (end - startWallNanos) / 1e9;
+	}
+
+	@Override
+	public double getSimToWallRatio() {
+		double wall = getWallClockSeconds();
+		return wall > 0 ? getSimulationClock() / wall : 0;
+	}
+
+	@Override
+	public int getFutureQueueSize() {
+		return CloudSim.getFutureQueueSize();
+	}
+
+	@Override
+	public int getDeferredQueueSize() {
+		return CloudSim.getDeferredQueueSize();
+	}
+
+	@Override
+	public long getEventsProcessed() {
+		return eventsProcessed;
+	}
+
+	@Override
+	public double getEventsPerSecond() {
+		double wall = getWallClockSeconds();
+		return wall > 0 ? eventsProcessed / wall : 0;
+	}
+
+	@Override
+	public boolean isTrackingAllocations() {
+		return trackAllocations;
+	}
+
+	@Override
+	public String[] getHandlerProfile() {
+		List<HandlerStats> handlers = getHandlerStats();
+		String[] lines = new String[handlers.size()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = handlers.get(i).toString();
+		}
+		return lines;
+	}
+
+	@Override
+	public String dump() {
+		StringBuilder report = new StringBuilder();
+		report.append("=========================================\n");
+		report.append("EVENT LOOP PROFILE\n");
+		report.append("=========================================\n");
+		report.append(String.format("Simulation clock     : %.3f%n", getSimulationClock()));
+		report.append(String.format("Wall clock (s)       : %.3f%n", getWallClockSeconds()));
+		report.append(String.format("Sim/wall clock ratio : %.3f%n", getSimToWallRatio()));
+		report.append(String.format("Events handled       : %d%n", getEventsProcessed()));
+		report.append(String.format("Events per second    : %.1f%n", getEventsPerSecond()));
+		report.append(String.format("%-30s %-42s %10s %14s %12s %12s %14s%n", "ENTITY CLASS", "TAG", "COUNT",
+				"TOTAL MS", "MEAN US", "MAX MS", trackAllocations ? "ALLOC BYTES" : "ALLOC (OFF)"));
+		for (String line : getHandlerProfile()) {
+			report.append(line).append('\n');
+		}
+		report.append("=========================================\n");
+		return report.toString();
+	}
+
+	@Override
+	public void reset() {
+		stats.clear();
+		eventsProcessed = 0;
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * JMX management interface of the {@link EventProfiler}. It is registered under the name
+ * {@link EventProfiler#OBJECT_NAME} while a profiled simulation is running.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public interface EventProfilerMBean {
+
+	/**
+	 * @return the current simulation clock
+	 */
+	double getSimulationClock();
+
+	/**
+	 * @return the wall-clock seconds elapsed since the simulation started
+	 */
+	double getWallClockSeconds();
+
+	/**
+	 * @return the simulated time advanced per wall-clock second
+	 */
+	double getSimToWallRatio();
+
+	/**
+	 * @return the number of events in the future event queue
+	 */
+	int getFutureQueueSize();
+
+	/**
+	 * @return the number of events in the deferred event queue
+	 */
+	int getDeferredQueueSize();
+
+	/**
+	 * @return the number of events handled by the entities so far
+	 */
+	long getEventsProcessed();
+
+	/**
+	 * @return the average number of handled events per wall-clock second
+	 */
+	double getEventsPerSecond();
+
+	/**
+	 * @return true, if the bytes allocated by the handlers are measured
+	 */
+	boolean isTrackingAllocations();
+
+	/**
+	 * @return one line per entity class and tag, sorted by total handler time
+	 */
+	String[] getHandlerProfile();
+
+	/**
+	 * @return the full profile report as printed at the end of the run
+	 */
+	String dump();
+
+	/**
+	 * Clears the per-handler statistics.
+	 */
+	void reset();
+
+}
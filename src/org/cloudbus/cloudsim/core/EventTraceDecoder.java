@@ -0,0 +1,357 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offline decoder for the binary traces written by {@link EventTracer}. It prints per-tag and
+ * per-entity histograms of the handler wall-clock time and can export the raw records and the
+ * histograms as CSV.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java org.cloudbus.cloudsim.core.EventTraceDecoder &lt;trace&gt; [--csv &lt;records.csv&gt;] [--summary-csv &lt;summary.csv&gt;]
+ * </pre>
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventTracer
+ */
+public class EventTraceDecoder {
+
+	/** Number of power-of-two buckets of the handler time histograms (1 ns to ~1 s). */
+	private static final int BUCKETS = 31;
+
+	private final MappedByteBuffer buffer;
+
+	private final long capacity;
+
+	private final long written;
+
+	private final Map<Integer, String> entityNames = new HashMap<Integer, String>();
+
+	private final Map<Integer, String> payloadTypes = new HashMap<Integer, String>();
+
+	/**
+	 * Handler time statistics of one group of events (a tag or an entity).
+	 */
+	public static class Histogram {
+
+		private long count;
+
+		private long totalNanos;
+
+		private long maxNanos;
+
+		private final long[] buckets = new long[BUCKETS];
+
+		void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) {
+				maxNanos = nanos;
+			}
+			int bucket = nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+			buckets[Math.min(bucket, BUCKETS - 1)]++;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public double getMeanNanos() {
+			return count == 0 ? 0 : (double) totalNanos / count;
+		}
+
+		/**
+		 * Gets the number of events whose handler time <tt>t</tt> satisfies
+		 * <tt>2^bucket &lt;= t &lt; 2^(bucket+1)</tt> nanoseconds.
+		 *
+		 * @param bucket the bucket index
+		 * @return the number of events in the bucket
+		 */
+		public long getBucket(int bucket) {
+			return buckets[bucket];
+		}
+
+	}
+
+	/**
+	 * Opens a trace file and its names file, if present.
+	 *
+	 * @param traceFile the trace file
+	 * @throws IOException if the file cannot be read or is not a trace
+	 */
+	public EventTraceDecoder(File traceFile) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(traceFile, "r");
+		try {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		} finally {
+			raf.close();
+		}
+		if (buffer.getInt(0) != EventTracer.MAGIC) {
+			throw new IOException(traceFile + " is not a CloudSim event trace");
+		}
+		if (buffer.getInt(4) != EventTracer.VERSION || buffer.getInt(8) != EventTracer.RECORD_SIZE) {
+			throw new IOException("Unsupported trace version " + buffer.getInt(4));
+		}
+		capacity = buffer.getLong(16);
+		written = buffer.getLong(EventTracer.WRITTEN_OFFSET);
+		readNames(EventTracer.getNamesFile(traceFile));
+	}
+
+	private void readNames(File namesFile) throws IOException {
+		if (!namesFile.exists()) {
+			return;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(namesFile), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 3);
+				if (fields.length < 3) {
+					continue;
+				}
+				if (fields[0].equals("entity")) {
+					entityNames.put(Integer.parseInt(fields[1]), fields[2]);
+				} else if (fields[0].equals("type")) {
+					payloadTypes.put(Integer.parseInt(fields[1]), fields[2]);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Gets the number of records still held by the ring buffer.
+	 *
+	 * @return the number of records
+	 */
+	public long getRecordCount() {
+		return Math.min(written, capacity);
+	}
+
+	/**
+	 * Gets the number of records that were overwritten because the ring buffer was full.
+	 *
+	 * @return the number of dropped records
+	 */
+	public long getDroppedCount() {
+		return Math.max(0, written - capacity);
+	}
+
+	/**
+	 * Gets the byte position of the i-th oldest record still held by the ring buffer.
+	 */
+	private int position(long i) {
+		long first = written > capacity ? written % capacity : 0;
+		return (int) (EventTracer.HEADER_SIZE + ((first + i) % capacity) * EventTracer.RECORD_SIZE);
+	}
+
+	public double getClock(long i) {
+		return buffer.getDouble(position(i));
+	}
+
+	public int getSource(long i) {
+		return buffer.getInt(position(i) + 8);
+	}
+
+	public int getDestination(long i) {
+		return buffer.getInt(position(i) + 12);
+	}
+
+	public int getTag(long i) {
+		return buffer.getInt(position(i) + 16);
+	}
+
+	public int getPayloadType(long i) {
+		return buffer.getInt(position(i) + 20);
+	}
+
+	public long getHandlerNanos(long i) {
+		return buffer.getLong(position(i) + 24);
+	}
+
+	public String getEntityName(int id) {
+		String name = entityNames.get(id);
+		return name != null ? name : Integer.toString(id);
+	}
+
+	public String getPayloadTypeName(int id) {
+		if (id < 0) {
+			return "";
+		}
+		String name = payloadTypes.get(id);
+		return name != null ? name : Integer.toString(id);
+	}
+
+	/**
+	 * Builds the handler time histograms grouped by event tag.
+	 *
+	 * @return map from tag to histogram
+	 */
+	public Map<Integer, Histogram> getTagHistograms() {
+		Map<Integer, Histogram> result = new TreeMap<Integer, Histogram>();
+		for (long i = 0; i < getRecordCount(); i++) {
+			getHistogram(result, getTag(i)).add(getHandlerNanos(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the handler time histograms grouped by the entity that handled the event.
+	 *
+	 * @return map from entity name to histogram
+	 */
+	public Map<String, Histogram> getEntityHistograms() {
+		Map<String, Histogram> result = new TreeMap<String, Histogram>();
+		for (long i = 0; i < getRecordCount(); i++) {
+			getHistogram(result, getEntityName(getDestination(i))).add(getHandlerNanos(i));
+		}
+		return result;
+	}
+
+	private static <K> Histogram getHistogram(Map<K, Histogram> map, K key) {
+		Histogram histogram = map.get(key);
+		if (histogram == null) {
+			histogram = new Histogram();
+			map.put(key, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Writes all the records, oldest first, as CSV.
+	 *
+	 * @param out the output
+	 */
+	public void writeRecordsCsv(PrintWriter out) {
+		out.println("clock,src,src_name,dest,dest_name,tag,payload,handler_nanos");
+		for (long i = 0; i < getRecordCount(); i++) {
+			out.println(getClock(i) + "," + getSource(i) + "," + getEntityName(getSource(i)) + ","
+					+ getDestination(i) + "," + getEntityName(getDestination(i)) + "," + getTag(i) + ","
+					+ getPayloadTypeName(getPayloadType(i)) + "," + getHandlerNanos(i));
+		}
+	}
+
+	/**
+	 * Writes the per-tag and per-entity histograms as CSV.
+	 *
+	 * @param out the output
+	 */
+	public void writeSummaryCsv(PrintWriter out) {
+		StringBuilder header = new StringBuilder("group,key,count,total_nanos,mean_nanos,max_nanos");
+		for (int b = 0; b < BUCKETS; b++) {
+			header.append(",le_2^").append(b + 1);
+		}
+		out.println(header);
+		for (Map.Entry<Integer, Histogram> entry : getTagHistograms().entrySet()) {
+			out.println(summaryRow("tag", entry.getKey().toString(), entry.getValue()));
+		}
+		for (Map.Entry<String, Histogram> entry : getEntityHistograms().entrySet()) {
+			out.println(summaryRow("entity", entry.getKey(), entry.getValue()));
+		}
+	}
+
+	private static String summaryRow(String group, String key, Histogram histogram) {
+		StringBuilder row = new StringBuilder();
+		row.append(group).append(',').append(key).append(',').append(histogram.getCount()).append(',')
+				.append(histogram.getTotalNanos()).append(',').append(histogram.getMeanNanos()).append(',')
+				.append(histogram.getMaxNanos());
+		for (int b = 0; b < BUCKETS; b++) {
+			row.append(',').append(histogram.getBucket(b));
+		}
+		return row.toString();
+	}
+
+	/**
+	 * Prints the per-tag and per-entity histograms in a human readable form.
+	 *
+	 * @param out the output
+	 */
+	public void printSummary(PrintStream out) {
+		out.println("Records: " + getRecordCount() + " (overwritten: " + getDroppedCount() + ")");
+		out.println();
+		out.println("PER TAG");
+		printHeader(out, "TAG");
+		for (Map.Entry<Integer, Histogram> entry : getTagHistograms().entrySet()) {
+			printRow(out, entry.getKey().toString(), entry.getValue());
+		}
+		out.println();
+		out.println("PER ENTITY");
+		printHeader(out, "ENTITY");
+		for (Map.Entry<String, Histogram> entry : getEntityHistograms().entrySet()) {
+			printRow(out, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static void printHeader(PrintStream out, String key) {
+		out.println(String.format("%-30s %12s %16s %12s %12s  %s", key, "COUNT", "TOTAL NS", "MEAN NS",
+				"MAX NS", "LOG2 HISTOGRAM"));
+	}
+
+	private static void printRow(PrintStream out, String key, Histogram histogram) {
+		StringBuilder buckets = new StringBuilder();
+		for (int b = 0; b < BUCKETS; b++) {
+			if (histogram.getBucket(b) > 0) {
+				buckets.append(" 2^").append(b).append(':').append(histogram.getBucket(b));
+			}
+		}
+		out.println(String.format("%-30s %12d %16d %12.1f %12d %s", key, histogram.getCount(),
+				histogram.getTotalNanos(), histogram.getMeanNanos(), histogram.getMaxNanos(), buckets));
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: EventTraceDecoder <trace> [--csv <records.csv>] [--summary-csv <summary.csv>]");
+			System.exit(1);
+		}
+		EventTraceDecoder decoder = new EventTraceDecoder(new File(args[0]));
+		for (int i = 1; i < args.length - 1; i += 2) {
+			if (!args[i].equals("--csv") && !args[i].equals("--summary-csv")) {
+				System.err.println("Unknown option " + args[i]);
+				continue;
+			}
+			PrintWriter out = new PrintWriter(args[i + 1], "UTF-8");
+			try {
+				if (args[i].equals("--csv")) {
+					decoder.writeRecordsCsv(out);
+				} else {
+					decoder.writeSummaryCsv(out);
+				}
+			} finally {
+				out.close();
+			}
+		}
+		decoder.printSummary(System.out);
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records every event handled by a simulation entity into a memory-mapped ring buffer of
+ * fixed-size binary records. When the buffer is full the oldest records are overwritten, so the
+ * trace always holds the last <tt>capacity</tt> events of the run. Entity names and payload class
+ * names are written to a text file next to the trace (<tt>&lt;trace&gt;.names</tt>) when the tracer
+ * is closed. Traces are turned into histograms and CSV by {@link EventTraceDecoder}.
+ * <p>
+ * Each record is 32 bytes in big-endian order:
+ * <ul>
+ * <li>double: simulation clock of the event
+ * <li>int: source entity id
+ * <li>int: destination entity id
+ * <li>int: event tag
+ * <li>int: payload type id (-1 if the event carries no data)
+ * <li>long: wall-clock nanoseconds spent in the handler
+ * </ul>
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventTraceDecoder
+ */
+public class EventTracer {
+
+	/** Magic number at the start of every trace file ("CSTR"). */
+	public static final int MAGIC = 0x43535452;
+
+	/** Version of the binary layout. */
+	public static final int VERSION = 1;
+
+	/** Size of the file header in bytes. */
+	public static final int HEADER_SIZE = 64;
+
+	/** Size of one event record in bytes. */
+	public static final int RECORD_SIZE = 32;
+
+	/** Offset of the total written record counter in the header. */
+	static final int WRITTEN_OFFSET = 24;
+
+	/** Default number of records kept in the ring buffer (32 MB of records). */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/** Largest number of records whose file a single buffer can map (2 GB). */
+	public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+	/** System property used to choose the trace file. */
+	public static final String FILE_PROPERTY = "cloudsim.trace.file";
+
+	/** System property used to choose the ring buffer capacity (in records). */
+	public static final String CAPACITY_PROPERTY = "cloudsim.trace.capacity";
+
+	/** Trace file used when {@link #FILE_PROPERTY} is not set. */
+	public static final String DEFAULT_FILE = "cloudsim-trace.bin";
+
+	private final File file;
+
+	private final long capacity;
+
+	private final RandomAccessFile raf;
+
+	private final MappedByteBuffer buffer;
+
+	/** Total number of records written, including overwritten ones. */
+	private long written;
+
+	private final List<String> entityNames = new ArrayList<String>();
+
+	private final Map<Class<?>, Integer> payloadTypes = new HashMap<Class<?>, Integer>();
+
+	private final List<String> payloadTypeNames = new ArrayList<String>();
+
+	/** Last looked-up payload class, most consecutive events carry the same type. */
+	private Class<?> lastType;
+
+	private int lastTypeId = -1;
+
+	private boolean closed;
+
+	/**
+	 * Opens (and truncates) a trace file with the given ring buffer capacity.
+	 *
+	 * @param file the trace file
+	 * @param capacity the number of records kept in the ring buffer, at most {@link #MAX_CAPACITY}
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public EventTracer(File file, int capacity) throws IOException {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Trace capacity must be between 1 and " + MAX_CAPACITY + ", but is: "
+					+ capacity);
+		}
+		this.file = file;
+		this.capacity = capacity;
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+		raf = new RandomAccessFile(file, "rw");
+		raf.setLength(0);
+		raf.setLength(size);
+		buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, RECORD_SIZE);
+		buffer.putInt(12, HEADER_SIZE);
+		buffer.putLong(16, capacity);
+		buffer.putLong(WRITTEN_OFFSET, 0);
+	}
+
+	/**
+	 * Opens a tracer configured by the {@link #FILE_PROPERTY} and {@link #CAPACITY_PROPERTY}
+	 * system properties.
+	 *
+	 * @return the tracer
+	 * @throws IOException if the trace file cannot be created
+	 */
+	public static EventTracer fromSystemProperties() throws IOException {
+		String path = System.getProperty(FILE_PROPERTY, DEFAULT_FILE);
+		int capacity = Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY);
+		return new EventTracer(new File(path), capacity);
+	}
+
+	/**
+	 * Registers the name of a newly created entity. Entities get consecutive ids, so the name is
+	 * stored at the position of the id.
+	 *
+	 * @param entity the entity
+	 */
+	public synchronized void entityAdded(SimEntity entity) {
+		if (closed) {
+			return;
+		}
+		int id = entity.getId();
+		while (entityNames.size() <= id) {
+			entityNames.add(null);
+		}
+		entityNames.set(id, entity.getName());
+	}
+
+	/**
+	 * Appends one record to the ring buffer. Records arriving after {@link #close()}, e.g. while
+	 * the shutdown hook closes the tracer of a running simulation, are ignored.
+	 *
+	 * @param ev the handled event
+	 * @param handlerNanos wall-clock nanoseconds spent in the handler
+	 */
+	public synchronized void record(SimEvent ev, long handlerNanos) {
+		if (closed) {
+			return;
+		}
+		int position = (int) (HEADER_SIZE + (written % capacity) * RECORD_SIZE);
+		buffer.putDouble(position, ev.eventTime());
+		buffer.putInt(position + 8, ev.getSource());
+		buffer.putInt(position + 12, ev.getDestination());
+		buffer.putInt(position + 16, ev.getTag());
+		buffer.putInt(position + 20, getPayloadTypeId(ev.getData()));
+		buffer.putLong(position + 24, handlerNanos);
+		written++;
+		buffer.putLong(WRITTEN_OFFSET, written);
+	}
+
+	private int getPayloadTypeId(Object data) {
+		if (data == null) {
+			return -1;
+		}
+		Class<?> type = data.getClass();
+		if (type == lastType) {
+			return lastTypeId;
+		}
+		Integer id = payloadTypes.get(type);
+		if (id == null) {
+			id = payloadTypeNames.size();
+			payloadTypes.put(type, id);
+			payloadTypeNames.add(type.getName());
+		}
+		lastType = type;
+		lastTypeId = id;
+		return id;
+	}
+
+	/**
+	 * Flushes the ring buffer and writes the names file. Calling this method more than once has no
+	 * effect.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		buffer.force();
+		PrintWriter out = null;
+		try {
+			out = new PrintWriter(getNamesFile(file), "UTF-8");
+			for (int i = 0; i < entityNames.size(); i++) {
+				if (entityNames.get(i) != null) {
+					out.println("entity\t" + i + "\t" + entityNames.get(i));
+				}
+			}
+			for (int i = 0; i < payloadTypeNames.size(); i++) {
+				out.println("type\t" + i + "\t" + payloadTypeNames.get(i));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (out != null) {
+				out.close();
+			}
+			try {
+				raf.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Gets the names file that accompanies a trace file.
+	 *
+	 * @param traceFile the trace file
+	 * @return the names file
+	 */
+	public static File getNamesFile(File traceFile) {
+		return new File(traceFile.getPath() + ".names");
+	}
+
+	/**
+	 * Gets the trace file.
+	 *
+	 * @return the trace file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the total number of records written, including the overwritten ones.
+	 *
+	 * @return the number of records written
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+}
@@ -403,7 +403,14 @@ public abstract class SimEntity implements Cloneable {
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
 		while (ev != null) {
-			processEvent(ev);
+			if (CloudSim.isEventTimingEnabled()) {
+				long allocated = CloudSim.allocatedBytes();
+				long start = System.nanoTime();
+				processEvent(ev);
+				CloudSim.eventHandled(this, ev, System.nanoTime() - start, allocated);
+			} else {
+				processEvent(ev);
+			}
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -47,7 +47,7 @@ public class ExponentialDistr implements ContinuousDistribution {
 		if (mean <= 0.0) {
 			throw new IllegalArgumentException("Mean must be greated than 0.0");
 		}
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.split();
 		this.mean = mean;
 	}
 
@@ -56,7 +56,7 @@ public class GammaDistr implements ContinuousDistribution {
 			throw new IllegalArgumentException("Alpha and beta must be greater than 0.0");
 		}
 
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.split();
 		this.alpha = alpha;
 		this.beta = beta;
 	}
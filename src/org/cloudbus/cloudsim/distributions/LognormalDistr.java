@@ -55,7 +55,7 @@ public class LognormalDistr implements ContinuousDistribution {
 			throw new IllegalArgumentException("Mean and deviation must be greater than 0.0");
 		}
 
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.split();
 		this.mean = mean;
 		this.dev = dev;
 	}
@@ -0,0 +1,146 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.distributions;
+
+import java.util.Random;
+
+/**
+ * The random number streams of a simulation run, all derived from the seed of the run, so that a
+ * run is reproducible from its seed alone.
+ * <p>
+ * A named stream belongs to an entity and a purpose, such as the emissions of a sensor. It only
+ * depends on the seed and on the two names, not on the order in which the entities are created
+ * or draw their numbers, so the same entity meets the same numbers in every configuration run
+ * with the same seed. Generators with no owner to name them take the next stream split from the
+ * root of the run instead, which depends on the order of creation.
+ * <p>
+ * Named streams also depend on the label of the configuration being run, so two configurations
+ * run with the same seed are independent, unless common random numbers are on: then the label is
+ * left out and each entity meets the same numbers in both configurations, which makes the
+ * difference between their results vary much less than that of independent runs. With
+ * antithetic variates on, every stream returns the complements of its numbers, for the second
+ * run of an antithetic pair of replications with the same seed.
+ * <p>
+ * The streams are {@link SplitMixRandom}s, which do not synchronize: each should be used by its
+ * owner only.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class RandomStreams {
+
+	/** the seed of the runs that set none */
+	public static final long DEFAULT_SEED = 1;
+
+	private static long seed;
+
+	private static String configuration = "";
+
+	private static boolean commonRandomNumbers;
+
+	private static boolean antithetic;
+
+	/** the root of the streams split in order of creation */
+	private static SplitMixRandom root;
+
+	static {
+		setSeed(DEFAULT_SEED);
+	}
+
+	/**
+	 * Sets the seed of the run and restarts the streams split from the root. Streams created
+	 * before keep their state.
+	 *
+	 * @param seed the seed of the run
+	 */
+	public static synchronized void setSeed(long seed) {
+		RandomStreams.seed = seed;
+		root = new SplitMixRandom(SplitMixRandom.mix64(seed), SplitMixRandom.mixGamma(seed));
+		root.setAntithetic(antithetic);
+	}
+
+	/**
+	 * @return the seed of the run
+	 */
+	public static synchronized long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param entity the name of the entity that owns the stream
+	 * @param purpose what the entity draws the numbers for
+	 * @return a new generator at the start of the stream of the entity for the purpose
+	 */
+	public static synchronized Random getStream(String entity, String purpose) {
+		long key = SplitMixRandom.mix64(seed ^ hash(entity));
+		key = SplitMixRandom.mix64(key + hash(purpose));
+		if (!commonRandomNumbers) {
+			key = SplitMixRandom.mix64(key ^ hash(configuration));
+		}
+		SplitMixRandom stream = new SplitMixRandom(key, SplitMixRandom.mixGamma(key + seed));
+		stream.setAntithetic(antithetic);
+		return stream;
+	}
+
+	/**
+	 * @return a new generator, the next one split from the root of the run
+	 */
+	public static synchronized Random split() {
+		return root.split();
+	}
+
+	/**
+	 * @param configuration the label of the configuration being run, as its parameters
+	 */
+	public static synchronized void setConfiguration(String configuration) {
+		RandomStreams.configuration = configuration;
+	}
+
+	public static synchronized String getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @param commonRandomNumbers whether the named streams leave the configuration out, so that
+	 *            every configuration run with the same seed meets the same numbers
+	 */
+	public static synchronized void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		RandomStreams.commonRandomNumbers = commonRandomNumbers;
+	}
+
+	public static synchronized boolean isCommonRandomNumbers() {
+		return commonRandomNumbers;
+	}
+
+	/**
+	 * Makes the streams created from now on antithetic, and restarts the root.
+	 *
+	 * @param antithetic whether the streams return the complements of their numbers
+	 */
+	public static synchronized void setAntithetic(boolean antithetic) {
+		RandomStreams.antithetic = antithetic;
+		setSeed(seed);
+	}
+
+	public static synchronized boolean isAntithetic() {
+		return antithetic;
+	}
+
+	/**
+	 * FNV-1a over the characters of a string, 64 bits wide unlike {@link String#hashCode()}.
+	 */
+	private static long hash(String string) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < string.length(); i++) {
+			hash ^= string.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+}
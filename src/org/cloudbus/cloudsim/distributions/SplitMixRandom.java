@@ -0,0 +1,138 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.distributions;
+
+import java.util.Random;
+
+/**
+ * A SplitMix64 generator with the API of {@link Random}, so it can stand in for the generators
+ * the distributions hold. Unlike Random it keeps its state in plain fields, without atomic
+ * updates, so it is meant to be used by one entity, and {@link #split()} derives independent
+ * generators from it, as {@link java.util.SplittableRandom} does.
+ * <p>
+ * An antithetic generator returns the complement of every number the generator with the same
+ * seed returns: 1 - u for a double u, and the bitwise complement for bits. A replication run
+ * with antithetic generators is negatively correlated with the one run with the ordinary ones,
+ * so their average varies less than that of two independent replications.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class SplitMixRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	/** the odd increment of the generators created from a seed only */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private long state;
+
+	/** the odd increment of the state */
+	private long gamma;
+
+	private boolean antithetic;
+
+	/**
+	 * @param seed the initial state
+	 */
+	public SplitMixRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * @param seed the initial state
+	 * @param gamma the increment of the state, made odd
+	 */
+	public SplitMixRandom(long seed, long gamma) {
+		super(seed);
+		state = seed;
+		this.gamma = gamma | 1L;
+	}
+
+	/**
+	 * @return a new generator, independent of this one, which advances by one step
+	 */
+	public SplitMixRandom split() {
+		SplitMixRandom split = new SplitMixRandom(mix64(nextState()), mixGamma(nextState()));
+		split.setAntithetic(antithetic);
+		return split;
+	}
+
+	/**
+	 * Also resets the increment to that of the generators created from a seed only.
+	 */
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		state = seed;
+		gamma = GOLDEN_GAMMA;
+	}
+
+	private long nextState() {
+		return state += gamma;
+	}
+
+	private long nextBits() {
+		long bits = mix64(nextState());
+		return antithetic ? ~bits : bits;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextBits() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		return nextBits();
+	}
+
+	/**
+	 * @return a number in [0, 1), or in (0, 1] if antithetic
+	 */
+	@Override
+	public double nextDouble() {
+		double value = (mix64(nextState()) >>> 11) * DOUBLE_UNIT;
+		return antithetic ? 1 - value : value;
+	}
+
+	public boolean isAntithetic() {
+		return antithetic;
+	}
+
+	/**
+	 * @param antithetic whether the generator returns the complements of the numbers
+	 */
+	public void setAntithetic(boolean antithetic) {
+		this.antithetic = antithetic;
+	}
+
+	/**
+	 * The finalizer of SplitMix64, a bijection that spreads every bit of the input over the
+	 * output.
+	 */
+	public static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return an odd increment with enough bit transitions, from the given bits
+	 */
+	public static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int transitions = Long.bitCount(z ^ (z >>> 1));
+		return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+}
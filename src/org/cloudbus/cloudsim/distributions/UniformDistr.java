@@ -34,7 +34,7 @@ public class UniformDistr implements ContinuousDistribution {
 		if (min >= max) {
 			throw new IllegalArgumentException("Maximum must be greater than the minimum.");
 		}
-		numGen = new Random();
+		numGen = RandomStreams.split();
 		mag = max - min;
 		this.min = min;
 	}
@@ -55,7 +55,7 @@ public class ZipfDistr implements ContinuousDistribution {
 		if (shape <= 0.0) {
 			throw new IllegalArgumentException("Mean must be greated than 0.0 and population greater than 0");
 		}
-		numGen = new Random(System.currentTimeMillis());
+		numGen = RandomStreams.split();
 		this.shape = shape;
 		computeDen(shape, population);
 	}
@@ -0,0 +1,98 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The links of a topological graph by node, as the delay oracles see them: a link with no delay
+ * does not connect its nodes and the last link between two nodes replaces the previous ones.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public class AdjacencyList {
+
+	/**
+	 * delays of the links leaving each node, by destination node
+	 */
+	private List<Map<Integer, Float>> links;
+
+	private boolean directed;
+
+	/**
+	 * creates the adjacency lists of a graph
+	 * 
+	 * @param graph the topological graph as source-information
+	 * @param directed true if the links only go from their source to their destination
+	 */
+	public AdjacencyList(TopologicalGraph graph, boolean directed) {
+		this.directed = directed;
+		links = new ArrayList<Map<Integer, Float>>();
+		addNodes(graph.getNumberOfNodes());
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			addLink(itr.next());
+		}
+	}
+
+	/**
+	 * adds unconnected nodes up to the given number
+	 * 
+	 * @param totalNodeNum the new number of nodes
+	 */
+	public void addNodes(int totalNodeNum) {
+		while (links.size() < totalNodeNum) {
+			links.add(new HashMap<Integer, Float>());
+		}
+	}
+
+	/**
+	 * adds a link between two existing nodes
+	 * 
+	 * @param link the new link
+	 */
+	public void addLink(TopologicalLink link) {
+		putDelay(link.getSrcNodeID(), link.getDestNodeID(), link.getLinkDelay());
+		if (!directed) {
+			putDelay(link.getDestNodeID(), link.getSrcNodeID(), link.getLinkDelay());
+		}
+	}
+
+	private void putDelay(int srcID, int destID, float delay) {
+		if (delay == 0 || srcID == destID) {
+			links.get(srcID).remove(destID);
+		} else {
+			links.get(srcID).put(destID, delay);
+		}
+	}
+
+	/**
+	 * @param nodeID the id of a node
+	 * @return the delays of the links leaving the node, by destination node
+	 */
+	public Map<Integer, Float> getLinks(int nodeID) {
+		return links.get(nodeID);
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return links.size();
+	}
+
+	public boolean isDirected() {
+		return directed;
+	}
+
+}
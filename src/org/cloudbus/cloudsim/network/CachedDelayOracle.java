@@ -0,0 +1,74 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the delays of the most recently used pairs of nodes of another delay oracle, for the
+ * oracles whose delays take more than a lookup, as entities mostly exchange events with the same
+ * few others.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public class CachedDelayOracle implements DelayOracle {
+
+	private DelayOracle oracle;
+
+	/**
+	 * delays by pair of nodes, the source in the high bits, least recently used first
+	 */
+	private Map<Long, Float> delays;
+
+	/**
+	 * @param oracle the oracle whose delays are cached
+	 * @param capacity the number of pairs of nodes whose delays are cached
+	 */
+	public CachedDelayOracle(DelayOracle oracle, final int capacity) {
+		this.oracle = oracle;
+		delays = new LinkedHashMap<Long, Float>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Float> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	@Override
+	public float getDelay(int srcID, int destID) {
+		Long pair = ((long) srcID << 32) | (destID & 0xffffffffL);
+		Float delay = delays.get(pair);
+		if (delay == null) {
+			delay = oracle.getDelay(srcID, destID);
+			delays.put(pair, delay);
+		}
+		return delay;
+	}
+
+	/**
+	 * forgets the cached delays, once those of the oracle changed
+	 */
+	public void clear() {
+		delays.clear();
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return oracle.getNumberOfNodes();
+	}
+
+	public DelayOracle getOracle() {
+		return oracle;
+	}
+
+}
@@ -16,7 +16,7 @@ import java.util.Iterator;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements DelayOracle {
 
 	/**
 	 * matrix holding delay information between any two nodes
@@ -55,6 +55,7 @@ public class DelayMatrix_Float {
 	 * @param destID the id of the destination-node
 	 * @return the delay-count between the given two nodes
 	 */
+	@Override
 	public float getDelay(int srcID, int destID) {
 		// check the nodeIDs against internal array-boundarys
 		if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
@@ -64,6 +65,80 @@ public class DelayMatrix_Float {
 		return mDelayMatrix[srcID][destID];
 	}
 
+	@Override
+	public int getNumberOfNodes() {
+		return mTotalNodeNum;
+	}
+
+	/**
+	 * updates the delays for a link added between two nodes that had no link yet, in O(n^2)
+	 * instead of computing all shortest paths again: a path can only get shorter by going through
+	 * the new link
+	 * 
+	 * @param link the new link
+	 * @param totalNodeNum the number of nodes in the graph, including those of the link
+	 * @param directed true if the matrix is directed, false otherwise
+	 */
+	public void addLink(TopologicalLink link, int totalNodeNum, boolean directed) {
+		if (totalNodeNum > mTotalNodeNum) {
+			addNodes(totalNodeNum);
+		}
+
+		// as for the whole graph, a link without delay connects nothing
+		if (link.getLinkDelay() == 0 || link.getSrcNodeID() == link.getDestNodeID()) {
+			return;
+		}
+
+		addShortcut(link.getSrcNodeID(), link.getDestNodeID(), link.getLinkDelay());
+		if (!directed) {
+			addShortcut(link.getDestNodeID(), link.getSrcNodeID(), link.getLinkDelay());
+		}
+	}
+
+	/**
+	 * grows the matrix with unconnected nodes
+	 * 
+	 * @param totalNodeNum the new number of nodes
+	 */
+	private void addNodes(int totalNodeNum) {
+		float[][] delayMatrix = new float[totalNodeNum][totalNodeNum];
+		for (int row = 0; row < totalNodeNum; ++row) {
+			for (int col = 0; col < totalNodeNum; ++col) {
+				if (row < mTotalNodeNum && col < mTotalNodeNum) {
+					delayMatrix[row][col] = mDelayMatrix[row][col];
+				} else {
+					delayMatrix[row][col] = row == col ? 0 : Float.MAX_VALUE;
+				}
+			}
+		}
+		mDelayMatrix = delayMatrix;
+		mTotalNodeNum = totalNodeNum;
+	}
+
+	/**
+	 * shortens the paths that get shorter by going from the source to the destination through a
+	 * direct link
+	 */
+	private void addShortcut(int srcID, int destID, float delay) {
+		if (mDelayMatrix[srcID][destID] <= delay) {
+			return;
+		}
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			float toSrc = mDelayMatrix[row][srcID];
+			if (toSrc == Float.MAX_VALUE) {
+				continue;
+			}
+			float toDest = toSrc + delay;
+			float[] fromDest = mDelayMatrix[destID];
+			float[] fromRow = mDelayMatrix[row];
+			for (int col = 0; col < mTotalNodeNum; ++col) {
+				if (fromDest[col] != Float.MAX_VALUE && toDest + fromDest[col] < fromRow[col]) {
+					fromRow[col] = toDest + fromDest[col];
+				}
+			}
+		}
+	}
+
 	/**
 	 * creates all internal necessary network-distance structures from the given graph for
 	 * similarity we assume all kommunikation-distances are symmetrical thus leads to an undirected
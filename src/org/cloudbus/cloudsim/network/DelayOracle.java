@@ -0,0 +1,33 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+/**
+ * Answers the delay of the shortest path between two nodes of a topological graph. The delays are
+ * those of DelayMatrix_Float: a link with no delay does not connect its nodes, the last link
+ * between two nodes replaces the previous ones, a node is 0 away from itself and unconnected nodes
+ * are Float.MAX_VALUE apart.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public interface DelayOracle {
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay-count between the given two nodes
+	 */
+	float getDelay(int srcID, int destID);
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	int getNumberOfNodes();
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the delays between nodes on demand with Dijkstra's algorithm, from the adjacency lists
+ * of the graph, instead of holding the delays between all pairs of nodes as DelayMatrix_Float
+ * does. The delays from the most recently used sources are cached.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class Dijkstra_Float implements DelayOracle {
+
+	/**
+	 * default number of sources whose delays are cached
+	 */
+	public static final int DEFAULT_CACHED_SOURCES = 128;
+
+	protected AdjacencyList adjacency;
+
+	/**
+	 * delays from the cached sources to every node
+	 */
+	protected Map<Integer, float[]> cachedDelays;
+
+	/**
+	 * creates the adjacency lists of a graph
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if the links only go from their source to their destination
+	 */
+	public Dijkstra_Float(TopologicalGraph graph, boolean directed) {
+		this(graph, directed, DEFAULT_CACHED_SOURCES);
+	}
+
+	/**
+	 * creates the adjacency lists of a graph
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if the links only go from their source to their destination
+	 * @param cachedSources number of sources whose delays are cached
+	 */
+	public Dijkstra_Float(TopologicalGraph graph, boolean directed, final int cachedSources) {
+		adjacency = new AdjacencyList(graph, directed);
+		cachedDelays = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+				return size() > cachedSources;
+			}
+		};
+	}
+
+	/**
+	 * adds a link, and the nodes up to the given number, to the adjacency lists
+	 *
+	 * @param link the new link
+	 * @param totalNodeNum the number of nodes in the graph, including those of the link
+	 */
+	public void addLink(TopologicalLink link, int totalNodeNum) {
+		adjacency.addNodes(totalNodeNum);
+		adjacency.addLink(link);
+		cachedDelays.clear();
+	}
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay-count between the given two nodes
+	 */
+	@Override
+	public float getDelay(int srcID, int destID) {
+		if (srcID >= adjacency.size() || destID >= adjacency.size()) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		float[] delays = cachedDelays.get(srcID);
+		if (delays == null) {
+			delays = getShortestPaths(srcID);
+			cachedDelays.put(srcID, delays);
+		}
+		return delays[destID];
+	}
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @return the delays from the source to every node
+	 */
+	protected float[] getShortestPaths(int srcID) {
+		float[] delays = new float[adjacency.size()];
+		Arrays.fill(delays, Float.MAX_VALUE);
+		delays[srcID] = 0;
+		boolean[] settled = new boolean[adjacency.size()];
+		PriorityQueue<QueuedNode> queue = new PriorityQueue<QueuedNode>();
+		queue.add(new QueuedNode(srcID, 0));
+		while (!queue.isEmpty()) {
+			int node = queue.poll().node;
+			if (settled[node]) {
+				continue;
+			}
+			settled[node] = true;
+			for (Map.Entry<Integer, Float> link : adjacency.getLinks(node).entrySet()) {
+				int neighbour = link.getKey();
+				float delay = delays[node] + link.getValue();
+				if (!settled[neighbour] && delay < delays[neighbour]) {
+					delays[neighbour] = delay;
+					queue.add(new QueuedNode(neighbour, delay));
+				}
+			}
+		}
+		return delays;
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return adjacency.size();
+	}
+
+	/**
+	 * a node reached with some delay, waiting in the queue of Dijkstra's algorithm
+	 */
+	private static class QueuedNode implements Comparable<QueuedNode> {
+
+		private final int node;
+
+		private final float delay;
+
+		public QueuedNode(int node, float delay) {
+			this.node = node;
+			this.delay = delay;
+		}
+
+		@Override
+		public int compareTo(QueuedNode other) {
+			return Float.compare(delay, other.delay);
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Exact delays between the nodes of an undirected graph from hub labels, built by pruned landmark
+ * labelling: every node keeps the delays to a few hubs, such that each shortest path goes through
+ * a hub of both its ends. The nodes become hubs by decreasing degree, so the labels stay small on
+ * graphs with well connected cores, as network topologies usually have. A delay takes time linear
+ * in the size of the two labels and the memory is that of all labels.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class HubLabelDelayOracle implements DelayOracle {
+
+	/**
+	 * ranks of the hubs of each node, increasing
+	 */
+	private int[][] hubs;
+
+	/**
+	 * delays from each node to its hubs
+	 */
+	private double[][] hubDelays;
+
+	private int[] labelSizes;
+
+	/**
+	 * creates the hub labels of the nodes of an undirected graph
+	 *
+	 * @param graph the topological graph as source-information
+	 */
+	public HubLabelDelayOracle(TopologicalGraph graph) {
+		AdjacencyList adjacency = new AdjacencyList(graph, false);
+		int nodes = adjacency.size();
+		hubs = new int[nodes][];
+		hubDelays = new double[nodes][];
+		labelSizes = new int[nodes];
+		for (int node = 0; node < nodes; node++) {
+			hubs[node] = new int[2];
+			hubDelays[node] = new double[2];
+		}
+
+		Integer[] order = getNodesByDegree(adjacency);
+		// delays from the current hub to its own hubs, by rank, to prune with
+		double[] hubLabel = new double[nodes];
+		Arrays.fill(hubLabel, Double.MAX_VALUE);
+		double[] delays = new double[nodes];
+		Arrays.fill(delays, Double.MAX_VALUE);
+		int[] reached = new int[nodes];
+
+		for (int rank = 0; rank < nodes; rank++) {
+			int hub = order[rank];
+			for (int i = 0; i < labelSizes[hub]; i++) {
+				hubLabel[hubs[hub][i]] = hubDelays[hub][i];
+			}
+			int reachedCount = 0;
+			PriorityQueue<QueuedNode> queue = new PriorityQueue<QueuedNode>();
+			delays[hub] = 0;
+			reached[reachedCount++] = hub;
+			queue.add(new QueuedNode(hub, 0));
+			while (!queue.isEmpty()) {
+				QueuedNode queued = queue.poll();
+				int node = queued.node;
+				if (queued.delay > delays[node] || isCovered(node, queued.delay, hubLabel)) {
+					continue;
+				}
+				addHub(node, rank, queued.delay);
+				for (Map.Entry<Integer, Float> link : adjacency.getLinks(node).entrySet()) {
+					int neighbour = link.getKey();
+					double delay = queued.delay + link.getValue();
+					if (delay < delays[neighbour]) {
+						if (delays[neighbour] == Double.MAX_VALUE) {
+							reached[reachedCount++] = neighbour;
+						}
+						delays[neighbour] = delay;
+						queue.add(new QueuedNode(neighbour, delay));
+					}
+				}
+			}
+			for (int i = 0; i < reachedCount; i++) {
+				delays[reached[i]] = Double.MAX_VALUE;
+			}
+			for (int i = 0; i < labelSizes[hub]; i++) {
+				hubLabel[hubs[hub][i]] = Double.MAX_VALUE;
+			}
+		}
+
+		for (int node = 0; node < nodes; node++) {
+			hubs[node] = Arrays.copyOf(hubs[node], labelSizes[node]);
+			hubDelays[node] = Arrays.copyOf(hubDelays[node], labelSizes[node]);
+		}
+	}
+
+	private static Integer[] getNodesByDegree(final AdjacencyList adjacency) {
+		Integer[] order = new Integer[adjacency.size()];
+		for (int node = 0; node < order.length; node++) {
+			order[node] = node;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer node, Integer other) {
+				return adjacency.getLinks(other).size() - adjacency.getLinks(node).size();
+			}
+		});
+		return order;
+	}
+
+	/**
+	 * @return whether the hubs found so far already give a delay to the node no longer than the
+	 *         given one
+	 */
+	private boolean isCovered(int node, double delay, double[] hubLabel) {
+		for (int i = 0; i < labelSizes[node]; i++) {
+			double hubDelay = hubLabel[hubs[node][i]];
+			if (hubDelay != Double.MAX_VALUE && hubDelay + hubDelays[node][i] <= delay) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addHub(int node, int rank, double delay) {
+		int size = labelSizes[node];
+		if (size == hubs[node].length) {
+			hubs[node] = Arrays.copyOf(hubs[node], size * 2);
+			hubDelays[node] = Arrays.copyOf(hubDelays[node], size * 2);
+		}
+		hubs[node][size] = rank;
+		hubDelays[node][size] = delay;
+		labelSizes[node] = size + 1;
+	}
+
+	@Override
+	public float getDelay(int srcID, int destID) {
+		if (srcID >= hubs.length || destID >= hubs.length) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		if (srcID == destID) {
+			return 0;
+		}
+		int[] srcHubs = hubs[srcID];
+		int[] destHubs = hubs[destID];
+		double delay = Double.MAX_VALUE;
+		for (int i = 0, j = 0; i < srcHubs.length && j < destHubs.length;) {
+			if (srcHubs[i] < destHubs[j]) {
+				i++;
+			} else if (srcHubs[i] > destHubs[j]) {
+				j++;
+			} else {
+				delay = Math.min(delay, hubDelays[srcID][i++] + hubDelays[destID][j++]);
+			}
+		}
+		return delay == Double.MAX_VALUE ? Float.MAX_VALUE : (float) delay;
+	}
+
+	/**
+	 * @return the number of hubs of all nodes
+	 */
+	public long getLabelSize() {
+		long size = 0;
+		for (int[] label : hubs) {
+			size += label.length;
+		}
+		return size;
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return hubs.length;
+	}
+
+	/**
+	 * a node reached with some delay, waiting in the queue of the pruned Dijkstra
+	 */
+	private static class QueuedNode implements Comparable<QueuedNode> {
+
+		private final int node;
+
+		private final double delay;
+
+		public QueuedNode(int node, double delay) {
+			this.node = node;
+			this.delay = delay;
+		}
+
+		@Override
+		public int compareTo(QueuedNode other) {
+			return Double.compare(delay, other.delay);
+		}
+	}
+
+}
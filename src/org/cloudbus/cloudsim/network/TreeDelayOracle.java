@@ -0,0 +1,139 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Delays between the nodes of a forest, such as a hierarchical fog topology, from their lowest
+ * common ancestor: the delay between two nodes is their delays from the root minus twice that of
+ * their lowest common ancestor. The ancestors are stored by binary lifting, in O(n log n) memory,
+ * and a delay takes O(log n) time.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class TreeDelayOracle implements DelayOracle {
+
+	/**
+	 * ancestors[k][node] is the ancestor 2^k levels above the node, the root for the levels beyond
+	 */
+	private int[][] ancestors;
+
+	private int[] depths;
+
+	/**
+	 * delay of each node from the root of its tree
+	 */
+	private double[] rootDelays;
+
+	/**
+	 * root of the tree of each node
+	 */
+	private int[] roots;
+
+	/**
+	 * creates the ancestors of the nodes of an undirected graph
+	 *
+	 * @param graph the topological graph as source-information
+	 * @throws IllegalArgumentException if the graph has a cycle
+	 */
+	public TreeDelayOracle(TopologicalGraph graph) {
+		AdjacencyList adjacency = new AdjacencyList(graph, false);
+		int nodes = adjacency.size();
+		int levels = 1;
+		while ((1 << levels) < nodes) {
+			levels++;
+		}
+		ancestors = new int[levels][nodes];
+		depths = new int[nodes];
+		rootDelays = new double[nodes];
+		roots = new int[nodes];
+		Arrays.fill(roots, -1);
+
+		// walks each tree from its first node, which becomes its root
+		int[] stack = new int[nodes];
+		for (int root = 0; root < nodes; root++) {
+			if (roots[root] != -1) {
+				continue;
+			}
+			roots[root] = root;
+			ancestors[0][root] = root;
+			int size = 0;
+			stack[size++] = root;
+			while (size > 0) {
+				int node = stack[--size];
+				for (Map.Entry<Integer, Float> link : adjacency.getLinks(node).entrySet()) {
+					int child = link.getKey();
+					if (child == ancestors[0][node] && node != root) {
+						continue;
+					}
+					if (roots[child] != -1) {
+						throw new IllegalArgumentException("The topology has a cycle through node " + child);
+					}
+					roots[child] = root;
+					ancestors[0][child] = node;
+					depths[child] = depths[node] + 1;
+					rootDelays[child] = rootDelays[node] + link.getValue();
+					stack[size++] = child;
+				}
+			}
+		}
+		for (int k = 1; k < levels; k++) {
+			for (int node = 0; node < nodes; node++) {
+				ancestors[k][node] = ancestors[k - 1][ancestors[k - 1][node]];
+			}
+		}
+	}
+
+	@Override
+	public float getDelay(int srcID, int destID) {
+		if (srcID >= roots.length || destID >= roots.length) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		if (roots[srcID] != roots[destID]) {
+			return Float.MAX_VALUE;
+		}
+		int ancestor = getLowestCommonAncestor(srcID, destID);
+		return (float) (rootDelays[srcID] + rootDelays[destID] - 2 * rootDelays[ancestor]);
+	}
+
+	/**
+	 * @return the deepest node that is an ancestor of both nodes of the same tree, or one of them
+	 */
+	public int getLowestCommonAncestor(int node, int other) {
+		if (depths[node] < depths[other]) {
+			int swap = node;
+			node = other;
+			other = swap;
+		}
+		int climb = depths[node] - depths[other];
+		for (int k = 0; climb > 0; k++, climb >>= 1) {
+			if ((climb & 1) != 0) {
+				node = ancestors[k][node];
+			}
+		}
+		if (node == other) {
+			return node;
+		}
+		for (int k = ancestors.length - 1; k >= 0; k--) {
+			if (ancestors[k][node] != ancestors[k][other]) {
+				node = ancestors[k][node];
+				other = ancestors[k][other];
+			}
+		}
+		return ancestors[0][node];
+	}
+
+	@Override
+	public int getNumberOfNodes() {
+		return roots.length;
+	}
+
+}
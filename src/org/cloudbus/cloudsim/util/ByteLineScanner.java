@@ -0,0 +1,281 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads a text stream line by line and splits each line into fields, without creating a string
+ * per line or per field: the fields are offsets into the buffer the bytes are read into, and
+ * numbers are parsed from the bytes directly. Fields are separated by runs of delimiters. Only
+ * ASCII delimiters, signs, digits and points are recognized, which suits traces in any
+ * ASCII-compatible encoding.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ByteLineScanner {
+
+	/** blanks, the delimiters of the fields of traces in the Standard Workload Format */
+	public static final String WHITESPACE = " \t\r\f\u000B";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15 };
+
+	private final InputStream input;
+
+	private final boolean[] delimiters = new boolean[128];
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** number of bytes read into the buffer */
+	private int limit;
+
+	/** start of the next line */
+	private int position;
+
+	private boolean endOfStream;
+
+	private int lineStart;
+
+	private int lineEnd;
+
+	private int lineNumber;
+
+	private int fieldCount;
+
+	private int[] fieldStarts = new int[32];
+
+	private int[] fieldEnds = new int[32];
+
+	/**
+	 * @param input the stream to read, which the scanner does not close
+	 * @param delimiters the characters that separate the fields, '\r' should be one of them
+	 */
+	public ByteLineScanner(InputStream input, String delimiters) {
+		this.input = input;
+		for (int i = 0; i < delimiters.length(); i++) {
+			this.delimiters[delimiters.charAt(i)] = true;
+		}
+	}
+
+	/**
+	 * Reads the next line and splits it into fields.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	public boolean nextLine() throws IOException {
+		int newline = find();
+		while (newline < 0 && !endOfStream) {
+			fill();
+			newline = find();
+		}
+		if (newline < 0) {
+			if (position == limit) {
+				return false;
+			}
+			// the last line has no line feed
+			newline = limit;
+		}
+		lineStart = position;
+		lineEnd = newline;
+		position = Math.min(newline + 1, limit);
+		lineNumber++;
+		split();
+		return true;
+	}
+
+	/**
+	 * @return the index of the line feed that ends the next line, -1 if it is not read yet
+	 */
+	private int find() {
+		for (int i = position; i < limit; i++) {
+			if (buffer[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves the start of the next line to the start of the buffer, growing it if the line fills
+	 * it, and reads as many bytes as fit after.
+	 */
+	private void fill() throws IOException {
+		int remaining = limit - position;
+		if (remaining == buffer.length) {
+			byte[] larger = new byte[buffer.length * 2];
+			System.arraycopy(buffer, position, larger, 0, remaining);
+			buffer = larger;
+		} else {
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		}
+		position = 0;
+		limit = remaining;
+		int read = input.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			endOfStream = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	private void split() {
+		fieldCount = 0;
+		int i = lineStart;
+		while (i < lineEnd) {
+			while (i < lineEnd && isDelimiter(buffer[i])) {
+				i++;
+			}
+			if (i == lineEnd) {
+				break;
+			}
+			int start = i;
+			while (i < lineEnd && !isDelimiter(buffer[i])) {
+				i++;
+			}
+			if (fieldCount == fieldStarts.length) {
+				fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+				fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+			}
+			fieldStarts[fieldCount] = start;
+			fieldEnds[fieldCount] = i;
+			fieldCount++;
+		}
+	}
+
+	private boolean isDelimiter(byte b) {
+		return b >= 0 && delimiters[b];
+	}
+
+	/**
+	 * @return the number of the current line, from 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the number of fields of the current line
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @param prefix ASCII characters
+	 * @return whether the current line starts with the prefix
+	 */
+	public boolean startsWith(String prefix) {
+		if (lineEnd - lineStart < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (buffer[lineStart + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param field the index of a field of the current line
+	 * @return the integer the field holds
+	 * @throws NumberFormatException if the field is not an integer
+	 */
+	public long getLong(int field) {
+		int i = fieldStarts[field];
+		int end = fieldEnds[field];
+		boolean negative = buffer[i] == '-';
+		if (negative || buffer[i] == '+') {
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("Not an integer: " + getString(field));
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+				throw new NumberFormatException("Not an integer: " + getString(field));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @param field the index of a field of the current line
+	 * @return the integer the field holds
+	 * @throws NumberFormatException if the field is not an integer in the range of int
+	 */
+	public int getInt(int field) {
+		long value = getLong(field);
+		if (value != (int) value) {
+			throw new NumberFormatException("Out of the int range: " + getString(field));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses plain decimals such as 12 or -0.25 from the bytes, and other forms, such as
+	 * exponents, through {@link Double#parseDouble(String)}.
+	 *
+	 * @param field the index of a field of the current line
+	 * @return the number the field holds
+	 * @throws NumberFormatException if the field is not a number
+	 */
+	public double getDouble(int field) {
+		int i = fieldStarts[field];
+		int end = fieldEnds[field];
+		boolean negative = buffer[i] == '-';
+		if (negative || buffer[i] == '+') {
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = -1;
+		for (; i < end; i++) {
+			byte b = buffer[i];
+			if (b == '.' && decimals < 0) {
+				decimals = 0;
+			} else if (b >= '0' && b <= '9' && digits < 15) {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else {
+				return Double.parseDouble(getString(field));
+			}
+		}
+		if (digits == 0) {
+			return Double.parseDouble(getString(field));
+		}
+		// a single rounding, as Double.parseDouble, as both the mantissa and the power of ten are exact
+		double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @param field the index of a field of the current line
+	 * @return the field as a string, decoded as ISO-8859-1
+	 */
+	public String getString(int field) {
+		return new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field], ISO_8859_1);
+	}
+
+}
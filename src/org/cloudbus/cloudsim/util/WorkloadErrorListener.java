@@ -0,0 +1,27 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+/**
+ * Receives the lines of a workload trace that cannot be read as jobs, and the errors reading the
+ * trace, instead of having them ignored.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see WorkloadFileReader#setErrorListener(WorkloadErrorListener)
+ */
+public interface WorkloadErrorListener {
+
+	/**
+	 * @param fileName the name of the trace, or of the entry of a zip trace
+	 * @param line the number of the line, 0 for an error reading the trace
+	 * @param error the error
+	 */
+	void workloadError(String fileName, int line, Exception error);
+
+}
@@ -8,21 +8,22 @@
 
 package org.cloudbus.cloudsim.util;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.cloudbus.cloudsim.Cloudlet;
-import org.cloudbus.cloudsim.UtilizationModel;
-import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Log;
 
 /**
  * This class is responsible for reading resource traces from a file and creating a list of jobs.
@@ -34,8 +35,9 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * <li>If you need to load multiple trace files, then you need to create multiple instances of this
  * class <tt>each with a unique 
  *      	 entity name</tt>.
- * <li>If size of the trace file is huge or contains lots of traces please increase the JVM heap
- * size accordingly by using <tt>java -Xmx</tt> option when running the simulation.
+ * <li>If size of the trace file is huge or contains lots of traces, read its jobs one at a time
+ * through {@link #iterator()}, for instance with a {@link org.cloudbus.cloudsim.StreamingDatacenterBroker},
+ * rather than all at once with {@link #generateWorkload()}.
  * <li>The default job file size for sending to and receiving from a resource is
  * {@link gridsim.net.Link#DEFAULT_MTU}. However, you can specify the file size by using
  * {@link #setGridletFileSize(int)}.
@@ -53,13 +55,17 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * <li> {@link #setComment(String)}
  * <li> {@link #setField(int, int, int, int, int)}
  * </ul>
+ * <p>
+ * The lines that cannot be read as jobs, and the errors reading the file, go to the
+ * {@link WorkloadErrorListener} of {@link #setErrorListener(WorkloadErrorListener)}, or to the
+ * log if there is none.
  * 
  * @author Anthony Sulistio and Marcos Dias de Assuncao
  * @since 5.0
  * 
  * @see Workload
  */
-public class WorkloadFileReader implements WorkloadModel {
+public class WorkloadFileReader implements WorkloadModel, Iterable<WorkloadJob> {
 
 	private final File file; // file name
 
@@ -96,7 +102,9 @@ public class WorkloadFileReader implements WorkloadModel {
 	// comment
 	private static final int IRRELEVANT = -1; // irrelevant number
 
-	private String[] fieldArray = null; // a temp array storing all the fields
+	private WorkloadErrorListener errorListener = null;
+
+	private int errorCount = 0; // lines that could not be read as jobs, and read errors
 
 	/**
 	 * Create a new {@link WorkloadFileReader} object.
@@ -132,32 +140,51 @@ public class WorkloadFileReader implements WorkloadModel {
 	/**
 	 * Reads job information from a given file.
 	 * 
-	 * @return the list of gridlets read from the file; <code>null</code> in case of failure.
+	 * @return the list of gridlets read from the file
 	 */
 	@Override
 	public ArrayList<Cloudlet> generateWorkload() {
 		if (jobs == null) {
 			jobs = new ArrayList<Cloudlet>();
-
-			// create a temp array
-			fieldArray = new String[MAX_FIELD];
-
-			try {
-				if (file.getName().endsWith(".gz")) {
-					readGZIPFile(file);
-				} else if (file.getName().endsWith(".zip")) {
-					readZipFile(file);
-				} else {
-					readFile(file);
-				}
-			} catch (final FileNotFoundException e) {
-			} catch (final IOException e) {
+			for (WorkloadJob job : this) {
+				jobs.add(job.createCloudlet());
 			}
 		}
 
 		return jobs;
 	}
 
+	/**
+	 * Reads the jobs of the file one at a time, as they are needed, so that only the jobs not yet
+	 * done need to be held. Each call reads the file again.
+	 * 
+	 * @return the jobs of the file, in the order of its lines; the iterator is {@link Closeable},
+	 *         to release the file before its end
+	 */
+	@Override
+	public Iterator<WorkloadJob> iterator() {
+		return new JobIterator();
+	}
+
+	/**
+	 * @param errorListener receives the lines that cannot be read as jobs and the read errors,
+	 *        null to log them
+	 */
+	public void setErrorListener(final WorkloadErrorListener errorListener) {
+		this.errorListener = errorListener;
+	}
+
+	public WorkloadErrorListener getErrorListener() {
+		return errorListener;
+	}
+
+	/**
+	 * @return the number of lines that could not be read as jobs and of read errors so far
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
 	/**
 	 * Identifies the start of a comment line.
 	 * 
@@ -249,247 +276,206 @@ public class WorkloadFileReader implements WorkloadModel {
 	// ------------------- PRIVATE METHODS -------------------
 
 	/**
-	 * Creates a Gridlet with the given information and adds to the list
+	 * Creates a job from the fields of a line of the trace.
 	 * 
-	 * @param id a Gridlet ID
-	 * @param submitTime Gridlet's submit time
-	 * @param runTime Gridlet's run time
-	 * @param numProc number of processors
-	 * @param reqRunTime user estimated run time
-	 * @param userID user id
-	 * @param groupID user's group id
-	 * @pre id >= 0
-	 * @pre submitTime >= 0
-	 * @pre runTime >= 0
-	 * @pre numProc > 0
-	 * @post $none
+	 * @param scanner the scanner on the line
+	 * @param count the number of jobs read before
+	 * @return the job
+	 * @throws NumberFormatException if a field is not an integer
 	 */
-	private void createJob(
-			final int id,
-			final long submitTime,
-			final int runTime,
-			final int numProc,
-			final int reqRunTime,
-			final int userID,
-			final int groupID) {
-		// create the cloudlet
-		final int len = runTime * rating;
-		UtilizationModel utilizationModel = new UtilizationModelFull();
-		final Cloudlet wgl = new Cloudlet(
-				id,
-				len,
-				numProc,
-				0,
-				0,
-				utilizationModel,
-				utilizationModel,
-				utilizationModel);
-		jobs.add(wgl);
-	}
-
-	/**
-	 * Extracts relevant information from a given array
-	 * 
-	 * @param array an array of String
-	 * @param line a line number
-	 * @pre array != null
-	 * @pre line > 0
-	 */
-	private void extractField(final String[] array, final int line) {
-		try {
-			Integer obj = null;
-
-			// get the job number
-			int id = 0;
-			if (JOB_NUM == IRRELEVANT) {
-				id = jobs.size() + 1;
-			} else {
-				obj = new Integer(array[JOB_NUM].trim());
-				id = obj.intValue();
-			}
+	private WorkloadJob createJob(final ByteLineScanner scanner, final int count) {
+		// get the job number
+		int id = 0;
+		if (JOB_NUM == IRRELEVANT) {
+			id = count + 1;
+		} else {
+			id = scanner.getInt(JOB_NUM);
+		}
 
-			// get the submit time
-			final Long l = new Long(array[SUBMIT_TIME].trim());
-			final long submitTime = l.intValue();
+		// get the submit time
+		final long submitTime = scanner.getLong(SUBMIT_TIME);
 
-			// get the user estimated run time
-			obj = new Integer(array[REQ_RUN_TIME].trim());
-			final int reqRunTime = obj.intValue();
+		// get the user estimated run time
+		final int reqRunTime = scanner.getInt(REQ_RUN_TIME);
 
-			// if the required run time field is ignored, then use
-			// the actual run time
-			obj = new Integer(array[RUN_TIME].trim());
-			int runTime = obj.intValue();
+		// if the required run time field is ignored, then use
+		// the actual run time
+		int runTime = scanner.getInt(RUN_TIME);
 
-			final int userID = new Integer(array[USER_ID].trim()).intValue();
-			final int groupID = new Integer(array[GROUP_ID].trim()).intValue();
+		final int userID = scanner.getInt(USER_ID);
+		final int groupID = scanner.getInt(GROUP_ID);
 
-			// according to the SWF manual, runtime of 0 is possible due
-			// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
-			if (runTime <= 0) {
-				runTime = 1; // change to 1 second
-			}
+		// according to the SWF manual, runtime of 0 is possible due
+		// to rounding down. E.g. runtime is 0.4 seconds -> runtime = 0
+		if (runTime <= 0) {
+			runTime = 1; // change to 1 second
+		}
 
-			// get the number of allocated processors
-			obj = new Integer(array[REQ_NUM_PROC].trim());
-			int numProc = obj.intValue();
+		// get the number of allocated processors
+		int numProc = scanner.getInt(REQ_NUM_PROC);
 
-			// if the required num of allocated processors field is ignored
-			// or zero, then use the actual field
-			if (numProc == IRRELEVANT || numProc == 0) {
-				obj = new Integer(array[NUM_PROC].trim());
-				numProc = obj.intValue();
-			}
+		// if the required num of allocated processors field is ignored
+		// or zero, then use the actual field
+		if (numProc == IRRELEVANT || numProc == 0) {
+			numProc = scanner.getInt(NUM_PROC);
+		}
 
-			// finally, check if the num of PEs required is valid or not
-			if (numProc <= 0) {
-				numProc = 1;
-			}
-			createJob(id, submitTime, runTime, numProc, reqRunTime, userID, groupID);
-		} catch (final Exception e) {
+		// finally, check if the num of PEs required is valid or not
+		if (numProc <= 0) {
+			numProc = 1;
+		}
+		return new WorkloadJob(id, submitTime, (long) runTime * rating, numProc, reqRunTime, userID, groupID);
+	}
 
+	private void reportError(final String fileName, final int line, final Exception error) {
+		errorCount++;
+		if (errorListener != null) {
+			errorListener.workloadError(fileName, line, error);
+		} else {
+			Log.printLine(fileName + ":" + line + ": " + error.getMessage());
 		}
 	}
 
 	/**
-	 * Breaks a line of string into many fields.
-	 * 
-	 * @param line a line of string
-	 * @param lineNum a line number
-	 * @pre line != null
-	 * @pre lineNum > 0
-	 * @post $none
+	 * Reads the jobs of a text, gzip or zip file one line at the time, the entries of a zip file
+	 * one after the other.
 	 */
-	private void parseValue(final String line, final int lineNum) {
-		// skip a comment line
-		if (line.startsWith(COMMENT)) {
-			return;
-		}
+	private class JobIterator implements Iterator<WorkloadJob>, Closeable {
 
-		final String[] sp = line.split("\\s+"); // split the fields based on a
-		// space
-		int len = 0; // length of a string
-		int index = 0; // the index of an array
+		private ZipFile zipFile = null;
 
-		// check for each field in the array
-		for (final String elem : sp) {
-			len = elem.length(); // get the length of a string
+		private Enumeration<? extends ZipEntry> zipEntries = null;
 
-			// if it is empty then ignore
-			if (len == 0) {
-				continue;
-			}
-			fieldArray[index] = elem;
-			index++;
-		}
+		private boolean opened = false;
 
-		if (index == MAX_FIELD) {
-			extractField(fieldArray, lineNum);
-		}
-	}
+		private InputStream input = null;
 
-	/**
-	 * Reads a text file one line at the time
-	 * 
-	 * @param fl a file name
-	 * @return <code>true</code> if successful, <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
-	 */
-	private boolean readFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fl)));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
+		private String inputName = null;
+
+		private ByteLineScanner scanner = null;
+
+		private WorkloadJob next = null;
+
+		private int count = 0; // jobs read so far
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				next = readJob();
 			}
+			return next != null;
+		}
 
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
+		@Override
+		public WorkloadJob next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
+			WorkloadJob job = next;
+			next = null;
+			count++;
+			return job;
 		}
 
-		return success;
-	}
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 
-	/**
-	 * Reads a gzip file one line at the time
-	 * 
-	 * @param fl a gzip file name
-	 * @return <code>true</code> if successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 * @throws FileNotFoundException if the file was not found
-	 */
-	private boolean readGZIPFile(final File fl) throws IOException, FileNotFoundException {
-		boolean success = false;
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(fl))));
-
-			// read one line at the time
-			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
-				line++;
+		/**
+		 * @return the next job, null at the end of the file
+		 */
+		private WorkloadJob readJob() {
+			while (scanner != null || openNext()) {
+				try {
+					while (scanner.nextLine()) {
+						// skip a comment line and an empty line
+						if (scanner.startsWith(COMMENT) || scanner.getFieldCount() == 0) {
+							continue;
+						}
+						if (scanner.getFieldCount() != MAX_FIELD) {
+							reportError(inputName, scanner.getLineNumber(), new IllegalArgumentException(
+									scanner.getFieldCount() + " fields instead of " + MAX_FIELD));
+							continue;
+						}
+						try {
+							return createJob(scanner, count);
+						} catch (final NumberFormatException e) {
+							reportError(inputName, scanner.getLineNumber(), e);
+						}
+					}
+				} catch (final IOException e) {
+					reportError(inputName, 0, e);
+				}
+				closeInput();
 			}
+			return null;
+		}
 
-			reader.close();
-			success = true;
-		} finally {
-			if (reader != null) {
-				reader.close();
+		/**
+		 * Opens the file, or its next zip entry.
+		 * 
+		 * @return false if there is nothing left to read
+		 */
+		private boolean openNext() {
+			try {
+				if (!opened) {
+					opened = true;
+					if (file.getName().endsWith(".zip")) {
+						zipFile = new ZipFile(file);
+						zipEntries = zipFile.entries();
+					} else if (file.getName().endsWith(".gz")) {
+						input = new GZIPInputStream(new FileInputStream(file), 1 << 16);
+					} else {
+						input = new FileInputStream(file);
+					}
+					inputName = file.getName();
+				}
+				if (zipEntries != null) {
+					if (!zipEntries.hasMoreElements()) {
+						close();
+						return false;
+					}
+					final ZipEntry zipEntry = zipEntries.nextElement();
+					input = zipFile.getInputStream(zipEntry);
+					inputName = file.getName() + "!" + zipEntry.getName();
+				}
+				if (input == null) {
+					return false;
+				}
+				scanner = new ByteLineScanner(input, ByteLineScanner.WHITESPACE);
+				return true;
+			} catch (final IOException e) {
+				reportError(file.getName(), 0, e);
+				close();
+				return false;
 			}
 		}
 
-		return success;
-	}
-
-	/**
-	 * Reads a Zip file.
-	 * 
-	 * @param fl a zip file name
-	 * @return <code>true</code> if reading a file is successful; <code>false</code> otherwise.
-	 * @throws IOException if the there was any error reading the file
-	 */
-	private boolean readZipFile(final File fl) throws IOException {
-		boolean success = false;
-		ZipFile zipFile = null;
-		try {
-			BufferedReader reader = null;
-
-			// ZipFile offers an Enumeration of all the files in the file
-			zipFile = new ZipFile(fl);
-			final Enumeration<? extends ZipEntry> e = zipFile.entries();
-			while (e.hasMoreElements()) {
-				success = false; // reset the value again
-				final ZipEntry zipEntry = e.nextElement();
-
-				reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(zipEntry)));
-
-				// read one line at the time
-				int line = 1;
-				while (reader.ready()) {
-					parseValue(reader.readLine(), line);
-					line++;
+		private void closeInput() {
+			scanner = null;
+			if (input != null) {
+				try {
+					input.close();
+				} catch (final IOException e) {
+					reportError(inputName, 0, e);
 				}
-
-				reader.close();
-				success = true;
+				input = null;
 			}
-		} finally {
+		}
+
+		@Override
+		public void close() {
+			closeInput();
+			zipEntries = null;
 			if (zipFile != null) {
-				zipFile.close();
+				try {
+					zipFile.close();
+				} catch (final IOException e) {
+					reportError(file.getName(), 0, e);
+				}
+				zipFile = null;
 			}
 		}
-
-		return success;
 	}
 }
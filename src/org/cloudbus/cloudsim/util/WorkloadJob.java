@@ -0,0 +1,92 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+
+/**
+ * A job of a workload trace, read but not yet turned into a cloudlet, so that a trace can be
+ * held until the simulation reaches the submit time of its jobs.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class WorkloadJob {
+
+	private final int id;
+
+	private final long submitTime;
+
+	private final long length;
+
+	private final int numProc;
+
+	private final int reqRunTime;
+
+	private final int userID;
+
+	private final int groupID;
+
+	/**
+	 * @param id the job ID
+	 * @param submitTime the submit time, in seconds from the start of the trace
+	 * @param length the length of the cloudlet, for 1 PE
+	 * @param numProc the number of PEs
+	 * @param reqRunTime the run time the user estimated
+	 * @param userID the id of the user
+	 * @param groupID the id of the group of the user
+	 */
+	public WorkloadJob(int id, long submitTime, long length, int numProc, int reqRunTime, int userID, int groupID) {
+		this.id = id;
+		this.submitTime = submitTime;
+		this.length = length;
+		this.numProc = numProc;
+		this.reqRunTime = reqRunTime;
+		this.userID = userID;
+		this.groupID = groupID;
+	}
+
+	/**
+	 * @return a new cloudlet of the job, without input and output files, using its PEs fully
+	 */
+	public Cloudlet createCloudlet() {
+		UtilizationModel utilizationModel = new UtilizationModelFull();
+		return new Cloudlet(id, length, numProc, 0, 0, utilizationModel, utilizationModel, utilizationModel);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public long getSubmitTime() {
+		return submitTime;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public int getNumProc() {
+		return numProc;
+	}
+
+	public int getReqRunTime() {
+		return reqRunTime;
+	}
+
+	public int getUserID() {
+		return userID;
+	}
+
+	public int getGroupID() {
+		return groupID;
+	}
+
+}
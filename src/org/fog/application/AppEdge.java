@@ -45,6 +45,15 @@ public class AppEdge {
 	 * Denotes if the application edge is a periodic edge.
 	 */
 	private boolean isPeriodic;
+	/**
+	 * Time within which a tuple carried by the application edge should reach its destination,
+	 * from its creation; Double.MAX_VALUE if the tuples have no deadline.
+	 */
+	private double deadline = Double.MAX_VALUE;
+	/**
+	 * Priority of tuples carried by the application edge, higher first.
+	 */
+	private int priority;
 	
 	public AppEdge(){
 		
@@ -138,6 +147,26 @@ public class AppEdge {
 		this.isPeriodic = isPeriodic;
 	}
 
+	public double getDeadline() {
+		return deadline;
+	}
+
+	public void setDeadline(double deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean hasDeadline() {
+		return deadline < Double.MAX_VALUE;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
+
 	@Override
 	public String toString() {
 		return "AppEdge [source=" + source + ", destination=" + destination
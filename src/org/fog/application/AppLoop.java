@@ -7,6 +7,11 @@ import org.fog.utils.TimeKeeper;
 public class AppLoop {
 	private int loopId;
 	private List<String> modules;
+	/**
+	 * Time within which a tuple should complete the loop, from the emission it results from;
+	 * Double.MAX_VALUE if the loop has no deadline.
+	 */
+	private double deadline = Double.MAX_VALUE;
 	public AppLoop(List<String> modules){
 		setLoopId(TimeKeeper.getInstance().getUniqueId());
 		setModules(modules);
@@ -66,5 +71,17 @@ public class AppLoop {
 	public void setLoopId(int loopId) {
 		this.loopId = loopId;
 	}
+
+	public double getDeadline() {
+		return deadline;
+	}
+
+	public void setDeadline(double deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean hasDeadline() {
+		return deadline < Double.MAX_VALUE;
+	}
 	
 }
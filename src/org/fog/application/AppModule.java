@@ -76,7 +76,7 @@ public class AppModule extends PowerVm{
 		setDownInstanceIdsMaps(new HashMap<String, List<Integer>>());
 	}
 	public AppModule(AppModule operator) {
-		super(FogUtils.generateEntityId(), operator.getUserId(), operator.getMips(), 1, operator.getRam(), operator.getBw(), operator.getSize(), 1, operator.getVmm(), new TupleScheduler(operator.getMips(), 1), operator.getSchedulingInterval());
+		super(FogUtils.generateEntityId(), operator.getUserId(), operator.getMips(), 1, operator.getRam(), operator.getBw(), operator.getSize(), 1, operator.getVmm(), copyTupleScheduler(operator), operator.getSchedulingInterval());
 		setName(operator.getName());
 		setAppId(operator.getAppId());
 		setInMigration(false);
@@ -89,6 +89,19 @@ public class AppModule extends PowerVm{
 		setDownInstanceIdsMaps(new HashMap<String, List<Integer>>());
 	}
 	
+	private static TupleScheduler copyTupleScheduler(AppModule operator) {
+		if(operator.getCloudletScheduler() instanceof TupleScheduler)
+			return ((TupleScheduler) operator.getCloudletScheduler()).createCopy(operator.getMips(), 1);
+		return new TupleScheduler(operator.getMips(), 1);
+	}
+	
+	/**
+	 * Replaces the scheduler of the tuples of the module, before the module is placed.
+	 */
+	public void setTupleScheduler(TupleScheduler tupleScheduler) {
+		setCloudletScheduler(tupleScheduler);
+	}
+	
 	public void subscribeActuator(int id, String tuplyType){
 		if(!getActuatorSubscriptions().containsKey(tuplyType))
 			getActuatorSubscriptions().put(tuplyType, new ArrayList<Integer>());
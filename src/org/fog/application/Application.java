@@ -7,6 +7,8 @@ import java.util.Map;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.distributions.RandomStreams;
+import org.fog.application.selectivity.FractionalSelectivity;
 import org.fog.application.selectivity.SelectivityModel;
 import org.fog.entities.Tuple;
 import org.fog.scheduler.TupleScheduler;
@@ -113,6 +115,9 @@ public class Application {
 	public void addTupleMapping(String moduleName, String inputTupleType, String outputTupleType, SelectivityModel selectivityModel){
 		AppModule module = getModuleByName(moduleName);
 		module.getSelectivityMap().put(new Pair<String, String>(inputTupleType, outputTupleType), selectivityModel);
+		if(selectivityModel instanceof FractionalSelectivity)
+			((FractionalSelectivity) selectivityModel).setRandom(RandomStreams.getStream(getAppId()+"/"+moduleName,
+					"selectivity "+inputTupleType+"->"+outputTupleType));
 	}
 	
 	/**
@@ -196,12 +201,14 @@ public class Application {
 									inputTuple.getUtilizationModelBw()
 									);
 							tuple.setActualTupleId(inputTuple.getActualTupleId());
+							tuple.setEmissionId(inputTuple.getEmissionId());
 							tuple.setUserId(inputTuple.getUserId());
 							tuple.setAppId(inputTuple.getAppId());
 							tuple.setDestModuleName(edge.getDestination());
 							tuple.setSrcModuleName(edge.getSource());
 							tuple.setDirection(Tuple.ACTUATOR);
 							tuple.setTupleType(edge.getTupleType());
+							tuple.setPriorityAndDeadline(edge);
 							tuple.setSourceDeviceId(sourceDeviceId);
 							tuple.setSourceModuleId(sourceModuleId);
 							//tuple.setActuatorId(actuatorId);
@@ -219,12 +226,15 @@ public class Application {
 								inputTuple.getUtilizationModelBw()
 								);
 						tuple.setActualTupleId(inputTuple.getActualTupleId());
+						tuple.setEmissionId(inputTuple.getEmissionId());
 						tuple.setUserId(inputTuple.getUserId());
 						tuple.setAppId(inputTuple.getAppId());
 						tuple.setDestModuleName(edge.getDestination());
 						tuple.setSrcModuleName(edge.getSource());
 						tuple.setDirection(edge.getDirection());
 						tuple.setTupleType(edge.getTupleType());
+						tuple.setPriorityAndDeadline(edge);
+						tuple.setSourceDeviceId(sourceDeviceId);
 						tuple.setSourceModuleId(sourceModuleId);
 
 						tuples.add(tuple);
@@ -260,6 +270,7 @@ public class Application {
 				tuple.setSrcModuleName(edge.getSource());
 				tuple.setDirection(Tuple.ACTUATOR);
 				tuple.setTupleType(edge.getTupleType());
+				tuple.setPriorityAndDeadline(edge);
 				tuple.setSourceDeviceId(sourceDeviceId);
 				tuple.setActuatorId(actuatorId);
 				tuple.setSourceModuleId(sourceModuleId);
@@ -283,6 +294,7 @@ public class Application {
 			tuple.setSrcModuleName(edge.getSource());
 			tuple.setDirection(edge.getDirection());
 			tuple.setTupleType(edge.getTupleType());
+			tuple.setPriorityAndDeadline(edge);
 			tuple.setSourceModuleId(sourceModuleId);
 
 			return tuple;
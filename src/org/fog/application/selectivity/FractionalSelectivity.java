@@ -1,5 +1,9 @@
 package org.fog.application.selectivity;
 
+import java.util.Random;
+
+import org.cloudbus.cloudsim.distributions.RandomStreams;
+
 /**
  * Generates an output tuple for an incoming input tuple with a fixed probability
  * @author Harshit Gupta
@@ -12,6 +16,11 @@ public class FractionalSelectivity implements SelectivityModel{
 	 */
 	double selectivity;
 	
+	/**
+	 * The generator of the draws, the next stream of the run if none was set
+	 */
+	private Random random;
+	
 	public FractionalSelectivity(double selectivity){
 		setSelectivity(selectivity);
 	}
@@ -24,11 +33,20 @@ public class FractionalSelectivity implements SelectivityModel{
 	
 	@Override
 	public boolean canSelect() {
-		if(Math.random() < getSelectivity()) // if the probability condition is satisfied
+		if(getRandom().nextDouble() < getSelectivity()) // if the probability condition is satisfied
 			return true;
 		return false;
 	}
 	
+	public Random getRandom() {
+		if(random == null)
+			random = RandomStreams.split();
+		return random;
+	}
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+	
 	@Override
 	public double getMeanRate() {
 		return getSelectivity(); // the average rate of tuple generation is the fixed probability value
@@ -1,11 +1,17 @@
 package org.fog.entities;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.Cloudlet;
@@ -17,6 +23,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.power.PowerDatacenter;
 import org.cloudbus.cloudsim.power.PowerHost;
@@ -29,14 +36,24 @@ import org.fog.application.AppLoop;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.FairShareLinkScheduler;
+import org.fog.scheduler.InstanceBalancer;
+import org.fog.scheduler.PriorityLinkQueue;
+import org.fog.scheduler.PriorityTupleScheduler;
+import org.fog.scheduler.RoundRobinBalancer;
 import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.scheduler.TailDropPolicy;
+import org.fog.scheduler.TupleDropPolicy;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
+import org.fog.utils.ModuleMigration;
+import org.fog.utils.ModuleScaling;
 import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
+import org.fog.utils.record.TupleRecorder;
 
 public class FogDevice extends PowerDatacenter {
 	protected Queue<Tuple> northTupleQueue;
@@ -66,6 +83,14 @@ public class FogDevice extends PowerDatacenter {
 	 * IDs of the children Fog devices
 	 */
 	protected List<Integer> childrenIds;
+	/**
+	 * Membership index over childrenIds, kept in step by setChildrenIds and addChildId
+	 */
+	private Set<Integer> childrenIdSet;
+	/**
+	 * Read-only view of childrenIds handed out by getChildrenIds
+	 */
+	private List<Integer> childrenIdsView;
 
 	protected Map<Integer, List<String>> childToOperatorsMap;
 	
@@ -95,6 +120,99 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected Map<String, Map<String, Integer>> moduleInstanceCount;
 	
+	/**
+	 * Modules migrated away from this device, by name, to re-route the tuples still arriving for them
+	 */
+	protected Map<String, ModuleMigration> migratedModules;
+	/**
+	 * MI of the tuples submitted to each module since the last call of resetLoads
+	 */
+	protected Map<String, Double> moduleLoads;
+	/**
+	 * Size of the tuples submitted to each module since the last call of resetLoads
+	 */
+	protected Map<String, Double> moduleInputSizes;
+	/**
+	 * Size of the tuples sent up since the last call of resetLoads
+	 */
+	protected double uplinkLoad;
+	/**
+	 * Time the tuples completed by each module since the last call of resetLoads spent on it
+	 */
+	protected Map<String, Double> moduleExecutionDelays;
+	/**
+	 * Number of tuples completed by each module since the last call of resetLoads
+	 */
+	protected Map<String, Integer> moduleExecutedTuples;
+	
+	/**
+	 * Instances over which the tuples for a module are balanced, by module name, for the modules
+	 * scaled out; the module hosted here comes first
+	 */
+	protected Map<String, List<AppModule>> moduleInstances;
+	/**
+	 * Scale-outs of the instances in moduleInstances that run on other devices
+	 */
+	protected Map<AppModule, ModuleScaling> remoteInstances;
+	/**
+	 * MI of the tuples sent to the instances on other devices, by module name, since the last call
+	 * of resetLoads
+	 */
+	protected Map<String, Double> remoteLoads;
+	/**
+	 * Scale-outs of the instances started on this device, for this device or another one
+	 */
+	protected Map<AppModule, ModuleScaling> startedInstances;
+	/**
+	 * MI of the tuples other devices sent to the instances started here for them, by module name,
+	 * since the last call of resetLoads; they are part of moduleLoads as well
+	 */
+	protected Map<String, Double> hostedLoads;
+	/**
+	 * Started instances that stop once their tuples are executed
+	 */
+	protected Set<AppModule> retiringInstances;
+	protected InstanceBalancer instanceBalancer;
+	/**
+	 * Whether a module gets at most its own MIPS when it has tuples, rather than all those of the
+	 * device; an instance then adds capacity until the MIPS of the device are used up
+	 */
+	protected boolean moduleMipsLimited;
+	
+	/**
+	 * Tuples the queue of the uplink holds at most, unbounded if negative
+	 */
+	protected int northQueueCapacity;
+	/**
+	 * Tuples the queue of the downlinks holds at most, unbounded if negative
+	 */
+	protected int southQueueCapacity;
+	protected TupleDropPolicy tupleDropPolicy;
+	/**
+	 * Tuples dropped from the full link queues, by tuple type
+	 */
+	protected Map<String, Integer> droppedTuples;
+	/**
+	 * Fraction of the capacity of the uplink queue from which the device is congested
+	 */
+	protected double backPressureThreshold;
+	/**
+	 * Whether the links send the queued tuple with the highest priority, the earliest deadline
+	 * among those, then the oldest, rather than the oldest
+	 */
+	protected boolean priorityLinkQueues;
+	/**
+	 * Whether the MIPS go to the modules in the order of their most urgent tuple, rather than being
+	 * shared among all modules with tuples
+	 */
+	protected boolean priorityMipsAllocation;
+	/**
+	 * Share the bandwidth of the uplink, and of the downlinks, among the tuples in transmission when
+	 * set, instead of sending the tuples one after the other through the link queues
+	 */
+	protected FairShareLinkScheduler northLinkScheduler;
+	protected FairShareLinkScheduler southLinkScheduler;
+	
 	public FogDevice(
 			String name, 
 			FogDeviceCharacteristics characteristics,
@@ -132,6 +250,11 @@ public class FogDevice extends PowerDatacenter {
 		southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
 		setNorthLinkBusy(false);
 		setSouthLinkBusy(false);
+		northQueueCapacity = -1;
+		southQueueCapacity = -1;
+		tupleDropPolicy = new TailDropPolicy();
+		droppedTuples = new HashMap<String, Integer>();
+		backPressureThreshold = 1;
 		
 		
 		setChildrenIds(new ArrayList<Integer>());
@@ -146,6 +269,18 @@ public class FogDevice extends PowerDatacenter {
 		setTotalCost(0);
 		setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
 		setChildToLatencyMap(new HashMap<Integer, Double>());
+		migratedModules = new HashMap<String, ModuleMigration>();
+		moduleLoads = new HashMap<String, Double>();
+		moduleInputSizes = new HashMap<String, Double>();
+		moduleExecutionDelays = new HashMap<String, Double>();
+		moduleExecutedTuples = new HashMap<String, Integer>();
+		moduleInstances = new HashMap<String, List<AppModule>>();
+		remoteInstances = new HashMap<AppModule, ModuleScaling>();
+		remoteLoads = new HashMap<String, Double>();
+		startedInstances = new HashMap<AppModule, ModuleScaling>();
+		hostedLoads = new HashMap<String, Double>();
+		retiringInstances = new HashSet<AppModule>();
+		instanceBalancer = new RoundRobinBalancer();
 	}
 
 	public FogDevice(
@@ -216,6 +351,11 @@ public class FogDevice extends PowerDatacenter {
 		southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
 		setNorthLinkBusy(false);
 		setSouthLinkBusy(false);
+		northQueueCapacity = -1;
+		southQueueCapacity = -1;
+		tupleDropPolicy = new TailDropPolicy();
+		droppedTuples = new HashMap<String, Integer>();
+		backPressureThreshold = 1;
 		
 		
 		setChildrenIds(new ArrayList<Integer>());
@@ -230,6 +370,18 @@ public class FogDevice extends PowerDatacenter {
 		setTotalCost(0);
 		setChildToLatencyMap(new HashMap<Integer, Double>());
 		setModuleInstanceCount(new HashMap<String, Map<String, Integer>>());
+		migratedModules = new HashMap<String, ModuleMigration>();
+		moduleLoads = new HashMap<String, Double>();
+		moduleInputSizes = new HashMap<String, Double>();
+		moduleExecutionDelays = new HashMap<String, Double>();
+		moduleExecutedTuples = new HashMap<String, Integer>();
+		moduleInstances = new HashMap<String, List<AppModule>>();
+		remoteInstances = new HashMap<AppModule, ModuleScaling>();
+		remoteLoads = new HashMap<String, Double>();
+		startedInstances = new HashMap<AppModule, ModuleScaling>();
+		hostedLoads = new HashMap<String, Double>();
+		retiringInstances = new HashSet<AppModule>();
+		instanceBalancer = new RoundRobinBalancer();
 	}
 	
 	/**
@@ -270,6 +422,12 @@ public class FogDevice extends PowerDatacenter {
 		case FogEvents.UPDATE_SOUTH_TUPLE_QUEUE:
 			updateSouthTupleQueue();
 			break;
+		case FogEvents.UPDATE_NORTH_TRANSMISSIONS:
+			updateNorthTransmissions(ev);
+			break;
+		case FogEvents.UPDATE_SOUTH_TRANSMISSIONS:
+			updateSouthTransmissions(ev);
+			break;
 		case FogEvents.ACTIVE_APP_UPDATE:
 			updateActiveApplications(ev);
 			break;
@@ -279,6 +437,18 @@ public class FogDevice extends PowerDatacenter {
 		case FogEvents.LAUNCH_MODULE_INSTANCE:
 			updateModuleInstanceCount(ev);
 			break;
+		case FogEvents.START_MODULE_INSTANCE:
+			startModuleInstance((ModuleScaling)ev.getData());
+			break;
+		case FogEvents.STOP_MODULE_INSTANCE:
+			stopModuleInstance((ModuleScaling)ev.getData());
+			break;
+		case FogEvents.ADD_MODULE_INSTANCE:
+			addModuleInstance((ModuleScaling)ev.getData());
+			break;
+		case FogEvents.REMOVE_MODULE_INSTANCE:
+			removeModuleInstance((ModuleScaling)ev.getData());
+			break;
 		case FogEvents.RESOURCE_MGMT:
 			manageResources(ev);
 		default:
@@ -308,12 +478,16 @@ public class FogDevice extends PowerDatacenter {
 		System.out.println(getName()+ " Creating "+config.getInstanceCount()+" instances of module "+config.getModule().getName());
 	}
 
-	private AppModule getModuleByName(String moduleName){
+	/**
+	 * @return the module of that name placed on this device, or else a started instance of it
+	 */
+	public AppModule getModuleByName(String moduleName){
 		AppModule module = null;
 		for(Vm vm : getHost().getVmList()){
 			if(((AppModule)vm).getName().equals(moduleName)){
 				module=(AppModule)vm;
-				break;
+				if(!startedInstances.containsKey(module))
+					break;
 			}
 		}
 		return module;
@@ -450,6 +624,15 @@ public class FogDevice extends PowerDatacenter {
 	}
 
 
+	@Override
+	protected void updateCloudletProcessing() {
+		super.updateCloudletProcessing();
+		// the host reallocates the MIPS the modules request, which are none, and the update cancels
+		// the completion events scheduled while it checked the completed tuples
+		if(isPriorityMipsAllocation())
+			updateAllocatedMips(null);
+	}
+
 	protected void checkCloudletCompletion() {
 		boolean cloudletCompleted = false;
 		List<? extends Host> list = getVmAllocationPolicy().getHostList();
@@ -462,7 +645,11 @@ public class FogDevice extends PowerDatacenter {
 						
 						cloudletCompleted = true;
 						Tuple tuple = (Tuple)cl;
+						if(startedInstances.isEmpty() || !isHostedInstance(vm))
+							addExecutionDelay(((AppModule)vm).getName(), tuple);
 						TimeKeeper.getInstance().tupleEndedExecution(tuple);
+						TupleRecorder.record(TupleRecorder.EXEC_END, tuple, getId(), ((AppModule)vm).getName(), -1,
+								cl.getActualCPUTime());
 						Application application = getApplicationMap().get(tuple.getAppId());
 						Logger.debug(getName(), "Completed execution of tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
 						List<Tuple> resultantTuples = application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId());
@@ -477,8 +664,29 @@ public class FogDevice extends PowerDatacenter {
 				}
 			}
 		}
-		if(cloudletCompleted)
+		if(cloudletCompleted){
+			if(!retiringInstances.isEmpty())
+				releaseRetiredInstances();
 			updateAllocatedMips(null);
+		}
+	}
+	
+	/**
+	 * @return whether a module is an instance started here for another device
+	 */
+	protected boolean isHostedInstance(Vm vm) {
+		ModuleScaling scaling = startedInstances.get(vm);
+		return scaling != null && scaling.getDeviceId() != getId();
+	}
+	
+	private void addExecutionDelay(String moduleName, Tuple tuple) {
+		Double startTime = TimeKeeper.getInstance().getTupleIdToCpuStartTime().get(tuple.getCloudletId());
+		if(startTime == null)
+			return;
+		Double delay = moduleExecutionDelays.get(moduleName);
+		moduleExecutionDelays.put(moduleName, (delay == null ? 0 : delay) + CloudSim.clock() - startTime);
+		Integer count = moduleExecutedTuples.get(moduleName);
+		moduleExecutedTuples.put(moduleName, count == null ? 1 : count + 1);
 	}
 	
 	protected void updateTimingsOnSending(Tuple resTuple) {
@@ -521,11 +729,18 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected void updateAllocatedMips(String incomingOperator){
 		getHost().getVmScheduler().deallocatePesForAllVms();
+		if(isPriorityMipsAllocation()){
+			allocateMipsByPriority();
+			updateEnergyConsumption();
+			scheduleNextCompletion();
+			return;
+		}
 		for(final Vm vm : getHost().getVmList()){
 			if(vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator)){
+				final double mips = getModuleMips(vm);
 				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
 					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
+				{add(mips);}});
 			}else{
 				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
 					protected static final long serialVersionUID = 1L;
@@ -537,6 +752,70 @@ public class FogDevice extends PowerDatacenter {
 		
 	}
 	
+	/**
+	 * Gives the MIPS of the host to the modules with tuples, as much as getModuleMips allows, in
+	 * the order of the first tuple of their PriorityTupleScheduler; the modules with another
+	 * scheduler come last.
+	 */
+	protected void allocateMipsByPriority(){
+		List<Vm> waiting = new ArrayList<Vm>();
+		for(Vm vm : getHost().getVmList()){
+			// the host may list a module more than once
+			if(vm.getCloudletScheduler().runningCloudlets() == 0)
+				allocateMips(vm, 0);
+			else if(!waiting.contains(vm))
+				waiting.add(vm);
+		}
+		double available = getHost().getTotalMips();
+		while(!waiting.isEmpty()){
+			Vm first = null;
+			Tuple firstTuple = null;
+			for(Vm vm : waiting){
+				Tuple tuple = vm.getCloudletScheduler() instanceof PriorityTupleScheduler
+						? ((PriorityTupleScheduler) vm.getCloudletScheduler()).getFirstTuple() : null;
+				if(first == null || (tuple != null && (firstTuple == null
+						|| ((PriorityTupleScheduler) vm.getCloudletScheduler()).isBefore(tuple, firstTuple)))){
+					first = vm;
+					firstTuple = tuple;
+				}
+			}
+			waiting.remove(first);
+			double mips = Math.min(available, getModuleMips(first));
+			allocateMips(first, mips);
+			available -= mips;
+		}
+	}
+	
+	/**
+	 * Schedules the completion of the first tuple to finish with the MIPS allocated by priority. The
+	 * modules are updated one by one, since the host would reallocate the MIPS they request.
+	 */
+	protected void scheduleNextCompletion(){
+		double nextTime = Double.MAX_VALUE;
+		for(Vm vm : getHost().getVmList()){
+			double time = vm.updateVmProcessing(CloudSim.clock(), getHost().getVmScheduler().getAllocatedMipsForVm(vm));
+			if(time > 0 && time < nextTime)
+				nextTime = time;
+		}
+		if(nextTime < Double.MAX_VALUE)
+			send(getId(), nextTime - CloudSim.clock(), CloudSimTags.VM_DATACENTER_EVENT);
+	}
+	
+	private void allocateMips(Vm vm, final double mips){
+		getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
+			protected static final long serialVersionUID = 1L;
+		{add(mips);}});
+	}
+	
+	/**
+	 * @return the MIPS a module with tuples gets
+	 */
+	protected double getModuleMips(Vm vm){
+		if(isModuleMipsLimited())
+			return Math.min(getHost().getTotalMips(), vm.getMips());
+		return getHost().getTotalMips();
+	}
+	
 	private void updateEnergyConsumption() {
 		double totalMipsAllocated = 0;
 		for(final Vm vm : getHost().getVmList()){
@@ -574,8 +853,8 @@ public class FogDevice extends PowerDatacenter {
 	protected void addChild(int childId){
 		if(CloudSim.getEntityName(childId).toLowerCase().contains("sensor"))
 			return;
-		if(!getChildrenIds().contains(childId) && childId != getId())
-			getChildrenIds().add(childId);
+		if(childId != getId())
+			addChildId(childId);
 		if(!getChildToOperatorsMap().containsKey(childId))
 			getChildToOperatorsMap().put(childId, new ArrayList<String>());
 	}
@@ -615,6 +894,7 @@ public class FogDevice extends PowerDatacenter {
 	int numClients=0;
 	protected void processTupleArrival(SimEvent ev){
 		Tuple tuple = (Tuple)ev.getData();
+		TupleRecorder.record(TupleRecorder.ARRIVAL, tuple, getId(), null, ev.getSource(), 0);
 		
 		if(getName().equals("cloud")){
 			updateCloudTraffic();
@@ -637,11 +917,12 @@ public class FogDevice extends PowerDatacenter {
 		
 		if(getHost().getVmList().size() > 0){
 			final AppModule operator = (AppModule)getHost().getVmList().get(0);
-			if(CloudSim.clock() > 0){
+			if(CloudSim.clock() > 0 && !isPriorityMipsAllocation()){
+				final double mips = getModuleMips(operator);
 				getHost().getVmScheduler().deallocatePesForVm(operator);
 				getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>(){
 					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
+				{add(mips);}});
 			}
 		}
 		
@@ -650,11 +931,17 @@ public class FogDevice extends PowerDatacenter {
 			sendNow(getControllerId(), FogEvents.TUPLE_FINISHED, null);
 		}
 		
+		if(!migratedModules.isEmpty() && forwardToMigratedModule(tuple))
+			return;
+		
+		if((!moduleInstances.isEmpty() || !startedInstances.isEmpty()) && dispatchToInstance(ev, tuple))
+			return;
+		
 		if(appToModulesMap.containsKey(tuple.getAppId())){
 			if(appToModulesMap.get(tuple.getAppId()).contains(tuple.getDestModuleName())){
 				int vmId = -1;
 				for(Vm vm : getHost().getVmList()){
-					if(((AppModule)vm).getName().equals(tuple.getDestModuleName()))
+					if(((AppModule)vm).getName().equals(tuple.getDestModuleName()) && !startedInstances.containsKey(vm))
 						vmId = vm.getId();
 				}
 				if(vmId < 0
@@ -688,6 +975,77 @@ public class FogDevice extends PowerDatacenter {
 		}
 	}
 
+	/**
+	 * Sends a tuple for a module migrated away from this device straight to the new host of the
+	 * module, as long as the migration is not complete or the regular routing does not lead there.
+	 * @return true if the tuple was forwarded
+	 */
+	protected boolean forwardToMigratedModule(Tuple tuple){
+		if(tuple.getDestModuleName() == null)
+			return false;
+		ModuleMigration migration = migratedModules.get(tuple.getDestModuleName());
+		if(migration == null || !migration.getModule().getAppId().equals(tuple.getAppId()))
+			return false;
+		double waitingTime = migration.getCompletionTime() - CloudSim.clock();
+		if(waitingTime <= 0 && migration.isNorthwards())
+			return false;
+		send(migration.getDestinationId(), Math.max(0, waitingTime) + migration.getDelay(tuple.getCloudletFileSize()),
+				FogEvents.TUPLE_ARRIVAL, tuple);
+		NetworkUsageMonitor.sendingTuple(migration.getLatency(), tuple.getCloudletFileSize());
+		return true;
+	}
+
+	/**
+	 * Executes a tuple on one of the instances of its module, or sends it to the device running
+	 * that instance. A tuple sent by another device names the instance it is for.
+	 * @return true if the tuple was executed or sent
+	 */
+	protected boolean dispatchToInstance(SimEvent ev, Tuple tuple){
+		String moduleName = tuple.getDestModuleName();
+		if(moduleName == null)
+			return false;
+		if(tuple.getVmId() >= 0){
+			for(AppModule instance : startedInstances.keySet()){
+				if(instance.getId() == tuple.getVmId() && instance.getName().equals(moduleName)){
+					Double load = hostedLoads.get(moduleName);
+					hostedLoads.put(moduleName, (load == null ? 0 : load) + tuple.getCloudletLength());
+					updateTimingsOnReceipt(tuple);
+					executeTuple(ev, moduleName);
+					return true;
+				}
+			}
+			// the instance stopped while the tuple was on its way, the tuple is routed as usual
+			tuple.setVmId(-1);
+		}
+		List<AppModule> instances = moduleInstances.get(moduleName);
+		if(instances == null || !instances.get(0).getAppId().equals(tuple.getAppId()))
+			return false;
+		AppModule instance = null;
+		Integer copyId = tuple.getModuleCopyMap().get(moduleName);
+		if(copyId != null){
+			for(AppModule candidate : instances){
+				if(candidate.getId() == copyId)
+					instance = candidate;
+			}
+			if(instance == null)
+				return false;
+		}else{
+			instance = getInstanceBalancer().selectInstance(tuple, instances);
+		}
+		tuple.setVmId(instance.getId());
+		ModuleScaling scaling = remoteInstances.get(instance);
+		if(scaling == null){
+			updateTimingsOnReceipt(tuple);
+			executeTuple(ev, moduleName);
+		}else{
+			Double load = remoteLoads.get(moduleName);
+			remoteLoads.put(moduleName, (load == null ? 0 : load) + tuple.getCloudletLength());
+			send(scaling.getHostId(), scaling.getDelay(tuple.getCloudletFileSize()), FogEvents.TUPLE_ARRIVAL, tuple);
+			NetworkUsageMonitor.sendingTuple(scaling.getLatency(), tuple.getCloudletFileSize());
+		}
+		return true;
+	}
+
 	protected void updateTimingsOnReceipt(Tuple tuple) {
 		Application app = getApplicationMap().get(tuple.getAppId());
 		String srcModule = tuple.getSrcModuleName();
@@ -698,17 +1056,9 @@ public class FogDevice extends PowerDatacenter {
 				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
 				if(startTime==null)
 					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
 				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
 				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
+				TimeKeeper.getInstance().loopCompleted(loop, delay);
 				break;
 			}
 		}
@@ -738,7 +1088,13 @@ public class FogDevice extends PowerDatacenter {
 			module.setNumInstances(instances);
 		}
 		
+		Double load = moduleLoads.get(moduleName);
+		moduleLoads.put(moduleName, (load == null ? 0 : load) + tuple.getCloudletLength());
+		Double inputSize = moduleInputSizes.get(moduleName);
+		moduleInputSizes.put(moduleName, (inputSize == null ? 0 : inputSize) + tuple.getCloudletFileSize());
+		
 		TimeKeeper.getInstance().tupleStartedExecution(tuple);
+		TupleRecorder.record(TupleRecorder.EXEC_START, tuple, getId(), moduleName, -1, tuple.getCloudletLength());
 		updateAllocatedMips(moduleName);
 		processCloudletSubmit(ev, false);
 		updateAllocatedMips(moduleName);
@@ -754,6 +1110,14 @@ public class FogDevice extends PowerDatacenter {
 			appToModulesMap.put(appId, new ArrayList<String>());
 		}
 		appToModulesMap.get(appId).add(module.getName());
+		migratedModules.remove(module.getName());
+		boolean migrated = module.getCloudletScheduler().runningCloudlets() > 0;
+		if(migrated){
+			// the tuples of a migrated module made no progress while it was moving
+			module.updateVmProcessing(CloudSim.clock(), new ArrayList<Double>(){
+				protected static final long serialVersionUID = 1L;
+			{add(0.0);}});
+		}
 		processVmCreate(ev, false);
 		if (module.isBeingInstantiated()) {
 			module.setBeingInstantiated(false);
@@ -763,6 +1127,10 @@ public class FogDevice extends PowerDatacenter {
 		
 		module.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(module).getVmScheduler()
 				.getAllocatedMipsForVm(module));
+		if(migrated){
+			updateAllocatedMips(module.getName());
+			send(getId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.VM_DATACENTER_EVENT);
+		}
 	}
 	
 	private void initializePeriodicTuples(AppModule module) {
@@ -775,14 +1143,118 @@ public class FogDevice extends PowerDatacenter {
 	}
 
 	protected void processOperatorRelease(SimEvent ev){
+		if(ev.getData() instanceof ModuleMigration){
+			releaseModule((ModuleMigration)ev.getData());
+			return;
+		}
 		this.processVmMigrate(ev, false);
 	}
 	
+	/**
+	 * Removes a module that migrates to another device. The tuples it is executing stay in the
+	 * module and resume on the destination; the tuples that still arrive for it are forwarded.
+	 * @param migration the migration of the module
+	 */
+	protected void releaseModule(ModuleMigration migration){
+		AppModule module = migration.getModule();
+		// the tuples in execution progress until the module leaves, the finished ones are emitted here
+		updateEnergyConsumption();
+		checkCloudletCompletion();
+		// a module launched more than once is listed more than once
+		getVmAllocationPolicy().deallocateHostForVm(module);
+		getHost().getVmList().removeAll(Collections.singleton(module));
+		getVmList().removeAll(Collections.singleton(module));
+		if(appToModulesMap.containsKey(module.getAppId()))
+			appToModulesMap.get(module.getAppId()).removeAll(Collections.singleton(module.getName()));
+		moduleLoads.remove(module.getName());
+		moduleInputSizes.remove(module.getName());
+		migratedModules.put(module.getName(), migration);
+		updateAllocatedMips(null);
+	}
+	
+	
+	/**
+	 * Creates an extra instance of a module on this device and lets the device that balances over
+	 * it know.
+	 */
+	protected void startModuleInstance(ModuleScaling scaling){
+		AppModule instance = scaling.getInstance();
+		if(!getVmAllocationPolicy().allocateHostForVm(instance)){
+			Logger.error(getName(), "Cannot start an instance of "+instance.getName());
+			return;
+		}
+		getVmList().add(instance);
+		startedInstances.put(instance, scaling);
+		instance.setBeingInstantiated(false);
+		// the new instance took its MIPS from the modules with tuples
+		updateAllocatedMips(null);
+		instance.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(instance).getVmScheduler()
+				.getAllocatedMipsForVm(instance));
+		if(scaling.getDeviceId() == getId())
+			addModuleInstance(scaling);
+		else
+			sendNow(scaling.getDeviceId(), FogEvents.ADD_MODULE_INSTANCE, scaling);
+	}
+	
+	/**
+	 * Stops an instance started on this device once it has executed its tuples.
+	 */
+	protected void stopModuleInstance(ModuleScaling scaling){
+		if(!startedInstances.containsKey(scaling.getInstance()))
+			return;
+		retiringInstances.add(scaling.getInstance());
+		releaseRetiredInstances();
+		updateAllocatedMips(null);
+	}
+	
+	private void releaseRetiredInstances(){
+		List<AppModule> released = new ArrayList<AppModule>();
+		for(AppModule instance : retiringInstances){
+			if(instance.getCloudletScheduler().runningCloudlets() > 0)
+				continue;
+			getVmAllocationPolicy().deallocateHostForVm(instance);
+			getHost().getVmList().remove(instance);
+			getVmList().remove(instance);
+			startedInstances.remove(instance);
+			released.add(instance);
+		}
+		retiringInstances.removeAll(released);
+	}
+	
+	/**
+	 * Balances the tuples for a module over a new instance as well.
+	 */
+	protected void addModuleInstance(ModuleScaling scaling){
+		AppModule module = getModuleByName(scaling.getModule().getName());
+		if(module == null)
+			return;
+		List<AppModule> instances = moduleInstances.get(module.getName());
+		if(instances == null){
+			instances = new ArrayList<AppModule>();
+			instances.add(module);
+			moduleInstances.put(module.getName(), instances);
+		}
+		instances.add(scaling.getInstance());
+		if(scaling.isRemote())
+			remoteInstances.put(scaling.getInstance(), scaling);
+	}
+	
+	/**
+	 * Stops balancing the tuples for a module over an instance.
+	 */
+	protected void removeModuleInstance(ModuleScaling scaling){
+		List<AppModule> instances = moduleInstances.get(scaling.getInstance().getName());
+		if(instances == null)
+			return;
+		instances.remove(scaling.getInstance());
+		remoteInstances.remove(scaling.getInstance());
+		if(instances.size() < 2)
+			moduleInstances.remove(scaling.getInstance().getName());
+	}
 	
 	protected void updateNorthTupleQueue(){
 		if(!getNorthTupleQueue().isEmpty()){
-			Tuple tuple = getNorthTupleQueue().poll();
-			sendUpFreeLink(tuple);
+			sendUpFreeLink(getNorthTupleQueue().poll());
 		}else{
 			setNorthLinkBusy(false);
 		}
@@ -790,18 +1262,38 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected void sendUpFreeLink(Tuple tuple){
 		double networkDelay = tuple.getCloudletFileSize()/getUplinkBandwidth();
+		uplinkLoad += tuple.getCloudletFileSize();
 		setNorthLinkBusy(true);
+		recordTransmission(tuple, parentId, networkDelay);
 		send(getId(), networkDelay, FogEvents.UPDATE_NORTH_TUPLE_QUEUE);
 		send(parentId, networkDelay+getUplinkLatency(), FogEvents.TUPLE_ARRIVAL, tuple);
 		NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
 	}
 	
+	/**
+	 * Records the start and the end of the transmission of a tuple over a link of its own.
+	 */
+	protected void recordTransmission(Tuple tuple, int destinationId, double networkDelay){
+		TupleRecorder.record(TupleRecorder.SEND_START, tuple, getId(), null, destinationId, 1);
+		TupleRecorder.record(CloudSim.clock() + networkDelay, TupleRecorder.SEND_END, tuple, getId(), null, destinationId,
+				networkDelay);
+	}
+	
 	protected void sendUp(Tuple tuple){
 		if(parentId > 0){
-			if(!isNorthLinkBusy()){
+			if(northLinkScheduler != null){
+				uplinkLoad += tuple.getCloudletFileSize();
+				northLinkScheduler.addTransmission(tuple, parentId, CloudSim.clock());
+				TupleRecorder.record(TupleRecorder.SEND_START, tuple, getId(), null, parentId,
+						northLinkScheduler.getTransmissionCount());
+				scheduleNextTransmission(northLinkScheduler, FogEvents.UPDATE_NORTH_TRANSMISSIONS);
+				NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
+			}else if(!isNorthLinkBusy()){
 				sendUpFreeLink(tuple);
-			}else{
+			}else if(northQueueCapacity < 0 || northTupleQueue.size() < northQueueCapacity
+					|| makeRoom(tuple, northTupleQueue)){
 				northTupleQueue.add(tuple);
+				TupleRecorder.record(TupleRecorder.QUEUED, tuple, getId(), null, parentId, northTupleQueue.size());
 			}
 		}
 	}
@@ -809,7 +1301,7 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected void updateSouthTupleQueue(){
 		if(!getSouthTupleQueue().isEmpty()){
-			Pair<Tuple, Integer> pair = getSouthTupleQueue().poll(); 
+			Pair<Tuple, Integer> pair = getSouthTupleQueue().poll();
 			sendDownFreeLink(pair.getFirst(), pair.getSecond());
 		}else{
 			setSouthLinkBusy(false);
@@ -820,6 +1312,7 @@ public class FogDevice extends PowerDatacenter {
 		double networkDelay = tuple.getCloudletFileSize()/getDownlinkBandwidth();
 		//Logger.debug(getName(), "Sending tuple with tupleType = "+tuple.getTupleType()+" DOWN");
 		setSouthLinkBusy(true);
+		recordTransmission(tuple, childId, networkDelay);
 		double latency = getChildToLatencyMap().get(childId);
 		send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
 		send(childId, networkDelay+latency, FogEvents.TUPLE_ARRIVAL, tuple);
@@ -827,15 +1320,132 @@ public class FogDevice extends PowerDatacenter {
 	}
 	
 	protected void sendDown(Tuple tuple, int childId){
-		if(getChildrenIds().contains(childId)){
-			if(!isSouthLinkBusy()){
+		if(isChild(childId)){
+			if(southLinkScheduler != null){
+				southLinkScheduler.addTransmission(tuple, childId, CloudSim.clock());
+				TupleRecorder.record(TupleRecorder.SEND_START, tuple, getId(), null, childId,
+						southLinkScheduler.getTransmissionCount());
+				scheduleNextTransmission(southLinkScheduler, FogEvents.UPDATE_SOUTH_TRANSMISSIONS);
+				NetworkUsageMonitor.sendingTuple(getChildToLatencyMap().get(childId), tuple.getCloudletFileSize());
+			}else if(!isSouthLinkBusy()){
 				sendDownFreeLink(tuple, childId);
-			}else{
+			}else if(southQueueCapacity < 0 || southTupleQueue.size() < southQueueCapacity
+					|| makeRoom(tuple, getSouthQueuedTuples())){
 				southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
+				TupleRecorder.record(TupleRecorder.QUEUED, tuple, getId(), null, childId, southTupleQueue.size());
 			}
 		}
 	}
 	
+	protected void updateNorthTransmissions(SimEvent ev){
+		if((Integer)ev.getData() != northLinkScheduler.getGeneration())
+			return;
+		for(FairShareLinkScheduler.Transmission transmission : northLinkScheduler.removeCompletedTransmissions(CloudSim.clock())){
+			TupleRecorder.record(TupleRecorder.SEND_END, transmission.getTuple(), getId(), null, transmission.getDestinationId(),
+					CloudSim.clock() - transmission.getStartTime());
+			send(transmission.getDestinationId(), getUplinkLatency(), FogEvents.TUPLE_ARRIVAL, transmission.getTuple());
+		}
+		scheduleNextTransmission(northLinkScheduler, FogEvents.UPDATE_NORTH_TRANSMISSIONS);
+	}
+	
+	protected void updateSouthTransmissions(SimEvent ev){
+		if((Integer)ev.getData() != southLinkScheduler.getGeneration())
+			return;
+		for(FairShareLinkScheduler.Transmission transmission : southLinkScheduler.removeCompletedTransmissions(CloudSim.clock())){
+			int childId = transmission.getDestinationId();
+			TupleRecorder.record(TupleRecorder.SEND_END, transmission.getTuple(), getId(), null, childId,
+					CloudSim.clock() - transmission.getStartTime());
+			send(childId, getChildToLatencyMap().get(childId), FogEvents.TUPLE_ARRIVAL, transmission.getTuple());
+		}
+		scheduleNextTransmission(southLinkScheduler, FogEvents.UPDATE_SOUTH_TRANSMISSIONS);
+	}
+	
+	/**
+	 * Replaces the pending event of a link by one at the end of its next transmission, since a
+	 * transmission that starts or ends changes the rate of the others. The pending event stays in
+	 * the future queue, which would take a scan to cancel, but carries a stale generation.
+	 */
+	protected void scheduleNextTransmission(FairShareLinkScheduler linkScheduler, int tag){
+		int generation = linkScheduler.nextGeneration();
+		double delay = linkScheduler.getNextCompletionDelay();
+		if(delay < Double.MAX_VALUE)
+			send(getId(), delay, tag, generation);
+	}
+	
+	/**
+	 * @return whether a queued tuple goes over a link before another one with priority link queues
+	 */
+	protected boolean isSentBefore(Tuple tuple, Tuple other){
+		if(tuple.getPriority() != other.getPriority())
+			return tuple.getPriority() > other.getPriority();
+		return tuple.getDeadline() < other.getDeadline();
+	}
+	
+	private int compareSendOrder(Tuple tuple, Tuple other){
+		return isSentBefore(tuple, other) ? -1 : isSentBefore(other, tuple) ? 1 : 0;
+	}
+	
+	/**
+	 * Drops the tuple the drop policy selects to make room in a full link queue for another one.
+	 * @param tuple the tuple to queue
+	 * @param queuedTuples the tuples in the queue
+	 * @return whether the tuple may be queued
+	 */
+	protected boolean makeRoom(Tuple tuple, Iterable<Tuple> queuedTuples){
+		Tuple dropped = getTupleDropPolicy().selectDroppedTuple(tuple, queuedTuples);
+		Integer count = droppedTuples.get(dropped.getTupleType());
+		droppedTuples.put(dropped.getTupleType(), count == null ? 1 : count + 1);
+		Logger.debug(getName(), "Dropping tuple with tupleType = "+dropped.getTupleType());
+		TupleRecorder.record(TupleRecorder.DROPPED, dropped, getId(), null, -1, 0);
+		if(dropped == tuple)
+			return false;
+		for(Iterator<Tuple> iterator = queuedTuples.iterator(); iterator.hasNext();){
+			if(iterator.next() == dropped){
+				iterator.remove();
+				break;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the tuples waiting for the downlinks, removable through the iterator
+	 */
+	protected Iterable<Tuple> getSouthQueuedTuples(){
+		return new Iterable<Tuple>() {
+			@Override
+			public Iterator<Tuple> iterator() {
+				final Iterator<Pair<Tuple, Integer>> pairs = getSouthTupleQueue().iterator();
+				return new Iterator<Tuple>() {
+					@Override
+					public boolean hasNext() {
+						return pairs.hasNext();
+					}
+					@Override
+					public Tuple next() {
+						return pairs.next().getFirst();
+					}
+					@Override
+					public void remove() {
+						pairs.remove();
+					}
+				};
+			}
+		};
+	}
+	
+	/**
+	 * @return whether the queue of the uplink of this device or of one of its ancestors is filled up
+	 * to the back-pressure threshold while the link is busy
+	 */
+	public boolean isUplinkCongested(){
+		if(northQueueCapacity >= 0 && isNorthLinkBusy()
+				&& northTupleQueue.size() >= getBackPressureThreshold()*northQueueCapacity)
+			return true;
+		SimEntity parent = parentId > 0 ? CloudSim.getEntity(parentId) : null;
+		return parent instanceof FogDevice && ((FogDevice) parent).isUplinkCongested();
+	}
+	
 	
 	protected void sendToSelf(Tuple tuple){
 		send(getId(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ARRIVAL, tuple);
@@ -849,11 +1459,31 @@ public class FogDevice extends PowerDatacenter {
 	public void setParentId(int parentId) {
 		this.parentId = parentId;
 	}
+	/**
+	 * @return the ids of the children, read-only: children are added with addChildId
+	 */
 	public List<Integer> getChildrenIds() {
-		return childrenIds;
+		return childrenIdsView;
 	}
 	public void setChildrenIds(List<Integer> childrenIds) {
-		this.childrenIds = childrenIds;
+		this.childrenIds = new ArrayList<Integer>(new LinkedHashSet<Integer>(childrenIds));
+		this.childrenIdSet = new HashSet<Integer>(childrenIds);
+		this.childrenIdsView = Collections.unmodifiableList(this.childrenIds);
+	}
+	/**
+	 * Adds a child id unless it is already present, in constant time.
+	 * @param childId the id of the child device
+	 * @return true if the id was added
+	 */
+	public boolean addChildId(int childId) {
+		if(isChild(childId))
+			return false;
+		childrenIds.add(childId);
+		childrenIdSet.add(childId);
+		return true;
+	}
+	public boolean isChild(int childId) {
+		return childrenIdSet.contains(childId);
 	}
 	public double getUplinkBandwidth() {
 		return uplinkBandwidth;
@@ -976,6 +1606,215 @@ public class FogDevice extends PowerDatacenter {
 		this.totalCost = totalCost;
 	}
 
+	/**
+	 * @return the MI of the tuples submitted to each module hosted on this device since the last
+	 * call of resetLoads
+	 */
+	public Map<String, Double> getModuleLoads() {
+		return moduleLoads;
+	}
+
+	/**
+	 * @return the MI of the tuples submitted to all modules hosted on this device since the last
+	 * call of resetLoads
+	 */
+	public double getTotalModuleLoad() {
+		double load = 0;
+		for(double moduleLoad : moduleLoads.values())
+			load += moduleLoad;
+		return load;
+	}
+
+	/**
+	 * @return the size of the tuples submitted to each module hosted on this device since the last
+	 * call of resetLoads
+	 */
+	public Map<String, Double> getModuleInputSizes() {
+		return moduleInputSizes;
+	}
+
+	/**
+	 * @return the size of the tuples sent up since the last call of resetLoads
+	 */
+	public double getUplinkLoad() {
+		return uplinkLoad;
+	}
+
+	public void resetLoads() {
+		moduleLoads.clear();
+		moduleInputSizes.clear();
+		uplinkLoad = 0;
+		moduleExecutionDelays.clear();
+		moduleExecutedTuples.clear();
+		remoteLoads.clear();
+		hostedLoads.clear();
+	}
+
+	/**
+	 * @return the average time the tuples completed by a module since the last call of resetLoads
+	 * spent on it, waiting and executing, NaN if none completed; those of the instances started
+	 * here for other devices are left out
+	 */
+	public double getModuleExecutionDelay(String moduleName) {
+		Integer count = moduleExecutedTuples.get(moduleName);
+		return count == null ? Double.NaN : moduleExecutionDelays.get(moduleName)/count;
+	}
+
+	/**
+	 * @return the MI of the tuples sent to the instances of each module on other devices since the
+	 * last call of resetLoads
+	 */
+	public Map<String, Double> getRemoteLoads() {
+		return remoteLoads;
+	}
+
+	/**
+	 * @return the instances each scaled-out module balances its tuples over, the module hosted on
+	 * this device first
+	 */
+	public Map<String, List<AppModule>> getModuleInstances() {
+		return moduleInstances;
+	}
+
+	/**
+	 * @return the MI of the tuples other devices sent to the instances started here for them
+	 * since the last call of resetLoads
+	 */
+	public Map<String, Double> getHostedLoads() {
+		return hostedLoads;
+	}
+
+	/**
+	 * @return the instances started on this device by a scale-out
+	 */
+	public Set<AppModule> getStartedInstances() {
+		return startedInstances.keySet();
+	}
+
+	public InstanceBalancer getInstanceBalancer() {
+		return instanceBalancer;
+	}
+
+	public void setInstanceBalancer(InstanceBalancer instanceBalancer) {
+		this.instanceBalancer = instanceBalancer;
+	}
+
+	public int getNorthQueueCapacity() {
+		return northQueueCapacity;
+	}
+
+	public void setNorthQueueCapacity(int northQueueCapacity) {
+		this.northQueueCapacity = northQueueCapacity;
+	}
+
+	public int getSouthQueueCapacity() {
+		return southQueueCapacity;
+	}
+
+	public void setSouthQueueCapacity(int southQueueCapacity) {
+		this.southQueueCapacity = southQueueCapacity;
+	}
+
+	public TupleDropPolicy getTupleDropPolicy() {
+		return tupleDropPolicy;
+	}
+
+	public void setTupleDropPolicy(TupleDropPolicy tupleDropPolicy) {
+		this.tupleDropPolicy = tupleDropPolicy;
+	}
+
+	/**
+	 * @return the number of tuples dropped from the full link queues of this device, by tuple type
+	 */
+	public Map<String, Integer> getDroppedTuples() {
+		return droppedTuples;
+	}
+
+	public double getBackPressureThreshold() {
+		return backPressureThreshold;
+	}
+
+	public void setBackPressureThreshold(double backPressureThreshold) {
+		this.backPressureThreshold = backPressureThreshold;
+	}
+
+	public boolean isPriorityLinkQueues() {
+		return priorityLinkQueues;
+	}
+
+	/**
+	 * Replaces the link queues by ones in the order of {@link #isSentBefore(Tuple, Tuple)}, or by
+	 * FIFO ones, keeping the queued tuples.
+	 */
+	public void setPriorityLinkQueues(boolean priorityLinkQueues) {
+		this.priorityLinkQueues = priorityLinkQueues;
+		Queue<Tuple> north;
+		Queue<Pair<Tuple, Integer>> south;
+		if(priorityLinkQueues){
+			north = new PriorityLinkQueue<Tuple>(new Comparator<Tuple>() {
+				@Override
+				public int compare(Tuple tuple, Tuple other) {
+					return compareSendOrder(tuple, other);
+				}
+			});
+			south = new PriorityLinkQueue<Pair<Tuple, Integer>>(new Comparator<Pair<Tuple, Integer>>() {
+				@Override
+				public int compare(Pair<Tuple, Integer> pair, Pair<Tuple, Integer> other) {
+					return compareSendOrder(pair.getFirst(), other.getFirst());
+				}
+			});
+		}else{
+			north = new LinkedList<Tuple>();
+			south = new LinkedList<Pair<Tuple, Integer>>();
+		}
+		north.addAll(northTupleQueue);
+		south.addAll(southTupleQueue);
+		northTupleQueue = north;
+		southTupleQueue = south;
+	}
+
+	public boolean isPriorityMipsAllocation() {
+		return priorityMipsAllocation;
+	}
+
+	public void setPriorityMipsAllocation(boolean priorityMipsAllocation) {
+		this.priorityMipsAllocation = priorityMipsAllocation;
+	}
+
+	public boolean isFairShareLinks() {
+		return northLinkScheduler != null;
+	}
+
+	/**
+	 * Shares the bandwidth of the links among the tuples in transmission; the link queues, and so
+	 * their capacity, drop policy and priority, are no longer used.
+	 */
+	public void setFairShareLinks(boolean fairShareLinks) {
+		northLinkScheduler = fairShareLinks ? new FairShareLinkScheduler(getUplinkBandwidth()) : null;
+		southLinkScheduler = fairShareLinks ? new FairShareLinkScheduler(getDownlinkBandwidth()) : null;
+	}
+
+	public boolean isModuleMipsLimited() {
+		return moduleMipsLimited;
+	}
+
+	public void setModuleMipsLimited(boolean moduleMipsLimited) {
+		this.moduleMipsLimited = moduleMipsLimited;
+	}
+
+	/**
+	 * @return the number of tuples waiting for or in execution on a module, 0 if the module is not
+	 * hosted on this device
+	 */
+	public int getModuleBacklog(String moduleName) {
+		AppModule module = getModuleByName(moduleName);
+		return module == null ? 0 : module.getCloudletScheduler().runningCloudlets();
+	}
+
+	public Map<String, ModuleMigration> getMigratedModules() {
+		return migratedModules;
+	}
+
 	public Map<String, Map<String, Integer>> getModuleInstanceCount() {
 		return moduleInstanceCount;
 	}
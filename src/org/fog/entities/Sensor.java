@@ -6,6 +6,7 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.distributions.RandomStreams;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.Application;
@@ -15,6 +16,9 @@ import org.fog.utils.GeoLocation;
 import org.fog.utils.Logger;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.SpikeDistribution;
+import org.fog.utils.distribution.TraceDistribution;
+import org.fog.utils.record.TupleRecorder;
 
 public class Sensor extends SimEntity{
 	
@@ -30,6 +34,11 @@ public class Sensor extends SimEntity{
 	private int controllerId;
 	private Application app;
 	private double latency;
+	/**
+	 * Whether the sensor skips its emissions while the uplink of its gateway is congested
+	 */
+	private boolean backPressure;
+	private int throttledTuples;
 	
 	public Sensor(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation, 
 			Distribution transmitDistribution, int cpuLength, int nwLength, String tupleType, String destModuleName) {
@@ -86,11 +95,15 @@ public class Sensor extends SimEntity{
 		}
 		long cpuLength = (long) _edge.getTupleCpuLength();
 		long nwLength = (long) _edge.getTupleNwLength();
+		TraceDistribution trace = getTraceDistribution();
+		if(trace != null && trace.hasTupleSizes())
+			nwLength = (long) trace.getTupleSize();
 		
 		Tuple tuple = new Tuple(getAppId(), FogUtils.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize, 
 				new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
 		tuple.setUserId(getUserId());
 		tuple.setTupleType(getTupleType());
+		tuple.setPriorityAndDeadline(_edge);
 		
 		tuple.setDestModuleName(_edge.getDestination());
 		tuple.setSrcModuleName(getSensorName());
@@ -98,6 +111,7 @@ public class Sensor extends SimEntity{
 
 		int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
 		tuple.setActualTupleId(actualTupleId);
+		TupleRecorder.record(TupleRecorder.EMIT, tuple, getId(), getSensorName(), gatewayDeviceId, getLatency());
 		
 		send(gatewayDeviceId, getLatency(), FogEvents.TUPLE_ARRIVAL,tuple);
 	}
@@ -118,10 +132,34 @@ public class Sensor extends SimEntity{
 		return -1;
 	}
 	
+	private boolean isGatewayCongested(){
+		SimEntity gateway = CloudSim.getEntity(gatewayDeviceId);
+		return gateway instanceof FogDevice && ((FogDevice) gateway).isUplinkCongested();
+	}
+	
+	/**
+	 * @return the trace the emissions replay, also under a load spike, null if they do not
+	 */
+	private TraceDistribution getTraceDistribution(){
+		Distribution distribution = getTransmitDistribution();
+		if(distribution instanceof SpikeDistribution)
+			distribution = ((SpikeDistribution) distribution).getDistribution();
+		return distribution instanceof TraceDistribution ? (TraceDistribution) distribution : null;
+	}
+
+	/**
+	 * Schedules the next emission, unless the distribution has none, as a finished trace.
+	 */
+	private void scheduleEmission(){
+		double delay = getTransmitDistribution().getNextValue();
+		if(!Double.isInfinite(delay))
+			send(getId(), delay, FogEvents.EMIT_TUPLE);
+	}
+
 	@Override
 	public void startEntity() {
 		send(gatewayDeviceId, CloudSim.getMinTimeBetweenEvents(), FogEvents.SENSOR_JOINED, geoLocation);
-		send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
+		scheduleEmission();
 	}
 
 	@Override
@@ -131,8 +169,11 @@ public class Sensor extends SimEntity{
 			//transmit(transmitDistribution.getNextValue());
 			break;
 		case FogEvents.EMIT_TUPLE:
-			transmit();
-			send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
+			if(isBackPressure() && isGatewayCongested())
+				throttledTuples++;
+			else
+				transmit();
+			scheduleEmission();
 			break;
 		}
 			
@@ -203,8 +244,14 @@ public class Sensor extends SimEntity{
 		return transmitDistribution;
 	}
 
+	/**
+	 * Also gives the distribution the stream of the sensor, so the emissions of a sensor only
+	 * depend on the seed of the run and on the name of the sensor.
+	 */
 	public void setTransmitDistribution(Distribution transmitDistribution) {
 		this.transmitDistribution = transmitDistribution;
+		if(transmitDistribution != null)
+			transmitDistribution.setRandom(RandomStreams.getStream(getName(), "transmit"));
 	}
 
 	public int getControllerId() {
@@ -231,4 +278,19 @@ public class Sensor extends SimEntity{
 		this.latency = latency;
 	}
 
+	public boolean isBackPressure() {
+		return backPressure;
+	}
+
+	public void setBackPressure(boolean backPressure) {
+		this.backPressure = backPressure;
+	}
+
+	/**
+	 * @return the number of emissions skipped because of back-pressure
+	 */
+	public int getThrottledTuples() {
+		return throttledTuples;
+	}
+
 }
@@ -5,6 +5,8 @@ import java.util.Map;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppEdge;
 
 public class Tuple extends Cloudlet{
 
@@ -18,6 +20,10 @@ public class Tuple extends Cloudlet{
 	private String destModuleName;
 	private String srcModuleName;
 	private int actualTupleId;
+	/**
+	 * Id of the sensor tuple the tuple results from, its own id if it results from no emission
+	 */
+	private int emissionId;
 	private int direction;
 	private int actuatorId;
 	private int sourceDeviceId;
@@ -29,6 +35,12 @@ public class Tuple extends Cloudlet{
 	 */
 	private Map<String, Integer> moduleCopyMap;
 	
+	/**
+	 * Time by which the tuple should reach its destination, Double.MAX_VALUE if none
+	 */
+	private double deadline;
+	private int priority;
+	
 	public Tuple(String appId, int cloudletId, int direction, long cloudletLength, int pesNumber,
 			long cloudletFileSize, long cloudletOutputSize,
 			UtilizationModel utilizationModelCpu,
@@ -41,6 +53,8 @@ public class Tuple extends Cloudlet{
 		setDirection(direction);
 		setSourceDeviceId(-1);
 		setModuleCopyMap(new HashMap<String, Integer>());
+		setDeadline(Double.MAX_VALUE);
+		setEmissionId(cloudletId);
 	}
 
 	public int getActualTupleId() {
@@ -51,6 +65,14 @@ public class Tuple extends Cloudlet{
 		this.actualTupleId = actualTupleId;
 	}
 
+	public int getEmissionId() {
+		return emissionId;
+	}
+
+	public void setEmissionId(int emissionId) {
+		this.emissionId = emissionId;
+	}
+
 	public String getAppId() {
 		return appId;
 	}
@@ -123,4 +145,32 @@ public class Tuple extends Cloudlet{
 		this.sourceModuleId = sourceModuleId;
 	}
 
+	/**
+	 * Gives the tuple, created now, the priority and the deadline of the edge that carries it.
+	 */
+	public void setPriorityAndDeadline(AppEdge edge) {
+		setPriority(edge.getPriority());
+		setDeadline(edge.hasDeadline() ? CloudSim.clock() + edge.getDeadline() : Double.MAX_VALUE);
+	}
+
+	public double getDeadline() {
+		return deadline;
+	}
+
+	public void setDeadline(double deadline) {
+		this.deadline = deadline;
+	}
+
+	public boolean hasDeadline() {
+		return deadline < Double.MAX_VALUE;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
+
 }
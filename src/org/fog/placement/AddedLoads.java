@@ -0,0 +1,36 @@
+package org.fog.placement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fog.entities.FogDevice;
+
+/**
+ * The load a policy puts on fog devices while it makes its decisions of one resource management
+ * tick, on top of the load the devices had during the last tick, so that the decisions of the
+ * same tick do not all pick the same device.
+ */
+public class AddedLoads {
+
+	private final Map<Integer, Double> addedLoads = new HashMap<Integer, Double>();
+
+	/**
+	 * @return the load added to a device during this tick
+	 */
+	public double get(FogDevice fogDevice) {
+		Double added = addedLoads.get(fogDevice.getId());
+		return added == null ? 0 : added;
+	}
+
+	public void add(FogDevice fogDevice, double load) {
+		addedLoads.put(fogDevice.getId(), get(fogDevice) + load);
+	}
+
+	/**
+	 * @return the load of the modules of a device during the last tick plus the load added to it
+	 * during this one
+	 */
+	public double getLoad(FogDevice fogDevice) {
+		return fogDevice.getTotalModuleLoad() + get(fogDevice);
+	}
+}
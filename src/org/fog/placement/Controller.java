@@ -1,6 +1,6 @@
 package org.fog.placement;
 
-import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventProfiler;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.application.AppEdge;
@@ -17,19 +18,28 @@ import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
+import org.fog.utils.BatchMeans;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
+import org.fog.utils.ModuleMigration;
+import org.fog.utils.ModuleScaling;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.SimulationReport;
+import org.fog.utils.SimulationReport.DeviceUsage;
+import org.fog.utils.SimulationReport.LoopLatency;
+import org.fog.utils.SimulationReport.LoopLatencySample;
+import org.fog.utils.SimulationReport.Migration;
+import org.fog.utils.SimulationReport.Scaling;
+import org.fog.utils.SimulationReport.TupleCpuTime;
+import org.fog.utils.SimulationReport.TupleDrops;
+import org.fog.utils.SimulationReportPrinter;
 import org.fog.utils.TimeKeeper;
 
 public class Controller extends SimEntity{
 	
-	private static final String NEWLINE = "\n";
-	private static final String COLUMN_SEPERATOR = "|";
-	private static final int MATRIX_SIZE = 83;
-		
 	private List<FogDevice> fogDevices;
+	private Map<Integer, FogDevice> fogDevicesById;
 	private List<Sensor> sensors;
 	private List<Actuator> actuators;
 	
@@ -38,8 +48,27 @@ public class Controller extends SimEntity{
 
 	private Map<String, ModulePlacement> appModulePlacementPolicy;
 	
+	private SimulationReport report;
+	private boolean printReport = true;
+	private double confidenceLevel = 0.95;
+	/** relative half-width of the loop delay intervals at which the run stops, 0 to run to the end */
+	private double targetPrecision;
+	
+	private ModuleMigrationPolicy migrationPolicy;
+	private DelayMatrix delayMatrix;
+	private List<Migration> migrations = new ArrayList<Migration>();
+	private ModuleScalingPolicy scalingPolicy;
+	private List<Scaling> scalings = new ArrayList<Scaling>();
+	private List<LoopLatencySample> loopLatencyTimeline = new ArrayList<LoopLatencySample>();
+	/** Sum of the latencies and number of the tuples that completed each loop, at the last sample */
+	private Map<Integer, double[]> loopLatencyTotals = new HashMap<Integer, double[]>();
+	
 	public Controller(String name, List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators) {
 		super(name);
+		EventProfiler.registerTagNames(FogEvents.class);
+		// results of a previous run in the same JVM must not leak into this one
+		TimeKeeper.getInstance().resetStatistics();
+		NetworkUsageMonitor.reset();
 		this.applications = new HashMap<String, Application>();
 		setAppLaunchDelays(new HashMap<String, Integer>());
 		setAppModulePlacementPolicy(new HashMap<String, ModulePlacement>());
@@ -53,11 +82,7 @@ public class Controller extends SimEntity{
 	}
 
 	private FogDevice getFogDeviceById(int id){
-		for(FogDevice fogDevice : getFogDevices()){
-			if(id==fogDevice.getId())
-				return fogDevice;
-		}
-		return null;
+		return fogDevicesById.get(id);
 	}
 	
 	private void connectWithLatencies(){
@@ -67,7 +92,7 @@ public class Controller extends SimEntity{
 				continue;
 			double latency = fogDevice.getUplinkLatency();
 			parent.getChildToLatencyMap().put(fogDevice.getId(), latency);
-			parent.getChildrenIds().add(fogDevice.getId());
+			parent.addChildId(fogDevice.getId());
 		}
 	}
 	
@@ -100,238 +125,246 @@ public class Controller extends SimEntity{
 			break;
 		case FogEvents.CONTROLLER_RESOURCE_MANAGE:
 			manageResources();
+			if(isPreciseEnough())
+				sendNow(getId(), FogEvents.STOP_SIMULATION);
 			break;
 		case FogEvents.STOP_SIMULATION:
 			CloudSim.stopSimulation();
-			printTimeDetails();
-			printPowerDetails();
-			printCloudCostDetails();
-			printFogDeviceCostDetails();
-			printNetworkUsageDetails();
-			System.exit(0);
+			setReport(createReport());
+			if(isPrintReport())
+				new SimulationReportPrinter().print(getReport());
+			CloudSim.abruptallyTerminate();
 			break;
 			
 		}
 	}
 	
-	private void printNetworkUsageDetails() {
-		System.out.println("Total network usage = " 
-				+ NetworkUsageMonitor.getNetworkUsage() / Config.MAX_SIMULATION_TIME);		
-	}
-
-	private FogDevice getCloud(){
-		for(FogDevice dev : getFogDevices())
-			if(dev.getName().equals("cloud"))
-				return dev;
-		return null;
+	public static String centerString(int width, String str) {
+		return SimulationReportPrinter.centerString(width, str);
 	}
 	
-	private void printCloudCostDetails(){
-		System.out.println("Cost of execution in cloud = " + getCloud().getTotalCost());
+	public static String doubleToString(double value) {
+		return SimulationReportPrinter.doubleToString(value);
 	}
-	
-	private void printPowerDetails() {
-		double total = 0;
-		int idColumnSize = 5;
-		int levelColumnSize = 5;
-		int nameColumnSize = 35;
-		int energyColumnSize = 35;
-		StringBuilder tableValue = new StringBuilder();
-		
-		Map<String, Integer> columnNames = new LinkedHashMap<String, Integer>();
-		columnNames.put("ID", idColumnSize);
-		columnNames.put("LEVEL", idColumnSize);
-		columnNames.put("DEVICE NAME", nameColumnSize);
-		columnNames.put("ENERGY IN JOULES", energyColumnSize);
-		
-		for(FogDevice fogDevice : getFogDevices()) {
-			String id = "" + fogDevice.getId();
-			String level = "" + fogDevice.getLevel();
-			String name = fogDevice.getName();
-			String energy = doubleToString(fogDevice.getEnergyConsumption());
-			
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(idColumnSize, id));
 
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(levelColumnSize, level));
-			
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(nameColumnSize, name));
-
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(energyColumnSize, energy));
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(NEWLINE);
-			
-			total += fogDevice.getEnergyConsumption();
+	private AppLoop getLoopById(int loopId){
+		for(String appId : getApplications().keySet()){
+			Application app = getApplications().get(appId);
+			for(AppLoop loop : app.getLoops()){
+				if(loop.getLoopId() == loopId)
+					return loop;
+			}
 		}
-		
-		tableValue.append(createCharSequence('-'));
-		tableValue.append(COLUMN_SEPERATOR);
-		
-		String totalEnergy = "TOTAL ENERGY IN JOULES = " + doubleToString(total);
-		tableValue.append(centerString(MATRIX_SIZE, totalEnergy));
-		tableValue.append(COLUMN_SEPERATOR);
-		tableValue.append(NEWLINE);
-		
-		printMatrix("ENERGY", tableValue.toString(), columnNames);
+		return null;
 	}
 	
-	private void printFogDeviceCostDetails() {
-		double total = 0;
-		int idColumnSize = 5;
-		int nameColumnSize = 38;
-		int costColumnSize = 38;
-		StringBuilder tableValue = new StringBuilder();
-		
-		Map<String, Integer> columnNames = new LinkedHashMap<String, Integer>();
-		columnNames.put("ID", idColumnSize);
-		columnNames.put("NAME", nameColumnSize);
-		columnNames.put("COST", costColumnSize);
-		
-		for(FogDevice fogDevice : getFogDevices()) {
-			String id = Integer.toString(fogDevice.getId());
-			String name = fogDevice.getName();
-			String cost = doubleToString(fogDevice.getTotalCost());
-			
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(idColumnSize, id));
-			
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(nameColumnSize, name));
-
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(centerString(costColumnSize, cost));
-			tableValue.append(COLUMN_SEPERATOR);
-			tableValue.append(NEWLINE);
-			
-			total += fogDevice.getTotalCost();
+	/**
+	 * Collects the results of the run from the TimeKeeper, the NetworkUsageMonitor and the fog devices.
+	 * @return the report
+	 */
+	protected SimulationReport createReport(){
+		List<LoopLatency> loops = new ArrayList<LoopLatency>();
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
+			AppLoop loop = getLoopById(loopId);
+			List<String> modules = loop == null ? new ArrayList<String>() : loop.getModules();
+			Double average = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId);
+			Integer count = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loopId);
+			Integer deadlineTuples = TimeKeeper.getInstance().getLoopIdToDeadlineTuples().get(loopId);
+			Integer deadlineMisses = TimeKeeper.getInstance().getLoopIdToDeadlineMisses().get(loopId);
+			BatchMeans batchMeans = TimeKeeper.getInstance().getLoopIdToBatchMeans().get(loopId);
+			if(batchMeans == null)
+				batchMeans = new BatchMeans();
+			loops.add(new LoopLatency(loopId, modules, average == null ? Double.NaN : average, count == null ? 0 : count,
+					deadlineTuples == null ? 0 : deadlineTuples, deadlineMisses == null ? 0 : deadlineMisses,
+					batchMeans.getMean(), batchMeans.getHalfWidth(getConfidenceLevel()), getConfidenceLevel(),
+					batchMeans.getBatchCount()));
 		}
-		String costStr = doubleToString(total);
 		
-		tableValue.append(createCharSequence('-'));
-		tableValue.append(COLUMN_SEPERATOR);
+		List<TupleCpuTime> tuples = new ArrayList<TupleCpuTime>();
+		for(String tupleType : TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().keySet()){
+			tuples.add(new TupleCpuTime(tupleType, TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().get(tupleType),
+					TimeKeeper.getInstance().getTupleTypeToExecutedTupleCount().get(tupleType)));
+		}
 		
-		String totalEnergy = "TOTAL COST = " + costStr;
-		tableValue.append(centerString(MATRIX_SIZE, totalEnergy));
-		tableValue.append(COLUMN_SEPERATOR);
-		tableValue.append(NEWLINE);
+		List<DeviceUsage> devices = new ArrayList<DeviceUsage>();
+		for(FogDevice fogDevice : getFogDevices()){
+			devices.add(new DeviceUsage(fogDevice.getId(), fogDevice.getName(), fogDevice.getLevel(),
+					fogDevice.getEnergyConsumption(), fogDevice.getTotalCost()));
+		}
 		
-		printMatrix("COST OF FEC DEVICES", tableValue.toString(), columnNames);
+		long executionTime = Calendar.getInstance().getTimeInMillis() - TimeKeeper.getInstance().getSimulationStartTime();
+		SimulationReport report = new SimulationReport(TimeKeeper.getInstance().getSetupTime(), executionTime, CloudSim.clock(),
+				loops, tuples, devices, NetworkUsageMonitor.getNetworkUsage());
+		report.setMigrations(migrations);
+		report.setLoopLatencyTimeline(loopLatencyTimeline);
+		report.setScalings(scalings);
+		report.setTupleDrops(getTupleDrops());
+		return report;
 	}
 	
 	/**
-	 * Prints a results matrix.
+	 * @return the tuples dropped by the fog devices and throttled by the sensors, by tuple type
 	 */
-	private void printMatrix(String title, String content, Map<String, Integer> subtitles) {
-		System.out.println(NEWLINE);
-		printCharSequence('=');
-		System.out.println(COLUMN_SEPERATOR + centerString(MATRIX_SIZE, title) + COLUMN_SEPERATOR);
-		printCharSequence('-');
-		
-		if(subtitles != null) {
-			for(String str : subtitles.keySet()) {
-				int size = subtitles.get(str);
-				System.out.print(COLUMN_SEPERATOR + centerString(size, str));
+	private List<TupleDrops> getTupleDrops(){
+		Map<String, int[]> counts = new LinkedHashMap<String, int[]>();
+		for(FogDevice fogDevice : getFogDevices()){
+			for(Map.Entry<String, Integer> dropped : fogDevice.getDroppedTuples().entrySet()){
+				if(!counts.containsKey(dropped.getKey()))
+					counts.put(dropped.getKey(), new int[2]);
+				counts.get(dropped.getKey())[0] += dropped.getValue();
 			}
-			System.out.println(COLUMN_SEPERATOR);
-			printCharSequence('-');
 		}
-		
-		System.out.print(content);
-		printCharSequence('=');
+		for(Sensor sensor : getSensors()){
+			if(sensor.getThrottledTuples() == 0)
+				continue;
+			if(!counts.containsKey(sensor.getTupleType()))
+				counts.put(sensor.getTupleType(), new int[2]);
+			counts.get(sensor.getTupleType())[1] += sensor.getThrottledTuples();
+		}
+		List<TupleDrops> tupleDrops = new ArrayList<TupleDrops>();
+		for(Map.Entry<String, int[]> count : counts.entrySet())
+			tupleDrops.add(new TupleDrops(count.getKey(), count.getValue()[0], count.getValue()[1]));
+		return tupleDrops;
 	}
 
-	public static String centerString(int width, String str) {
-	    return String.format("%-" + width  + "s",
-	    		String.format("%" + (str.length() + (width - str.length()) / 2) + "s", str));
-	}
-	
 	/**
-	 * Converts and formats a given double number to string.
-	 * 
-	 * @param size total string size
-	 * @param dc number or decimal places
-	 * @param value the value to be converted
-	 * @return the string
+	 * @return whether a target precision is set and the confidence interval of the delay of every
+	 * loop is already narrower
 	 */
-	public static String doubleToString(double value) {
-		String decimal = String.format("%8c", ' ').replaceAll("\\ ", "\\" + '0');
-		DecimalFormat df = new DecimalFormat("0." + decimal);
-		String result = df.format(value);
-		return String.format("%15s", result);
+	private boolean isPreciseEnough(){
+		if(getTargetPrecision() <= 0 || TimeKeeper.getInstance().getLoopIdToTupleIds().isEmpty())
+			return false;
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
+			BatchMeans batchMeans = TimeKeeper.getInstance().getLoopIdToBatchMeans().get(loopId);
+			if(batchMeans == null)
+				return false;
+			double halfWidth = batchMeans.getHalfWidth(getConfidenceLevel());
+			if(Double.isNaN(halfWidth) || halfWidth > getTargetPrecision()*Math.abs(batchMeans.getMean()))
+				return false;
+		}
+		return true;
 	}
 
-	private String createCharSequence(char character) {
-		StringBuilder str = new StringBuilder();
-
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			str.append(character);
+	protected void manageResources(){
+		if(getMigrationPolicy() != null || getScalingPolicy() != null){
+			sampleLoopLatencies();
+			if(getMigrationPolicy() != null){
+				for(ModuleMigration migration : getMigrationPolicy().selectMigrations(getFogDevices(), Config.RESOURCE_MANAGE_INTERVAL))
+					startMigration(migration);
+			}
+			if(getScalingPolicy() != null){
+				for(ModuleScaling scaling : getScalingPolicy().selectScalings(getFogDevices(), Config.RESOURCE_MANAGE_INTERVAL))
+					startScaling(scaling);
+			}
+			for(FogDevice fogDevice : getFogDevices())
+				fogDevice.resetLoads();
 		}
-		str.append(character);
-		str.append(NEWLINE);
-
-		return str.toString();
+		send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
 	}
 	
-	private void printCharSequence(char character) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-		    System.out.print(character);
+	/**
+	 * Records the average latency of every loop over the tuples that completed it since the
+	 * previous sample.
+	 */
+	private void sampleLoopLatencies(){
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToCurrentAverage().keySet()){
+			int count = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loopId);
+			double total = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId)*count;
+			double[] last = loopLatencyTotals.get(loopId);
+			int samples = last == null ? count : count - (int) last[1];
+			double latency = samples == 0 ? Double.NaN : (total - (last == null ? 0 : last[0]))/samples;
+			loopLatencyTimeline.add(new LoopLatencySample(CloudSim.clock(), loopId, latency, samples));
+			loopLatencyTotals.put(loopId, new double[]{total, count});
 		}
-		System.out.println(character);
 	}
-
-	private String getStringForLoopId(int loopId){
-		for(String appId : getApplications().keySet()){
-			Application app = getApplications().get(appId);
-			for(AppLoop loop : app.getLoops()){
-				if(loop.getLoopId() == loopId)
-					return loop.getModules().toString();
+	
+	/**
+	 * Moves a module: the source releases it now and the destination launches it once its state
+	 * has crossed the links between the two devices.
+	 */
+	private void startMigration(ModuleMigration migration){
+		if(delayMatrix == null)
+			delayMatrix = new DelayMatrix(getFogDevices());
+		AppModule module = migration.getModule();
+		int sourceId = migration.getSourceId();
+		int destinationId = migration.getDestinationId();
+		double latency = delayMatrix.getLatency(sourceId, destinationId);
+		migration.setLatency(latency);
+		migration.setTransmissionTime(delayMatrix.getDelay(sourceId, destinationId, 1) - latency);
+		double delay = migration.getDelay(getMigrationPolicy().getStateSize(module));
+		migration.setStartTime(CloudSim.clock());
+		migration.setCompletionTime(CloudSim.clock() + delay);
+		
+		sendNow(sourceId, FogEvents.RELEASE_OPERATOR, migration);
+		sendNow(destinationId, FogEvents.APP_SUBMIT, getApplications().get(module.getAppId()));
+		send(destinationId, delay, FogEvents.LAUNCH_MODULE, module);
+		
+		ModulePlacement modulePlacement = getAppModulePlacementPolicy().get(module.getAppId());
+		if(modulePlacement != null){
+			if(modulePlacement.getDeviceToModuleMap().containsKey(sourceId))
+				modulePlacement.getDeviceToModuleMap().get(sourceId).remove(module);
+			if(!modulePlacement.getDeviceToModuleMap().containsKey(destinationId))
+				modulePlacement.getDeviceToModuleMap().put(destinationId, new ArrayList<AppModule>());
+			modulePlacement.getDeviceToModuleMap().get(destinationId).add(module);
+			List<Integer> devices = modulePlacement.getModuleToDeviceMap().get(module.getName());
+			if(devices != null){
+				devices.remove(Integer.valueOf(sourceId));
+				devices.add(destinationId);
 			}
 		}
-		return null;
+		
+		String source = getFogDeviceById(sourceId).getName();
+		String destination = getFogDeviceById(destinationId).getName();
+		migrations.add(new Migration(CloudSim.clock(), module.getName(), source, destination, migration.getCompletionTime()));
+		if(isPrintReport())
+			System.out.println(CloudSim.clock()+" Migrating "+module.getName()+" from "+source+" to "+destination);
 	}
-	private void printTimeDetails() {
-		System.out.println("=========================================");
-		System.out.println("============== RESULTS ==================");
-		System.out.println("=========================================");
-		System.out.println("EXECUTION TIME : "+ (Calendar.getInstance().getTimeInMillis() - TimeKeeper.getInstance().getSimulationStartTime()));
-		System.out.println("=========================================");
-		System.out.println("APPLICATION LOOP DELAYS");
-		System.out.println("=========================================");
-		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
-			/*double average = 0, count = 0;
-			for(int tupleId : TimeKeeper.getInstance().getLoopIdToTupleIds().get(loopId)){
-				Double startTime = 	TimeKeeper.getInstance().getEmitTimes().get(tupleId);
-				Double endTime = 	TimeKeeper.getInstance().getEndTimes().get(tupleId);
-				if(startTime == null || endTime == null)
-					break;
-				average += endTime-startTime;
-				count += 1;
-			}
-			System.out.println(getStringForLoopId(loopId) + " ---> "+(average/count));*/
-			System.out.println(getStringForLoopId(loopId) + " ---> "+TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
+	
+	/**
+	 * Starts or stops an instance. A new instance takes tuples once it has started, after its
+	 * image has crossed the links to a sibling; a stopped one takes none from now on and leaves
+	 * its host once the tuples already sent to it are executed.
+	 */
+	private void startScaling(ModuleScaling scaling){
+		if(delayMatrix == null)
+			delayMatrix = new DelayMatrix(getFogDevices());
+		AppModule module = scaling.getModule();
+		int deviceId = scaling.getDeviceId();
+		int hostId = scaling.getHostId();
+		if(scaling.isRemote()){
+			double latency = delayMatrix.getLatency(deviceId, hostId);
+			scaling.setLatency(latency);
+			scaling.setTransmissionTime(delayMatrix.getDelay(deviceId, hostId, 1) - latency);
 		}
-		System.out.println("=========================================");
-		System.out.println("TUPLE CPU EXECUTION DELAY");
-		System.out.println("=========================================");
-		
-		double totalTutleDelay = 0.0d;
-		
-		for(String tupleType : TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().keySet()){
-			double tupleDelay = TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().get(tupleType);
-			System.out.println(tupleType + " ---> "+tupleDelay);
-			totalTutleDelay += tupleDelay;
+		List<AppModule> instances = getFogDeviceById(deviceId).getModuleInstances().get(module.getName());
+		int instanceCount = instances == null ? 1 : instances.size();
+		scaling.setStartTime(CloudSim.clock());
+		if(scaling.isScaleOut()){
+			scaling.setInstance(new AppModule(module));
+			double delay = getScalingPolicy().getStartupTime();
+			if(scaling.isRemote()){
+				delay += scaling.getDelay(getScalingPolicy().getImageSize(module));
+				sendNow(hostId, FogEvents.APP_SUBMIT, getApplications().get(module.getAppId()));
+			}
+			scaling.setReadyTime(CloudSim.clock() + delay);
+			// the host lets the device know once the instance runs
+			send(hostId, delay, FogEvents.START_MODULE_INSTANCE, scaling);
+			instanceCount++;
+		}else{
+			scaling.setReadyTime(CloudSim.clock());
+			sendNow(deviceId, FogEvents.REMOVE_MODULE_INSTANCE, scaling);
+			// the tuples already on their way to the instance still reach it
+			send(hostId, scaling.getLatency(), FogEvents.STOP_MODULE_INSTANCE, scaling);
+			instanceCount--;
 		}
 		
-		System.out.println("=========================================");
-		System.out.println("TOTAL TUPLE CPU EXECUTION DELAY: " + totalTutleDelay);
-		System.out.println("=========================================");
-	}
-
-	protected void manageResources(){
-		send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
+		String device = getFogDeviceById(deviceId).getName();
+		String host = getFogDeviceById(hostId).getName();
+		scalings.add(new Scaling(CloudSim.clock(), module.getName(), device, host, scaling.isScaleOut(), instanceCount,
+				scaling.getReadyTime()));
+		if(isPrintReport())
+			System.out.println(CloudSim.clock()+(scaling.isScaleOut() ? " Starting" : " Stopping")+" an instance of "
+					+module.getName()+" of "+device+" on "+host+", "+instanceCount+" instances");
 	}
 	
 	private void processTupleFinished(SimEvent ev) {
@@ -400,6 +433,9 @@ public class Controller extends SimEntity{
 
 	public void setFogDevices(List<FogDevice> fogDevices) {
 		this.fogDevices = fogDevices;
+		this.fogDevicesById = new HashMap<Integer, FogDevice>(fogDevices.size() * 2);
+		for(FogDevice fogDevice : fogDevices)
+			fogDevicesById.put(fogDevice.getId(), fogDevice);
 	}
 
 	public Map<String, Integer> getAppLaunchDelays() {
@@ -443,4 +479,81 @@ public class Controller extends SimEntity{
 	public void setAppModulePlacementPolicy(Map<String, ModulePlacement> appModulePlacementPolicy) {
 		this.appModulePlacementPolicy = appModulePlacementPolicy;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return the results of the run, null until the simulation has stopped
+	 */
+	public SimulationReport getReport() {
+		return report;
+	}
+
+	protected void setReport(SimulationReport report) {
+		this.report = report;
+	}
+
+	public ModuleMigrationPolicy getMigrationPolicy() {
+		return migrationPolicy;
+	}
+
+	/**
+	 * @param migrationPolicy the policy that moves modules between devices while the simulation
+	 * runs, none by default
+	 */
+	public void setMigrationPolicy(ModuleMigrationPolicy migrationPolicy) {
+		this.migrationPolicy = migrationPolicy;
+	}
+
+	public ModuleScalingPolicy getScalingPolicy() {
+		return scalingPolicy;
+	}
+
+	/**
+	 * Balances the tuples of the fog devices with the balancer of the policy, and limits every
+	 * module to its own MIPS if the policy limits its instances so.
+	 * @param scalingPolicy the policy that starts and stops instances of the modules while the
+	 * simulation runs, none by default
+	 */
+	public void setScalingPolicy(ModuleScalingPolicy scalingPolicy) {
+		this.scalingPolicy = scalingPolicy;
+		for(FogDevice fogDevice : getFogDevices()){
+			fogDevice.setModuleMipsLimited(scalingPolicy != null && scalingPolicy.isInstanceMipsLimited());
+			if(scalingPolicy != null)
+				fogDevice.setInstanceBalancer(scalingPolicy.getInstanceBalancer());
+		}
+	}
+
+	public boolean isPrintReport() {
+		return printReport;
+	}
+
+	/**
+	 * @param printReport whether the result tables are printed to the console when the simulation stops
+	 */
+	public void setPrintReport(boolean printReport) {
+		this.printReport = printReport;
+	}
+
+	public double getConfidenceLevel() {
+		return confidenceLevel;
+	}
+
+	/**
+	 * @param confidenceLevel the confidence level of the loop delay intervals, as 0.95
+	 */
+	public void setConfidenceLevel(double confidenceLevel) {
+		this.confidenceLevel = confidenceLevel;
+	}
+
+	public double getTargetPrecision() {
+		return targetPrecision;
+	}
+
+	/**
+	 * @param targetPrecision the half-width of the loop delay intervals, relative to the delay, at
+	 * which the simulation stops before its end, checked every resource management interval; 0 to
+	 * always run to the end
+	 */
+	public void setTargetPrecision(double targetPrecision) {
+		this.targetPrecision = targetPrecision;
+	}
+}
@@ -0,0 +1,136 @@
+package org.fog.placement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fog.entities.FogDevice;
+
+/**
+ * The device-to-device delays of a tree of fog devices, derived from the uplink latencies and
+ * bandwidths of the devices.
+ * <p>
+ * A tuple travels up to the closest common ancestor of its source and destination, then down.
+ * As in FogDevice.sendUp and sendDown, every hop costs the latency of the link (the uplink
+ * latency of the child) plus the transmission time of the tuple: its size over the uplink
+ * bandwidth of the child going up, over the downlink bandwidth of the parent going down.
+ * <p>
+ * The matrix is not materialized. Every device keeps the sums of these figures along its path to
+ * the root, so that an entry is the difference of two such sums on each side of the common
+ * ancestor: O(n) memory and O(depth) per entry, which keeps topologies of tens of thousands of
+ * devices cheap.
+ */
+public class DelayMatrix {
+
+	/** Index of each device id in the arrays below */
+	private final Map<Integer, Integer> indexes;
+	private final int[] parents;
+	private final int[] depths;
+	/** Sum of the link latencies from the root */
+	private final double[] latencies;
+	/** Sum of the inverse uplink bandwidths from the root */
+	private final double[] upTransmissions;
+	/** Sum of the inverse downlink bandwidths of the parents from the root */
+	private final double[] downTransmissions;
+
+	public DelayMatrix(List<FogDevice> fogDevices) {
+		int size = fogDevices.size();
+		indexes = new HashMap<Integer, Integer>(size * 2);
+		for(int i = 0; i < size; i++)
+			indexes.put(fogDevices.get(i).getId(), i);
+		parents = new int[size];
+		depths = new int[size];
+		latencies = new double[size];
+		upTransmissions = new double[size];
+		downTransmissions = new double[size];
+		for(int i = 0; i < size; i++){
+			Integer parent = indexes.get(fogDevices.get(i).getParentId());
+			parents[i] = parent == null ? -1 : parent;
+			depths[i] = -1;
+		}
+		int[] stack = new int[size];
+		for(int i = 0; i < size; i++){
+			// walks up to the first device with known sums, then fills in the path back down
+			int top = 0;
+			for(int j = i; j >= 0 && depths[j] < 0; j = parents[j]){
+				if(top == size)
+					throw new IllegalArgumentException("The parents of the fog devices form a cycle");
+				stack[top++] = j;
+			}
+			while(top > 0){
+				int j = stack[--top];
+				int parent = parents[j];
+				if(parent < 0){
+					depths[j] = 0;
+					continue;
+				}
+				FogDevice device = fogDevices.get(j);
+				depths[j] = depths[parent] + 1;
+				latencies[j] = latencies[parent] + device.getUplinkLatency();
+				upTransmissions[j] = upTransmissions[parent] + 1/device.getUplinkBandwidth();
+				downTransmissions[j] = downTransmissions[parent] + 1/fogDevices.get(parent).getDownlinkBandwidth();
+			}
+		}
+	}
+
+	/**
+	 * @param fromId the id of the sending device
+	 * @param toId the id of the receiving device
+	 * @param tupleNwLength the size of the tuple
+	 * @return the time a tuple takes from one device to the other, infinite if they are not
+	 * connected
+	 */
+	public double getDelay(int fromId, int toId, double tupleNwLength) {
+		int from = getIndex(fromId);
+		int to = getIndex(toId);
+		int ancestor = getCommonAncestor(from, to);
+		if(ancestor < 0)
+			return Double.POSITIVE_INFINITY;
+		return latencies[from] - latencies[ancestor] + tupleNwLength*(upTransmissions[from] - upTransmissions[ancestor])
+				+ latencies[to] - latencies[ancestor] + tupleNwLength*(downTransmissions[to] - downTransmissions[ancestor]);
+	}
+
+	/**
+	 * @return the sum of the link latencies between two devices, without transmission times
+	 */
+	public double getLatency(int fromId, int toId) {
+		return getDelay(fromId, toId, 0);
+	}
+
+	/**
+	 * @return whether a device is the other one or one of its ancestors
+	 */
+	public boolean isAncestor(int ancestorId, int deviceId) {
+		int ancestor = getIndex(ancestorId);
+		int device = getIndex(deviceId);
+		while(depths[device] > depths[ancestor])
+			device = parents[device];
+		return device == ancestor;
+	}
+
+	/**
+	 * @return the number of links between a device and the root of its tree
+	 */
+	public int getDepth(int deviceId) {
+		return depths[getIndex(deviceId)];
+	}
+
+	private int getCommonAncestor(int a, int b) {
+		while(depths[a] > depths[b])
+			a = parents[a];
+		while(depths[b] > depths[a])
+			b = parents[b];
+		while(a != b && a >= 0){
+			a = parents[a];
+			b = parents[b];
+		}
+		return a;
+	}
+
+	private int getIndex(int deviceId) {
+		Integer index = indexes.get(deviceId);
+		if(index == null)
+			throw new IllegalArgumentException("Unknown fog device " + deviceId);
+		return index;
+	}
+}
@@ -0,0 +1,40 @@
+package org.fog.placement;
+
+import java.util.List;
+
+import org.fog.application.AppModule;
+import org.fog.entities.FogDevice;
+import org.fog.utils.ModuleMigration;
+
+/**
+ * Runtime re-placement of the application modules, consulted by the Controller on every resource
+ * management tick. The Controller carries out the migrations it returns: the cost of a migration
+ * is the time the state of the module takes from the source to the destination.
+ */
+public abstract class ModuleMigrationPolicy {
+
+	/** Size of the state of a module per unit of its RAM, in the units of the tuple sizes */
+	private double stateSizePerRam = 1000;
+
+	/**
+	 * @param fogDevices the fog devices, whose loads were measured since the previous tick
+	 * @param interval the time since the previous tick
+	 * @return the migrations to start now
+	 */
+	public abstract List<ModuleMigration> selectMigrations(List<FogDevice> fogDevices, double interval);
+
+	/**
+	 * @return the size of the data transferred to migrate a module
+	 */
+	public double getStateSize(AppModule module) {
+		return module.getRam()*getStateSizePerRam();
+	}
+
+	public double getStateSizePerRam() {
+		return stateSizePerRam;
+	}
+
+	public void setStateSizePerRam(double stateSizePerRam) {
+		this.stateSizePerRam = stateSizePerRam;
+	}
+}
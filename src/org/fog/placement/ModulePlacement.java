@@ -1,9 +1,13 @@
 package org.fog.placement;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
@@ -17,10 +21,26 @@ public abstract class ModulePlacement {
 	public static int USER_MAPPING = 3;
 	
 	private List<FogDevice> fogDevices;
+	/** Lookup indexes over fogDevices, built on first use */
+	private Map<String, FogDevice> devicesByName;
+	private Map<Integer, FogDevice> devicesById;
+	private int indexedDeviceCount;
 	private Application application;
 	private Map<String, List<Integer>> moduleToDeviceMap;
 	private Map<Integer, List<AppModule>> deviceToModuleMap;
 	private Map<Integer, Map<String, Integer>> moduleInstanceCountMap;
+	/**
+	 * Modules whose instances wait to be created and allocated on their devices, see
+	 * {@link ParallelModulePlacement}
+	 */
+	private List<Pair<AppModule, FogDevice>> pendingAllocations = new ArrayList<Pair<AppModule, FogDevice>>();
+	
+	/**
+	 * Set on the threads of ParallelModulePlacement: placements created there only record their
+	 * module instances, which are allocated on the (shared) devices later, one placement after
+	 * the other.
+	 */
+	static final ThreadLocal<Boolean> deferAllocation = new ThreadLocal<Boolean>();
 	
 	protected abstract void mapModules();
 	
@@ -41,6 +61,12 @@ public abstract class ModulePlacement {
 	}
 	
 	protected boolean createModuleInstanceOnDevice(AppModule _module, final FogDevice device){
+		if(Boolean.TRUE.equals(deferAllocation.get())){
+			// the instance, and so its entity id, is created later in the order of the placements
+			pendingAllocations.add(new Pair<AppModule, FogDevice>(_module, device));
+			addModuleDevice(_module.getName(), device);
+			return true;
+		}
 		AppModule module = null;
 		if(getModuleToDeviceMap().containsKey(_module.getName()))
 			module = new AppModule(_module);
@@ -48,13 +74,8 @@ public abstract class ModulePlacement {
 			module = _module;
 			
 		if(canBeCreated(device, module)){
-			if(!getDeviceToModuleMap().containsKey(device.getId()))
-				getDeviceToModuleMap().put(device.getId(), new ArrayList<AppModule>());
-			getDeviceToModuleMap().get(device.getId()).add(module);
-			
-			if(!getModuleToDeviceMap().containsKey(module.getName()))
-				getModuleToDeviceMap().put(module.getName(), new ArrayList<Integer>());
-			getModuleToDeviceMap().get(module.getName()).add(device.getId());
+			addDeviceModule(device, module);
+			addModuleDevice(module.getName(), device);
 			return true;
 		} else {
 			System.err.println("Module "+module.getName()+" cannot be created on device "+device.getName());
@@ -63,20 +84,73 @@ public abstract class ModulePlacement {
 		}
 	}
 	
-	protected FogDevice getDeviceByName(String deviceName) {
-		for(FogDevice dev : getFogDevices()){
-			if(dev.getName().equals(deviceName))
-				return dev;
+	/**
+	 * Creates and allocates the module instances recorded while the placement was created by
+	 * ParallelModulePlacement, as createModuleInstanceOnDevice would have: the first instance of
+	 * a module is the module itself, the others are copies. Instances that do not fit on their
+	 * device are dropped from the placement.
+	 * @return false if an instance could not be allocated
+	 */
+	boolean allocatePendingModules(){
+		boolean allocated = true;
+		Set<String> createdModules = new HashSet<String>();
+		for(Pair<AppModule, FogDevice> pending : pendingAllocations){
+			AppModule module = pending.getFirst();
+			FogDevice device = pending.getSecond();
+			if(createdModules.contains(module.getName()))
+				module = new AppModule(module);
+			if(canBeCreated(device, module)){
+				createdModules.add(module.getName());
+				addDeviceModule(device, module);
+			} else {
+				System.err.println("Module "+module.getName()+" cannot be created on device "+device.getName());
+				System.err.println("Terminating");
+				getModuleToDeviceMap().get(module.getName()).remove(Integer.valueOf(device.getId()));
+				allocated = false;
+			}
 		}
-		return null;
+		pendingAllocations.clear();
+		return allocated;
+	}
+	
+	private void addDeviceModule(FogDevice device, AppModule module){
+		if(!getDeviceToModuleMap().containsKey(device.getId()))
+			getDeviceToModuleMap().put(device.getId(), new ArrayList<AppModule>());
+		getDeviceToModuleMap().get(device.getId()).add(module);
+	}
+	
+	private void addModuleDevice(String moduleName, FogDevice device){
+		if(!getModuleToDeviceMap().containsKey(moduleName))
+			getModuleToDeviceMap().put(moduleName, new ArrayList<Integer>());
+		getModuleToDeviceMap().get(moduleName).add(device.getId());
+	}
+	
+	protected FogDevice getDeviceByName(String deviceName) {
+		indexDevices();
+		return devicesByName.get(deviceName);
 	}
 	
 	protected FogDevice getDeviceById(int id){
+		indexDevices();
+		return devicesById.get(id);
+	}
+	
+	/**
+	 * (Re)builds the lookup indexes when the device list was replaced or has grown since they were built.
+	 */
+	private void indexDevices(){
+		if(devicesById != null && indexedDeviceCount == getFogDevices().size())
+			return;
+		devicesByName = new HashMap<String, FogDevice>(getFogDevices().size() * 2);
+		devicesById = new HashMap<Integer, FogDevice>(getFogDevices().size() * 2);
 		for(FogDevice dev : getFogDevices()){
-			if(dev.getId() == id)
-				return dev;
+			// the first device with a name wins, as with the former linear search
+			if(!devicesByName.containsKey(dev.getName()))
+				devicesByName.put(dev.getName(), dev);
+			if(!devicesById.containsKey(dev.getId()))
+				devicesById.put(dev.getId(), dev);
 		}
-		return null;
+		indexedDeviceCount = getFogDevices().size();
 	}
 	
 	public List<FogDevice> getFogDevices() {
@@ -85,6 +159,7 @@ public abstract class ModulePlacement {
 
 	public void setFogDevices(List<FogDevice> fogDevices) {
 		this.fogDevices = fogDevices;
+		this.devicesById = null;
 	}
 
 	public Application getApplication() {
@@ -1,9 +1,17 @@
 package org.fog.placement;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -31,8 +39,51 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	protected Map<Integer, Map<String, Double>> currentModuleLoadMap;
 	protected Map<Integer, Map<String, Integer>> currentModuleInstanceNum;
 	
+	/*
+	 * Indexes built once per placement, so that visiting a device does not scan the sensors,
+	 * actuators or application edges
+	 */
+	private Map<Integer, Map<String, Integer>> sensorsByGateway;
+	private Map<Integer, Map<String, Integer>> actuatorsByGateway;
+	private Map<String, Double> sensorRates;
+	private Map<String, List<AppEdge>> incomingEdges;
+	private Map<String, List<AppEdge>> edgesBySource;
+	private Map<String, List<String>> requiredModules;
+	private EdgeRates initialRates;
+	/** The modules fixed on each device by the module mapping */
+	private Map<Integer, List<String>> mappedModules = new HashMap<Integer, List<String>>();
+	
+	/**
+	 * Whether the area subtrees are placed in parallel, see {@link #ModulePlacementEdgewards(List, List, List, Application, ModuleMapping, boolean)}
+	 */
+	private final boolean parallel;
+	/**
+	 * The subtree placed by the current thread during the parallel phase, null otherwise
+	 */
+	private final ThreadLocal<SubtreePlacement> currentSubtree = new ThreadLocal<SubtreePlacement>();
+	/**
+	 * The console output of the subtree being reconciled, null otherwise
+	 */
+	private List<String> replayMessages;
+	
 	public ModulePlacementEdgewards(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators, 
 			Application application, ModuleMapping moduleMapping){
+		this(fogDevices, sensors, actuators, application, moduleMapping, false);
+	}
+	
+	/**
+	 * Creates the placement, optionally placing the area subtrees in parallel.
+	 * <p>
+	 * In parallel mode the topology is cut above the parents of the shallowest leaves: every
+	 * device at that depth roots a subtree, the devices above it (gateways, cloud) are shared.
+	 * The subtrees are placed speculatively on a ForkJoinPool and reconciled with the shared
+	 * devices serially, in depth-first order (see placeSubtreesInParallel). The placement is the
+	 * same as in serial mode whatever the number of threads.
+	 * @param parallel whether to place the subtrees in parallel
+	 */
+	public ModulePlacementEdgewards(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators, 
+			Application application, ModuleMapping moduleMapping, boolean parallel){
+		this.parallel = parallel;
 		this.setFogDevices(fogDevices);
 		this.setApplication(application);
 		this.setModuleMapping(moduleMapping);
@@ -64,13 +115,21 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 				getCurrentModuleMap().get(deviceId).add(moduleName);
 				getCurrentModuleLoadMap().get(deviceId).put(moduleName, 0.0);
 				getCurrentModuleInstanceNum().get(deviceId).put(moduleName, 0);
+				addToIndex(mappedModules, deviceId, moduleName);
 			}
 		}
 		
-		List<List<Integer>> leafToRootPaths = getLeafToRootPaths();
+		indexApplication();
+		indexEndpoints();
 		
-		for(List<Integer> path : leafToRootPaths){
-			placeModulesInPath(path);
+		FogDevice cloud=null;
+		for(FogDevice device : getFogDevices()){
+			if(device.getName().equals("cloud"))
+				cloud = device;
+		}
+		if(!isParallel() || !placeSubtreesInParallel(cloud.getId())){
+			// paths are visited in the order of getLeafToRootPaths() without materializing all of them
+			placeModulesInPaths(cloud.getId(), new ArrayList<Integer>());
 		}
 		
 		for(int deviceId : getCurrentModuleMap().keySet()){
@@ -81,41 +140,416 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		}
 	}
 	
+	/**
+	 * Places the modules in every leaf-to-root path below a device, in depth-first order.
+	 * @param fogDeviceId the device
+	 * @param pathToRoot the devices from the parent of the device up to the root
+	 */
+	private void placeModulesInPaths(int fogDeviceId, List<Integer> pathToRoot){
+		FogDevice device = getFogDeviceById(fogDeviceId);
+		pathToRoot.add(fogDeviceId);
+		if(device.getChildrenIds().size() == 0){
+			List<Integer> path = new ArrayList<Integer>(pathToRoot);
+			Collections.reverse(path);
+			placeModulesInPath(path, new HashSet<String>(), initialRates, null);
+		} else {
+			for(int childId : device.getChildrenIds())
+				placeModulesInPaths(childId, pathToRoot);
+		}
+		pathToRoot.remove(pathToRoot.size()-1);
+	}
+	
+	/**
+	 * Places the subtrees below the cut in parallel and reconciles them with the shared devices
+	 * in depth-first order.
+	 * <p>
+	 * A subtree is placed speculatively, against a snapshot of the modules on the shared devices
+	 * (the only shared state its decisions read). Its effects on the shared devices are then
+	 * replayed in order. The speculation is kept if the shared devices still hold the modules of
+	 * the snapshot when the subtree is reached, do not change while its paths are replayed and
+	 * every module shifted out of the subtree finds a device. Otherwise the subtree is reset and
+	 * placed serially. The result is the one of the serial placement.
+	 * <p>
+	 * Subtrees are speculated in batches. The batch size halves whenever a speculation is wasted
+	 * and doubles whenever one is kept, or a subtree placed serially leaves the shared devices
+	 * unchanged, so topologies whose shared devices keep changing degrade to the serial placement
+	 * instead of speculating again and again.
+	 * @param cloudId the root of the topology
+	 * @return false if the topology is too shallow to be cut, nothing has been placed then
+	 */
+	private boolean placeSubtreesInParallel(int cloudId){
+		int subtreeDepth = getMinLeafDepth(cloudId, 0) - 1;
+		if(subtreeDepth < 1)
+			return false;
+		List<SubtreePlacement> subtrees = new ArrayList<SubtreePlacement>();
+		Set<Integer> sharedDevices = new LinkedHashSet<Integer>();
+		collectSubtrees(cloudId, 0, subtreeDepth, new ArrayList<Integer>(), subtrees, sharedDevices);
+		int batchSize = subtrees.size();
+		for(int i = 0; i < subtrees.size(); i++){
+			SubtreePlacement subtree = subtrees.get(i);
+			if(subtree.isSpeculated() && !subtree.isSnapshotCurrent()){
+				subtree.reset();
+				batchSize = Math.max(1, batchSize/2);
+			}
+			if(!subtree.isSpeculated() && batchSize > 1){
+				List<SubtreePlacement> batch = new ArrayList<SubtreePlacement>();
+				for(SubtreePlacement next : subtrees.subList(i, Math.min(subtrees.size(), i+batchSize))){
+					if(next.isSpeculated() && !next.isSnapshotCurrent())
+						next.reset();
+					if(!next.isSpeculated())
+						batch.add(next);
+				}
+				speculate(batch, sharedDevices);
+			}
+			if(subtree.isSpeculated() && subtree.reconcile()){
+				batchSize = Math.min(subtrees.size(), batchSize*2);
+			} else {
+				if(subtree.isSpeculated()){
+					subtree.reset();
+					batchSize = Math.max(1, batchSize/2);
+				}
+				Map<Integer, Set<String>> before = subtree.getUpstreamModules();
+				List<Integer> pathToRoot = new ArrayList<Integer>(subtree.upstream);
+				Collections.reverse(pathToRoot);
+				placeModulesInPaths(subtree.rootId, pathToRoot);
+				if(before.equals(subtree.getUpstreamModules()))
+					batchSize = Math.min(subtrees.size(), batchSize*2);
+			}
+			subtree.release();
+		}
+		return true;
+	}
+	
+	private void speculate(List<SubtreePlacement> subtrees, Set<Integer> sharedDevices){
+		Map<Integer, Set<String>> snapshot = new HashMap<Integer, Set<String>>();
+		for(int id : sharedDevices)
+			snapshot.put(id, new HashSet<String>(getCurrentModuleMap().get(id)));
+		for(SubtreePlacement subtree : subtrees)
+			subtree.snapshot = snapshot;
+		ForkJoinTask.invokeAll(subtrees);
+	}
+	
+	private int getMinLeafDepth(int fogDeviceId, int depth){
+		FogDevice device = getFogDeviceById(fogDeviceId);
+		if(device.getChildrenIds().size() == 0)
+			return depth;
+		int min = Integer.MAX_VALUE;
+		for(int childId : device.getChildrenIds())
+			min = Math.min(min, getMinLeafDepth(childId, depth+1));
+		return min;
+	}
+	
+	private void collectSubtrees(int fogDeviceId, int depth, int subtreeDepth, List<Integer> pathFromRoot,
+			List<SubtreePlacement> subtrees, Set<Integer> sharedDevices){
+		if(depth == subtreeDepth){
+			List<Integer> upstream = new ArrayList<Integer>(pathFromRoot);
+			Collections.reverse(upstream);
+			subtrees.add(new SubtreePlacement(fogDeviceId, upstream));
+			return;
+		}
+		sharedDevices.add(fogDeviceId);
+		pathFromRoot.add(fogDeviceId);
+		for(int childId : getFogDeviceById(fogDeviceId).getChildrenIds())
+			collectSubtrees(childId, depth+1, subtreeDepth, pathFromRoot, subtrees, sharedDevices);
+		pathFromRoot.remove(pathFromRoot.size()-1);
+	}
+	
+	/**
+	 * Resets a device to the state it had before the placement started.
+	 */
+	private void resetDevice(int deviceId){
+		List<String> modules = new ArrayList<String>();
+		Map<String, Double> loads = new HashMap<String, Double>();
+		Map<String, Integer> instances = new HashMap<String, Integer>();
+		for(String moduleName : get(mappedModules, deviceId)){
+			modules.add(moduleName);
+			loads.put(moduleName, 0.0);
+			instances.put(moduleName, 0);
+		}
+		getCurrentCpuLoad().put(deviceId, 0.0);
+		getCurrentModuleMap().put(deviceId, modules);
+		getCurrentModuleLoadMap().put(deviceId, loads);
+		getCurrentModuleInstanceNum().put(deviceId, instances);
+	}
+	
+	/**
+	 * Something a subtree placed speculatively does to the shared devices, replayed when the
+	 * subtree is reconciled.
+	 */
+	private abstract static class UpstreamAction {
+		/**
+		 * @param messages collects the console output, printed once the subtree is kept
+		 * @return false if the speculation turned out wrong
+		 */
+		abstract boolean replay(List<String> messages);
+	}
+	
+	/**
+	 * Places the paths of one subtree up to its root. Only the devices of the subtree are
+	 * modified; everything that concerns the shared devices above it is kept, in order, in
+	 * upstreamActions.
+	 */
+	@SuppressWarnings("serial")
+	private class SubtreePlacement extends RecursiveAction {
+		private final int rootId;
+		/** The devices above the subtree root, from its parent up to the cloud */
+		private final List<Integer> upstream;
+		private List<UpstreamAction> upstreamActions = new ArrayList<UpstreamAction>();
+		/** The modules on the shared devices the speculation was based on */
+		private Map<Integer, Set<String>> snapshot;
+		/** Shares the identical maps of modules placed below the subtree root between paths */
+		private Map<Map<String, Integer>, Map<String, Integer>> placedBelowMaps;
+		
+		SubtreePlacement(int rootId, List<Integer> upstream){
+			this.rootId = rootId;
+			this.upstream = upstream;
+		}
+		
+		@Override
+		protected void compute() {
+			SubtreePlacement previous = currentSubtree.get();
+			currentSubtree.set(this);
+			placedBelowMaps = new HashMap<Map<String, Integer>, Map<String, Integer>>();
+			try {
+				placePaths(rootId, new ArrayList<Integer>());
+			} finally {
+				currentSubtree.set(previous);
+				placedBelowMaps = null;
+			}
+		}
+		
+		private void placePaths(int fogDeviceId, List<Integer> pathToRoot){
+			FogDevice device = getFogDeviceById(fogDeviceId);
+			pathToRoot.add(fogDeviceId);
+			if(device.getChildrenIds().size() == 0){
+				List<Integer> path = new ArrayList<Integer>(pathToRoot);
+				Collections.reverse(path);
+				final Set<String> placedModules = new HashSet<String>();
+				final EdgeRates edgeRates = placeModulesInPath(path, placedModules, initialRates, null);
+				final Map<String, Integer> placedBelow = getPlacedBelow(path);
+				upstreamActions.add(new UpstreamAction() {
+					@Override
+					boolean replay(List<String> messages) {
+						placeModulesInPath(upstream, placedModules, edgeRates, placedBelow);
+						return true;
+					}
+				});
+			} else {
+				for(int childId : device.getChildrenIds())
+					placePaths(childId, pathToRoot);
+			}
+			pathToRoot.remove(pathToRoot.size()-1);
+		}
+		
+		/**
+		 * @return the device, lowest first, hosting each module placed on the path at this point
+		 */
+		private Map<String, Integer> getPlacedBelow(List<Integer> path){
+			Map<String, Integer> placedBelow = new HashMap<String, Integer>();
+			for(int deviceId : path){
+				for(String module : getCurrentModuleMap().get(deviceId)){
+					if(!placedBelow.containsKey(module))
+						placedBelow.put(module, deviceId);
+				}
+			}
+			Map<String, Integer> shared = placedBelowMaps.get(placedBelow);
+			if(shared == null){
+				placedBelowMaps.put(placedBelow, placedBelow);
+				shared = placedBelow;
+			}
+			return shared;
+		}
+		
+		boolean isUpstream(int fogDeviceId){
+			return !upstream.isEmpty() && upstream.get(0) == fogDeviceId;
+		}
+		
+		/**
+		 * @return the id of the first shared device holding the module in the snapshot, -1 if none
+		 */
+		int isPlacedUpstream(String operatorName){
+			for(int deviceId : upstream){
+				if(snapshot.get(deviceId).contains(operatorName))
+					return deviceId;
+			}
+			return -1;
+		}
+		
+		boolean isSpeculated(){
+			return snapshot != null;
+		}
+		
+		boolean isSnapshotCurrent(){
+			for(int deviceId : upstream){
+				if(!snapshot.get(deviceId).equals(new HashSet<String>(getCurrentModuleMap().get(deviceId))))
+					return false;
+			}
+			return true;
+		}
+		
+		Map<Integer, Set<String>> getUpstreamModules(){
+			Map<Integer, Set<String>> modules = new HashMap<Integer, Set<String>>();
+			for(int deviceId : upstream)
+				modules.put(deviceId, new HashSet<String>(getCurrentModuleMap().get(deviceId)));
+			return modules;
+		}
+		
+		/**
+		 * Replays the actions of the speculation on the shared devices.
+		 * @return false if the speculation had to be rolled back
+		 */
+		boolean reconcile(){
+			Map<Integer, Object[]> saved = new HashMap<Integer, Object[]>();
+			for(int id : upstream){
+				saved.put(id, new Object[]{getCurrentCpuLoad().get(id), new ArrayList<String>(getCurrentModuleMap().get(id)),
+						new HashMap<String, Double>(getCurrentModuleLoadMap().get(id)),
+						new HashMap<String, Integer>(getCurrentModuleInstanceNum().get(id))});
+			}
+			List<String> messages = new ArrayList<String>();
+			replayMessages = messages;
+			try {
+				for(int i = 0; i < upstreamActions.size(); i++){
+					// the later paths of the subtree were placed assuming the snapshot
+					if(!upstreamActions.get(i).replay(messages) || (i < upstreamActions.size()-1 && !isSnapshotCurrent())){
+						rollback(saved);
+						return false;
+					}
+				}
+			} finally {
+				replayMessages = null;
+			}
+			for(String message : messages)
+				System.out.println(message);
+			return true;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private void rollback(Map<Integer, Object[]> saved){
+			for(int id : upstream){
+				Object[] state = saved.get(id);
+				getCurrentCpuLoad().put(id, (Double) state[0]);
+				getCurrentModuleMap().put(id, (List<String>) state[1]);
+				getCurrentModuleLoadMap().put(id, (Map<String, Double>) state[2]);
+				getCurrentModuleInstanceNum().put(id, (Map<String, Integer>) state[3]);
+			}
+		}
+		
+		/**
+		 * Drops the speculation and resets the devices of the subtree, so that it can be placed again.
+		 */
+		void reset(){
+			resetDevices(rootId);
+			upstreamActions = new ArrayList<UpstreamAction>();
+			snapshot = null;
+			reinitialize();
+		}
+		
+		private void resetDevices(int fogDeviceId){
+			resetDevice(fogDeviceId);
+			for(int childId : getFogDeviceById(fogDeviceId).getChildrenIds())
+				resetDevices(childId);
+		}
+		
+		/**
+		 * Drops the speculation once the subtree is reconciled.
+		 */
+		void release(){
+			upstreamActions = null;
+			snapshot = null;
+		}
+	}
+	
+	/**
+	 * Indexes the edges of the application by module and collects, for every module, the modules
+	 * that have to be placed before it.
+	 */
+	private void indexApplication(){
+		incomingEdges = new HashMap<String, List<AppEdge>>();
+		edgesBySource = new HashMap<String, List<AppEdge>>();
+		requiredModules = new HashMap<String, List<String>>();
+		for(AppEdge edge : getApplication().getEdges()){
+			addToIndex(incomingEdges, edge.getDestination(), edge);
+			addToIndex(edgesBySource, edge.getSource(), edge);
+			// outgoing down edges and incoming up edges have to be placed lower in the physical topology
+			if(edge.getDirection()==Tuple.DOWN)
+				addToIndex(requiredModules, edge.getSource(), edge.getDestination());
+			if(edge.getDirection()==Tuple.UP)
+				addToIndex(requiredModules, edge.getDestination(), edge.getSource());
+		}
+		Map<AppEdge, Double> periodicRates = new HashMap<AppEdge, Double>();
+		/**
+		 * Periodic edges have a fixed periodicity of tuples, so setting the tuple rate beforehand
+		 */
+		for(AppEdge edge : getApplication().getEdges()){
+			if(edge.isPeriodic()){
+				periodicRates.put(edge, 1/edge.getPeriodicity());
+			}
+		}
+		initialRates = new EdgeRates(periodicRates);
+	}
+	
+	/**
+	 * Counts the sensors and actuators of every gateway device and the rate of every sensor type
+	 * in one pass over the endpoints.
+	 */
+	private void indexEndpoints(){
+		sensorsByGateway = new HashMap<Integer, Map<String, Integer>>();
+		sensorRates = new HashMap<String, Double>();
+		for(Sensor sensor : getSensors()){
+			increment(sensorsByGateway, sensor.getGatewayDeviceId(), sensor.getTupleType());
+			if(!sensorRates.containsKey(sensor.getTupleType()))
+				sensorRates.put(sensor.getTupleType(), 1/sensor.getTransmitDistribution().getMeanInterTransmitTime());
+		}
+		actuatorsByGateway = new HashMap<Integer, Map<String, Integer>>();
+		for(Actuator actuator : getActuators())
+			increment(actuatorsByGateway, actuator.getGatewayDeviceId(), actuator.getActuatorType());
+	}
+	
+	private static <K, V> void addToIndex(Map<K, List<V>> index, K key, V value){
+		if(!index.containsKey(key))
+			index.put(key, new ArrayList<V>());
+		index.get(key).add(value);
+	}
+	
+	private static void increment(Map<Integer, Map<String, Integer>> counts, int deviceId, String type){
+		Map<String, Integer> endpoints = counts.get(deviceId);
+		if(endpoints == null){
+			endpoints = new HashMap<String, Integer>();
+			counts.put(deviceId, endpoints);
+		}
+		Integer count = endpoints.get(type);
+		endpoints.put(type, count == null ? 1 : count+1);
+	}
+	
+	private static <K, V> List<V> get(Map<K, List<V>> index, K key){
+		List<V> values = index.get(key);
+		return values == null ? Collections.<V>emptyList() : values;
+	}
+	
 	/**
 	 * Get the list of modules that are ready to be placed 
 	 * @param placedModules Modules that have already been placed in current path
 	 * @return list of modules ready to be placed
 	 */
-	private List<String> getModulesToPlace(List<String> placedModules){
-		Application app = getApplication();
-		List<String> modulesToPlace_1 = new ArrayList<String>();
+	private List<String> getModulesToPlace(Set<String> placedModules){
 		List<String> modulesToPlace = new ArrayList<String>();
-		for(AppModule module : app.getModules()){
-			if(!placedModules.contains(module.getName()))
-				modulesToPlace_1.add(module.getName());
-		}
-		/*
-		 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
-		 */
-		for(String moduleName : modulesToPlace_1){
-			boolean toBePlaced = true;
-			
-			for(AppEdge edge : app.getEdges()){
-				//CHECK IF OUTGOING DOWN EDGES ARE PLACED
-				if(edge.getSource().equals(moduleName) && edge.getDirection()==Tuple.DOWN && !placedModules.contains(edge.getDestination()))
-					toBePlaced = false;
-				//CHECK IF INCOMING UP EDGES ARE PLACED
-				if(edge.getDestination().equals(moduleName) && edge.getDirection()==Tuple.UP && !placedModules.contains(edge.getSource()))
-					toBePlaced = false;
-			}
-			if(toBePlaced)
-				modulesToPlace.add(moduleName);
+		for(AppModule module : getApplication().getModules()){
+			if(placedModules.contains(module.getName()))
+				continue;
+			/*
+			 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
+			 */
+			if(placedModules.containsAll(get(requiredModules, module.getName())))
+				modulesToPlace.add(module.getName());
 		}
-
 		return modulesToPlace;
 	}
 	
 	protected double getRateOfSensor(String sensorType){
+		if(sensorRates != null){
+			Double rate = sensorRates.get(sensorType);
+			return rate == null ? 0 : rate;
+		}
 		for(Sensor sensor : getSensors()){
 			if(sensor.getTupleType().equals(sensorType))
 				return 1/sensor.getTransmitDistribution().getMeanInterTransmitTime();
@@ -123,19 +557,95 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		return 0;
 	}
 	
-	private void placeModulesInPath(List<Integer> path) {
-		if(path.size()==0)return;
-		List<String> placedModules = new ArrayList<String>();
-		Map<AppEdge, Double> appEdgeToRate = new HashMap<AppEdge, Double>();
+	/**
+	 * The tuple rates of the application edges known after visiting a prefix of a path. The rates
+	 * only depend on the sensors attached to the devices of the prefix, so devices built from the
+	 * same template share the same chain of instances.
+	 */
+	private class EdgeRates {
+		private final Map<AppEdge, Double> rates;
+		private final ConcurrentMap<Map<String, Integer>, EdgeRates> next = new ConcurrentHashMap<Map<String, Integer>, EdgeRates>();
+		
+		EdgeRates(Map<AppEdge, Double> rates){
+			this.rates = rates;
+		}
 		
 		/**
-		 * Periodic edges have a fixed periodicity of tuples, so setting the tuple rate beforehand
+		 * @param sensorsAssociated the sensors attached to the next device of the path
+		 * @return the rates after visiting the next device
 		 */
-		for(AppEdge edge : getApplication().getEdges()){
-			if(edge.isPeriodic()){
-				appEdgeToRate.put(edge, 1/edge.getPeriodicity());
+		EdgeRates next(Map<String, Integer> sensorsAssociated){
+			EdgeRates result = next.get(sensorsAssociated);
+			if(result == null){
+				// subtrees placed in parallel may compute the same rates twice, the first one is kept
+				result = new EdgeRates(computeRates(rates, sensorsAssociated));
+				EdgeRates previous = next.putIfAbsent(sensorsAssociated, result);
+				if(previous != null)
+					result = previous;
+			}
+			return result;
+		}
+	}
+	
+	private Map<AppEdge, Double> computeRates(Map<AppEdge, Double> previousRates, Map<String, Integer> sensorsAssociated){
+		Map<AppEdge, Double> appEdgeToRate = new HashMap<AppEdge, Double>(previousRates);
+		
+		/*
+		 * Setting the rates of application edges emanating from sensors
+		 */
+		for(String sensor : sensorsAssociated.keySet()){
+			for(AppEdge edge : get(edgesBySource, sensor)){
+				appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
+			}
+		}
+					
+		/*
+		 * Updating the AppEdge rates for the entire application based on knowledge so far
+		 */
+		boolean changed = true;
+		while(changed){		//Loop runs as long as some new information is added
+			changed=false;
+			Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
+			for(AppEdge edge : rateMap.keySet()){
+				AppModule destModule = getApplication().getModuleByName(edge.getDestination());
+				if(destModule == null)continue;
+				Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
+				for(Pair<String, String> pair : map.keySet()){
+					if(pair.getFirst().equals(edge.getTupleType())){
+						double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
+						AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
+						if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
+							// if some new information is available
+							changed = true;
+						}
+						appEdgeToRate.put(outputEdge, outputRate);
+					}
+				}
 			}
 		}
+		return appEdgeToRate;
+	}
+	
+	private double getIncomingCpuLoad(String moduleName, Map<AppEdge, Double> appEdgeToRate){
+		double totalCpuLoad = 0;
+		for(AppEdge edge : get(incomingEdges, moduleName)){		// take all incoming edges
+			Logger.debug("ModulePlacementEdgeward", "Getting edge for module: " + moduleName);
+			double rate = appEdgeToRate.get(edge);
+			totalCpuLoad += rate*edge.getTupleCpuLength();
+		}
+		return totalCpuLoad;
+	}
+	
+	/**
+	 * Places the modules along a path, or the rest of a path.
+	 * @param path the devices, from the bottom up
+	 * @param placedModules the modules placed further down the path, updated in place
+	 * @param edgeRates the edge rates known from further down the path
+	 * @param placedBelow for the rest of a path, where the modules were placed further down it
+	 * @return the edge rates known at the top of the path
+	 */
+	private EdgeRates placeModulesInPath(List<Integer> path, Set<String> placedModules, EdgeRates edgeRates,
+			Map<String, Integer> placedBelow) {
 		
 		for(Integer deviceId : path){
 			FogDevice device = getFogDeviceById(deviceId);
@@ -144,41 +654,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			placedModules.addAll(sensorsAssociated.keySet()); // ADDING ALL SENSORS TO PLACED LIST
 			placedModules.addAll(actuatorsAssociated.keySet()); // ADDING ALL ACTUATORS TO PLACED LIST
 			
-			/*
-			 * Setting the rates of application edges emanating from sensors
-			 */
-			for(String sensor : sensorsAssociated.keySet()){
-				for(AppEdge edge : getApplication().getEdges()){
-					if(edge.getSource().equals(sensor)){
-						appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
-					}
-				}
-			}
-						
-			/*
-			 * Updating the AppEdge rates for the entire application based on knowledge so far
-			 */
-			boolean changed = true;
-			while(changed){		//Loop runs as long as some new information is added
-				changed=false;
-				Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
-				for(AppEdge edge : rateMap.keySet()){
-					AppModule destModule = getApplication().getModuleByName(edge.getDestination());
-					if(destModule == null)continue;
-					Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
-					for(Pair<String, String> pair : map.keySet()){
-						if(pair.getFirst().equals(edge.getTupleType())){
-							double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
-							AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
-							if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
-								// if some new information is available
-								changed = true;
-							}
-							appEdgeToRate.put(outputEdge, outputRate);
-						}
-					}
-				}
-			}
+			edgeRates = edgeRates.next(sensorsAssociated);
+			Map<AppEdge, Double> appEdgeToRate = edgeRates.rates;
 			
 			/*
 			 * Getting the list of modules ready to be placed on current device on path
@@ -190,26 +667,18 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 				double totalCpuLoad = 0;
 				
 				//IF MODULE IS ALREADY PLACED UPSTREAM, THEN UPDATE THE EXISTING MODULE
-				int upsteamDeviceId = isPlacedUpstream(moduleName, path);
+				int upsteamDeviceId = isPlacedUpstream(moduleName, path, placedBelow);
 				if(upsteamDeviceId > 0){
 					if(upsteamDeviceId==deviceId){
 						placedModules.add(moduleName);
 						modulesToPlace = getModulesToPlace(placedModules);
 						
 						// NOW THE MODULE TO PLACE IS IN THE CURRENT DEVICE. CHECK IF THE NODE CAN SUSTAIN THE MODULE
-						for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-							if(edge.getDestination().equals(moduleName)){
-								double rate = appEdgeToRate.get(edge);
-								totalCpuLoad += rate*edge.getTupleCpuLength();
-							}
-						}
+						totalCpuLoad = getIncomingCpuLoad(moduleName, appEdgeToRate);
 						if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
 							Logger.debug("ModulePlacementEdgeward", "Need to shift module "+moduleName+" upstream from device " + device.getName());
 							List<String> _placedOperators = shiftModuleNorth(moduleName, totalCpuLoad, deviceId, modulesToPlace);
-							for(String placedOperator : _placedOperators){
-								if(!placedModules.contains(placedOperator))
-									placedModules.add(placedOperator);
-							}
+							placedModules.addAll(_placedOperators);
 						} else{
 							placedModules.add(moduleName);
 							getCurrentCpuLoad().put(deviceId, getCurrentCpuLoad().get(deviceId)+totalCpuLoad);
@@ -219,15 +688,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 					}
 				}else{
 					// FINDING OUT WHETHER PLACEMENT OF OPERATOR ON DEVICE IS POSSIBLE
-					for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-						if(edge.getDestination().equals(moduleName)){
-							Logger.debug("ModulePlacementEdgeward", "Getting edge for module: " + moduleName);
-							Logger.debug("ModulePlacementEdgeward", "appEdgeToRate="+appEdgeToRate);
-							Logger.debug("ModulePlacementEdgeward", "edge="+edge);
-							double rate = appEdgeToRate.get(edge);
-							totalCpuLoad += rate*edge.getTupleCpuLength();
-						}
-					}
+					totalCpuLoad = getIncomingCpuLoad(moduleName, appEdgeToRate);
 						
 					if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
 						Logger.debug("ModulePlacementEdgeward", "Placement of operator "+moduleName+ "NOT POSSIBLE on device "+device.getName());
@@ -243,10 +704,12 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 						getCurrentModuleLoadMap().get(device.getId()).put(moduleName, totalCpuLoad);
 						
 						int max = 1;
-						for(AppEdge edge : getApplication().getEdges()){
-							if(edge.getSource().equals(moduleName) && actuatorsAssociated.containsKey(edge.getDestination()))
+						for(AppEdge edge : get(edgesBySource, moduleName)){
+							if(actuatorsAssociated.containsKey(edge.getDestination()))
 								max = Math.max(actuatorsAssociated.get(edge.getDestination()), max);
-							if(edge.getDestination().equals(moduleName) && sensorsAssociated.containsKey(edge.getSource()))
+						}
+						for(AppEdge edge : get(incomingEdges, moduleName)){
+							if(sensorsAssociated.containsKey(edge.getSource()))
 								max = Math.max(sensorsAssociated.get(edge.getSource()), max);
 						}
 						getCurrentModuleInstanceNum().get(deviceId).put(moduleName, max);
@@ -258,7 +721,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			}
 			
 		}
-		
+		return edgeRates;
 	}
 
 	/**
@@ -268,39 +731,88 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @param deviceId
 	 */
 	private List<String> shiftModuleNorth(String moduleName, double cpuLoad, Integer deviceId, List<String> operatorsToPlace) {
-		System.out.println(CloudSim.getEntityName(deviceId)+" is shifting "+moduleName+" north.");
-		List<String> modulesToShift = findModulesToShift(moduleName, deviceId);
+		printShift(CloudSim.getEntityName(deviceId)+" is shifting "+moduleName+" north.");
+		NorthwardShift shift = new NorthwardShift();
+		shift.modulesToShift = findModulesToShift(moduleName, deviceId);
 		
-		Map<String, Integer> moduleToNumInstances = new HashMap<String, Integer>(); // Map of number of instances of modules that need to be shifted
-		double totalCpuLoad = 0;
-		Map<String, Double> loadMap = new HashMap<String, Double>();
-		for(String module : modulesToShift){
-			loadMap.put(module, getCurrentModuleLoadMap().get(deviceId).get(module));
-			moduleToNumInstances.put(module, getCurrentModuleInstanceNum().get(deviceId).get(module)+1);
-			totalCpuLoad += getCurrentModuleLoadMap().get(deviceId).get(module);
+		for(String module : shift.modulesToShift){
+			shift.loadMap.put(module, getCurrentModuleLoadMap().get(deviceId).get(module));
+			shift.moduleToNumInstances.put(module, getCurrentModuleInstanceNum().get(deviceId).get(module)+1);
+			shift.totalCpuLoad += getCurrentModuleLoadMap().get(deviceId).get(module);
 			getCurrentModuleLoadMap().get(deviceId).remove(module);
 			getCurrentModuleMap().get(deviceId).remove(module);
 			getCurrentModuleInstanceNum().get(deviceId).remove(module);
 		}
 		
-		getCurrentCpuLoad().put(deviceId, getCurrentCpuLoad().get(deviceId)-totalCpuLoad); // change info of current CPU load on device
-		loadMap.put(moduleName, loadMap.get(moduleName)+cpuLoad);
-		totalCpuLoad += cpuLoad;
+		getCurrentCpuLoad().put(deviceId, getCurrentCpuLoad().get(deviceId)-shift.totalCpuLoad); // change info of current CPU load on device
+		shift.loadMap.put(moduleName, shift.loadMap.get(moduleName)+cpuLoad);
+		shift.totalCpuLoad += cpuLoad;
 		
-		int id = getParentDevice(deviceId);
+		return shiftNorth(shift, getParentDevice(deviceId), operatorsToPlace);
+	}
+	
+	/**
+	 * The modules being shifted north, with their loads and numbers of instances
+	 */
+	private static class NorthwardShift {
+		List<String> modulesToShift;
+		Map<String, Integer> moduleToNumInstances = new HashMap<String, Integer>(); // Map of number of instances of modules that need to be shifted
+		Map<String, Double> loadMap = new HashMap<String, Double>();
+		double totalCpuLoad = 0;
+	}
+	
+	private void printShift(final String message){
+		SubtreePlacement subtree = currentSubtree.get();
+		if(subtree == null){
+			if(replayMessages != null)
+				replayMessages.add(message);
+			else
+				System.out.println(message);
+			return;
+		}
+		// printed when the subtree is reconciled, so that the output does not depend on the threads
+		subtree.upstreamActions.add(new UpstreamAction() {
+			@Override
+			boolean replay(List<String> messages) {
+				messages.add(message);
+				return true;
+			}
+		});
+	}
+	
+	/**
+	 * Tries to place the modules of a shift on device id or further north.
+	 * @return the modules placed
+	 */
+	private List<String> shiftNorth(final NorthwardShift shift, final int startId, List<String> operatorsToPlace) {
+		int id = startId;
 		while(true){ // Loop iterates over all devices in path upstream from current device. Tries to place modules (to be shifted northwards) on each of them.
 			if(id==-1){
 				// Loop has reached the apex fog device in hierarchy, and still could not place modules. 
-				Logger.debug("ModulePlacementEdgeward", "Could not place modules "+modulesToShift+" northwards.");
+				Logger.debug("ModulePlacementEdgeward", "Could not place modules "+shift.modulesToShift+" northwards.");
 				break;
 			}
+			SubtreePlacement subtree = currentSubtree.get();
+			if(subtree != null && subtree.isUpstream(id)){
+				// the shift leaves the subtree: finish it when the shared devices are reconciled
+				final int sharedId = id;
+				subtree.upstreamActions.add(new UpstreamAction() {
+					@Override
+					boolean replay(List<String> messages) {
+						// the subtree went on as if the modules had been placed
+						return !shiftNorth(shift, sharedId, new ArrayList<String>()).isEmpty();
+					}
+				});
+				operatorsToPlace.removeAll(shift.loadMap.keySet());
+				return new ArrayList<String>(shift.loadMap.keySet());
+			}
 			FogDevice fogDevice = getFogDeviceById(id);
-			if(getCurrentCpuLoad().get(id) + totalCpuLoad > fogDevice.getHost().getTotalMips()){
+			if(getCurrentCpuLoad().get(id) + shift.totalCpuLoad > fogDevice.getHost().getTotalMips()){
 				// Device cannot take up CPU load of incoming modules. Keep searching for device further north.
-				List<String> _modulesToShift = findModulesToShift(modulesToShift, id);	// All modules in _modulesToShift are currently placed on device id
+				List<String> _modulesToShift = findModulesToShift(shift.modulesToShift, id);	// All modules in _modulesToShift are currently placed on device id
 				double cpuLoadShifted = 0;		// the total CPU load shifted from device id to its parent
 				for(String module : _modulesToShift){
-					if(!modulesToShift.contains(module)){
+					if(!shift.modulesToShift.contains(module)){
 						Map<String, Integer> moduleInstances = getCurrentModuleInstanceNum().get(id);
 						Integer numInstances = null;
 						if (moduleInstances != null) {
@@ -309,16 +821,16 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 								continue;
 							}
 							
-							numInstances = moduleToNumInstances.get(module);
+							numInstances = shift.moduleToNumInstances.get(module);
 							if (numInstances == null) {
 								numInstances = 0;
 							}
 						}
 						// Add information of all newly added modules (to be shifted) 
-						moduleToNumInstances.put(module, getCurrentModuleInstanceNum().get(id).get(module)+numInstances);
-						loadMap.put(module, getCurrentModuleLoadMap().get(id).get(module));
+						shift.moduleToNumInstances.put(module, getCurrentModuleInstanceNum().get(id).get(module)+numInstances);
+						shift.loadMap.put(module, getCurrentModuleLoadMap().get(id).get(module));
 						cpuLoadShifted += getCurrentModuleLoadMap().get(id).get(module);
-						totalCpuLoad += getCurrentModuleLoadMap().get(id).get(module);
+						shift.totalCpuLoad += getCurrentModuleLoadMap().get(id).get(module);
 						// Removing information of all modules (to be shifted north) in device with ID id 
 						getCurrentModuleLoadMap().get(id).remove(module);
 						getCurrentModuleMap().get(id).remove(module);
@@ -327,26 +839,26 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 				}
 				getCurrentCpuLoad().put(id, getCurrentCpuLoad().get(id)-cpuLoadShifted); // CPU load on device id gets reduced due to modules shifting northwards
 				
-				modulesToShift = _modulesToShift;
+				shift.modulesToShift = _modulesToShift;
 				id = getParentDevice(id); // iterating to parent device
 			} else{
 				// Device (@ id) can accommodate modules. Placing them here.
 				double totalLoad = 0;
-				for(String module : loadMap.keySet()){
-					totalLoad += loadMap.get(module);
-					getCurrentModuleLoadMap().get(id).put(module, loadMap.get(module));
+				for(String module : shift.loadMap.keySet()){
+					totalLoad += shift.loadMap.get(module);
+					getCurrentModuleLoadMap().get(id).put(module, shift.loadMap.get(module));
 					getCurrentModuleMap().get(id).add(module);
 					String module_ = module;
 					int initialNumInstances = 0;
 					if(getCurrentModuleInstanceNum().get(id).containsKey(module_))
 						initialNumInstances = getCurrentModuleInstanceNum().get(id).get(module_);
-					int finalNumInstances = initialNumInstances + moduleToNumInstances.get(module_);
+					int finalNumInstances = initialNumInstances + shift.moduleToNumInstances.get(module_);
 					getCurrentModuleInstanceNum().get(id).put(module_, finalNumInstances);
 				}
 				getCurrentCpuLoad().put(id, totalLoad);
-				operatorsToPlace.removeAll(loadMap.keySet());
+				operatorsToPlace.removeAll(shift.loadMap.keySet());
 				List<String> placedOperators = new ArrayList<String>();
-				for(String op : loadMap.keySet())placedOperators.add(op);
+				for(String op : shift.loadMap.keySet())placedOperators.add(op);
 				return placedOperators;
 			}	
 		}
@@ -411,11 +923,16 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		return upstreamModules;	
 	}
 	
-	private int isPlacedUpstream(String operatorName, List<Integer> path) {
+	private int isPlacedUpstream(String operatorName, List<Integer> path, Map<String, Integer> placedBelow) {
+		if(placedBelow != null && placedBelow.containsKey(operatorName))
+			return placedBelow.get(operatorName);
 		for(int deviceId : path){
 			if(currentModuleMap.containsKey(deviceId) && currentModuleMap.get(deviceId).contains(operatorName))
 				return deviceId;
 		}
+		SubtreePlacement subtree = currentSubtree.get();
+		if(subtree != null)
+			return subtree.isPlacedUpstream(operatorName);
 		return -1;
 	}
 
@@ -425,15 +942,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @return map from sensor type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedSensors(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Sensor sensor : getSensors()){
-			if(sensor.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(sensor.getTupleType()))
-					endpoints.put(sensor.getTupleType(), 0);
-				endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+1);
-			}
-		}
-		return endpoints;
+		Map<String, Integer> endpoints = sensorsByGateway.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	/**
@@ -442,15 +952,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @return map from actuator type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedActuators(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Actuator actuator : getActuators()){
-			if(actuator.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(actuator.getActuatorType()))
-					endpoints.put(actuator.getActuatorType(), 0);
-				endpoints.put(actuator.getActuatorType(), endpoints.get(actuator.getActuatorType())+1);
-			}
-		}
-		return endpoints;
+		Map<String, Integer> endpoints = actuatorsByGateway.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	@SuppressWarnings("serial")
@@ -480,6 +983,10 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		return getPaths(cloud.getId());
 	}
 	
+	public boolean isParallel() {
+		return parallel;
+	}
+
 	public ModuleMapping getModuleMapping() {
 		return moduleMapping;
 	}
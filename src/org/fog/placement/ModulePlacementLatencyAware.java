@@ -0,0 +1,810 @@
+package org.fog.placement;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+
+/**
+ * Places the modules where they minimize the expected latency of the application loops, within
+ * the MIPS and RAM of the devices and the bandwidth of their links.
+ * <p>
+ * The tuples of the sensors flow up the topology, which is visited bottom-up. At every device the
+ * traffic waiting for a module is either processed there or passed up, depending on the expected
+ * time per tuple: the processing time on the device, against the transfer to the best ancestor
+ * (see {@link DelayMatrix}) plus the processing time there, less the transfer of the outputs the
+ * module would make anyway. When several modules compete for a device, the one losing most by
+ * going up is placed first. The processing time is the CPU length of a tuple over the MIPS the
+ * module gets, plus the waiting time of Kingman's approximation for the utilization the device
+ * would reach and the variability of the arrivals (none for deterministic sensors). A device
+ * takes a module only if its RAM holds one more instance and its MIPS the load; modules fixed by
+ * the module mapping stay on their devices and the root takes whatever traffic reaches it. When
+ * neither a device nor an ancestor can take a module, the device keeps it if its RAM holds it and
+ * its uplink cannot carry the traffic: one overloaded device instead of an overloaded uplink and
+ * the overloads the traffic causes further up. {@link #isFeasible()} tells whether the placement
+ * overloads anything.
+ * <p>
+ * An UP tuple is processed by the first device hosting its module on its way up, so deciding for
+ * the traffic of a whole subtree at once matches the routing of FogDevice. Every device is visited
+ * once per round, with O(depth) work per decision. The load of the links above a device is only
+ * known once the whole topology is placed, so the placement is repeated (at most ROUNDS times,
+ * until it does not change) with the link loads of the previous round, and the best round kept.
+ * <p>
+ * After every round the traffic is replayed against the final loads to estimate the latency of
+ * every loop; {@link #printReport(PrintStream)} sums up the placement. The estimates cover the UP
+ * edges of a loop only.
+ */
+public class ModulePlacementLatencyAware extends ModulePlacement{
+
+	private static final int ROUNDS = 3;
+
+	protected ModuleMapping moduleMapping;
+	protected List<Sensor> sensors;
+	protected List<Actuator> actuators;
+
+	private DelayMatrix delayMatrix;
+	/** The devices every module is fixed on by the module mapping */
+	private Map<String, Set<Integer>> mappedDevices = new HashMap<String, Set<Integer>>();
+	/** The round being placed, then the best one */
+	private Round round;
+
+	private Map<Integer, Map<String, Integer>> sensorsByGateway;
+	private Map<String, Double> sensorRates;
+	private Map<String, Double> sensorVariabilities;
+	/** The modules after the modules they get UP tuples from */
+	private List<String> moduleOrder;
+	/** The UP edges into every module */
+	private Map<String, List<AppEdge>> incomingEdges;
+	private Map<String, List<AppEdge>> edgesBySource;
+	/** The edges a module emits on for a tuple of an incoming edge, with their selectivity */
+	private Map<AppEdge, List<Pair<AppEdge, Double>>> outputs;
+	/** The loops every edge belongs to, as indexes in getLoops() */
+	private Map<AppEdge, List<Integer>> loopsByEdge;
+	private AppLoop[] loops;
+
+	public ModulePlacementLatencyAware(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators,
+			Application application, ModuleMapping moduleMapping){
+		this.setFogDevices(fogDevices);
+		this.setApplication(application);
+		this.setModuleMapping(moduleMapping);
+		this.setModuleToDeviceMap(new HashMap<String, List<Integer>>());
+		this.setDeviceToModuleMap(new HashMap<Integer, List<AppModule>>());
+		setSensors(sensors);
+		setActuators(actuators);
+		mapModules();
+	}
+
+	@Override
+	protected void mapModules() {
+		delayMatrix = new DelayMatrix(getFogDevices());
+		indexApplication();
+		indexEndpoints();
+		for(String deviceName : getModuleMapping().getModuleMapping().keySet()){
+			for(String moduleName : getModuleMapping().getModuleMapping().get(deviceName)){
+				if(!mappedDevices.containsKey(moduleName))
+					mappedDevices.put(moduleName, new LinkedHashSet<Integer>());
+				mappedDevices.get(moduleName).add(CloudSim.getEntityId(deviceName));
+			}
+		}
+		List<Integer> roots = new ArrayList<Integer>();
+		for(FogDevice device : getFogDevices()){
+			if(delayMatrix.getDepth(device.getId()) == 0)
+				roots.add(device.getId());
+		}
+
+		Round best = null;
+		Round previous = null;
+		for(int i = 0; i < ROUNDS; i++){
+			round = new Round(previous == null ? new HashMap<Integer, Double>() : previous.linkLoads);
+			for(String module : mappedDevices.keySet()){
+				for(int deviceId : mappedDevices.get(module))
+					place(deviceId, module, 0, 0);
+			}
+			for(int rootId : roots)
+				placeModules(rootId, false);
+			for(int rootId : roots)
+				placeModules(rootId, true);
+			if(best == null || round.isBetterThan(best))
+				best = round;
+			if(previous != null && round.placedModules.equals(previous.placedModules))
+				break;
+			previous = round;
+		}
+		round = best;
+
+		for(int deviceId : round.placedModules.keySet()){
+			for(String module : round.placedModules.get(deviceId))
+				createModuleInstanceOnDevice(getApplication().getModuleByName(module), getFogDeviceById(deviceId));
+		}
+		setModuleInstanceCountMap(round.instanceCounts);
+	}
+
+	/**
+	 * The placement of one round, with the loads it puts on the devices and the links.
+	 */
+	private class Round {
+		/** The modules placed on every device, in placement order */
+		private final Map<Integer, List<String>> placedModules = new LinkedHashMap<Integer, List<String>>();
+		private final Map<Integer, Map<String, Integer>> instanceCounts = new HashMap<Integer, Map<String, Integer>>();
+		private final Map<Integer, Double> cpuLoads = new HashMap<Integer, Double>();
+		private final Map<Integer, Integer> ramLoads = new HashMap<Integer, Integer>();
+		/** The bytes per time unit sent on the uplink of every device, known once the round is estimated */
+		private final Map<Integer, Double> linkLoads = new HashMap<Integer, Double>();
+		/** The link loads of the previous round */
+		private final Map<Integer, Double> expectedLinkLoads;
+		private final double[] loopLatencies = new double[loops.length];
+		private final double[] loopRates = new double[loops.length];
+		private final double[] maxLoopLatencies = new double[loops.length];
+
+		private Round(Map<Integer, Double> expectedLinkLoads){
+			this.expectedLinkLoads = expectedLinkLoads;
+		}
+
+		private double getUtilization(int deviceId){
+			Double load = cpuLoads.get(deviceId);
+			return load == null ? 0 : load/getFogDeviceById(deviceId).getHost().getTotalMips();
+		}
+
+		private double getLinkUtilization(int deviceId){
+			Double load = linkLoads.get(deviceId);
+			return load == null ? 0 : load/getFogDeviceById(deviceId).getUplinkBandwidth();
+		}
+
+		private int getOverloads(){
+			int overloads = 0;
+			for(FogDevice device : getFogDevices()){
+				if(getUtilization(device.getId()) > 1 || getLinkUtilization(device.getId()) > 1)
+					overloads++;
+			}
+			return overloads;
+		}
+
+		private double getTotalLoopLatency(){
+			double latency = 0;
+			for(int loop = 0; loop < loops.length; loop++){
+				if(loopRates[loop] > 0)
+					latency += loopLatencies[loop]/loopRates[loop];
+			}
+			return latency;
+		}
+
+		private boolean isBetterThan(Round other){
+			if(getOverloads() != other.getOverloads())
+				return getOverloads() < other.getOverloads();
+			return getTotalLoopLatency() < other.getTotalLoopLatency();
+		}
+	}
+
+	/**
+	 * Tuples waiting on an edge for the device hosting its destination module.
+	 */
+	private class Traffic {
+		private double rate;
+		/** The rate times the squared coefficient of variation of the inter-arrival times */
+		private double variability;
+		private int instances;
+		/** The rate of the tuples of every loop, and the sum of their latencies since the loop started */
+		private final double[] loopRates = new double[loops.length];
+		private final double[] loopLatencies = new double[loops.length];
+
+		private void add(Traffic traffic, double delay){
+			rate += traffic.rate;
+			variability += traffic.variability;
+			instances += traffic.instances;
+			for(int loop = 0; loop < loops.length; loop++){
+				if(traffic.loopRates[loop] > 0){
+					loopRates[loop] += traffic.loopRates[loop];
+					loopLatencies[loop] += traffic.loopLatencies[loop] + traffic.loopRates[loop]*delay;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Places the modules for the traffic of the subtree of a device or, once the round is placed,
+	 * replays that traffic to estimate the loop latencies and the link loads.
+	 * @param deviceId the device
+	 * @param estimate whether the round is placed
+	 * @return the traffic leaving the subtree
+	 */
+	private Map<AppEdge, Traffic> placeModules(int deviceId, boolean estimate){
+		FogDevice device = getFogDeviceById(deviceId);
+		Map<AppEdge, Traffic> traffic = new LinkedHashMap<AppEdge, Traffic>();
+		for(int childId : device.getChildrenIds()){
+			Map<AppEdge, Traffic> childTraffic = placeModules(childId, estimate);
+			double linkLoad = 0;
+			for(Map.Entry<AppEdge, Traffic> entry : childTraffic.entrySet()){
+				double delay = delayMatrix.getDelay(childId, deviceId, entry.getKey().getTupleNwLength());
+				getTraffic(traffic, entry.getKey()).add(entry.getValue(), delay);
+				linkLoad += entry.getValue().rate*entry.getKey().getTupleNwLength();
+			}
+			if(estimate)
+				round.linkLoads.put(childId, linkLoad);
+		}
+		Map<String, Integer> sensorCounts = sensorsByGateway.get(deviceId);
+		if(sensorCounts != null){
+			for(String sensorType : sensorCounts.keySet()){
+				int count = sensorCounts.get(sensorType);
+				for(AppEdge edge : get(edgesBySource, sensorType)){
+					Traffic sensorTraffic = getTraffic(traffic, edge);
+					sensorTraffic.rate += count*sensorRates.get(sensorType);
+					sensorTraffic.variability += count*sensorRates.get(sensorType)*sensorVariabilities.get(sensorType);
+					sensorTraffic.instances += count;
+				}
+			}
+		}
+		if(estimate){
+			for(String module : moduleOrder){
+				if(isPlaced(module, deviceId))
+					processTraffic(module, deviceId, getInputs(module, traffic), traffic, true);
+			}
+		} else {
+			placeModules(deviceId, traffic);
+		}
+		return traffic;
+	}
+
+	/**
+	 * Decides which modules a device hosts for the traffic waiting there. A module is decided once
+	 * the modules it gets tuples from are; the one losing most by going up is placed first.
+	 */
+	private void placeModules(int deviceId, Map<AppEdge, Traffic> traffic){
+		boolean root = delayMatrix.getDepth(deviceId) == 0;
+		Set<String> decided = new HashSet<String>();
+		while(true){
+			String next = null;
+			double nextRegret = Double.NEGATIVE_INFINITY;
+			for(String module : moduleOrder){
+				if(decided.contains(module) || !isReady(module, decided))
+					continue;
+				List<AppEdge> inputs = getInputs(module, traffic);
+				if(isMapped(module, deviceId)){
+					next = module;
+					nextRegret = Double.POSITIVE_INFINITY;
+					break;
+				}
+				if(inputs.isEmpty() || isMappedAbove(module, deviceId)){
+					decided.add(module);
+					continue;
+				}
+				double here = getHostingTime(module, deviceId, inputs, traffic);
+				double up = root ? Double.POSITIVE_INFINITY : getBestAncestorTime(module, deviceId, inputs, traffic);
+				boolean overloading = Double.isInfinite(here) && !root;
+				if(overloading && (!Double.isInfinite(up) || !hasRam(module, deviceId)
+						|| !isUplinkSaturated(deviceId, inputs, traffic)) || here > up){
+					decided.add(module);
+					continue;
+				}
+				// the modules the device can take come before those it keeps overloaded
+				double regret = overloading ? Double.NEGATIVE_INFINITY
+						: Double.isInfinite(up) ? Double.POSITIVE_INFINITY : up - here;
+				if(next == null || regret > nextRegret){
+					next = module;
+					nextRegret = regret;
+				}
+			}
+			if(next == null)
+				break;
+			processTraffic(next, deviceId, getInputs(next, traffic), traffic, false);
+			decided.add(next);
+		}
+	}
+
+	private boolean isReady(String module, Set<String> decided){
+		for(AppEdge edge : get(incomingEdges, module)){
+			String source = edge.getSource();
+			if(!source.equals(module) && getApplication().getModuleByName(source) != null && !decided.contains(source))
+				return false;
+		}
+		return true;
+	}
+
+	private List<AppEdge> getInputs(String module, Map<AppEdge, Traffic> traffic){
+		List<AppEdge> inputs = new ArrayList<AppEdge>();
+		for(AppEdge edge : get(incomingEdges, module)){
+			if(traffic.containsKey(edge))
+				inputs.add(edge);
+		}
+		return inputs;
+	}
+
+	/**
+	 * @return the expected time per tuple if a device processes the traffic of a module itself
+	 */
+	private double getHostingTime(String module, int deviceId, List<AppEdge> inputs, Map<AppEdge, Traffic> traffic){
+		double rate = 0;
+		double load = 0;
+		double variability = 0;
+		for(AppEdge edge : inputs){
+			rate += traffic.get(edge).rate;
+			load += traffic.get(edge).rate*edge.getTupleCpuLength();
+			variability += traffic.get(edge).variability;
+		}
+		return getProcessingTime(module, deviceId, load, load/rate, variability/rate);
+	}
+
+	/**
+	 * @return the expected time per tuple if the traffic of a module goes to the best ancestor of a
+	 * device that can take it, infinite if none can
+	 */
+	private double getBestAncestorTime(String module, int deviceId, List<AppEdge> inputs, Map<AppEdge, Traffic> traffic){
+		double rate = 0;
+		double load = 0;
+		double variability = 0;
+		double bytes = 0;
+		for(AppEdge edge : inputs){
+			rate += traffic.get(edge).rate;
+			load += traffic.get(edge).rate*edge.getTupleCpuLength();
+			variability += traffic.get(edge).variability;
+			bytes += traffic.get(edge).rate*edge.getTupleNwLength();
+		}
+		double best = Double.POSITIVE_INFINITY;
+		for(int linkId = deviceId; delayMatrix.getDepth(linkId) > 0; ){
+			FogDevice device = getFogDeviceById(linkId);
+			if(getExpectedLinkLoad(linkId) + bytes > device.getUplinkBandwidth())
+				break;
+			int ancestorId = device.getParentId();
+			double time = getTransferTime(deviceId, ancestorId, inputs, traffic)/rate
+					+ getProcessingTime(module, ancestorId, load, load/rate, variability/rate);
+			best = Math.min(best, time);
+			// the traffic would not go past a device the module is fixed on
+			if(isMapped(module, ancestorId))
+				break;
+			linkId = ancestorId;
+		}
+		return best;
+	}
+
+	/**
+	 * @return whether the uplink of a device cannot carry the traffic of a module on top of its
+	 * expected load
+	 */
+	private boolean isUplinkSaturated(int deviceId, List<AppEdge> inputs, Map<AppEdge, Traffic> traffic){
+		double bytes = 0;
+		for(AppEdge edge : inputs)
+			bytes += traffic.get(edge).rate*edge.getTupleNwLength();
+		return getExpectedLinkLoad(deviceId) + bytes > getFogDeviceById(deviceId).getUplinkBandwidth();
+	}
+
+	private boolean hasRam(String module, int deviceId){
+		return isPlaced(module, deviceId) || getRamLoad(deviceId) + getApplication().getModuleByName(module).getRam()
+				<= getFogDeviceById(deviceId).getHost().getRam();
+	}
+
+	private double getExpectedLinkLoad(int deviceId){
+		Double load = round.expectedLinkLoads.get(deviceId);
+		return load == null ? 0 : load;
+	}
+
+	/**
+	 * @return the expected time a device takes to process a tuple of a module if it takes an
+	 * additional load, infinite if the device cannot take the load or an instance of the module
+	 */
+	private double getProcessingTime(String module, int deviceId, double addedLoad, double tupleCpuLength,
+			double variability){
+		FogDevice device = getFogDeviceById(deviceId);
+		AppModule appModule = getApplication().getModuleByName(module);
+		double mips = device.getHost().getTotalMips();
+		double utilization = (getCpuLoad(deviceId) + addedLoad)/mips;
+		if(utilization > 1 || utilization == 1 && variability > 0)
+			return Double.POSITIVE_INFINITY;
+		if(!isPlaced(module, deviceId) && getRamLoad(deviceId) + appModule.getRam() > device.getHost().getRam())
+			return Double.POSITIVE_INFINITY;
+		double serviceTime = tupleCpuLength/Math.min(appModule.getMips(), mips);
+		if(variability == 0)
+			return serviceTime;
+		// Kingman's approximation, the service times being deterministic
+		return serviceTime*(1 + utilization/(1 - utilization)*variability/2);
+	}
+
+	/**
+	 * @return the time the tuples of a module take from a device to one of its ancestors, less the
+	 * time the outputs going there anyway would take, weighted by the rates
+	 */
+	private double getTransferTime(int deviceId, int ancestorId, List<AppEdge> inputs, Map<AppEdge, Traffic> traffic){
+		double time = 0;
+		for(AppEdge edge : inputs){
+			double rate = traffic.get(edge).rate;
+			time += rate*delayMatrix.getDelay(deviceId, ancestorId, edge.getTupleNwLength());
+			for(Pair<AppEdge, Double> output : get(outputs, edge)){
+				AppEdge outputEdge = output.getFirst();
+				if(outputEdge.getDirection() == Tuple.UP && isMappedAbove(outputEdge.getDestination(), ancestorId))
+					time -= rate*output.getSecond()*delayMatrix.getDelay(deviceId, ancestorId, outputEdge.getTupleNwLength());
+			}
+		}
+		return time;
+	}
+
+	/**
+	 * Processes the traffic waiting for a module on the device hosting it, replacing it with the
+	 * outputs of the module.
+	 */
+	private void processTraffic(String module, int deviceId, List<AppEdge> inputs, Map<AppEdge, Traffic> traffic,
+			boolean estimate){
+		double load = 0;
+		int instances = 0;
+		for(AppEdge edge : inputs){
+			load += traffic.get(edge).rate*edge.getTupleCpuLength();
+			instances = Math.max(instances, traffic.get(edge).instances);
+		}
+		if(!estimate)
+			place(deviceId, module, load, instances);
+
+		Set<AppEdge> emitted = new HashSet<AppEdge>();
+		for(AppEdge edge : inputs){
+			Traffic input = traffic.remove(edge);
+			if(estimate){
+				double processingTime = getProcessingTime(module, deviceId, 0, edge.getTupleCpuLength(),
+						input.variability/input.rate);
+				for(int loop : get(loopsByEdge, edge)){
+					if(input.loopRates[loop] == 0)
+						continue;
+					input.loopLatencies[loop] += input.loopRates[loop]*processingTime;
+					if(loops[loop].isEndModule(module)){
+						round.loopRates[loop] += input.loopRates[loop];
+						round.loopLatencies[loop] += input.loopLatencies[loop];
+						round.maxLoopLatencies[loop] = Math.max(round.maxLoopLatencies[loop],
+								input.loopLatencies[loop]/input.loopRates[loop]);
+					}
+				}
+			}
+			for(Pair<AppEdge, Double> output : get(outputs, edge)){
+				AppEdge outputEdge = output.getFirst();
+				if(outputEdge.getDirection() != Tuple.UP || outputEdge.getEdgeType() == AppEdge.ACTUATOR)
+					continue;
+				double selectivity = output.getSecond();
+				double outputRate = input.rate*selectivity;
+				Traffic outputTraffic = getTraffic(traffic, outputEdge);
+				outputTraffic.rate += outputRate;
+				// keeping a tuple with a probability adds variability (thinning)
+				outputTraffic.variability += outputRate*(selectivity*input.variability/input.rate + 1 - selectivity);
+				emitted.add(outputEdge);
+				if(!estimate)
+					continue;
+				for(int loop : get(loopsByEdge, outputEdge)){
+					if(loops[loop].isStartModule(module)){
+						outputTraffic.loopRates[loop] += outputRate;
+					} else if(input.loopRates[loop] > 0){
+						outputTraffic.loopRates[loop] += input.loopRates[loop]*selectivity;
+						outputTraffic.loopLatencies[loop] += input.loopLatencies[loop]*selectivity;
+					}
+				}
+			}
+		}
+		for(AppEdge edge : get(edgesBySource, module)){
+			if(!edge.isPeriodic() || edge.getDirection() != Tuple.UP || edge.getEdgeType() == AppEdge.ACTUATOR)
+				continue;
+			Traffic periodic = getTraffic(traffic, edge);
+			periodic.rate += 1/edge.getPeriodicity();
+			emitted.add(edge);
+			for(int loop : get(loopsByEdge, edge)){
+				if(estimate && loops[loop].isStartModule(module))
+					periodic.loopRates[loop] += 1/edge.getPeriodicity();
+			}
+		}
+		for(AppEdge edge : emitted)
+			traffic.get(edge).instances += instances;
+	}
+
+	private Traffic getTraffic(Map<AppEdge, Traffic> traffic, AppEdge edge){
+		Traffic edgeTraffic = traffic.get(edge);
+		if(edgeTraffic == null){
+			edgeTraffic = new Traffic();
+			traffic.put(edge, edgeTraffic);
+		}
+		return edgeTraffic;
+	}
+
+	private void place(int deviceId, String module, double load, int instances){
+		List<String> modules = round.placedModules.get(deviceId);
+		if(modules == null){
+			modules = new ArrayList<String>();
+			round.placedModules.put(deviceId, modules);
+			round.instanceCounts.put(deviceId, new HashMap<String, Integer>());
+		}
+		Map<String, Integer> instanceCounts = round.instanceCounts.get(deviceId);
+		if(!modules.contains(module)){
+			modules.add(module);
+			round.ramLoads.put(deviceId, getRamLoad(deviceId) + getApplication().getModuleByName(module).getRam());
+			instanceCounts.put(module, 0);
+		}
+		round.cpuLoads.put(deviceId, getCpuLoad(deviceId) + load);
+		instanceCounts.put(module, Math.max(instanceCounts.get(module), instances));
+	}
+
+	private boolean isPlaced(String module, int deviceId){
+		List<String> modules = round.placedModules.get(deviceId);
+		return modules != null && modules.contains(module);
+	}
+
+	private boolean isMapped(String module, int deviceId){
+		Set<Integer> devices = mappedDevices.get(module);
+		return devices != null && devices.contains(deviceId);
+	}
+
+	/**
+	 * @return whether a module is fixed on a device or one of its ancestors
+	 */
+	private boolean isMappedAbove(String module, int deviceId){
+		if(!mappedDevices.containsKey(module))
+			return false;
+		for(int ancestorId = deviceId; ; ancestorId = getFogDeviceById(ancestorId).getParentId()){
+			if(isMapped(module, ancestorId))
+				return true;
+			if(delayMatrix.getDepth(ancestorId) == 0)
+				return false;
+		}
+	}
+
+	private void indexApplication(){
+		incomingEdges = new HashMap<String, List<AppEdge>>();
+		edgesBySource = new HashMap<String, List<AppEdge>>();
+		for(AppEdge edge : getApplication().getEdges()){
+			addToIndex(edgesBySource, edge.getSource(), edge);
+			if(edge.getDirection() == Tuple.UP && getApplication().getModuleByName(edge.getDestination()) != null)
+				addToIndex(incomingEdges, edge.getDestination(), edge);
+		}
+
+		outputs = new HashMap<AppEdge, List<Pair<AppEdge, Double>>>();
+		for(AppModule module : getApplication().getModules()){
+			Map<Pair<String, String>, SelectivityModel> selectivities = module.getSelectivityMap();
+			for(AppEdge edge : get(incomingEdges, module.getName())){
+				for(Pair<String, String> pair : selectivities.keySet()){
+					if(!pair.getFirst().equals(edge.getTupleType()))
+						continue;
+					for(AppEdge outputEdge : get(edgesBySource, module.getName())){
+						if(outputEdge.getTupleType().equals(pair.getSecond()))
+							addToIndex(outputs, edge, new Pair<AppEdge, Double>(outputEdge, selectivities.get(pair).getMeanRate()));
+					}
+				}
+			}
+		}
+
+		moduleOrder = new ArrayList<String>();
+		Set<String> ordered = new HashSet<String>();
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			for(AppModule module : getApplication().getModules()){
+				if(!ordered.contains(module.getName()) && isReady(module.getName(), ordered)){
+					moduleOrder.add(module.getName());
+					ordered.add(module.getName());
+					changed = true;
+				}
+			}
+		}
+		// modules in a cycle of UP edges are never ready, they come last in application order
+		for(AppModule module : getApplication().getModules()){
+			if(!ordered.contains(module.getName()))
+				moduleOrder.add(module.getName());
+		}
+
+		loops = getApplication().getLoops() == null ? new AppLoop[0]
+				: getApplication().getLoops().toArray(new AppLoop[0]);
+		loopsByEdge = new HashMap<AppEdge, List<Integer>>();
+		for(int loop = 0; loop < loops.length; loop++){
+			List<String> modules = loops[loop].getModules();
+			for(int i = 0; i < modules.size()-1; i++){
+				for(AppEdge edge : get(edgesBySource, modules.get(i))){
+					if(edge.getDestination().equals(modules.get(i+1)))
+						addToIndex(loopsByEdge, edge, loop);
+				}
+			}
+		}
+	}
+
+	private void indexEndpoints(){
+		sensorsByGateway = new HashMap<Integer, Map<String, Integer>>();
+		sensorRates = new HashMap<String, Double>();
+		sensorVariabilities = new HashMap<String, Double>();
+		for(Sensor sensor : getSensors()){
+			Map<String, Integer> counts = sensorsByGateway.get(sensor.getGatewayDeviceId());
+			if(counts == null){
+				counts = new HashMap<String, Integer>();
+				sensorsByGateway.put(sensor.getGatewayDeviceId(), counts);
+			}
+			Integer count = counts.get(sensor.getTupleType());
+			counts.put(sensor.getTupleType(), count == null ? 1 : count+1);
+			if(!sensorRates.containsKey(sensor.getTupleType())){
+				sensorRates.put(sensor.getTupleType(), 1/sensor.getTransmitDistribution().getMeanInterTransmitTime());
+				sensorVariabilities.put(sensor.getTupleType(), getVariability(sensor.getTransmitDistribution()));
+			}
+		}
+	}
+
+	/**
+	 * @return the squared coefficient of variation of a distribution of inter-transmission times
+	 */
+	private static double getVariability(Distribution distribution){
+		double mean = distribution.getMeanInterTransmitTime();
+		if(distribution instanceof DeterministicDistribution)
+			return 0;
+		if(distribution instanceof NormalDistribution)
+			return Math.pow(((NormalDistribution) distribution).getStdDev()/mean, 2);
+		if(distribution instanceof UniformDistribution){
+			UniformDistribution uniform = (UniformDistribution) distribution;
+			return Math.pow(uniform.getMax() - uniform.getMin(), 2)/12/(mean*mean);
+		}
+		return 1;
+	}
+
+	private static <K, V> void addToIndex(Map<K, List<V>> index, K key, V value){
+		List<V> values = index.get(key);
+		if(values == null){
+			values = new ArrayList<V>();
+			index.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> List<V> get(Map<K, List<V>> index, K key){
+		List<V> values = index.get(key);
+		if(values == null)
+			return Collections.emptyList();
+		return values;
+	}
+
+	private double getCpuLoad(int deviceId){
+		Double load = round.cpuLoads.get(deviceId);
+		return load == null ? 0 : load;
+	}
+
+	private int getRamLoad(int deviceId){
+		Integer load = round.ramLoads.get(deviceId);
+		return load == null ? 0 : load;
+	}
+
+	/**
+	 * @return whether the placement is expected to keep every device within its MIPS and every
+	 * uplink within its bandwidth
+	 */
+	public boolean isFeasible(){
+		return round.getOverloads() == 0;
+	}
+
+	/**
+	 * @return the utilization of the MIPS of a device expected from the placement
+	 */
+	public double getUtilization(int deviceId){
+		return round.getUtilization(deviceId);
+	}
+
+	/**
+	 * @return the utilization of the uplink of a device expected from the placement
+	 */
+	public double getLinkUtilization(int deviceId){
+		return round.getLinkUtilization(deviceId);
+	}
+
+	/**
+	 * @return the expected latency of a loop of the application, NaN if no traffic completes it
+	 * through UP edges
+	 */
+	public double getExpectedLoopLatency(AppLoop loop){
+		int index = getApplication().getLoops().indexOf(loop);
+		return round.loopLatencies[index]/round.loopRates[index];
+	}
+
+	/**
+	 * @return the highest expected latency of a loop over the devices ending it
+	 */
+	public double getMaxExpectedLoopLatency(AppLoop loop){
+		int index = getApplication().getLoops().indexOf(loop);
+		return round.loopRates[index] > 0 ? round.maxLoopLatencies[index] : Double.NaN;
+	}
+
+	public DelayMatrix getDelayMatrix() {
+		return delayMatrix;
+	}
+
+	/**
+	 * Prints the instances of every module per device level, the expected loop latencies and the
+	 * expected utilization of the devices and their uplinks per level, and flags an infeasible
+	 * placement.
+	 */
+	public void printReport(PrintStream out){
+		Map<String, Map<Integer, Integer>> instancesByLevel = new LinkedHashMap<String, Map<Integer, Integer>>();
+		for(String module : moduleOrder)
+			instancesByLevel.put(module, new TreeMap<Integer, Integer>());
+		// per level: devices, devices hosting modules, utilization sum, max utilization, overloaded devices, overloaded uplinks
+		Map<Integer, double[]> levels = new TreeMap<Integer, double[]>();
+		for(FogDevice device : getFogDevices()){
+			int level = device.getLevel();
+			for(String module : get(round.placedModules, device.getId())){
+				Map<Integer, Integer> instances = instancesByLevel.get(module);
+				instances.put(level, instances.containsKey(level) ? instances.get(level)+1 : 1);
+			}
+			double[] figures = levels.get(level);
+			if(figures == null){
+				figures = new double[6];
+				levels.put(level, figures);
+			}
+			double utilization = getUtilization(device.getId());
+			figures[0]++;
+			if(round.placedModules.containsKey(device.getId()))
+				figures[1]++;
+			figures[2] += utilization;
+			figures[3] = Math.max(figures[3], utilization);
+			if(utilization > 1)
+				figures[4]++;
+			if(getLinkUtilization(device.getId()) > 1)
+				figures[5]++;
+		}
+		out.println("=========================================");
+		out.println("LATENCY-AWARE PLACEMENT");
+		out.println("=========================================");
+		for(String module : instancesByLevel.keySet()){
+			StringBuilder instances = new StringBuilder();
+			for(Map.Entry<Integer, Integer> entry : instancesByLevel.get(module).entrySet())
+				instances.append(instances.length() == 0 ? "" : ", ").append(entry.getValue()).append(" on level ").append(entry.getKey());
+			out.println(module + " ---> " + (instances.length() == 0 ? "not placed" : instances));
+		}
+		out.println("=========================================");
+		out.println("EXPECTED APPLICATION LOOP DELAYS");
+		out.println("=========================================");
+		for(AppLoop loop : loops){
+			double latency = getExpectedLoopLatency(loop);
+			out.println(loop.getModules() + " ---> " + (Double.isNaN(latency) ? "unknown"
+					: latency + " (max " + getMaxExpectedLoopLatency(loop) + ")"));
+		}
+		out.println("=========================================");
+		out.println("EXPECTED DEVICE UTILIZATION");
+		out.println("=========================================");
+		for(Map.Entry<Integer, double[]> entry : levels.entrySet()){
+			double[] figures = entry.getValue();
+			out.println("level " + entry.getKey() + " ---> " + (int) figures[0] + " devices, "
+					+ (int) figures[1] + " hosting modules, mean " + figures[2]/figures[0] + ", max " + figures[3]
+					+ ", overloaded " + (int) figures[4] + ", uplinks overloaded " + (int) figures[5]);
+		}
+		if(!isFeasible())
+			out.println("INFEASIBLE: " + round.getOverloads() + " devices overloaded or with their uplink overloaded");
+		out.println("=========================================");
+	}
+
+	public ModuleMapping getModuleMapping() {
+		return moduleMapping;
+	}
+
+	public void setModuleMapping(ModuleMapping moduleMapping) {
+		this.moduleMapping = moduleMapping;
+	}
+
+	public List<Sensor> getSensors() {
+		return sensors;
+	}
+
+	public void setSensors(List<Sensor> sensors) {
+		this.sensors = sensors;
+	}
+
+	public List<Actuator> getActuators() {
+		return actuators;
+	}
+
+	public void setActuators(List<Actuator> actuators) {
+		this.actuators = actuators;
+	}
+}
@@ -0,0 +1,78 @@
+package org.fog.placement;
+
+import java.util.List;
+
+import org.fog.application.AppModule;
+import org.fog.entities.FogDevice;
+import org.fog.scheduler.InstanceBalancer;
+import org.fog.scheduler.RoundRobinBalancer;
+import org.fog.utils.ModuleScaling;
+
+/**
+ * Runtime scaling of the application modules, consulted by the Controller on every resource
+ * management tick. The Controller starts and stops the instances it returns: an instance takes
+ * tuples once it has started on its host and, on another device, once the image of the module
+ * has crossed the links to it.
+ * <p>
+ * A module runs at the MIPS of its device, as without a scaling policy, so that its instances add
+ * capacity on other devices only. With instanceMipsLimited an instance gets at most its own MIPS
+ * instead, and the instances of a module add capacity on its device until they use up its MIPS.
+ */
+public abstract class ModuleScalingPolicy {
+
+	/** Size of the image of a module per unit of its size, in the units of the tuple sizes */
+	private double imageSizePerSize = 1;
+	/** Time an instance takes to start once its image is on the host */
+	private double startupTime = 10;
+	/** Balances the tuples of the fog devices over the instances of their modules */
+	private InstanceBalancer instanceBalancer = new RoundRobinBalancer();
+	/** Whether each instance of a module runs at most at the MIPS of the module */
+	private boolean instanceMipsLimited;
+
+	/**
+	 * @param fogDevices the fog devices, whose loads were measured since the previous tick
+	 * @param interval the time since the previous tick
+	 * @return the instances to start or stop now; the instance of a scale-out is created by the
+	 * Controller
+	 */
+	public abstract List<ModuleScaling> selectScalings(List<FogDevice> fogDevices, double interval);
+
+	/**
+	 * @return the size of the data transferred to start an instance of a module on another device
+	 */
+	public double getImageSize(AppModule module) {
+		return module.getSize()*getImageSizePerSize();
+	}
+
+	public double getImageSizePerSize() {
+		return imageSizePerSize;
+	}
+
+	public void setImageSizePerSize(double imageSizePerSize) {
+		this.imageSizePerSize = imageSizePerSize;
+	}
+
+	public double getStartupTime() {
+		return startupTime;
+	}
+
+	public void setStartupTime(double startupTime) {
+		this.startupTime = startupTime;
+	}
+
+	public InstanceBalancer getInstanceBalancer() {
+		return instanceBalancer;
+	}
+
+	public void setInstanceBalancer(InstanceBalancer instanceBalancer) {
+		this.instanceBalancer = instanceBalancer;
+	}
+
+	public boolean isInstanceMipsLimited() {
+		return instanceMipsLimited;
+	}
+
+	public void setInstanceMipsLimited(boolean instanceMipsLimited) {
+		this.instanceMipsLimited = instanceMipsLimited;
+	}
+}
@@ -0,0 +1,75 @@
+package org.fog.placement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Creates the module placements of several applications concurrently.
+ * <p>
+ * The placement decisions of different applications are independent, only the allocation of
+ * their module instances competes for the resources of shared devices (gateway, cloud). The
+ * placements are therefore computed on a ForkJoinPool, where they only record which module goes
+ * to which device, and their instances are then created, entity ids included, and allocated
+ * serially in the order of the given list. The result is the same as creating the placements one
+ * after the other.
+ * <pre>
+ * List&lt;ModulePlacement&gt; placements = ParallelModulePlacement.create(Arrays.asList(
+ * 		new Callable&lt;ModulePlacement&gt;() {
+ * 			public ModulePlacement call() {
+ * 				return new ModulePlacementEdgewards(fogDevices, sensors, actuators, app0, mapping0);
+ * 			}
+ * 		}, ...));
+ * </pre>
+ */
+public class ParallelModulePlacement {
+
+	/**
+	 * Creates the placements in parallel and allocates their module instances in list order.
+	 * @param placements the constructors of the placements
+	 * @return the placements, in the same order
+	 */
+	public static List<ModulePlacement> create(List<Callable<ModulePlacement>> placements) {
+		return create(placements, ForkJoinPool.commonPool());
+	}
+
+	public static List<ModulePlacement> create(List<Callable<ModulePlacement>> placements, ForkJoinPool pool) {
+		List<Callable<ModulePlacement>> tasks = new ArrayList<Callable<ModulePlacement>>();
+		for(final Callable<ModulePlacement> placement : placements){
+			tasks.add(new Callable<ModulePlacement>() {
+				@Override
+				public ModulePlacement call() throws Exception {
+					// a worker waiting for subtree tasks may run another placement, keep its flag
+					Boolean previous = ModulePlacement.deferAllocation.get();
+					ModulePlacement.deferAllocation.set(Boolean.TRUE);
+					try {
+						return placement.call();
+					} finally {
+						ModulePlacement.deferAllocation.set(previous);
+					}
+				}
+			});
+		}
+		List<ModulePlacement> result = new ArrayList<ModulePlacement>();
+		for(Future<ModulePlacement> future : pool.invokeAll(tasks)){
+			try {
+				result.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while placing modules", e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IllegalStateException("Module placement failed", e.getCause());
+			}
+		}
+		// serial reconciliation: the instances get their ids, and the shared devices see the
+		// allocations, in submission order
+		for(ModulePlacement placement : result)
+			placement.allocatePendingModules();
+		return result;
+	}
+}
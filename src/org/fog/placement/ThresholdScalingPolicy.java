@@ -0,0 +1,278 @@
+package org.fog.placement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppModule;
+import org.fog.entities.FogDevice;
+import org.fog.utils.ModuleScaling;
+
+/**
+ * Starts an instance of a module once its instances stayed overloaded for sustainedTicks ticks in
+ * a row: the load of the last tick took more than targetUtilization of their MIPS, or, while it
+ * took more than scaleInUtilization, they had more than maxBacklog tuples each waiting for or in
+ * execution, or its tuples spent more than maxExecutionDelay on it while more than one each
+ * waited. Stops the last one started when the others can take the load of the module at
+ * scaleInUtilization.
+ * <p>
+ * An instance only starts where it adds MIPS. On the device itself that takes instances limited
+ * to their own MIPS, whose sum, the new one included, fits in those of the device; otherwise a
+ * module already runs at the MIPS of the device. Elsewhere it is the sibling that would be the
+ * least utilized with the load the device cannot take, provided that stays under
+ * targetUtilization: the modules of the sibling then share its MIPS, which they do not use up. A
+ * module is not scaled again until cooldown after its last instance started or stopped.
+ */
+public class ThresholdScalingPolicy extends ModuleScalingPolicy {
+
+	private Map<Integer, FogDevice> fogDevicesById;
+	/** The last scaling of each module placed on a device */
+	private Map<AppModule, ModuleScaling> lastScalings = new HashMap<AppModule, ModuleScaling>();
+	/** The number of ticks in a row the instances of each module were overloaded */
+	private Map<AppModule, Integer> overloadedTicks = new HashMap<AppModule, Integer>();
+
+	private int maxBacklog = 10;
+	private double maxExecutionDelay = 50;
+	private double scaleInUtilization = 0.6;
+	private double targetUtilization = 0.9;
+	/** Number of instances of a module on a device, the module itself included */
+	private int maxInstances = 8;
+	private double cooldown = 300;
+	private int sustainedTicks = 3;
+	/** Whether instances may start on the siblings of a device */
+	private boolean siblingsAllowed = true;
+
+	@Override
+	public List<ModuleScaling> selectScalings(List<FogDevice> fogDevices, double interval) {
+		if(fogDevicesById == null){
+			fogDevicesById = new HashMap<Integer, FogDevice>(fogDevices.size() * 2);
+			for(FogDevice fogDevice : fogDevices)
+				fogDevicesById.put(fogDevice.getId(), fogDevice);
+		}
+		List<ModuleScaling> scalings = new ArrayList<ModuleScaling>();
+		AddedLoads addedMips = new AddedLoads();
+		AddedLoads addedLoads = new AddedLoads();
+		for(FogDevice fogDevice : fogDevices){
+			Set<String> moduleNames = new LinkedHashSet<String>();
+			for(Vm vm : fogDevice.getHost().getVmList()){
+				if(!fogDevice.getStartedInstances().contains(vm))
+					moduleNames.add(((AppModule)vm).getName());
+			}
+			for(String moduleName : moduleNames){
+				ModuleScaling scaling = selectScaling(fogDevice, fogDevice.getModuleByName(moduleName), interval,
+						addedMips, addedLoads);
+				if(scaling != null){
+					scalings.add(scaling);
+					lastScalings.put(scaling.getModule(), scaling);
+				}
+			}
+		}
+		return scalings;
+	}
+
+	private ModuleScaling selectScaling(FogDevice fogDevice, AppModule module, double interval,
+			AddedLoads addedMips, AddedLoads addedLoads) {
+		ModuleScaling last = lastScalings.get(module);
+		if(last != null && CloudSim.clock() < last.getReadyTime() + getCooldown())
+			return null;
+		List<AppModule> instances = fogDevice.getModuleInstances().get(module.getName());
+		if(instances == null)
+			instances = Collections.singletonList(module);
+		int backlog = 0;
+		for(AppModule instance : instances)
+			backlog += instance.getCloudletScheduler().runningCloudlets();
+		double capacity = getCapacity(instances);
+		Double load = fogDevice.getModuleLoads().get(module.getName());
+		Double hostedLoad = fogDevice.getHostedLoads().get(module.getName());
+		Double remoteLoad = fogDevice.getRemoteLoads().get(module.getName());
+		double demand = ((load == null ? 0 : load) - (hostedLoad == null ? 0 : hostedLoad)
+				+ (remoteLoad == null ? 0 : remoteLoad))/interval;
+		double executionDelay = fogDevice.getModuleExecutionDelay(module.getName());
+		// tuples queued by a burst the instances take in a fraction of the tick need no instance,
+		// and a module whose tuples do not wait gains nothing from one, however slow they are
+		boolean overloaded = demand > getTargetUtilization()*capacity
+				|| (demand > getScaleInUtilization()*capacity && (backlog > getMaxBacklog()*instances.size()
+						|| (executionDelay > getMaxExecutionDelay() && backlog > instances.size())));
+		if(overloaded){
+			Integer ticks = overloadedTicks.get(module);
+			ticks = ticks == null ? 1 : ticks + 1;
+			overloadedTicks.put(module, ticks);
+			if(ticks < getSustainedTicks() || instances.size() >= getMaxInstances())
+				return null;
+			FogDevice host = getHost(fogDevice, module, demand - capacity, interval, addedMips, addedLoads);
+			if(host == null)
+				return null;
+			overloadedTicks.remove(module);
+			return new ModuleScaling(module, null, fogDevice.getId(), host.getId(), true);
+		}
+		overloadedTicks.remove(module);
+		// the other instances must not start a new one right away
+		if(instances.size() > 1 && backlog <= getMaxBacklog()*(instances.size() - 1)/2){
+			AppModule instance = instances.get(instances.size() - 1);
+			FogDevice host = getDevice(instance);
+			if(demand <= getScaleInUtilization()*getCapacity(instances.subList(0, instances.size() - 1)))
+				return new ModuleScaling(module, instance, fogDevice.getId(), host.getId(), false);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the MIPS the instances of a module can execute its tuples at; instances not limited
+	 * to their own MIPS share those of their device
+	 */
+	private double getCapacity(List<AppModule> instances) {
+		double capacity = 0;
+		Set<FogDevice> devices = new HashSet<FogDevice>();
+		for(AppModule instance : instances){
+			FogDevice device = getDevice(instance);
+			if(device.isModuleMipsLimited() || devices.add(device))
+				capacity += getInstanceMips(instance, device);
+		}
+		return capacity;
+	}
+
+	/**
+	 * @param excess the MIPS the instances of the module lack
+	 * @return the device itself if an instance adds capacity there, else the sibling that can best
+	 * take the excess, null if none
+	 */
+	private FogDevice getHost(FogDevice fogDevice, AppModule module, double excess, double interval,
+			AddedLoads addedMips, AddedLoads addedLoads) {
+		if(canHost(fogDevice, module, addedMips)){
+			addedMips.add(fogDevice, getInstanceMips(module, fogDevice));
+			return fogDevice;
+		}
+		FogDevice parent = fogDevicesById.get(fogDevice.getParentId());
+		if(!isSiblingsAllowed() || parent == null)
+			return null;
+		FogDevice host = null;
+		double hostUtilization = getTargetUtilization();
+		double hostLoad = 0;
+		for(int siblingId : parent.getChildrenIds()){
+			FogDevice sibling = fogDevicesById.get(siblingId);
+			// a sibling that lacks capacity itself takes none of the load of others
+			if(sibling == null || sibling == fogDevice || hasRemoteInstances(sibling)
+					|| sibling.getHost().getRamProvisioner().getAvailableRam() < module.getRam())
+				continue;
+			// tuples that queue although the instances could take them are unevenly balanced, the
+			// new instance may then get as many as it can execute
+			double mips = getInstanceMips(module, sibling);
+			double siblingLoad = (excess > 0 ? Math.min(excess, mips) : mips)*interval;
+			double utilization = (addedLoads.getLoad(sibling) + siblingLoad)/(interval*sibling.getHost().getTotalMips());
+			if(utilization <= hostUtilization){
+				host = sibling;
+				hostUtilization = utilization;
+				hostLoad = siblingLoad;
+			}
+		}
+		if(host != null)
+			addedLoads.add(host, hostLoad);
+		return host;
+	}
+
+	/**
+	 * @return whether a device limits its modules to their own MIPS, has the RAM for an instance
+	 * and the MIPS of its modules, the instance included, fit in its own
+	 */
+	private boolean canHost(FogDevice fogDevice, AppModule module, AddedLoads addedMips) {
+		if(!fogDevice.isModuleMipsLimited()
+				|| fogDevice.getHost().getRamProvisioner().getAvailableRam() < module.getRam())
+			return false;
+		double mips = getInstanceMips(module, fogDevice);
+		// a module launched more than once is listed more than once
+		for(Vm vm : new HashSet<Vm>(fogDevice.getHost().getVmList()))
+			mips += getInstanceMips(vm, fogDevice);
+		return mips + addedMips.get(fogDevice) <= fogDevice.getHost().getTotalMips();
+	}
+
+	private boolean hasRemoteInstances(FogDevice fogDevice) {
+		for(List<AppModule> instances : fogDevice.getModuleInstances().values()){
+			for(AppModule instance : instances){
+				if(getDevice(instance) != fogDevice)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private double getInstanceMips(Vm instance, FogDevice fogDevice) {
+		if(!fogDevice.isModuleMipsLimited())
+			return fogDevice.getHost().getTotalMips();
+		return Math.min(instance.getMips(), fogDevice.getHost().getTotalMips());
+	}
+
+	private FogDevice getDevice(AppModule instance) {
+		return (FogDevice)instance.getHost().getDatacenter();
+	}
+
+	public int getMaxBacklog() {
+		return maxBacklog;
+	}
+
+	public void setMaxBacklog(int maxBacklog) {
+		this.maxBacklog = maxBacklog;
+	}
+
+	public double getMaxExecutionDelay() {
+		return maxExecutionDelay;
+	}
+
+	public void setMaxExecutionDelay(double maxExecutionDelay) {
+		this.maxExecutionDelay = maxExecutionDelay;
+	}
+
+	public double getScaleInUtilization() {
+		return scaleInUtilization;
+	}
+
+	public void setScaleInUtilization(double scaleInUtilization) {
+		this.scaleInUtilization = scaleInUtilization;
+	}
+
+	public double getTargetUtilization() {
+		return targetUtilization;
+	}
+
+	public void setTargetUtilization(double targetUtilization) {
+		this.targetUtilization = targetUtilization;
+	}
+
+	public int getMaxInstances() {
+		return maxInstances;
+	}
+
+	public void setMaxInstances(int maxInstances) {
+		this.maxInstances = maxInstances;
+	}
+
+	public double getCooldown() {
+		return cooldown;
+	}
+
+	public void setCooldown(double cooldown) {
+		this.cooldown = cooldown;
+	}
+
+	public int getSustainedTicks() {
+		return sustainedTicks;
+	}
+
+	public void setSustainedTicks(int sustainedTicks) {
+		this.sustainedTicks = sustainedTicks;
+	}
+
+	public boolean isSiblingsAllowed() {
+		return siblingsAllowed;
+	}
+
+	public void setSiblingsAllowed(boolean siblingsAllowed) {
+		this.siblingsAllowed = siblingsAllowed;
+	}
+}
@@ -0,0 +1,196 @@
+package org.fog.placement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppModule;
+import org.fog.entities.FogDevice;
+import org.fog.utils.ModuleMigration;
+
+/**
+ * Moves the hottest module of an overloaded device to the closest ancestor that can take it, and
+ * back to where it came from once that device can host it again.
+ * <p>
+ * The utilization of a device is the MI of the tuples submitted to its modules during the last
+ * tick over the MI it can execute in that time. A device is overloaded when its utilization is
+ * above maxUtilization and one of its modules has more than maxBacklog tuples waiting; the
+ * backlog keeps devices that are exactly saturated by periodic sensors, which never queue, where
+ * they are. An ancestor can take a module if its utilization, and that of the uplinks on the way,
+ * stays under targetUtilization with the load of the module and if it has the RAM. A module does
+ * not go past an ancestor that hosts a module of the same name, since that module would take all
+ * its tuples. Modules placed by the ModuleMapping are never moved.
+ */
+public class UtilizationMigrationPolicy extends ModuleMigrationPolicy {
+
+	private ModuleMapping moduleMapping;
+	private Map<Integer, FogDevice> fogDevicesById;
+	/** The last migration of each moved module */
+	private Map<AppModule, ModuleMigration> lastMigrations = new LinkedHashMap<AppModule, ModuleMigration>();
+	/** The device each moved module was placed on */
+	private Map<AppModule, Integer> origins = new HashMap<AppModule, Integer>();
+
+	private double maxUtilization = 1.1;
+	private double targetUtilization = 0.9;
+	private int maxBacklog = 10;
+	/** Time a moved module stays on its new device before it may return */
+	private double minResidenceTime = 500;
+
+	public UtilizationMigrationPolicy(ModuleMapping moduleMapping) {
+		this.moduleMapping = moduleMapping;
+	}
+
+	@Override
+	public List<ModuleMigration> selectMigrations(List<FogDevice> fogDevices, double interval) {
+		if(fogDevicesById == null){
+			fogDevicesById = new HashMap<Integer, FogDevice>(fogDevices.size() * 2);
+			for(FogDevice fogDevice : fogDevices)
+				fogDevicesById.put(fogDevice.getId(), fogDevice);
+		}
+		List<ModuleMigration> migrations = new ArrayList<ModuleMigration>();
+		AddedLoads addedLoads = new AddedLoads();
+		for(FogDevice fogDevice : fogDevices){
+			if(fogDevice.getHost().getVmList().isEmpty()
+					|| getUtilization(fogDevice, interval) <= getMaxUtilization())
+				continue;
+			AppModule module = getHottestModule(fogDevice);
+			if(module == null)
+				continue;
+			FogDevice target = getTarget(fogDevice, module, interval, addedLoads);
+			if(target == null)
+				continue;
+			migrations.add(migrate(module, fogDevice, target, true));
+			addedLoads.add(target, fogDevice.getModuleLoads().get(module.getName()));
+		}
+		for(AppModule module : lastMigrations.keySet()){
+			ModuleMigration last = lastMigrations.get(module);
+			FogDevice fogDevice = fogDevicesById.get(last.getDestinationId());
+			FogDevice origin = fogDevicesById.get(origins.get(module));
+			if(fogDevice == origin || migrations.contains(last)
+					|| CloudSim.clock() - last.getCompletionTime() < getMinResidenceTime()
+					|| !fogDevice.getHost().getVmList().contains(module))
+				continue;
+			Double moduleLoad = fogDevice.getModuleLoads().get(module.getName());
+			moduleLoad = moduleLoad == null ? 0 : moduleLoad;
+			double load = addedLoads.getLoad(origin) + moduleLoad;
+			if(load/(interval*origin.getHost().getTotalMips()) <= getMaxUtilization() && canHost(origin, module)){
+				migrations.add(migrate(module, fogDevice, origin, false));
+				addedLoads.add(origin, moduleLoad);
+			}
+		}
+		return migrations;
+	}
+
+	private ModuleMigration migrate(AppModule module, FogDevice source, FogDevice destination, boolean northwards) {
+		ModuleMigration migration = new ModuleMigration(module, source.getId(), destination.getId(), northwards);
+		if(!origins.containsKey(module))
+			origins.put(module, source.getId());
+		lastMigrations.put(module, migration);
+		return migration;
+	}
+
+	/**
+	 * @return the movable module with the most load among those with a backlog, null if none
+	 */
+	private AppModule getHottestModule(FogDevice fogDevice) {
+		List<String> mappedModules = moduleMapping.getModuleMapping().get(fogDevice.getName());
+		AppModule hottest = null;
+		double hottestLoad = 0;
+		for(Vm vm : fogDevice.getHost().getVmList()){
+			AppModule module = (AppModule)vm;
+			Double load = fogDevice.getModuleLoads().get(module.getName());
+			if(load == null || load <= hottestLoad || fogDevice.getModuleBacklog(module.getName()) <= getMaxBacklog()
+					|| (mappedModules != null && mappedModules.contains(module.getName())) || isMigrating(module))
+				continue;
+			hottest = module;
+			hottestLoad = load;
+		}
+		return hottest;
+	}
+
+	private boolean isMigrating(AppModule module) {
+		ModuleMigration last = lastMigrations.get(module);
+		return last != null && CloudSim.clock() < last.getCompletionTime();
+	}
+
+	/**
+	 * @return the closest ancestor that can take the module, null if the module cannot get past a
+	 * saturated uplink or no ancestor can take it
+	 */
+	private FogDevice getTarget(FogDevice fogDevice, AppModule module, double interval, AddedLoads addedLoads) {
+		double moduleLoad = fogDevice.getModuleLoads().get(module.getName());
+		Double inputSize = fogDevice.getModuleInputSizes().get(module.getName());
+		FogDevice child = fogDevice;
+		FogDevice ancestor = fogDevicesById.get(fogDevice.getParentId());
+		while(ancestor != null){
+			if((child.getUplinkLoad() + (inputSize == null ? 0 : inputSize))/(interval*child.getUplinkBandwidth())
+					> getTargetUtilization())
+				return null;
+			// the tuples of the module would stop at an ancestor hosting a module of the same name
+			if(!canHost(ancestor, module))
+				return null;
+			double load = addedLoads.getLoad(ancestor) + moduleLoad;
+			if(load/(interval*ancestor.getHost().getTotalMips()) <= getTargetUtilization())
+				return ancestor;
+			child = ancestor;
+			ancestor = fogDevicesById.get(ancestor.getParentId());
+		}
+		return null;
+	}
+
+	/**
+	 * @return whether a device has the RAM for a module and neither hosts nor receives a module of
+	 * the same name
+	 */
+	private boolean canHost(FogDevice fogDevice, AppModule module) {
+		if(fogDevice.getModuleByName(module.getName()) != null
+				|| fogDevice.getHost().getRamProvisioner().getAvailableRam() < module.getRam())
+			return false;
+		for(ModuleMigration migration : lastMigrations.values()){
+			if(migration.getDestinationId() == fogDevice.getId() && migration.getModule().getName().equals(module.getName())
+					&& (migration.getCompletionTime() == 0 || CloudSim.clock() < migration.getCompletionTime()))
+				return false;
+		}
+		return true;
+	}
+
+	private double getUtilization(FogDevice fogDevice, double interval) {
+		return fogDevice.getTotalModuleLoad()/(interval*fogDevice.getHost().getTotalMips());
+	}
+
+	public double getMaxUtilization() {
+		return maxUtilization;
+	}
+
+	public void setMaxUtilization(double maxUtilization) {
+		this.maxUtilization = maxUtilization;
+	}
+
+	public double getTargetUtilization() {
+		return targetUtilization;
+	}
+
+	public void setTargetUtilization(double targetUtilization) {
+		this.targetUtilization = targetUtilization;
+	}
+
+	public int getMaxBacklog() {
+		return maxBacklog;
+	}
+
+	public void setMaxBacklog(int maxBacklog) {
+		this.maxBacklog = maxBacklog;
+	}
+
+	public double getMinResidenceTime() {
+		return minResidenceTime;
+	}
+
+	public void setMinResidenceTime(double minResidenceTime) {
+		this.minResidenceTime = minResidenceTime;
+	}
+}
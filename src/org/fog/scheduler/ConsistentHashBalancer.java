@@ -0,0 +1,69 @@
+package org.fog.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.fog.application.AppModule;
+import org.fog.entities.Tuple;
+
+/**
+ * Gives all the tuples from one source device, a camera for instance, to the same instance, so
+ * that an instance keeps the state of its sources. The instances are points on a hash ring and a
+ * source goes to the first point after its own hash: starting or stopping an instance only moves
+ * the sources next to its points.
+ */
+public class ConsistentHashBalancer extends InstanceBalancer {
+
+	/** Points of every instance on the ring */
+	private int replicas = 64;
+	/** The ring, by the module hosted on the device */
+	private Map<AppModule, TreeMap<Integer, AppModule>> rings = new HashMap<AppModule, TreeMap<Integer, AppModule>>();
+	/** The instances each ring was built for */
+	private Map<AppModule, List<AppModule>> ringInstances = new HashMap<AppModule, List<AppModule>>();
+
+	public ConsistentHashBalancer() {
+	}
+
+	public ConsistentHashBalancer(int replicas) {
+		setReplicas(replicas);
+	}
+
+	@Override
+	public AppModule selectInstance(Tuple tuple, List<AppModule> instances) {
+		AppModule module = instances.get(0);
+		TreeMap<Integer, AppModule> ring = rings.get(module);
+		if(ring == null || !instances.equals(ringInstances.get(module))){
+			ring = new TreeMap<Integer, AppModule>();
+			for(AppModule instance : instances){
+				for(int i = 0; i < getReplicas(); i++)
+					ring.put(hash(instance.getId()*31L + i), instance);
+			}
+			rings.put(module, ring);
+			ringInstances.put(module, new ArrayList<AppModule>(instances));
+		}
+		// the results of a module carry the device it ran on, the tuples of a sensor do not
+		int source = tuple.getSourceDeviceId() >= 0 ? tuple.getSourceDeviceId() : tuple.getSourceModuleId();
+		SortedMap<Integer, AppModule> tail = ring.tailMap(hash(source));
+		return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+	}
+
+	private static int hash(long key) {
+		// SplitMix64 finalizer, spreads consecutive ids over the ring
+		key = (key ^ (key >>> 30))*0xbf58476d1ce4e5b9L;
+		key = (key ^ (key >>> 27))*0x94d049bb133111ebL;
+		return (int) (key ^ (key >>> 31));
+	}
+
+	public int getReplicas() {
+		return replicas;
+	}
+
+	public void setReplicas(int replicas) {
+		this.replicas = replicas;
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.fog.scheduler;
+
+import java.util.Iterator;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Drops the tuple that has waited the longest to make room for the arriving one, so that a full
+ * queue holds the most recent data.
+ */
+public class DropOldestPolicy extends TupleDropPolicy {
+
+	@Override
+	public Tuple selectDroppedTuple(Tuple tuple, Iterable<Tuple> queuedTuples) {
+		Iterator<Tuple> iterator = queuedTuples.iterator();
+		return iterator.hasNext() ? iterator.next() : tuple;
+	}
+
+}
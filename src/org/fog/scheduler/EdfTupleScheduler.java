@@ -0,0 +1,27 @@
+package org.fog.scheduler;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Executes the tuples of a module earliest deadline first; tuples without a deadline come last.
+ * Tuples with the same deadline are executed by priority, then in the order they arrived.
+ */
+public class EdfTupleScheduler extends PriorityTupleScheduler {
+
+	public EdfTupleScheduler(double mips, int numberOfPes) {
+		super(mips, numberOfPes);
+	}
+
+	@Override
+	public boolean isBefore(Tuple tuple, Tuple other) {
+		if (tuple.getDeadline() != other.getDeadline())
+			return tuple.getDeadline() < other.getDeadline();
+		return super.isBefore(tuple, other);
+	}
+
+	@Override
+	public TupleScheduler createCopy(double mips, int numberOfPes) {
+		return new EdfTupleScheduler(mips, numberOfPes);
+	}
+
+}
@@ -0,0 +1,153 @@
+package org.fog.scheduler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Shares the bandwidth of a link equally among the tuples in transmission over it, instead of
+ * sending them one after the other, like the Channel of the SDN extension does for its
+ * transmissions. On a single link the equal share is the max-min fair one. The rates only change
+ * when a transmission starts or ends, so the link only needs an event at the next end.
+ */
+public class FairShareLinkScheduler {
+
+	/**
+	 * Transmission time left under which a transmission is over, as the clock may not be able to
+	 * advance by less
+	 */
+	private static final double EPSILON = 1e-6;
+
+	private double bandwidth;
+	private List<Transmission> transmissions;
+	private double previousTime;
+	/** Number of the last completion event scheduled for the link, the earlier ones are stale */
+	private int generation;
+
+	public FairShareLinkScheduler(double bandwidth) {
+		setBandwidth(bandwidth);
+		transmissions = new ArrayList<Transmission>();
+	}
+
+	/**
+	 * Starts the transmission of a tuple.
+	 * @param tuple the tuple to send
+	 * @param destinationId the device the tuple goes to
+	 * @param currentTime the simulation time
+	 */
+	public void addTransmission(Tuple tuple, int destinationId, double currentTime) {
+		updateTransmissions(currentTime);
+		transmissions.add(new Transmission(tuple, destinationId, currentTime));
+	}
+
+	/**
+	 * Removes the transmissions that ended by now.
+	 * @param currentTime the simulation time
+	 * @return the ended transmissions
+	 */
+	public List<Transmission> removeCompletedTransmissions(double currentTime) {
+		updateTransmissions(currentTime);
+		List<Transmission> completed = new ArrayList<Transmission>();
+		double rate = getRate();
+		for(Iterator<Transmission> iterator = transmissions.iterator(); iterator.hasNext();){
+			Transmission transmission = iterator.next();
+			if(transmission.getRemainingSize()/rate < EPSILON){
+				completed.add(transmission);
+				iterator.remove();
+			}
+		}
+		return completed;
+	}
+
+	/**
+	 * @return the time until the next transmission ends at the current rates,
+	 * Double.MAX_VALUE if there is none
+	 */
+	public double getNextCompletionDelay() {
+		double delay = Double.MAX_VALUE;
+		for(Transmission transmission : transmissions)
+			delay = Math.min(delay, transmission.getRemainingSize()/getRate());
+		return delay;
+	}
+
+	private void updateTransmissions(double currentTime) {
+		double timeSpan = currentTime - previousTime;
+		if(timeSpan > 0 && !transmissions.isEmpty()){
+			double sent = getRate()*timeSpan;
+			for(Transmission transmission : transmissions)
+				transmission.setRemainingSize(Math.max(0, transmission.getRemainingSize() - sent));
+		}
+		previousTime = currentTime;
+	}
+
+	/**
+	 * @return the bandwidth each transmission gets
+	 */
+	public double getRate() {
+		return transmissions.isEmpty() ? getBandwidth() : getBandwidth()/transmissions.size();
+	}
+
+	public int getTransmissionCount() {
+		return transmissions.size();
+	}
+
+	/**
+	 * Makes the completion events scheduled so far stale.
+	 * @return the number of the next completion event
+	 */
+	public int nextGeneration() {
+		return ++generation;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+
+	public void setBandwidth(double bandwidth) {
+		this.bandwidth = bandwidth;
+	}
+
+	/**
+	 * A tuple in transmission over the link.
+	 */
+	public static class Transmission {
+
+		private Tuple tuple;
+		private int destinationId;
+		private double remainingSize;
+		private double startTime;
+
+		public Transmission(Tuple tuple, int destinationId, double startTime) {
+			this.tuple = tuple;
+			this.destinationId = destinationId;
+			this.remainingSize = tuple.getCloudletFileSize();
+			this.startTime = startTime;
+		}
+
+		public Tuple getTuple() {
+			return tuple;
+		}
+
+		public int getDestinationId() {
+			return destinationId;
+		}
+
+		public double getRemainingSize() {
+			return remainingSize;
+		}
+
+		public void setRemainingSize(double remainingSize) {
+			this.remainingSize = remainingSize;
+		}
+
+		public double getStartTime() {
+			return startTime;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package org.fog.scheduler;
+
+import java.util.List;
+
+import org.fog.application.AppModule;
+import org.fog.entities.Tuple;
+
+/**
+ * Chooses the instance of a module that executes a tuple, when a fog device runs the module as
+ * more than one instance.
+ */
+public abstract class InstanceBalancer {
+
+	/**
+	 * @param tuple the tuple to execute
+	 * @param instances the instances of the destination module of the tuple, the module hosted on
+	 * the device first; the same list object for as long as the device balances over the module
+	 * @return one of the instances
+	 */
+	public abstract AppModule selectInstance(Tuple tuple, List<AppModule> instances);
+
+}
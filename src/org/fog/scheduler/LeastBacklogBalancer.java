@@ -0,0 +1,28 @@
+package org.fog.scheduler;
+
+import java.util.List;
+
+import org.fog.application.AppModule;
+import org.fog.entities.Tuple;
+
+/**
+ * Gives a tuple to the instance with the fewest tuples waiting for or in execution, relative to
+ * its MIPS. Tuples on their way to an instance on another device are not counted.
+ */
+public class LeastBacklogBalancer extends InstanceBalancer {
+
+	@Override
+	public AppModule selectInstance(Tuple tuple, List<AppModule> instances) {
+		AppModule selected = null;
+		double lowest = Double.MAX_VALUE;
+		for(AppModule instance : instances){
+			double backlog = instance.getCloudletScheduler().runningCloudlets()/instance.getMips();
+			if(backlog < lowest){
+				selected = instance;
+				lowest = backlog;
+			}
+		}
+		return selected;
+	}
+
+}
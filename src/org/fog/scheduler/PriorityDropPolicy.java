@@ -0,0 +1,44 @@
+package org.fog.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Drops the newest of the queued tuples with the lowest priority, if that priority is below the
+ * one of the arriving tuple, and the arriving tuple otherwise. Priorities are given per tuple
+ * type; the tuples of other types have the priority of the edge that carries them.
+ */
+public class PriorityDropPolicy extends TupleDropPolicy {
+
+	private Map<String, Integer> priorities = new HashMap<String, Integer>();
+
+	@Override
+	public Tuple selectDroppedTuple(Tuple tuple, Iterable<Tuple> queuedTuples) {
+		Tuple dropped = tuple;
+		int lowest = getPriority(tuple);
+		for(Tuple queuedTuple : queuedTuples){
+			int priority = getPriority(queuedTuple);
+			if(priority < lowest || (priority == lowest && dropped != tuple)){
+				dropped = queuedTuple;
+				lowest = priority;
+			}
+		}
+		return dropped;
+	}
+
+	public int getPriority(Tuple tuple) {
+		Integer priority = priorities.get(tuple.getTupleType());
+		return priority == null ? tuple.getPriority() : priority;
+	}
+
+	public void setPriority(String tupleType, int priority) {
+		priorities.put(tupleType, priority);
+	}
+
+	public Map<String, Integer> getPriorities() {
+		return priorities;
+	}
+
+}
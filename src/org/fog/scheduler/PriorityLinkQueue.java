@@ -0,0 +1,102 @@
+package org.fog.scheduler;
+
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Queue of a link that sends first the element the comparator orders first, and among equal ones
+ * the one that arrived first, in logarithmic time however long the queue grows. It iterates in
+ * arrival order, so the drop policies see the oldest element first.
+ */
+public class PriorityLinkQueue<E> extends AbstractQueue<E> {
+
+	private final Comparator<? super E> comparator;
+	private final PriorityQueue<Entry<E>> entries;
+	/** the entries in arrival order */
+	private final Set<Entry<E>> arrivals = new LinkedHashSet<Entry<E>>();
+	private long nextSequence;
+
+	public PriorityLinkQueue(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		entries = new PriorityQueue<Entry<E>>(11, new Comparator<Entry<E>>() {
+			@Override
+			public int compare(Entry<E> entry, Entry<E> other) {
+				int order = PriorityLinkQueue.this.comparator.compare(entry.element, other.element);
+				if(order != 0)
+					return order;
+				return entry.sequence < other.sequence ? -1 : entry.sequence > other.sequence ? 1 : 0;
+			}
+		});
+	}
+
+	@Override
+	public boolean offer(E element) {
+		Entry<E> entry = new Entry<E>(element, nextSequence++);
+		entries.add(entry);
+		arrivals.add(entry);
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		Entry<E> entry = entries.poll();
+		if(entry == null)
+			return null;
+		arrivals.remove(entry);
+		return entry.element;
+	}
+
+	@Override
+	public E peek() {
+		Entry<E> entry = entries.peek();
+		return entry == null ? null : entry.element;
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the elements in arrival order, removing an element takes linear time
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<Entry<E>> iterator = arrivals.iterator();
+		return new Iterator<E>() {
+			private Entry<E> current;
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+			@Override
+			public E next() {
+				current = iterator.next();
+				return current.element;
+			}
+			@Override
+			public void remove() {
+				iterator.remove();
+				entries.remove(current);
+			}
+		};
+	}
+
+	/**
+	 * An element and its arrival number, equal only to itself
+	 */
+	private static class Entry<E> {
+
+		private final E element;
+		private final long sequence;
+
+		public Entry(E element, long sequence) {
+			this.element = element;
+			this.sequence = sequence;
+		}
+	}
+}
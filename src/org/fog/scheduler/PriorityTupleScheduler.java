@@ -0,0 +1,110 @@
+package org.fog.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.entities.Tuple;
+
+/**
+ * Executes one tuple at a time at the full MIPS of the module, instead of sharing them among all
+ * its tuples: the one with the highest priority, the oldest among those. A tuple that comes first
+ * preempts the one in execution.
+ */
+public class PriorityTupleScheduler extends TupleScheduler {
+
+	/**
+	 * The tuple in execution since the last update
+	 */
+	private ResCloudlet current;
+
+	public PriorityTupleScheduler(double mips, int numberOfPes) {
+		super(mips, numberOfPes);
+	}
+
+	/**
+	 * @return whether a tuple is executed before another one
+	 */
+	public boolean isBefore(Tuple tuple, Tuple other) {
+		return tuple.getPriority() > other.getPriority();
+	}
+
+	/**
+	 * @return the tuple to execute, null if there is none
+	 */
+	public Tuple getFirstTuple() {
+		ResCloudlet first = getFirst();
+		return first == null ? null : (Tuple) first.getCloudlet();
+	}
+
+	protected ResCloudlet getFirst() {
+		ResCloudlet first = null;
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if (first == null || isBefore((Tuple) rcl.getCloudlet(), (Tuple) first.getCloudlet()))
+				first = rcl;
+		}
+		return first;
+	}
+
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		double timeSpan = currentTime - getPreviousTime();
+		if (current != null && current.getCloudletStatus() == Cloudlet.INEXEC)
+			current.updateCloudletFinishedSoFar((long) (getMips(mipsShare) * timeSpan * Consts.MILLION));
+
+		List<ResCloudlet> toRemove = new ArrayList<ResCloudlet>();
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if (rcl.getRemainingCloudletLength() == 0) {
+				toRemove.add(rcl);
+				cloudletFinish(rcl);
+			}
+		}
+		getCloudletExecList().removeAll(toRemove);
+		setPreviousTime(currentTime);
+
+		current = getFirst();
+		if (current == null)
+			return 0.0;
+		return currentTime + Math.max(current.getRemainingCloudletLength() / getMips(mipsShare),
+				CloudSim.getMinTimeBetweenEvents());
+	}
+
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			rcl.setMachineAndPeId(0, i);
+		}
+		getCloudletExecList().add(rcl);
+
+		double mips = getMips(getCurrentMipsShare());
+		cloudlet.setCloudletLength((long) (cloudlet.getCloudletLength() + mips * fileTransferTime));
+		current = getFirst();
+		return current.getRemainingCloudletLength() / mips;
+	}
+
+	/**
+	 * @return the MIPS of one processing element of the module
+	 */
+	protected double getMips(List<Double> mipsShare) {
+		double mips = 0;
+		int cpus = 0;
+		for (Double share : mipsShare) {
+			mips += share;
+			if (share > 0)
+				cpus++;
+		}
+		return cpus == 0 ? 0 : mips / cpus;
+	}
+
+	@Override
+	public TupleScheduler createCopy(double mips, int numberOfPes) {
+		return new PriorityTupleScheduler(mips, numberOfPes);
+	}
+
+}
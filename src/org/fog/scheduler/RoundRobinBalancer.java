@@ -0,0 +1,27 @@
+package org.fog.scheduler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fog.application.AppModule;
+import org.fog.entities.Tuple;
+
+/**
+ * Gives the tuples of a module to its instances in turn.
+ */
+public class RoundRobinBalancer extends InstanceBalancer {
+
+	/** Number of tuples balanced so far, by the module hosted on the device */
+	private Map<AppModule, Integer> counts = new HashMap<AppModule, Integer>();
+
+	@Override
+	public AppModule selectInstance(Tuple tuple, List<AppModule> instances) {
+		AppModule module = instances.get(0);
+		Integer count = counts.get(module);
+		count = count == null ? 0 : count;
+		counts.put(module, count + 1);
+		return instances.get(count%instances.size());
+	}
+
+}
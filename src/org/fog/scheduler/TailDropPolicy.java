@@ -0,0 +1,15 @@
+package org.fog.scheduler;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Drops the tuples arriving at a full queue.
+ */
+public class TailDropPolicy extends TupleDropPolicy {
+
+	@Override
+	public Tuple selectDroppedTuple(Tuple tuple, Iterable<Tuple> queuedTuples) {
+		return tuple;
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.fog.scheduler;
+
+import org.fog.entities.Tuple;
+
+/**
+ * Chooses the tuple a fog device drops when a tuple arrives at one of its link queues and the
+ * queue is full.
+ */
+public abstract class TupleDropPolicy {
+
+	/**
+	 * @param tuple the tuple to queue
+	 * @param queuedTuples the tuples waiting for the link, the oldest first
+	 * @return one of the queued tuples, to drop in favour of the arriving one, or the arriving tuple
+	 * itself
+	 */
+	public abstract Tuple selectDroppedTuple(Tuple tuple, Iterable<Tuple> queuedTuples);
+
+}
@@ -35,6 +35,13 @@ public class TupleScheduler extends CloudletSchedulerTimeShared{
 		/*<<<<<<<<<<<<<<<<<<<<<*/
 	}
 	
+	/**
+	 * @return a scheduler of the same kind for another instance of the module
+	 */
+	public TupleScheduler createCopy(double mips, int numberOfPes) {
+		return new TupleScheduler(mips, numberOfPes);
+	}
+	
 //	public void cloudletFinish(ResCloudlet rcl) {
 //		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 //		rcl.finalizeCloudlet();
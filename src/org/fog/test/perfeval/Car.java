@@ -1,5 +1,6 @@
 package org.fog.test.perfeval;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -24,6 +25,7 @@ import org.fog.entities.Actuator;
 import org.fog.entities.FogBroker;
 import org.fog.entities.FogDevice;
 import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PhysicalTopology;
 import org.fog.entities.Sensor;
 import org.fog.entities.Tuple;
 import org.fog.placement.Controller;
@@ -36,6 +38,7 @@ import org.fog.utils.FogLinearPowerModel;
 import org.fog.utils.FogUtils;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.scenario.ScenarioReader;
 
 /**
  * Simulation setup for case study 2 - Intelligent Surveillance
@@ -60,11 +63,14 @@ public class Car {
 	// Change the config name in order to run a simulation with different configuration
 	private static final ConfigName CONFIG_NAME = ConfigName.CONFIG_3;
 	
-	private static final int NUMBER_OF_EDGE_NODES;
-	private static final int NUMBER_OF_AREAS;
-	private static final int SENSORS_PER_AREA;
-	private static final int CAMERAS_PER_AREA;
-	private static final boolean CLOUD_BASED;
+	private static int NUMBER_OF_EDGE_NODES;
+	private static int NUMBER_OF_AREAS;
+	private static int SENSORS_PER_AREA;
+	private static int CAMERAS_PER_AREA;
+	private static boolean CLOUD_BASED;
+	
+	// inter-transmission time of the cameras
+	private static double CAMERA_PERIOD = 5;
 	
 	private static class Configuration {
 		int edgeNodesCount;
@@ -104,10 +110,13 @@ public class Car {
 	
 	static {
 		createConfigurations();
-		
-		Configuration config = CONFIGS.get(CONFIG_NAME);
+		loadConfiguration(CONFIG_NAME);
+	}
+	
+	private static void loadConfiguration(ConfigName configName) {
+		Configuration config = CONFIGS.get(configName);
 
-		Log.printLine("Loading Simulation Configuration: " + CONFIG_NAME);
+		Log.printLine("Loading Simulation Configuration: " + configName);
 		
 		// now load the selected configuration
 		NUMBER_OF_EDGE_NODES = config.edgeNodesCount;
@@ -120,6 +129,33 @@ public class Car {
 		Log.printLine(config);
 	}
 	
+	/**
+	 * Overrides the compiled-in configuration with the command line options
+	 * --config, --areas, --cameras, --cloud and --camera-period.
+	 * With --scenario the topology is read from a scenario file and only --cloud applies.
+	 */
+	private static void loadConfiguration(SimulationArguments arguments) {
+		if(arguments.has("config"))
+			loadConfiguration(ConfigName.valueOf(arguments.getString("config", CONFIG_NAME.name())));
+		NUMBER_OF_AREAS = arguments.getInt("areas", NUMBER_OF_AREAS);
+		numOfCamerasPerArea = arguments.getInt("cameras", numOfCamerasPerArea);
+		CLOUD_BASED = arguments.getBoolean("cloud", CLOUD_BASED);
+		CAMERA_PERIOD = arguments.getDouble("camera-period", CAMERA_PERIOD);
+	}
+	
+	/**
+	 * @return the parameters of the topology loaded, which label the configuration of the run
+	 */
+	private static Map<String, Object> getTopology() {
+		Map<String, Object> topology = new HashMap<String, Object>();
+		topology.put("edge-nodes", NUMBER_OF_EDGE_NODES);
+		topology.put("areas", NUMBER_OF_AREAS);
+		topology.put("cameras", numOfCamerasPerArea);
+		topology.put("cloud", CLOUD_BASED);
+		topology.put("camera-period", CAMERA_PERIOD);
+		return topology;
+	}
+	
 	private static void createConfigurations() {
 		
 		/* Config 1
@@ -159,9 +195,13 @@ public class Car {
 	
 	public static void main(String[] args) {
 
+		TimeKeeper.getInstance().setSetupStartTime(Calendar.getInstance().getTimeInMillis());
 		Log.printLine("Starting DCNS...");
 
 		try {
+			SimulationArguments arguments = new SimulationArguments(args);
+			loadConfiguration(arguments);
+			arguments.seed(getTopology());
 			Log.disable();
 			int num_user = 1; // number of cloud users
 			Calendar calendar = Calendar.getInstance();
@@ -176,7 +216,16 @@ public class Car {
 			Application application = createApplication(appId, broker.getId());
 			application.setUserId(broker.getId());
 			
-			createFogDevices(broker.getId(), appId);
+			if(arguments.has("scenario")){
+				// the topology is described by a scenario file instead of the configuration
+				PhysicalTopology topology = new ScenarioReader(broker.getId(), appId)
+						.read(new File(arguments.getString("scenario", null)));
+				FOG_DEVICES.addAll(topology.getFogDevices());
+				SENSORS.addAll(topology.getSensors());
+				ACTUATORS.addAll(topology.getActuators());
+			} else {
+				createFogDevices(broker.getId(), appId);
+			}
 			
 			Controller controller = null;
 			
@@ -195,6 +244,7 @@ public class Car {
 			
 			controller = new Controller("master-controller", FOG_DEVICES, SENSORS, 
 					ACTUATORS);
+			arguments.configure(controller);
 			
 			controller.submitApplication(application, 
 					(CLOUD_BASED)?(new ModulePlacementMapping(FOG_DEVICES, application, moduleMapping))
@@ -206,6 +256,8 @@ public class Car {
 
 			CloudSim.stopSimulation();
 
+			arguments.writeReport(controller);
+
 			Log.printLine("VRGame finished!");
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -296,7 +348,7 @@ public class Car {
 	private static FogDevice addCamera(String id, int userId, String appId, int parentId){
 		FogDevice camera = createFogDevice("m-"+id, 500, 1000, 10000, 10000, 3, 0, 87.53, 82.44);
 		camera.setParentId(parentId);
-		Sensor sensor = new Sensor("s-"+id, "CAMERA", userId, appId, new DeterministicDistribution(5)); // inter-transmission time of camera (sensor) follows a deterministic distribution
+		Sensor sensor = new Sensor("s-"+id, "CAMERA", userId, appId, new DeterministicDistribution(CAMERA_PERIOD)); // inter-transmission time of camera (sensor) follows a deterministic distribution
 		SENSORS.add(sensor);
 		Actuator ptz = new Actuator("ptz-"+id, userId, appId, "PTZ_CONTROL");
 		ACTUATORS.add(ptz);
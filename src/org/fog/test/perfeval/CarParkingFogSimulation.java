@@ -1,5 +1,7 @@
 package org.fog.test.perfeval;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -12,12 +14,14 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventTracer;
 import org.cloudbus.cloudsim.power.PowerHost;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
 import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
 import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
+import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.application.selectivity.FractionalSelectivity;
 import org.fog.entities.Actuator;
@@ -26,6 +30,7 @@ import org.fog.entities.FogBroker;
 import org.fog.entities.FogDevice;
 import org.fog.entities.FogDeviceCharacteristics;
 import org.fog.entities.OsType;
+import org.fog.entities.PhysicalTopology;
 import org.fog.entities.Sensor;
 import org.fog.entities.Tuple;
 import org.fog.entities.VmmType;
@@ -33,14 +38,28 @@ import org.fog.placement.Controller;
 import org.fog.placement.ModuleMapping;
 import org.fog.placement.ModulePlacement;
 import org.fog.placement.ModulePlacementEdgewards;
+import org.fog.placement.ModulePlacementLatencyAware;
 import org.fog.placement.ModulePlacementMapping;
+import org.fog.placement.ThresholdScalingPolicy;
+import org.fog.placement.UtilizationMigrationPolicy;
 import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.ConsistentHashBalancer;
+import org.fog.scheduler.DropOldestPolicy;
+import org.fog.scheduler.EdfTupleScheduler;
+import org.fog.scheduler.LeastBacklogBalancer;
+import org.fog.scheduler.PriorityDropPolicy;
+import org.fog.scheduler.PriorityTupleScheduler;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.entities.SensorType;
 import org.fog.utils.FogLinearPowerModel;
 import org.fog.utils.FogUtils;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.SensorTrace;
+import org.fog.utils.distribution.SpikeDistribution;
+import org.fog.utils.record.TraceEventExporter;
+import org.fog.utils.record.TupleRecorder;
+import org.fog.utils.scenario.ScenarioReader;
 
 /**
  * Simulation setup for the FEC-based car parking system
@@ -57,10 +76,14 @@ public class CarParkingFogSimulation {
 	// Change the config name in order to run a simulation with different configuration
 	private static final ConfigName CONFIG_NAME = ConfigName.CONFIG_1;
 	
-	private static final int NUMBER_OF_AREAS;
-	private static final int SENSORS_PER_AREA;
-	private static final int CAMERAS_PER_AREA;
-	private static final boolean CLOUD_BASED;
+	private static int NUMBER_OF_AREAS;
+	private static int SENSORS_PER_AREA;
+	private static int CAMERAS_PER_AREA;
+	private static boolean CLOUD_BASED;
+	
+	// inter-transmission times of the IR sensors and of the cameras
+	private static double SENSOR_PERIOD = 5;
+	private static double CAMERA_PERIOD = 5;
 	
 	private static class Configuration {
 		int areasCount;
@@ -98,19 +121,71 @@ public class CarParkingFogSimulation {
 	
 	static {
 		createConfigurations();
-		
-		Configuration config = CONFIGS.get(CONFIG_NAME);
+	}
+	
+	private static void loadConfiguration(ConfigName configName) {
+		Configuration config = CONFIGS.get(configName);
 
-		Log.printLine("Loading Simulation Configuration: " + CONFIG_NAME);
+		Log.printLine("Loading Simulation Configuration: " + configName);
 		
 		// now load the selected configuration
 		NUMBER_OF_AREAS = config.areasCount;
 		SENSORS_PER_AREA = config.sensorsPerArea;
 		CAMERAS_PER_AREA = config.camerasPerArea;
 		CLOUD_BASED = config.cloudBased;
+	}
+	
+	/**
+	 * Loads the configuration given with --config, CONFIG_NAME by default, overridden by the
+	 * command line options --areas, --sensors, --cameras, --cloud, --sensor-period and
+	 * --camera-period, and logs the result.
+	 * With --scenario the topology is read from a scenario file and only --cloud applies.
+	 * <p>
+	 * --migration true moves the modules of overloaded devices at runtime; --spike-factor,
+	 * --spike-start, --spike-end, --spike-type and --spike-area add a load spike to the sensors.
+	 * --autoscaling true starts and stops instances of the modules at runtime, at most
+	 * --max-instances per device, balanced by --balancer round-robin, least-backlog or
+	 * consistent-hash; --instance-mips-limited true runs every instance at most at the MIPS of its
+	 * module, so that instances also add capacity on their own device.
+	 * --queue-capacity bounds the link queues of the fog devices, which drop tuples according to
+	 * --drop-policy tail-drop, drop-oldest or priority; --back-pressure true makes the sensors
+	 * skip their emissions while an uplink on their way is congested.
+	 * --deadline gives the tuples of the control loop a deadline, and the loop the same end-to-end
+	 * deadline, whose misses are reported; --tuple-scheduler edf or priority
+	 * executes the most urgent tuples first, on every device, and --priority-links true sends them
+	 * first over the links.
+	 * --fair-share-links true shares the bandwidth of the links among the tuples in transmission
+	 * instead of queueing them.
+	 * --sensor-trace replays the emissions, and tuple sizes if any, of the sensors named in a
+	 * binary or CSV sensor trace.
+	 * --cloudsim-trace writes the events handled by the entities to a CloudSim event trace, as does
+	 * the cloudsim.trace.file system property (see org.cloudbus.cloudsim.core.EventTracer).
+	 */
+	private static void loadConfiguration(SimulationArguments arguments) {
+		loadConfiguration(ConfigName.valueOf(arguments.getString("config", CONFIG_NAME.name())));
+		NUMBER_OF_AREAS = arguments.getInt("areas", NUMBER_OF_AREAS);
+		SENSORS_PER_AREA = arguments.getInt("sensors", SENSORS_PER_AREA);
+		CAMERAS_PER_AREA = arguments.getInt("cameras", CAMERAS_PER_AREA);
+		CLOUD_BASED = arguments.getBoolean("cloud", CLOUD_BASED);
+		SENSOR_PERIOD = arguments.getDouble("sensor-period", SENSOR_PERIOD);
+		CAMERA_PERIOD = arguments.getDouble("camera-period", CAMERA_PERIOD);
 		
 		Log.printLine("Loaded Simulation Configuration:");
-		Log.printLine(config);
+		Log.printLine(new Configuration(NUMBER_OF_AREAS, SENSORS_PER_AREA, CAMERAS_PER_AREA, CLOUD_BASED));
+	}
+	
+	/**
+	 * @return the parameters of the topology loaded, which label the configuration of the run
+	 */
+	private static Map<String, Object> getTopology() {
+		Map<String, Object> topology = new HashMap<String, Object>();
+		topology.put("areas", NUMBER_OF_AREAS);
+		topology.put("sensors", SENSORS_PER_AREA);
+		topology.put("cameras", CAMERAS_PER_AREA);
+		topology.put("cloud", CLOUD_BASED);
+		topology.put("sensor-period", SENSOR_PERIOD);
+		topology.put("camera-period", CAMERA_PERIOD);
+		return topology;
 	}
 	
 	private static void createConfigurations() {
@@ -175,13 +250,19 @@ public class CarParkingFogSimulation {
 	
 	public static void main(String[] args) {
 		
+		TimeKeeper.getInstance().setSetupStartTime(Calendar.getInstance().getTimeInMillis());
 		Log.printLine("Starting Car Parking FEC Simulation...");
 
 		try {
+			SimulationArguments arguments = new SimulationArguments(args);
+			loadConfiguration(arguments);
+			arguments.seed(getTopology());
 			Log.disable();
 			int num_user = 1; // number of cloud users
 			Calendar calendar = Calendar.getInstance();
-			boolean trace_flag = true; // mean trace events
+			if(arguments.has("cloudsim-trace"))
+				System.setProperty(EventTracer.FILE_PROPERTY, arguments.getString("cloudsim-trace", null));
+			boolean trace_flag = System.getProperty(EventTracer.FILE_PROPERTY) != null; // mean trace events
 
 			CloudSim.init(num_user, calendar, trace_flag);
 
@@ -192,10 +273,19 @@ public class CarParkingFogSimulation {
 			Application application = createApplication(appId, broker.getId());
 			application.setUserId(broker.getId());
 			
-			FogDevice cloud = createCloudEnvironment();
-			FogDevice gateway = createLocalGateway(cloud.getId());
-			
-			createAreas(broker.getId(), appId,  gateway.getId());
+			if(arguments.has("scenario")){
+				// the topology is described by a scenario file instead of the configuration
+				PhysicalTopology topology = new ScenarioReader(broker.getId(), appId)
+						.read(new File(arguments.getString("scenario", null)));
+				FOG_DEVICES.addAll(topology.getFogDevices());
+				SENSORS.addAll(topology.getSensors());
+				ACTUATORS.addAll(topology.getActuators());
+			} else {
+				FogDevice cloud = createCloudEnvironment();
+				FogDevice gateway = createLocalGateway(cloud.getId());
+				
+				createAreas(broker.getId(), appId,  gateway.getId());
+			}
 			
 			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
 			for(FogDevice device : FOG_DEVICES){
@@ -217,17 +307,45 @@ public class CarParkingFogSimulation {
 				moduleMapping.addModuleToDevice("parking_space_detector", "cloud");
 			}
 
+			SensorTrace sensorTrace = null;
+			if(arguments.has("sensor-trace"))
+				sensorTrace = replaySensorTrace(arguments);
+			if(arguments.has("spike-factor"))
+				addLoadSpike(arguments);
+			if(arguments.has("queue-capacity"))
+				configureLinkQueues(arguments);
+			configureTupleScheduling(application, arguments);
+			if(arguments.getBoolean("fair-share-links", false)){
+				for(FogDevice device : FOG_DEVICES)
+					device.setFairShareLinks(true);
+			}
+
 			Controller controller = new Controller("master-controller", FOG_DEVICES, SENSORS, ACTUATORS);
+			arguments.configure(controller);
+			if(arguments.getBoolean("migration", false))
+				controller.setMigrationPolicy(new UtilizationMigrationPolicy(moduleMapping));
+			if(arguments.getBoolean("autoscaling", false))
+				controller.setScalingPolicy(createScalingPolicy(arguments));
 			
 			ModulePlacement modulePlacement = null;
 			
 			if (CLOUD_BASED) {
 				modulePlacement = new ModulePlacementMapping(FOG_DEVICES, application, moduleMapping);
+			} else if(arguments.getString("placement", "edgewards").equals("latency")) {
+				ModulePlacementLatencyAware latencyAware = new ModulePlacementLatencyAware(FOG_DEVICES, SENSORS, ACTUATORS,
+						application, moduleMapping);
+				if(!arguments.getBoolean("quiet", false))
+					latencyAware.printReport(System.out);
+				else if(!latencyAware.isFeasible())
+					System.err.println("The latency-aware placement overloads devices or uplinks");
+				modulePlacement = latencyAware;
 			} else {
-				modulePlacement = new ModulePlacementEdgewards(FOG_DEVICES, SENSORS, ACTUATORS, application, moduleMapping);
+				modulePlacement = new ModulePlacementEdgewards(FOG_DEVICES, SENSORS, ACTUATORS, application, moduleMapping,
+						arguments.getBoolean("parallel-placement", false));
 			}
 
 			controller.submitApplication(application, modulePlacement);
+			TupleRecorder tupleRecorder = arguments.recordTuples(application);
 
 
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
@@ -235,6 +353,16 @@ public class CarParkingFogSimulation {
 			CloudSim.startSimulation();
 
 			CloudSim.stopSimulation();
+			if(sensorTrace != null)
+				sensorTrace.close();
+			if(tupleRecorder != null){
+				tupleRecorder.close();
+				Log.printLine("Recorded "+tupleRecorder.getRecorded()+" tuple events, "+tupleRecorder.getLost()+" lost");
+				if(arguments.has("trace-events"))
+					TraceEventExporter.export(arguments.getString("tuple-record", null), arguments.getString("trace-events", null));
+			}
+
+			arguments.writeReport(controller);
 
 			Log.printLine("Car Parking FEC Simulation finished!");
 		} catch (Exception e) {
@@ -243,6 +371,117 @@ public class CarParkingFogSimulation {
 		}
 	}
 	
+	/**
+	 * Makes the sensors named in the --sensor-trace file replay their recorded emissions.
+	 */
+	private static SensorTrace replaySensorTrace(SimulationArguments arguments) throws IOException {
+		SensorTrace sensorTrace = SensorTrace.open(arguments.getString("sensor-trace", null));
+		int replayed = 0;
+		for(Sensor sensor : SENSORS){
+			if(sensorTrace.hasSensor(sensor.getName())){
+				sensor.setTransmitDistribution(sensorTrace.createDistribution(sensor.getName()));
+				replayed++;
+			}
+		}
+		Log.printLine(replayed+" sensors replay "+arguments.getString("sensor-trace", null));
+		return sensorTrace;
+	}
+	
+	/**
+	 * Makes the sensors emit --spike-factor times faster between --spike-start and --spike-end,
+	 * only those of one type with --spike-type and those of one area with --spike-area.
+	 */
+	private static void addLoadSpike(SimulationArguments arguments) {
+		String type = arguments.getString("spike-type", null);
+		String area = arguments.has("spike-area") ? String.format("area#%s-", arguments.getInt("spike-area", 0)) : "";
+		double start = arguments.getDouble("spike-start", 0);
+		double end = arguments.getDouble("spike-end", Double.MAX_VALUE);
+		double factor = arguments.getDouble("spike-factor", 1);
+		for(Sensor sensor : SENSORS){
+			if((type == null || sensor.getTupleType().equals(type)) && sensor.getName().contains(area))
+				sensor.setTransmitDistribution(new SpikeDistribution(sensor.getTransmitDistribution(), start, end, factor));
+		}
+	}
+	
+	/**
+	 * Bounds the link queues of all fog devices to --queue-capacity tuples.
+	 */
+	private static void configureLinkQueues(SimulationArguments arguments) {
+		int capacity = arguments.getInt("queue-capacity", -1);
+		String dropPolicy = arguments.getString("drop-policy", "tail-drop");
+		for(FogDevice device : FOG_DEVICES){
+			device.setNorthQueueCapacity(capacity);
+			device.setSouthQueueCapacity(capacity);
+			device.setBackPressureThreshold(arguments.getDouble("back-pressure-threshold", device.getBackPressureThreshold()));
+			if(dropPolicy.equals("drop-oldest"))
+				device.setTupleDropPolicy(new DropOldestPolicy());
+			else if(dropPolicy.equals("priority"))
+				device.setTupleDropPolicy(createPriorityDropPolicy());
+			else if(!dropPolicy.equals("tail-drop"))
+				throw new IllegalArgumentException("Unknown drop policy: " + dropPolicy);
+		}
+		for(Sensor sensor : SENSORS)
+			sensor.setBackPressure(arguments.getBoolean("back-pressure", false));
+	}
+	
+	/**
+	 * Applies --deadline to the edges of the control loop, and as the end-to-end deadline whose
+	 * misses are counted, to the loops containing them, and --tuple-scheduler and
+	 * --priority-links to the modules and the fog devices.
+	 */
+	private static void configureTupleScheduling(Application application, SimulationArguments arguments) {
+		if(arguments.has("deadline")){
+			double deadline = arguments.getDouble("deadline", Double.MAX_VALUE);
+			for(AppEdge edge : application.getEdges()){
+				if(edge.getPriority() <= 0)
+					continue;
+				edge.setDeadline(deadline);
+				for(AppLoop loop : application.getLoops()){
+					if(loop.hasEdge(edge.getSource(), edge.getDestination()))
+						loop.setDeadline(deadline);
+				}
+			}
+		}
+		String tupleScheduler = arguments.getString("tuple-scheduler", "time-shared");
+		for(AppModule module : application.getModules()){
+			if(tupleScheduler.equals("edf"))
+				module.setTupleScheduler(new EdfTupleScheduler(module.getMips(), 1));
+			else if(tupleScheduler.equals("priority"))
+				module.setTupleScheduler(new PriorityTupleScheduler(module.getMips(), 1));
+			else if(!tupleScheduler.equals("time-shared"))
+				throw new IllegalArgumentException("Unknown tuple scheduler: " + tupleScheduler);
+		}
+		for(FogDevice device : FOG_DEVICES){
+			device.setPriorityMipsAllocation(!tupleScheduler.equals("time-shared"));
+			device.setPriorityLinkQueues(arguments.getBoolean("priority-links", false));
+		}
+	}
+	
+	private static PriorityDropPolicy createPriorityDropPolicy() {
+		PriorityDropPolicy dropPolicy = new PriorityDropPolicy();
+		// the control loop goes first, then the results of the detectors, then the streams they work on
+		dropPolicy.setPriority("PTZ_PARAMS", 3);
+		dropPolicy.setPriority("OBJECT_LOCATION", 2);
+		dropPolicy.setPriority("DETECTED_OBJECT", 2);
+		dropPolicy.setPriority("IR_STREAM", 1);
+		dropPolicy.setPriority("MOTION_VIDEO_STREAM", 1);
+		return dropPolicy;
+	}
+	
+	private static ThresholdScalingPolicy createScalingPolicy(SimulationArguments arguments) {
+		ThresholdScalingPolicy scalingPolicy = new ThresholdScalingPolicy();
+		scalingPolicy.setMaxInstances(arguments.getInt("max-instances", scalingPolicy.getMaxInstances()));
+		scalingPolicy.setInstanceMipsLimited(arguments.getBoolean("instance-mips-limited", false));
+		String balancer = arguments.getString("balancer", "round-robin");
+		if(balancer.equals("least-backlog"))
+			scalingPolicy.setInstanceBalancer(new LeastBacklogBalancer());
+		else if(balancer.equals("consistent-hash"))
+			scalingPolicy.setInstanceBalancer(new ConsistentHashBalancer());
+		else if(!balancer.equals("round-robin"))
+			throw new IllegalArgumentException("Unknown balancer: " + balancer);
+		return scalingPolicy;
+	}
+	
 	private static FogDevice createCloudEnvironment() {
 		int level = 0;
 		long mips = 50000;
@@ -312,7 +551,7 @@ public class CarParkingFogSimulation {
 		FogDevice irSensor = createFogDevice("ir-sensor-"+id, mips, 1000, 10000, 10000, level,
 				ratePerMips, 87.53, 82.44);
 		irSensor.setParentId(parentId);
-		Sensor sensor = new Sensor("s-"+id, SensorType.IR_SENSOR.toString(), userId, appId, new DeterministicDistribution(5)); // inter-transmission time of camera (sensor) follows a deterministic distribution
+		Sensor sensor = new Sensor("s-"+id, SensorType.IR_SENSOR.toString(), userId, appId, new DeterministicDistribution(SENSOR_PERIOD)); // inter-transmission time of camera (sensor) follows a deterministic distribution
 		SENSORS.add(sensor);
 		Actuator ptz = new Actuator("ptz-"+id, userId, appId, "PTZ_CONTROL");
 		ACTUATORS.add(ptz);
@@ -330,7 +569,7 @@ public class CarParkingFogSimulation {
 		FogDevice camera = createFogDevice("camera-"+id, mips, 1000, 10000, 10000, level,
 				ratePerMips, 87.53, 82.44);
 		camera.setParentId(parentId);
-		Sensor sensor = new Sensor("cs-"+id, SensorType.CAMERA.toString(), userId, appId, new DeterministicDistribution(5)); // inter-transmission time of camera (sensor) follows a deterministic distribution
+		Sensor sensor = new Sensor("cs-"+id, SensorType.CAMERA.toString(), userId, appId, new DeterministicDistribution(CAMERA_PERIOD)); // inter-transmission time of camera (sensor) follows a deterministic distribution
 		SENSORS.add(sensor);
 		Actuator ptz = new Actuator("cptz-"+id, userId, appId, "PTZ_CONTROL");
 		ACTUATORS.add(ptz);
@@ -439,6 +678,11 @@ private static Application createApplication(String appId, int userId){
 		application.addAppEdge("parking_space_detector", "user_interface", 500, 2000, "DETECTED_OBJECT", Tuple.UP, AppEdge.MODULE); // adding edge from Object Detector to User Interface module carrying tuples of type DETECTED_OBJECT
 		application.addAppEdge("object_detector", "object_tracker", 1000, 100, "OBJECT_LOCATION", Tuple.UP, AppEdge.MODULE); // adding edge from Object Detector to Object Tracker module carrying tuples of type OBJECT_LOCATION
 		application.addAppEdge("object_tracker", "PTZ_CONTROL", 100, 28, 100, "PTZ_PARAMS", Tuple.DOWN, AppEdge.ACTUATOR); // adding edge from Object Tracker to PTZ CONTROL (actuator) carrying tuples of type PTZ_PARAMS
+		for(AppEdge edge : application.getEdges()){
+			String tupleType = edge.getTupleType();
+			if(tupleType.equals("MOTION_VIDEO_STREAM") || tupleType.equals("OBJECT_LOCATION") || tupleType.equals("PTZ_PARAMS"))
+				edge.setPriority(1); // the tuples of the control loop of the PTZ camera come before the others
+		}
 		
 		/*
 		 * Defining the input-output relationships (represented by selectivity) of the application modules. 
@@ -0,0 +1,227 @@
+package org.fog.test.perfeval;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.cloudbus.cloudsim.distributions.RandomStreams;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.placement.Controller;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.record.TupleRecorder;
+
+/**
+ * Command line options of the example simulations, given as <tt>--name value</tt> pairs.
+ * They let the sweep runner (org.fog.utils.sweep.SweepRunner) override the compiled-in
+ * configuration of a simulation without editing its source.
+ * <p>
+ * Options understood by every simulation: <tt>--config</tt>, <tt>--report &lt;file.json&gt;</tt>
+ * (writes the SimulationReport), <tt>--quiet true</tt> (does not print the result tables) and
+ * <tt>--seed</tt> (the seed of the random streams of the run, so a replication is reproducible).
+ * <p>
+ * To compare configurations with fewer replications: <tt>--crn true</tt> gives the sensors and
+ * modules the same random streams in every configuration run with the same seed (common random
+ * numbers), <tt>--antithetic true</tt> makes the run the antithetic twin of the one with the same
+ * seed, and <tt>--warmup</tt>, <tt>--confidence</tt> and <tt>--target-precision</tt> set the
+ * warm-up left out of the batch means confidence intervals of the loop delays, their level, and
+ * the relative half-width at which the run stops early.
+ * <p>
+ * <tt>--tuple-record &lt;file&gt;</tt> records the lifecycle of the tuples, one emission in
+ * <tt>--tuple-record-every</tt>, only those of the loops whose ids are listed, comma-separated, in
+ * <tt>--tuple-record-loop</tt> if given (see org.fog.utils.record.TupleRecorder), and
+ * <tt>--trace-events &lt;file.json&gt;</tt> exports them after the run as a Chrome trace, to view
+ * in the Perfetto UI.
+ * Unknown options are ignored, so a sweep may carry labels of its own.
+ */
+class SimulationArguments {
+
+	/**
+	 * The options that change the simulated system beyond its topology, with their default value,
+	 * null if their absence is their default
+	 */
+	private static final Map<String, String> MODEL_OPTIONS = new LinkedHashMap<String, String>();
+
+	static {
+		MODEL_OPTIONS.put("scenario", null);
+		MODEL_OPTIONS.put("placement", "edgewards");
+		MODEL_OPTIONS.put("migration", "false");
+		MODEL_OPTIONS.put("autoscaling", "false");
+		MODEL_OPTIONS.put("max-instances", null);
+		MODEL_OPTIONS.put("balancer", "round-robin");
+		MODEL_OPTIONS.put("instance-mips-limited", "false");
+		MODEL_OPTIONS.put("queue-capacity", "-1");
+		MODEL_OPTIONS.put("drop-policy", "tail-drop");
+		MODEL_OPTIONS.put("back-pressure", "false");
+		MODEL_OPTIONS.put("back-pressure-threshold", null);
+		MODEL_OPTIONS.put("deadline", null);
+		MODEL_OPTIONS.put("tuple-scheduler", "time-shared");
+		MODEL_OPTIONS.put("priority-links", "false");
+		MODEL_OPTIONS.put("fair-share-links", "false");
+		MODEL_OPTIONS.put("spike-factor", null);
+		MODEL_OPTIONS.put("spike-start", "0");
+		MODEL_OPTIONS.put("spike-end", null);
+		MODEL_OPTIONS.put("spike-type", null);
+		MODEL_OPTIONS.put("spike-area", null);
+		MODEL_OPTIONS.put("sensor-trace", null);
+	}
+
+	private final Map<String, String> values = new HashMap<String, String>();
+
+	SimulationArguments(String[] args) {
+		for(int i = 0; i < args.length; i++){
+			if(!args[i].startsWith("--"))
+				throw new IllegalArgumentException("Unexpected argument " + args[i]);
+			String name = args[i].substring(2);
+			if(i + 1 < args.length && !args[i + 1].startsWith("--")){
+				values.put(name, args[i + 1]);
+				i++;
+			} else {
+				values.put(name, "true");
+			}
+		}
+	}
+
+	boolean has(String name) {
+		return values.containsKey(name);
+	}
+
+	String getString(String name, String defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : value;
+	}
+
+	int getInt(String name, int defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : (int) Math.round(Double.parseDouble(value));
+	}
+
+	double getDouble(String name, double defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	boolean getBoolean(String name, boolean defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Seeds the random streams of the run with <tt>--seed</tt>, or the default seed. To be called
+	 * before the entities and their distributions are created.
+	 * @param topology the parameters of the topology the simulation resolved from its
+	 * configuration and the options, by name
+	 */
+	void seed(Map<String, ?> topology) {
+		String value = values.get("seed");
+		RandomStreams.setCommonRandomNumbers(getBoolean("crn", false));
+		RandomStreams.setConfiguration(getConfiguration(topology));
+		RandomStreams.setAntithetic(getBoolean("antithetic", false));
+		RandomStreams.setSeed(value == null ? RandomStreams.DEFAULT_SEED : Long.parseLong(value));
+	}
+
+	/**
+	 * @param topology the parameters of the topology, by name
+	 * @return the label of the simulated system: the topology and the model options that differ
+	 * from their default, so options of the replication, of the output or of a sweep, and options
+	 * spelled out with their default value, do not change it
+	 */
+	String getConfiguration(Map<String, ?> topology) {
+		Map<String, String> model = new TreeMap<String, String>();
+		for(Map.Entry<String, ?> parameter : topology.entrySet())
+			model.put(parameter.getKey(), normalize(String.valueOf(parameter.getValue())));
+		for(Map.Entry<String, String> option : MODEL_OPTIONS.entrySet()){
+			String value = values.get(option.getKey());
+			if(value == null)
+				continue;
+			value = normalize(value);
+			if(option.getValue() == null || !value.equals(normalize(option.getValue())))
+				model.put(option.getKey(), value);
+		}
+		StringBuilder configuration = new StringBuilder();
+		for(Map.Entry<String, String> parameter : model.entrySet()){
+			if(configuration.length() > 0)
+				configuration.append(';');
+			configuration.append(parameter.getKey()).append('=').append(parameter.getValue());
+		}
+		return configuration.toString();
+	}
+
+	/**
+	 * @return the value in a single spelling for numbers and booleans, as 5 for 5.0
+	 */
+	private static String normalize(String value) {
+		if(value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false"))
+			return value.toLowerCase();
+		try {
+			double number = Double.parseDouble(value);
+			return number == Math.rint(number) && Math.abs(number) < 1e15 ? String.valueOf((long) number)
+					: String.valueOf(number);
+		} catch (NumberFormatException e) {
+			return value;
+		}
+	}
+
+	/**
+	 * Applies the <tt>--quiet</tt>, <tt>--confidence</tt>, <tt>--target-precision</tt> and
+	 * <tt>--warmup</tt> options to the controller.
+	 */
+	void configure(Controller controller) {
+		controller.setPrintReport(!getBoolean("quiet", false));
+		controller.setConfidenceLevel(getDouble("confidence", controller.getConfidenceLevel()));
+		controller.setTargetPrecision(getDouble("target-precision", 0));
+		TimeKeeper.getInstance().setWarmupTime(getDouble("warmup", 0));
+	}
+
+	/**
+	 * Starts recording the tuples of the application into the file given with
+	 * <tt>--tuple-record</tt>, if any.
+	 * @return the recorder, to be closed after the run, or null
+	 * @throws IllegalArgumentException if <tt>--tuple-record-loop</tt> lists no loop or one the
+	 * application does not have
+	 */
+	TupleRecorder recordTuples(Application application) throws IOException {
+		String path = values.get("tuple-record");
+		if(path == null)
+			return null;
+		List<AppLoop> loops = new ArrayList<AppLoop>();
+		if(has("tuple-record-loop")){
+			for(String loopId : getString("tuple-record-loop", "").split(",")){
+				AppLoop sampled = null;
+				for(AppLoop loop : application.getLoops()){
+					if(String.valueOf(loop.getLoopId()).equals(loopId.trim()))
+						sampled = loop;
+				}
+				if(sampled == null)
+					throw new IllegalArgumentException("The application has no loop "+loopId.trim());
+				loops.add(sampled);
+			}
+		}
+		TupleRecorder recorder = new TupleRecorder(path);
+		recorder.setSampleEvery(getInt("tuple-record-every", 1));
+		recorder.setSampledLoops(loops);
+		TupleRecorder.setRecorder(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Writes the report of the finished run to the file given with <tt>--report</tt>, if any.
+	 */
+	void writeReport(Controller controller) throws IOException {
+		String path = values.get("report");
+		if(path == null || controller.getReport() == null)
+			return;
+		Writer out = new FileWriter(path);
+		try {
+			controller.getReport().writeJson(out);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package org.fog.test.perfeval;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
@@ -26,7 +28,9 @@ import org.fog.entities.Sensor;
 import org.fog.entities.Tuple;
 import org.fog.placement.Controller;
 import org.fog.placement.ModuleMapping;
+import org.fog.placement.ModulePlacement;
 import org.fog.placement.ModulePlacementMapping;
+import org.fog.placement.ParallelModulePlacement;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.FogLinearPowerModel;
@@ -96,8 +100,23 @@ public class TwoApps {
 			Controller controller = new Controller("master-controller", fogDevices, sensors, 
 					actuators);
 			
-			controller.submitApplication(application0, new ModulePlacementMapping(fogDevices, application0, moduleMapping_0));
-			controller.submitApplication(application1, 1000, new ModulePlacementMapping(fogDevices, application1, moduleMapping_1));
+			// the placements of the two applications are independent, compute them concurrently
+			List<ModulePlacement> placements = ParallelModulePlacement.create(Arrays.<Callable<ModulePlacement>>asList(
+					new Callable<ModulePlacement>() {
+						@Override
+						public ModulePlacement call() {
+							return new ModulePlacementMapping(fogDevices, application0, moduleMapping_0);
+						}
+					},
+					new Callable<ModulePlacement>() {
+						@Override
+						public ModulePlacement call() {
+							return new ModulePlacementMapping(fogDevices, application1, moduleMapping_1);
+						}
+					}));
+			
+			controller.submitApplication(application0, placements.get(0));
+			controller.submitApplication(application1, 1000, placements.get(1));
 
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
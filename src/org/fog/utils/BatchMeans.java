@@ -0,0 +1,121 @@
+package org.fog.utils;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * Confidence interval of the mean of a long, autocorrelated series of observations, such as the
+ * delays of the tuples completing a loop, by non-overlapping batch means. The observations are
+ * averaged in batches; when the number of batches reaches the maximum, adjacent batches are
+ * merged and the batch size doubles, so the memory stays bounded and the batches grow long
+ * enough to be nearly independent as the run goes on.
+ */
+public class BatchMeans {
+
+	public static final int DEFAULT_MAX_BATCHES = 64;
+	/** batches needed before an interval is given */
+	public static final int MIN_BATCHES = 10;
+
+	private double[] batchMeans;
+	private int batchCount;
+	private int batchSize = 1;
+
+	/** observations and their sum in the batch being filled */
+	private int partialCount;
+	private double partialSum;
+
+	private long count;
+
+	public BatchMeans() {
+		this(DEFAULT_MAX_BATCHES);
+	}
+
+	/**
+	 * @param maxBatches the number of batches at which pairs are merged, even
+	 */
+	public BatchMeans(int maxBatches) {
+		if(maxBatches < 2*MIN_BATCHES || maxBatches % 2 != 0)
+			throw new IllegalArgumentException("The maximum number of batches must be even and at least "+2*MIN_BATCHES);
+		batchMeans = new double[maxBatches];
+	}
+
+	public void add(double value) {
+		count++;
+		partialSum += value;
+		if(++partialCount < batchSize)
+			return;
+		batchMeans[batchCount++] = partialSum/batchSize;
+		partialSum = 0;
+		partialCount = 0;
+		if(batchCount == batchMeans.length){
+			for(int i = 0; i < batchCount/2; i++)
+				batchMeans[i] = (batchMeans[2*i] + batchMeans[2*i+1])/2;
+			batchCount /= 2;
+			batchSize *= 2;
+		}
+	}
+
+	/**
+	 * @return the mean of the complete batches, NaN if there is none
+	 */
+	public double getMean() {
+		if(batchCount == 0)
+			return Double.NaN;
+		double sum = 0;
+		for(int i = 0; i < batchCount; i++)
+			sum += batchMeans[i];
+		return sum/batchCount;
+	}
+
+	/**
+	 * @param confidenceLevel the probability that the interval holds the mean, as 0.95
+	 * @return the half-width of the Student t interval around {@link #getMean()}, NaN with fewer
+	 * than {@link #MIN_BATCHES} batches
+	 */
+	public double getHalfWidth(double confidenceLevel) {
+		if(batchCount < MIN_BATCHES)
+			return Double.NaN;
+		double mean = getMean();
+		double squares = 0;
+		for(int i = 0; i < batchCount; i++)
+			squares += (batchMeans[i] - mean)*(batchMeans[i] - mean);
+		double standardError = Math.sqrt(squares/(batchCount - 1)/batchCount);
+		double t = new TDistribution(null, batchCount - 1).inverseCumulativeProbability((1 + confidenceLevel)/2);
+		return t*standardError;
+	}
+
+	/**
+	 * @return the correlation between consecutive batch means, which should be close to 0 for the
+	 * interval to hold, NaN with fewer than {@link #MIN_BATCHES} batches
+	 */
+	public double getLag1Autocorrelation() {
+		if(batchCount < MIN_BATCHES)
+			return Double.NaN;
+		double mean = getMean();
+		double covariance = 0, variance = 0;
+		for(int i = 0; i < batchCount; i++){
+			variance += (batchMeans[i] - mean)*(batchMeans[i] - mean);
+			if(i > 0)
+				covariance += (batchMeans[i] - mean)*(batchMeans[i-1] - mean);
+		}
+		return variance == 0 ? 0 : covariance/variance;
+	}
+
+	/**
+	 * @return the number of complete batches
+	 */
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the number of observations, including those of the batch being filled
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
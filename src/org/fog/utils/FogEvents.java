@@ -28,4 +28,10 @@ public class FogEvents {
 	public static final int RESOURCE_MGMT = BASE+24;
 	public static final int INITIALIZE_SENSOR = BASE+24;
 	public static final int EMIT_TUPLE = BASE+25;
+	public static final int START_MODULE_INSTANCE = BASE+26;
+	public static final int STOP_MODULE_INSTANCE = BASE+27;
+	public static final int ADD_MODULE_INSTANCE = BASE+28;
+	public static final int REMOVE_MODULE_INSTANCE = BASE+29;
+	public static final int UPDATE_NORTH_TRANSMISSIONS = BASE+30;
+	public static final int UPDATE_SOUTH_TRANSMISSIONS = BASE+31;
 }
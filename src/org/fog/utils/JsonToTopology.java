@@ -1,14 +1,22 @@
 package org.fog.utils;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.math.BigDecimal;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.power.PowerHost;
@@ -27,127 +35,85 @@ import org.fog.utils.distribution.DeterministicDistribution;
 import org.fog.utils.distribution.Distribution;
 import org.fog.utils.distribution.NormalDistribution;
 import org.fog.utils.distribution.UniformDistribution;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 
+/**
+ * Reads a physical topology from its JSON file as a stream, so that large topologies only take the
+ * memory of the entities they create. A first pass over the file creates the fog devices, sensors
+ * and actuators in the order of their nodes; a second one resolves the links through an index of
+ * the entities by name.
+ */
 public class JsonToTopology {
 
+	/** Number of nodes or links between two reports of progress */
+	public static final int PROGRESS_INTERVAL = 100000;
+
+	private static final int NODES_PASS = 1;
+	private static final int LINKS_PASS = 2;
+
 	private static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
 	private static List<Sensor> sensors = new ArrayList<Sensor>();
 	private static List<Actuator> actuators = new ArrayList<Actuator>();
- 
+
+	/** Entities by name in lower case, as names match ignoring case */
+	private static Map<String, FogDevice> fogDevicesByName = new HashMap<String, FogDevice>();
+	private static Map<String, Sensor> sensorsByName = new HashMap<String, Sensor>();
+	private static Map<String, Actuator> actuatorsByName = new HashMap<String, Actuator>();
+
 	private static boolean isFogDevice(String name){
-		for(FogDevice fogDevice : fogDevices){
-			if(fogDevice.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
-		
+		return fogDevicesByName.containsKey(name.toLowerCase());
 	}
 	
 	private static FogDevice getFogDevice(String name){
-		for(FogDevice fogDevice : fogDevices){
-			if(fogDevice.getName().equalsIgnoreCase(name))
-				return fogDevice;
-		}
-		return null;
+		return fogDevicesByName.get(name.toLowerCase());
 	}
 	
 	private static boolean isActuator(String name){
-		for(Actuator actuator : actuators){
-			if(actuator.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
+		return actuatorsByName.containsKey(name.toLowerCase());
 	}
 	
 	private static Actuator getActuator(String name){
-		for(Actuator actuator : actuators){
-			if(actuator.getName().equalsIgnoreCase(name))
-				return actuator;
-		}
-		return null;
+		return actuatorsByName.get(name.toLowerCase());
 	}
 	
 	private static boolean isSensor(String name){
-		for(Sensor sensor : sensors){
-			if(sensor.getName().equalsIgnoreCase(name))
-				return true;
-		}
-		return false;
+		return sensorsByName.containsKey(name.toLowerCase());
 	}
 	
 	private static Sensor getSensor(String name){
-		for(Sensor sensor : sensors){
-			if(sensor.getName().equalsIgnoreCase(name))
-				return sensor;
-		}
-		return null;
+		return sensorsByName.get(name.toLowerCase());
 	}
 	
 	public static PhysicalTopology getPhysicalTopology(int userId, String appId, String physicalTopologyFile) throws Exception{
+		return getPhysicalTopology(userId, appId, physicalTopologyFile, null);
+	}
+
+	/**
+	 * @param listener receives the progress of both passes over the file, may be null
+	 */
+	public static PhysicalTopology getPhysicalTopology(final int userId, final String appId, String physicalTopologyFile, 
+			TopologyLoadListener listener) throws Exception{
 				
 		fogDevices = new ArrayList<FogDevice>();
 		sensors = new ArrayList<Sensor>();
 		actuators = new ArrayList<Actuator>();
-		
+		fogDevicesByName = new HashMap<String, FogDevice>();
+		sensorsByName = new HashMap<String, Sensor>();
+		actuatorsByName = new HashMap<String, Actuator>();
 		
 		try {
-			JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(physicalTopologyFile));
-    		JSONArray nodes = (JSONArray) doc.get("nodes");
-    		@SuppressWarnings("unchecked")
-			Iterator<JSONObject> iter =nodes.iterator(); 
-			while(iter.hasNext()){
-				JSONObject node = iter.next();
-				String nodeType = (String) node.get("type");
-				String nodeName = (String) node.get("name");
-				
-				if(nodeType.equalsIgnoreCase("FOG_DEVICE")){
-					long mips = (Long) node.get("mips");
-					int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
-					long upBw = new BigDecimal((Long)node.get("upBw")).intValueExact();
-					long downBw = new BigDecimal((Long)node.get("downBw")).intValueExact();
-					int level = new BigDecimal((Long)node.get("level")).intValue();
-					double ratePerMips = new BigDecimal((Double)node.get("ratePerMips")).doubleValue();
-					
-					FogDevice fogDevice = createFogDevice(nodeName, mips, ram, upBw, downBw, level, ratePerMips);
-					fogDevice.setParentId(-1);
-					
-					fogDevices.add(fogDevice);
-
-				} else if(nodeType.equals("SENSOR")){
-					String sensorType = node.get("sensorType").toString();
-					int distType = new BigDecimal((Long)node.get("distribution")).intValue();
-					Distribution distribution = null;
-					if(distType == Distribution.DETERMINISTIC)
-						distribution = new DeterministicDistribution(new BigDecimal((Double)node.get("value")).doubleValue());
-					else if(distType == Distribution.NORMAL){
-						distribution = new NormalDistribution(new BigDecimal((Double)node.get("mean")).doubleValue(), 
-								new BigDecimal((Double)node.get("stdDev")).doubleValue());
-					} else if(distType == Distribution.UNIFORM){
-						distribution = new UniformDistribution(new BigDecimal((Double)node.get("min")).doubleValue(), 
-								new BigDecimal((Double)node.get("max")).doubleValue());
-					}
-					System.out.println("Sensor type : "+sensorType);
-					sensors.add(new Sensor(nodeName, sensorType, userId, appId, distribution));
-				} else if(nodeType.equals("ACTUATOR")){
-					String actuatorType = node.get("actuatorType").toString();
-					actuators.add(new Actuator(nodeName, userId, appId, actuatorType));
+			readTopology(physicalTopologyFile, new TopologyVisitor() {
+				@Override
+				public void visitNode(Map<String, Object> node) {
+					createNode(node, userId, appId);
 				}
-			}
-				
-			JSONArray links = (JSONArray) doc.get("links");
-			@SuppressWarnings("unchecked")
-			Iterator<JSONObject> linksIter =links.iterator(); 
-			while(linksIter.hasNext()){
-				JSONObject link = linksIter.next();
-				String src = (String) link.get("source");  
-				String dst = (String) link.get("destination");
-				double lat = (Double) link.get("latency");
-				
-				connectEntities(src, dst, lat);
-			}
+				@Override
+				public void visitLink(Map<String, Object> link) {
+					createLink(link);
+				}
+			}, listener);
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		}
@@ -155,9 +121,127 @@ public class JsonToTopology {
 		physicalTopology.setFogDevices(fogDevices);
 		physicalTopology.setActuators(actuators);
 		physicalTopology.setSensors(sensors);
+		// the names are only needed to resolve the links
+		fogDevicesByName = new HashMap<String, FogDevice>();
+		sensorsByName = new HashMap<String, Sensor>();
+		actuatorsByName = new HashMap<String, Actuator>();
 		return physicalTopology;
 	}
-	private static FogDevice createFogDevice(String nodeName, long mips,
+
+	/**
+	 * Reads the nodes of a topology file in a first pass, then its links in a second one.
+	 */
+	static void readTopology(String physicalTopologyFile, TopologyVisitor visitor, TopologyLoadListener listener) 
+			throws IOException, ParseException{
+		parse(new TopologyHandler(NODES_PASS, visitor), physicalTopologyFile, listener);
+		parse(new TopologyHandler(LINKS_PASS, visitor), physicalTopologyFile, listener);
+	}
+
+	private static void parse(TopologyHandler handler, String physicalTopologyFile, TopologyLoadListener listener) 
+			throws IOException, ParseException{
+		File file = new File(physicalTopologyFile);
+		CountingInputStream input = new CountingInputStream(new FileInputStream(file));
+		handler.setProgress(input, file.length(), listener);
+		Reader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+		try {
+			new JSONParser().parse(reader, handler);
+		} finally {
+			reader.close();
+		}
+		handler.reportProgress();
+	}
+
+	private static void createNode(Map<String, Object> node, int userId, String appId){
+		String nodeType = (String) node.get("type");
+		String nodeName = (String) node.get("name");
+		
+		if(nodeType.equalsIgnoreCase("FOG_DEVICE")){
+			long mips = getLong(node, "mips");
+			int ram = getInt(node, "ram");
+			long upBw = getInt(node, "upBw");
+			long downBw = getInt(node, "downBw");
+			int level = (int) getLong(node, "level");
+			double ratePerMips = getDouble(node, "ratePerMips");
+			
+			FogDevice fogDevice = createFogDevice(nodeName, mips, ram, upBw, downBw, level, ratePerMips);
+			fogDevice.setParentId(-1);
+			
+			fogDevices.add(fogDevice);
+			putIfAbsent(fogDevicesByName, nodeName, fogDevice);
+
+		} else if(nodeType.equals("SENSOR")){
+			String sensorType = node.get("sensorType").toString();
+			int distType = (int) getLong(node, "distribution");
+			double[] parameters = getDistributionParameters(node, distType);
+			Log.printLine("Sensor type : "+sensorType);
+			Sensor sensor = new Sensor(nodeName, sensorType, userId, appId, 
+					createDistribution(distType, parameters[0], parameters[1]));
+			sensors.add(sensor);
+			putIfAbsent(sensorsByName, nodeName, sensor);
+		} else if(nodeType.equals("ACTUATOR")){
+			String actuatorType = node.get("actuatorType").toString();
+			Actuator actuator = new Actuator(nodeName, userId, appId, actuatorType);
+			actuators.add(actuator);
+			putIfAbsent(actuatorsByName, nodeName, actuator);
+		}
+	}
+
+	private static void createLink(Map<String, Object> link){
+		String src = (String) link.get("source");  
+		String dst = (String) link.get("destination");
+		double lat = getDouble(link, "latency");
+		
+		connectEntities(src, dst, lat);
+	}
+
+	/**
+	 * @return the two parameters of the distribution of a sensor node, 0 for those it does not have
+	 */
+	static double[] getDistributionParameters(Map<String, Object> node, int distType){
+		if(distType == Distribution.DETERMINISTIC)
+			return new double[]{getDouble(node, "value"), 0};
+		else if(distType == Distribution.NORMAL)
+			return new double[]{getDouble(node, "mean"), getDouble(node, "stdDev")};
+		else if(distType == Distribution.UNIFORM)
+			return new double[]{getDouble(node, "min"), getDouble(node, "max")};
+		return new double[2];
+	}
+
+	static Distribution createDistribution(int distType, double parameter, double otherParameter){
+		if(distType == Distribution.DETERMINISTIC)
+			return new DeterministicDistribution(parameter);
+		else if(distType == Distribution.NORMAL)
+			return new NormalDistribution(parameter, otherParameter);
+		else if(distType == Distribution.UNIFORM)
+			return new UniformDistribution(parameter, otherParameter);
+		return null;
+	}
+
+	/**
+	 * Keeps the first entity of a name, which the links then refer to
+	 */
+	private static <T> void putIfAbsent(Map<String, T> entities, String name, T entity){
+		String key = name.toLowerCase();
+		if(!entities.containsKey(key))
+			entities.put(key, entity);
+	}
+
+	static long getLong(Map<String, Object> object, String key){
+		return ((Number) object.get(key)).longValue();
+	}
+
+	static int getInt(Map<String, Object> object, String key){
+		long value = getLong(object, key);
+		if(value != (int) value)
+			throw new ArithmeticException(key+" out of the int range : "+value);
+		return (int) value;
+	}
+
+	static double getDouble(Map<String, Object> object, String key){
+		return ((Number) object.get(key)).doubleValue();
+	}
+
+	static FogDevice createFogDevice(String nodeName, long mips,
 			int ram, long upBw, long downBw, int level, double ratePerMips) {
 		
 		List<Pe> peList = new ArrayList<Pe>();
@@ -211,34 +295,206 @@ public class JsonToTopology {
 	}
 
 	private static void connectEntities(String src, String dst, double lat) {
-		if(isFogDevice(src) && isFogDevice(dst)){
-			FogDevice srcDev = getFogDevice(src);
-			FogDevice destDev = getFogDevice(dst);
+		connectEntities(getEntity(src), getEntity(dst), lat);
+	}
+
+	/**
+	 * @return the fog device, else the sensor, else the actuator of the name, null if none
+	 */
+	private static Object getEntity(String name){
+		if(isFogDevice(name))
+			return getFogDevice(name);
+		else if(isSensor(name))
+			return getSensor(name);
+		else if(isActuator(name))
+			return getActuator(name);
+		return null;
+	}
+
+	/**
+	 * Links a fog device to its parent, or a sensor or actuator to its gateway device
+	 */
+	static void connectEntities(Object src, Object dst, double lat) {
+		if(src instanceof FogDevice && dst instanceof FogDevice){
+			FogDevice srcDev = (FogDevice) src;
+			FogDevice destDev = (FogDevice) dst;
 			FogDevice southernDev = (srcDev.getLevel() > destDev.getLevel())?srcDev:destDev;
 			FogDevice northernDev = (srcDev.getLevel() > destDev.getLevel())?destDev:srcDev;
 			southernDev.setUplinkLatency(lat);
 			southernDev.setParentId(northernDev.getId());
-		} else if(isFogDevice(src) && isSensor(dst)){
-			FogDevice srcDev = getFogDevice(src);
-			Sensor sensor = getSensor(dst);
-			sensor.setLatency(lat);
-			sensor.setGatewayDeviceId(srcDev.getId());
-		} else if(isSensor(src) && isFogDevice(dst)){
-			FogDevice fogDevice = getFogDevice(dst);
-			Sensor sensor = getSensor(src);
-			sensor.setLatency(lat);
-			sensor.setGatewayDeviceId(fogDevice.getId());
-		} else if(isFogDevice(src) && isActuator(dst)){
-			FogDevice fogDevice = getFogDevice(src);
-			Actuator actuator = getActuator(dst);
-			actuator.setLatency(lat);
-			actuator.setGatewayDeviceId(fogDevice.getId());
-		} else if(isActuator(src) && isFogDevice(dst)){
-			FogDevice fogDevice = getFogDevice(dst);
-			Actuator actuator = getActuator(src);
-			actuator.setLatency(lat);
-			actuator.setGatewayDeviceId(fogDevice.getId());
+		} else if(src instanceof FogDevice && dst instanceof Sensor){
+			connectSensor((Sensor) dst, (FogDevice) src, lat);
+		} else if(src instanceof Sensor && dst instanceof FogDevice){
+			connectSensor((Sensor) src, (FogDevice) dst, lat);
+		} else if(src instanceof FogDevice && dst instanceof Actuator){
+			connectActuator((Actuator) dst, (FogDevice) src, lat);
+		} else if(src instanceof Actuator && dst instanceof FogDevice){
+			connectActuator((Actuator) src, (FogDevice) dst, lat);
 		}
-		
-	}	
+	}
+
+	private static void connectSensor(Sensor sensor, FogDevice fogDevice, double lat) {
+		sensor.setLatency(lat);
+		sensor.setGatewayDeviceId(fogDevice.getId());
+	}
+
+	private static void connectActuator(Actuator actuator, FogDevice fogDevice, double lat) {
+		actuator.setLatency(lat);
+		actuator.setGatewayDeviceId(fogDevice.getId());
+	}
+
+	/**
+	 * Receives the fields of each node in the first pass over a topology file, and of each link
+	 * in the second one
+	 */
+	interface TopologyVisitor {
+
+		public void visitNode(Map<String, Object> node);
+
+		public void visitLink(Map<String, Object> link);
+	}
+
+	/**
+	 * Collects the fields of the nodes, or of the links, one object at a time as the parser
+	 * reads them, and creates the entity of each. The parse stops once the section of the pass
+	 * is over.
+	 */
+	private static class TopologyHandler implements ContentHandler {
+
+		private int pass;
+		private TopologyVisitor visitor;
+		/** Nesting of the current value: 1 in the document, 2 in a section, 3 in an entity */
+		private int depth;
+		private String section;
+		private String key;
+		private Map<String, Object> fields = new HashMap<String, Object>();
+		private long entities;
+		private CountingInputStream input;
+		private long totalBytes;
+		private TopologyLoadListener listener;
+
+		public TopologyHandler(int pass, TopologyVisitor visitor) {
+			this.pass = pass;
+			this.visitor = visitor;
+		}
+
+		public void setProgress(CountingInputStream input, long totalBytes, TopologyLoadListener listener) {
+			this.input = input;
+			this.totalBytes = totalBytes;
+			this.listener = listener;
+		}
+
+		public void reportProgress() {
+			if(listener != null)
+				listener.onProgress(pass, entities, input.getCount(), totalBytes);
+		}
+
+		private String getPassSection() {
+			return pass == NODES_PASS ? "nodes" : "links";
+		}
+
+		@Override
+		public void startJSON() {
+		}
+
+		@Override
+		public void endJSON() {
+		}
+
+		@Override
+		public boolean startObject() {
+			depth++;
+			if(depth == 3)
+				fields.clear();
+			return true;
+		}
+
+		@Override
+		public boolean endObject() {
+			if(depth == 3 && getPassSection().equals(section)){
+				if(pass == NODES_PASS)
+					visitor.visitNode(fields);
+				else
+					visitor.visitLink(fields);
+				entities++;
+				if(entities % PROGRESS_INTERVAL == 0)
+					reportProgress();
+			}
+			depth--;
+			return true;
+		}
+
+		@Override
+		public boolean startObjectEntry(String key) {
+			if(depth == 1)
+				section = key;
+			else if(depth == 3)
+				this.key = key;
+			return true;
+		}
+
+		@Override
+		public boolean endObjectEntry() {
+			// nothing else of the document is needed once the section of the pass is read
+			return !(depth == 1 && getPassSection().equals(section));
+		}
+
+		@Override
+		public boolean startArray() {
+			depth++;
+			return true;
+		}
+
+		@Override
+		public boolean endArray() {
+			depth--;
+			return true;
+		}
+
+		@Override
+		public boolean primitive(Object value) {
+			if(depth == 3)
+				fields.put(key, value);
+			return true;
+		}
+	}
+
+	/**
+	 * Counts the bytes read from a stream, to report the progress through the file
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if(b != -1)
+				count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if(read > 0)
+				count += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
 }
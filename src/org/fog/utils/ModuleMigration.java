@@ -0,0 +1,90 @@
+package org.fog.utils;
+
+import org.fog.application.AppModule;
+
+/**
+ * A move of a running application module from one fog device to another. It is the data of the
+ * RELEASE_OPERATOR event sent to the source device, which keeps it to re-route the tuples that
+ * still arrive for the module.
+ */
+public class ModuleMigration {
+
+	private AppModule module;
+	private int sourceId;
+	private int destinationId;
+	/** Whether the destination is an ancestor of the source, reached by the regular upward routing */
+	private boolean northwards;
+	private double startTime;
+	private double completionTime;
+	/** Link latencies between the two devices */
+	private double latency;
+	/** Transmission time of one unit of tuple size between the two devices */
+	private double transmissionTime;
+
+	public ModuleMigration(AppModule module, int sourceId, int destinationId, boolean northwards){
+		setModule(module);
+		setSourceId(sourceId);
+		setDestinationId(destinationId);
+		setNorthwards(northwards);
+	}
+
+	/**
+	 * @param tupleNwLength the size of a tuple
+	 * @return the time the tuple takes from the source to the destination
+	 */
+	public double getDelay(double tupleNwLength){
+		return getLatency() + tupleNwLength*getTransmissionTime();
+	}
+
+	public AppModule getModule() {
+		return module;
+	}
+	public void setModule(AppModule module) {
+		this.module = module;
+	}
+	public int getSourceId() {
+		return sourceId;
+	}
+	public void setSourceId(int sourceId) {
+		this.sourceId = sourceId;
+	}
+	public int getDestinationId() {
+		return destinationId;
+	}
+	public void setDestinationId(int destinationId) {
+		this.destinationId = destinationId;
+	}
+	public boolean isNorthwards() {
+		return northwards;
+	}
+	public void setNorthwards(boolean northwards) {
+		this.northwards = northwards;
+	}
+	public double getStartTime() {
+		return startTime;
+	}
+	public void setStartTime(double startTime) {
+		this.startTime = startTime;
+	}
+	/**
+	 * @return the time at which the module runs on the destination
+	 */
+	public double getCompletionTime() {
+		return completionTime;
+	}
+	public void setCompletionTime(double completionTime) {
+		this.completionTime = completionTime;
+	}
+	public double getLatency() {
+		return latency;
+	}
+	public void setLatency(double latency) {
+		this.latency = latency;
+	}
+	public double getTransmissionTime() {
+		return transmissionTime;
+	}
+	public void setTransmissionTime(double transmissionTime) {
+		this.transmissionTime = transmissionTime;
+	}
+}
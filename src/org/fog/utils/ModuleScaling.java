@@ -0,0 +1,105 @@
+package org.fog.utils;
+
+import org.fog.application.AppModule;
+
+/**
+ * The start or stop of an extra instance of an application module that takes part of the tuples
+ * a fog device receives for the module. The instance runs on the device itself or on a sibling of
+ * it, to which the device sends the tuples directly.
+ */
+public class ModuleScaling {
+
+	/** The module the device hosts, of which the instance is a copy */
+	private AppModule module;
+	private AppModule instance;
+	/** The device that balances its tuples over the instances */
+	private int deviceId;
+	/** The device that runs the instance */
+	private int hostId;
+	/** Whether the instance starts, rather than stops */
+	private boolean scaleOut;
+	private double startTime;
+	private double readyTime;
+	/** Link latencies between the device and the host */
+	private double latency;
+	/** Transmission time of one unit of tuple size between the device and the host */
+	private double transmissionTime;
+
+	public ModuleScaling(AppModule module, AppModule instance, int deviceId, int hostId, boolean scaleOut){
+		setModule(module);
+		setInstance(instance);
+		setDeviceId(deviceId);
+		setHostId(hostId);
+		setScaleOut(scaleOut);
+	}
+
+	/**
+	 * @param tupleNwLength the size of a tuple
+	 * @return the time the tuple takes from the device to the host
+	 */
+	public double getDelay(double tupleNwLength){
+		return getLatency() + tupleNwLength*getTransmissionTime();
+	}
+
+	public boolean isRemote(){
+		return getDeviceId() != getHostId();
+	}
+
+	public AppModule getModule() {
+		return module;
+	}
+	public void setModule(AppModule module) {
+		this.module = module;
+	}
+	public AppModule getInstance() {
+		return instance;
+	}
+	public void setInstance(AppModule instance) {
+		this.instance = instance;
+	}
+	public int getDeviceId() {
+		return deviceId;
+	}
+	public void setDeviceId(int deviceId) {
+		this.deviceId = deviceId;
+	}
+	public int getHostId() {
+		return hostId;
+	}
+	public void setHostId(int hostId) {
+		this.hostId = hostId;
+	}
+	public boolean isScaleOut() {
+		return scaleOut;
+	}
+	public void setScaleOut(boolean scaleOut) {
+		this.scaleOut = scaleOut;
+	}
+	public double getStartTime() {
+		return startTime;
+	}
+	public void setStartTime(double startTime) {
+		this.startTime = startTime;
+	}
+	/**
+	 * @return the time at which the instance takes tuples, or stops taking them
+	 */
+	public double getReadyTime() {
+		return readyTime;
+	}
+	public void setReadyTime(double readyTime) {
+		this.readyTime = readyTime;
+	}
+	public double getLatency() {
+		return latency;
+	}
+	public void setLatency(double latency) {
+		this.latency = latency;
+	}
+	public double getTransmissionTime() {
+		return transmissionTime;
+	}
+	public void setTransmissionTime(double transmissionTime) {
+		this.transmissionTime = transmissionTime;
+	}
+}
@@ -11,4 +11,8 @@ public class NetworkUsageMonitor {
 	public static double getNetworkUsage(){
 		return networkUsage;
 	}
+	
+	public static void reset(){
+		networkUsage = 0.0;
+	}
 }
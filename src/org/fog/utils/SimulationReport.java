@@ -0,0 +1,744 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONValue;
+
+/**
+ * Immutable results of one simulation run: application loop latencies, tuple CPU execution
+ * times, energy and cost per fog device, network usage and execution time. It is created by the
+ * Controller when the simulation stops and can be written as JSON or CSV.
+ * The console tables are rendered by {@link SimulationReportPrinter}.
+ */
+public final class SimulationReport {
+
+	/**
+	 * Latency statistics of one application loop.
+	 */
+	public static final class LoopLatency {
+		private final int loopId;
+		private final List<String> modules;
+		private final double averageLatency;
+		private final int count;
+		private final int deadlineTuples;
+		private final int deadlineMisses;
+		private final double batchMean;
+		private final double halfWidth;
+		private final double confidenceLevel;
+		private final int batches;
+
+		public LoopLatency(int loopId, List<String> modules, double averageLatency, int count) {
+			this(loopId, modules, averageLatency, count, 0, 0);
+		}
+
+		public LoopLatency(int loopId, List<String> modules, double averageLatency, int count, int deadlineTuples,
+				int deadlineMisses) {
+			this(loopId, modules, averageLatency, count, deadlineTuples, deadlineMisses, Double.NaN, Double.NaN, 0, 0);
+		}
+
+		public LoopLatency(int loopId, List<String> modules, double averageLatency, int count, int deadlineTuples,
+				int deadlineMisses, double batchMean, double halfWidth, double confidenceLevel, int batches) {
+			this.loopId = loopId;
+			this.modules = Collections.unmodifiableList(new ArrayList<String>(modules));
+			this.averageLatency = averageLatency;
+			this.count = count;
+			this.deadlineTuples = deadlineTuples;
+			this.deadlineMisses = deadlineMisses;
+			this.batchMean = batchMean;
+			this.halfWidth = halfWidth;
+			this.confidenceLevel = confidenceLevel;
+			this.batches = batches;
+		}
+
+		public int getLoopId() {
+			return loopId;
+		}
+
+		public List<String> getModules() {
+			return modules;
+		}
+
+		/**
+		 * @return the average end-to-end delay of the loop, NaN if no tuple completed it
+		 */
+		public double getAverageLatency() {
+			return averageLatency;
+		}
+
+		/**
+		 * @return the number of tuples that completed the loop
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the number of tuples that completed the loop, if it has a deadline
+		 */
+		public int getDeadlineTuples() {
+			return deadlineTuples;
+		}
+
+		/**
+		 * @return the number of those tuples that completed it after its deadline
+		 */
+		public int getDeadlineMisses() {
+			return deadlineMisses;
+		}
+
+		/**
+		 * @return the mean delay of the batches after the warm-up, the center of the confidence
+		 * interval, NaN if no batch completed
+		 */
+		public double getBatchMean() {
+			return batchMean;
+		}
+
+		/**
+		 * @return the half-width of the batch means confidence interval of the delay, NaN if there
+		 * were too few batches
+		 */
+		public double getHalfWidth() {
+			return halfWidth;
+		}
+
+		public double getConfidenceLevel() {
+			return confidenceLevel;
+		}
+
+		/**
+		 * @return the number of batches behind the confidence interval
+		 */
+		public int getBatches() {
+			return batches;
+		}
+	}
+
+	/**
+	 * CPU execution time of one tuple type.
+	 */
+	public static final class TupleCpuTime {
+		private final String tupleType;
+		private final double averageCpuTime;
+		private final int count;
+
+		public TupleCpuTime(String tupleType, double averageCpuTime, int count) {
+			this.tupleType = tupleType;
+			this.averageCpuTime = averageCpuTime;
+			this.count = count;
+		}
+
+		public String getTupleType() {
+			return tupleType;
+		}
+
+		public double getAverageCpuTime() {
+			return averageCpuTime;
+		}
+
+		public int getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * Energy consumption and cost of one fog device.
+	 */
+	public static final class DeviceUsage {
+		private final int id;
+		private final String name;
+		private final int level;
+		private final double energy;
+		private final double cost;
+
+		public DeviceUsage(int id, String name, int level, double energy, double cost) {
+			this.id = id;
+			this.name = name;
+			this.level = level;
+			this.energy = energy;
+			this.cost = cost;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getLevel() {
+			return level;
+		}
+
+		/**
+		 * @return the energy consumed, in Joules
+		 */
+		public double getEnergy() {
+			return energy;
+		}
+
+		public double getCost() {
+			return cost;
+		}
+	}
+
+	/**
+	 * A module moved between fog devices while the simulation ran.
+	 */
+	public static final class Migration {
+		private final double time;
+		private final String module;
+		private final String source;
+		private final String destination;
+		private final double completionTime;
+
+		public Migration(double time, String module, String source, String destination, double completionTime) {
+			this.time = time;
+			this.module = module;
+			this.source = source;
+			this.destination = destination;
+			this.completionTime = completionTime;
+		}
+
+		public double getTime() {
+			return time;
+		}
+
+		public String getModule() {
+			return module;
+		}
+
+		public String getSource() {
+			return source;
+		}
+
+		public String getDestination() {
+			return destination;
+		}
+
+		/**
+		 * @return the time at which the module runs on the destination
+		 */
+		public double getCompletionTime() {
+			return completionTime;
+		}
+	}
+
+	/**
+	 * Latency of one application loop over the tuples that completed it during an interval.
+	 */
+	public static final class LoopLatencySample {
+		private final double time;
+		private final int loopId;
+		private final double averageLatency;
+		private final int count;
+
+		public LoopLatencySample(double time, int loopId, double averageLatency, int count) {
+			this.time = time;
+			this.loopId = loopId;
+			this.averageLatency = averageLatency;
+			this.count = count;
+		}
+
+		/**
+		 * @return the end of the interval
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		public int getLoopId() {
+			return loopId;
+		}
+
+		/**
+		 * @return the average end-to-end delay of the loop, NaN if no tuple completed it
+		 */
+		public double getAverageLatency() {
+			return averageLatency;
+		}
+
+		public int getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * An instance of a module started or stopped while the simulation ran.
+	 */
+	public static final class Scaling {
+		private final double time;
+		private final String module;
+		private final String device;
+		private final String host;
+		private final boolean scaleOut;
+		private final int instances;
+		private final double readyTime;
+
+		public Scaling(double time, String module, String device, String host, boolean scaleOut, int instances,
+				double readyTime) {
+			this.time = time;
+			this.module = module;
+			this.device = device;
+			this.host = host;
+			this.scaleOut = scaleOut;
+			this.instances = instances;
+			this.readyTime = readyTime;
+		}
+
+		public double getTime() {
+			return time;
+		}
+
+		public String getModule() {
+			return module;
+		}
+
+		/**
+		 * @return the device that balances its tuples over the instances of the module
+		 */
+		public String getDevice() {
+			return device;
+		}
+
+		/**
+		 * @return the device that runs the instance
+		 */
+		public String getHost() {
+			return host;
+		}
+
+		/**
+		 * @return whether the instance started, rather than stopped
+		 */
+		public boolean isScaleOut() {
+			return scaleOut;
+		}
+
+		/**
+		 * @return the number of instances of the module on the device afterwards
+		 */
+		public int getInstances() {
+			return instances;
+		}
+
+		/**
+		 * @return the time at which the instance takes tuples, or stops taking them
+		 */
+		public double getReadyTime() {
+			return readyTime;
+		}
+	}
+
+	/**
+	 * Tuples of one type lost to full link queues or held back by back-pressure.
+	 */
+	public static final class TupleDrops {
+		private final String tupleType;
+		private final int dropped;
+		private final int throttled;
+
+		public TupleDrops(String tupleType, int dropped, int throttled) {
+			this.tupleType = tupleType;
+			this.dropped = dropped;
+			this.throttled = throttled;
+		}
+
+		public String getTupleType() {
+			return tupleType;
+		}
+
+		/**
+		 * @return the number of tuples dropped from the full link queues of the fog devices
+		 */
+		public int getDropped() {
+			return dropped;
+		}
+
+		/**
+		 * @return the number of emissions the sensors skipped because of back-pressure
+		 */
+		public int getThrottled() {
+			return throttled;
+		}
+	}
+
+	private final long setupTimeMillis;
+	private final long executionTimeMillis;
+	private final double simulationTime;
+	private final List<LoopLatency> loopLatencies;
+	private final List<TupleCpuTime> tupleCpuTimes;
+	private final List<DeviceUsage> devices;
+	private final double networkUsage;
+	private List<Migration> migrations = Collections.emptyList();
+	private List<LoopLatencySample> loopLatencyTimeline = Collections.emptyList();
+	private List<Scaling> scalings = Collections.emptyList();
+	private List<TupleDrops> tupleDrops = Collections.emptyList();
+
+	/**
+	 * Creates a report of the totals of a run. The sections of the optional features (migrations,
+	 * scalings, tuple drops) are empty until set.
+	 */
+	public SimulationReport(long setupTimeMillis, long executionTimeMillis, double simulationTime,
+			List<LoopLatency> loopLatencies, List<TupleCpuTime> tupleCpuTimes, List<DeviceUsage> devices,
+			double networkUsage) {
+		this.setupTimeMillis = setupTimeMillis;
+		this.executionTimeMillis = executionTimeMillis;
+		this.simulationTime = simulationTime;
+		this.loopLatencies = Collections.unmodifiableList(new ArrayList<LoopLatency>(loopLatencies));
+		this.tupleCpuTimes = Collections.unmodifiableList(new ArrayList<TupleCpuTime>(tupleCpuTimes));
+		this.devices = Collections.unmodifiableList(new ArrayList<DeviceUsage>(devices));
+		this.networkUsage = networkUsage;
+	}
+
+	/**
+	 * @return the wall-clock time spent building the simulation before it started in milliseconds,
+	 * -1 if unknown
+	 */
+	public long getSetupTimeMillis() {
+		return setupTimeMillis;
+	}
+
+	/**
+	 * @return the wall-clock time of the run in milliseconds
+	 */
+	public long getExecutionTimeMillis() {
+		return executionTimeMillis;
+	}
+
+	/**
+	 * @return the simulated time of the run
+	 */
+	public double getSimulationTime() {
+		return simulationTime;
+	}
+
+	public List<LoopLatency> getLoopLatencies() {
+		return loopLatencies;
+	}
+
+	public List<TupleCpuTime> getTupleCpuTimes() {
+		return tupleCpuTimes;
+	}
+
+	public List<DeviceUsage> getDevices() {
+		return devices;
+	}
+
+	/**
+	 * @return the modules moved at runtime, empty without a migration policy
+	 */
+	public List<Migration> getMigrations() {
+		return migrations;
+	}
+
+	public void setMigrations(List<Migration> migrations) {
+		this.migrations = Collections.unmodifiableList(new ArrayList<Migration>(migrations));
+	}
+
+	/**
+	 * @return the loop latencies of every resource management interval, empty without a
+	 * migration policy
+	 */
+	public List<LoopLatencySample> getLoopLatencyTimeline() {
+		return loopLatencyTimeline;
+	}
+
+	public void setLoopLatencyTimeline(List<LoopLatencySample> loopLatencyTimeline) {
+		this.loopLatencyTimeline = Collections.unmodifiableList(new ArrayList<LoopLatencySample>(loopLatencyTimeline));
+	}
+
+	/**
+	 * @return the instances of modules started and stopped at runtime, empty without a scaling
+	 * policy
+	 */
+	public List<Scaling> getScalings() {
+		return scalings;
+	}
+
+	public void setScalings(List<Scaling> scalings) {
+		this.scalings = Collections.unmodifiableList(new ArrayList<Scaling>(scalings));
+	}
+
+	/**
+	 * @return the tuple types of which tuples were dropped or throttled, empty with unbounded link
+	 * queues
+	 */
+	public List<TupleDrops> getTupleDrops() {
+		return tupleDrops;
+	}
+
+	public void setTupleDrops(List<TupleDrops> tupleDrops) {
+		this.tupleDrops = Collections.unmodifiableList(new ArrayList<TupleDrops>(tupleDrops));
+	}
+
+	public LoopLatency getLoopLatency(int loopId) {
+		for (LoopLatency loop : loopLatencies) {
+			if (loop.getLoopId() == loopId)
+				return loop;
+		}
+		return null;
+	}
+
+	public DeviceUsage getDevice(String name) {
+		for (DeviceUsage device : devices) {
+			if (device.getName().equals(name))
+				return device;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the sum of the average CPU times of all tuple types
+	 */
+	public double getTotalTupleCpuTime() {
+		double total = 0;
+		for (TupleCpuTime tuple : tupleCpuTimes)
+			total += tuple.getAverageCpuTime();
+		return total;
+	}
+
+	public double getTotalEnergy() {
+		double total = 0;
+		for (DeviceUsage device : devices)
+			total += device.getEnergy();
+		return total;
+	}
+
+	public double getTotalCost() {
+		double total = 0;
+		for (DeviceUsage device : devices)
+			total += device.getCost();
+		return total;
+	}
+
+	/**
+	 * @return the cost of the device named "cloud", 0 if there is no such device
+	 */
+	public double getCloudCost() {
+		DeviceUsage cloud = getDevice("cloud");
+		return cloud == null ? 0 : cloud.getCost();
+	}
+
+	/**
+	 * @return the total network usage (latency x tuple size) accumulated during the run
+	 */
+	public double getNetworkUsage() {
+		return networkUsage;
+	}
+
+	/**
+	 * @return the network usage per unit of simulated time
+	 */
+	public double getAverageNetworkUsage() {
+		return networkUsage / simulationTime;
+	}
+
+	/**
+	 * Converts the report into JSON. Non-finite numbers are written as null.
+	 * @return the JSON document
+	 */
+	public String toJson() {
+		Map<String, Object> root = new LinkedHashMap<String, Object>();
+		root.put("setupTimeMillis", setupTimeMillis);
+		root.put("executionTimeMillis", executionTimeMillis);
+		root.put("simulationTime", simulationTime);
+		List<Object> loops = new ArrayList<Object>();
+		for (LoopLatency loop : loopLatencies) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("loopId", loop.getLoopId());
+			value.put("modules", loop.getModules());
+			value.put("averageLatency", jsonNumber(loop.getAverageLatency()));
+			value.put("count", loop.getCount());
+			value.put("deadlineTuples", loop.getDeadlineTuples());
+			value.put("deadlineMisses", loop.getDeadlineMisses());
+			value.put("batchMean", jsonNumber(loop.getBatchMean()));
+			value.put("halfWidth", jsonNumber(loop.getHalfWidth()));
+			value.put("confidenceLevel", loop.getConfidenceLevel());
+			value.put("batches", loop.getBatches());
+			loops.add(value);
+		}
+		root.put("loopLatencies", loops);
+		List<Object> tuples = new ArrayList<Object>();
+		for (TupleCpuTime tuple : tupleCpuTimes) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("tupleType", tuple.getTupleType());
+			value.put("averageCpuTime", jsonNumber(tuple.getAverageCpuTime()));
+			value.put("count", tuple.getCount());
+			tuples.add(value);
+		}
+		root.put("tupleCpuTimes", tuples);
+		root.put("totalTupleCpuTime", jsonNumber(getTotalTupleCpuTime()));
+		List<Object> deviceList = new ArrayList<Object>();
+		for (DeviceUsage device : devices) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("id", device.getId());
+			value.put("name", device.getName());
+			value.put("level", device.getLevel());
+			value.put("energy", jsonNumber(device.getEnergy()));
+			value.put("cost", jsonNumber(device.getCost()));
+			deviceList.add(value);
+		}
+		root.put("devices", deviceList);
+		root.put("totalEnergy", jsonNumber(getTotalEnergy()));
+		root.put("totalCost", jsonNumber(getTotalCost()));
+		root.put("cloudCost", jsonNumber(getCloudCost()));
+		root.put("networkUsage", jsonNumber(networkUsage));
+		root.put("averageNetworkUsage", jsonNumber(getAverageNetworkUsage()));
+		List<Object> migrationList = new ArrayList<Object>();
+		for (Migration migration : migrations) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("time", migration.getTime());
+			value.put("module", migration.getModule());
+			value.put("source", migration.getSource());
+			value.put("destination", migration.getDestination());
+			value.put("completionTime", jsonNumber(migration.getCompletionTime()));
+			migrationList.add(value);
+		}
+		root.put("migrations", migrationList);
+		List<Object> samples = new ArrayList<Object>();
+		for (LoopLatencySample sample : loopLatencyTimeline) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("time", sample.getTime());
+			value.put("loopId", sample.getLoopId());
+			value.put("averageLatency", jsonNumber(sample.getAverageLatency()));
+			value.put("count", sample.getCount());
+			samples.add(value);
+		}
+		root.put("loopLatencyTimeline", samples);
+		List<Object> scalingList = new ArrayList<Object>();
+		for (Scaling scaling : scalings) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("time", scaling.getTime());
+			value.put("module", scaling.getModule());
+			value.put("device", scaling.getDevice());
+			value.put("host", scaling.getHost());
+			value.put("scaleOut", scaling.isScaleOut());
+			value.put("instances", scaling.getInstances());
+			value.put("readyTime", scaling.getReadyTime());
+			scalingList.add(value);
+		}
+		root.put("scalings", scalingList);
+		List<Object> dropList = new ArrayList<Object>();
+		for (TupleDrops drops : tupleDrops) {
+			Map<String, Object> value = new LinkedHashMap<String, Object>();
+			value.put("tupleType", drops.getTupleType());
+			value.put("dropped", drops.getDropped());
+			value.put("throttled", drops.getThrottled());
+			dropList.add(value);
+		}
+		root.put("tupleDrops", dropList);
+		return JSONValue.toJSONString(root);
+	}
+
+	private static Object jsonNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+	}
+
+	public void writeJson(Writer out) throws IOException {
+		out.write(toJson());
+		out.write('\n');
+		out.flush();
+	}
+
+	/**
+	 * Writes the report as CSV in long format, one value per row:
+	 * <tt>section,id,name,metric,value</tt>.
+	 * @param out the output
+	 * @throws IOException if the output cannot be written
+	 */
+	public void writeCsv(Writer out) throws IOException {
+		out.write("section,id,name,metric,value\n");
+		csvRow(out, "run", "", "", "setupTimeMillis", setupTimeMillis);
+		csvRow(out, "run", "", "", "executionTimeMillis", executionTimeMillis);
+		csvRow(out, "run", "", "", "simulationTime", simulationTime);
+		for (LoopLatency loop : loopLatencies) {
+			String name = join(loop.getModules());
+			csvRow(out, "loop", loop.getLoopId(), name, "averageLatency", loop.getAverageLatency());
+			csvRow(out, "loop", loop.getLoopId(), name, "count", loop.getCount());
+			csvRow(out, "loop", loop.getLoopId(), name, "deadlineTuples", loop.getDeadlineTuples());
+			csvRow(out, "loop", loop.getLoopId(), name, "deadlineMisses", loop.getDeadlineMisses());
+			csvRow(out, "loop", loop.getLoopId(), name, "batchMean", csvNumber(loop.getBatchMean()));
+			csvRow(out, "loop", loop.getLoopId(), name, "halfWidth", csvNumber(loop.getHalfWidth()));
+			csvRow(out, "loop", loop.getLoopId(), name, "confidenceLevel", loop.getConfidenceLevel());
+			csvRow(out, "loop", loop.getLoopId(), name, "batches", loop.getBatches());
+		}
+		for (TupleCpuTime tuple : tupleCpuTimes) {
+			csvRow(out, "tuple", "", tuple.getTupleType(), "averageCpuTime", tuple.getAverageCpuTime());
+			csvRow(out, "tuple", "", tuple.getTupleType(), "count", tuple.getCount());
+		}
+		for (DeviceUsage device : devices) {
+			csvRow(out, "device", device.getId(), device.getName(), "level", device.getLevel());
+			csvRow(out, "device", device.getId(), device.getName(), "energy", device.getEnergy());
+			csvRow(out, "device", device.getId(), device.getName(), "cost", device.getCost());
+		}
+		csvRow(out, "total", "", "", "tupleCpuTime", getTotalTupleCpuTime());
+		csvRow(out, "total", "", "", "energy", getTotalEnergy());
+		csvRow(out, "total", "", "", "cost", getTotalCost());
+		csvRow(out, "total", "", "", "cloudCost", getCloudCost());
+		csvRow(out, "network", "", "", "usage", networkUsage);
+		csvRow(out, "network", "", "", "averageUsage", getAverageNetworkUsage());
+		for (int i = 0; i < migrations.size(); i++) {
+			Migration migration = migrations.get(i);
+			csvRow(out, "migration", i, migration.getModule(), "time", migration.getTime());
+			csvRow(out, "migration", i, migration.getModule(), "source", csvField(migration.getSource()));
+			csvRow(out, "migration", i, migration.getModule(), "destination", csvField(migration.getDestination()));
+			csvRow(out, "migration", i, migration.getModule(), "completionTime", migration.getCompletionTime());
+		}
+		for (LoopLatencySample sample : loopLatencyTimeline) {
+			csvRow(out, "timeline", sample.getLoopId(), String.valueOf(sample.getTime()), "averageLatency", sample.getAverageLatency());
+			csvRow(out, "timeline", sample.getLoopId(), String.valueOf(sample.getTime()), "count", sample.getCount());
+		}
+		for (int i = 0; i < scalings.size(); i++) {
+			Scaling scaling = scalings.get(i);
+			csvRow(out, "scaling", i, scaling.getModule(), "time", scaling.getTime());
+			csvRow(out, "scaling", i, scaling.getModule(), "device", csvField(scaling.getDevice()));
+			csvRow(out, "scaling", i, scaling.getModule(), "host", csvField(scaling.getHost()));
+			csvRow(out, "scaling", i, scaling.getModule(), "scaleOut", scaling.isScaleOut());
+			csvRow(out, "scaling", i, scaling.getModule(), "instances", scaling.getInstances());
+			csvRow(out, "scaling", i, scaling.getModule(), "readyTime", scaling.getReadyTime());
+		}
+		for (TupleDrops drops : tupleDrops) {
+			csvRow(out, "drops", "", drops.getTupleType(), "dropped", drops.getDropped());
+			csvRow(out, "drops", "", drops.getTupleType(), "throttled", drops.getThrottled());
+		}
+		out.flush();
+	}
+
+	private static void csvRow(Writer out, String section, Object id, String name, String metric, Object value)
+			throws IOException {
+		out.write(section + "," + id + "," + csvField(name) + "," + metric + "," + value + "\n");
+	}
+
+	private static String csvNumber(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "" : String.valueOf(value);
+	}
+
+	private static String join(List<String> values) {
+		StringBuilder result = new StringBuilder();
+		for (String value : values) {
+			if (result.length() > 0)
+				result.append(' ');
+			result.append(value);
+		}
+		return result.toString();
+	}
+
+	public static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0)
+			return value;
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+}
@@ -0,0 +1,340 @@
+package org.fog.utils;
+
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.fog.utils.SimulationReport.DeviceUsage;
+import org.fog.utils.SimulationReport.LoopLatency;
+import org.fog.utils.SimulationReport.LoopLatencySample;
+import org.fog.utils.SimulationReport.Migration;
+import org.fog.utils.SimulationReport.Scaling;
+import org.fog.utils.SimulationReport.TupleCpuTime;
+import org.fog.utils.SimulationReport.TupleDrops;
+
+/**
+ * Renders a {@link SimulationReport} as the console tables printed at the end of a simulation.
+ */
+public class SimulationReportPrinter {
+
+	private static final String NEWLINE = "\n";
+	private static final String COLUMN_SEPERATOR = "|";
+	private static final int MATRIX_SIZE = 83;
+	private static final int TIMELINE_ROWS = 20;
+
+	private final PrintStream out;
+
+	public SimulationReportPrinter(PrintStream out) {
+		this.out = out;
+	}
+
+	public SimulationReportPrinter() {
+		this(System.out);
+	}
+
+	public void print(SimulationReport report) {
+		printTimeDetails(report);
+		printDeadlineDetails(report);
+		printTupleDropDetails(report);
+		printScalingDetails(report);
+		printMigrationDetails(report);
+		printPowerDetails(report);
+		printCloudCostDetails(report);
+		printFogDeviceCostDetails(report);
+		printNetworkUsageDetails(report);
+	}
+
+	private void printNetworkUsageDetails(SimulationReport report) {
+		out.println("Total network usage = " + report.getAverageNetworkUsage());
+	}
+
+	private void printCloudCostDetails(SimulationReport report){
+		out.println("Cost of execution in cloud = " + report.getCloudCost());
+	}
+
+	private void printPowerDetails(SimulationReport report) {
+		int idColumnSize = 5;
+		int levelColumnSize = 5;
+		int nameColumnSize = 35;
+		int energyColumnSize = 35;
+		StringBuilder tableValue = new StringBuilder();
+
+		Map<String, Integer> columnNames = new LinkedHashMap<String, Integer>();
+		columnNames.put("ID", idColumnSize);
+		columnNames.put("LEVEL", idColumnSize);
+		columnNames.put("DEVICE NAME", nameColumnSize);
+		columnNames.put("ENERGY IN JOULES", energyColumnSize);
+
+		for(DeviceUsage device : report.getDevices()) {
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(idColumnSize, "" + device.getId()));
+
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(levelColumnSize, "" + device.getLevel()));
+
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(nameColumnSize, device.getName()));
+
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(energyColumnSize, doubleToString(device.getEnergy())));
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(NEWLINE);
+		}
+
+		tableValue.append(createCharSequence('-'));
+		tableValue.append(COLUMN_SEPERATOR);
+
+		String totalEnergy = "TOTAL ENERGY IN JOULES = " + doubleToString(report.getTotalEnergy());
+		tableValue.append(centerString(MATRIX_SIZE, totalEnergy));
+		tableValue.append(COLUMN_SEPERATOR);
+		tableValue.append(NEWLINE);
+
+		printMatrix("ENERGY", tableValue.toString(), columnNames);
+	}
+
+	private void printFogDeviceCostDetails(SimulationReport report) {
+		int idColumnSize = 5;
+		int nameColumnSize = 38;
+		int costColumnSize = 38;
+		StringBuilder tableValue = new StringBuilder();
+
+		Map<String, Integer> columnNames = new LinkedHashMap<String, Integer>();
+		columnNames.put("ID", idColumnSize);
+		columnNames.put("NAME", nameColumnSize);
+		columnNames.put("COST", costColumnSize);
+
+		for(DeviceUsage device : report.getDevices()) {
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(idColumnSize, Integer.toString(device.getId())));
+
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(nameColumnSize, device.getName()));
+
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(centerString(costColumnSize, doubleToString(device.getCost())));
+			tableValue.append(COLUMN_SEPERATOR);
+			tableValue.append(NEWLINE);
+		}
+
+		tableValue.append(createCharSequence('-'));
+		tableValue.append(COLUMN_SEPERATOR);
+
+		String totalCost = "TOTAL COST = " + doubleToString(report.getTotalCost());
+		tableValue.append(centerString(MATRIX_SIZE, totalCost));
+		tableValue.append(COLUMN_SEPERATOR);
+		tableValue.append(NEWLINE);
+
+		printMatrix("COST OF FEC DEVICES", tableValue.toString(), columnNames);
+	}
+
+	/**
+	 * Prints a results matrix.
+	 */
+	private void printMatrix(String title, String content, Map<String, Integer> subtitles) {
+		out.println(NEWLINE);
+		printCharSequence('=');
+		out.println(COLUMN_SEPERATOR + centerString(MATRIX_SIZE, title) + COLUMN_SEPERATOR);
+		printCharSequence('-');
+
+		if(subtitles != null) {
+			for(String str : subtitles.keySet()) {
+				int size = subtitles.get(str);
+				out.print(COLUMN_SEPERATOR + centerString(size, str));
+			}
+			out.println(COLUMN_SEPERATOR);
+			printCharSequence('-');
+		}
+
+		out.print(content);
+		printCharSequence('=');
+	}
+
+	public static String centerString(int width, String str) {
+	    return String.format("%-" + width  + "s",
+	    		String.format("%" + (str.length() + (width - str.length()) / 2) + "s", str));
+	}
+
+	/**
+	 * Converts and formats a given double number to string.
+	 *
+	 * @param value the value to be converted
+	 * @return the string
+	 */
+	public static String doubleToString(double value) {
+		String decimal = String.format("%8c", ' ').replaceAll("\\ ", "\\" + '0');
+		DecimalFormat df = new DecimalFormat("0." + decimal);
+		String result = df.format(value);
+		return String.format("%15s", result);
+	}
+
+	private String createCharSequence(char character) {
+		StringBuilder str = new StringBuilder();
+
+		for (int i = 0; i < MATRIX_SIZE; i++) {
+			str.append(character);
+		}
+		str.append(character);
+		str.append(NEWLINE);
+
+		return str.toString();
+	}
+
+	private void printCharSequence(char character) {
+		for (int i = 0; i < MATRIX_SIZE; i++) {
+		    out.print(character);
+		}
+		out.println(character);
+	}
+
+	private void printTimeDetails(SimulationReport report) {
+		out.println("=========================================");
+		out.println("============== RESULTS ==================");
+		out.println("=========================================");
+		if(report.getSetupTimeMillis() >= 0)
+			out.println("SETUP TIME : "+ report.getSetupTimeMillis());
+		out.println("EXECUTION TIME : "+ report.getExecutionTimeMillis());
+		out.println("=========================================");
+		out.println("APPLICATION LOOP DELAYS");
+		out.println("=========================================");
+		for(LoopLatency loop : report.getLoopLatencies()){
+			out.println(loop.getModules() + " ---> "+loop.getAverageLatency());
+		}
+		printConfidenceIntervals(report);
+		out.println("=========================================");
+		out.println("TUPLE CPU EXECUTION DELAY");
+		out.println("=========================================");
+
+		for(TupleCpuTime tuple : report.getTupleCpuTimes()){
+			out.println(tuple.getTupleType() + " ---> "+tuple.getAverageCpuTime());
+		}
+
+		out.println("=========================================");
+		out.println("TOTAL TUPLE CPU EXECUTION DELAY: " + report.getTotalTupleCpuTime());
+		out.println("=========================================");
+	}
+
+	/**
+	 * Prints the batch means confidence intervals of the loop delays, if any loop had enough
+	 * batches.
+	 */
+	private void printConfidenceIntervals(SimulationReport report) {
+		boolean intervals = false;
+		for(LoopLatency loop : report.getLoopLatencies())
+			intervals |= !Double.isNaN(loop.getHalfWidth());
+		if(!intervals)
+			return;
+		out.println("=========================================");
+		out.println("LOOP DELAY CONFIDENCE INTERVALS");
+		out.println("=========================================");
+		for(LoopLatency loop : report.getLoopLatencies()){
+			if(Double.isNaN(loop.getHalfWidth()))
+				continue;
+			out.println(loop.getModules() + " ---> " + loop.getBatchMean() + " +/- " + loop.getHalfWidth() + " ("
+					+ Math.round(loop.getConfidenceLevel()*100) + "%, " + loop.getBatches() + " batches)");
+		}
+	}
+
+	private void printDeadlineDetails(SimulationReport report) {
+		boolean deadlines = false;
+		for(LoopLatency loop : report.getLoopLatencies())
+			deadlines |= loop.getDeadlineTuples() > 0;
+		if(!deadlines)
+			return;
+		out.println("DEADLINE MISSES");
+		out.println("=========================================");
+		for(LoopLatency loop : report.getLoopLatencies()){
+			out.println(loop.getModules() + " ---> " + loop.getDeadlineMisses() + " of " + loop.getDeadlineTuples()
+					+ " tuples");
+		}
+		out.println("=========================================");
+	}
+
+	private void printTupleDropDetails(SimulationReport report) {
+		if(report.getTupleDrops().isEmpty())
+			return;
+		out.println("DROPPED TUPLES");
+		out.println("=========================================");
+		for(TupleDrops drops : report.getTupleDrops()){
+			out.println(drops.getTupleType() + " ---> " + drops.getDropped() + " dropped, " + drops.getThrottled()
+					+ " throttled");
+		}
+		out.println("=========================================");
+	}
+
+	private void printScalingDetails(SimulationReport report) {
+		if(report.getScalings().isEmpty())
+			return;
+		out.println("MODULE INSTANCES");
+		out.println("=========================================");
+		for(Scaling scaling : report.getScalings()){
+			out.println(scaling.getTime() + " " + scaling.getModule() + " of " + scaling.getDevice()
+					+ (scaling.isScaleOut() ? " : +1 on " : " : -1 on ") + scaling.getHost() + " ---> "
+					+ scaling.getInstances() + " instances (at " + scaling.getReadyTime() + ")");
+		}
+		out.println("=========================================");
+	}
+
+	/**
+	 * Prints the runtime migrations and the loop delays over time, grouping the samples of the
+	 * timeline into at most TIMELINE_ROWS intervals.
+	 */
+	private void printMigrationDetails(SimulationReport report) {
+		if(report.getMigrations().isEmpty() && report.getLoopLatencyTimeline().isEmpty())
+			return;
+		if(!report.getMigrations().isEmpty() || report.getScalings().isEmpty()){
+			out.println("MODULE MIGRATIONS");
+			out.println("=========================================");
+			for(Migration migration : report.getMigrations()){
+				out.println(migration.getTime() + " " + migration.getModule() + " : " + migration.getSource() + " ---> "
+						+ migration.getDestination() + " (running at " + migration.getCompletionTime() + ")");
+			}
+			out.println("=========================================");
+		}
+		out.println("APPLICATION LOOP DELAYS OVER TIME");
+		out.println("=========================================");
+		Map<Integer, double[]> totals = new LinkedHashMap<Integer, double[]>();
+		int times = 0;
+		double lastTime = Double.NaN;
+		for(LoopLatencySample sample : report.getLoopLatencyTimeline()){
+			if(sample.getTime() != lastTime)
+				times++;
+			lastTime = sample.getTime();
+		}
+		int samplesPerRow = Math.max(1, (times + TIMELINE_ROWS - 1)/TIMELINE_ROWS);
+		double start = 0;
+		int time = 0;
+		lastTime = Double.NaN;
+		for(LoopLatencySample sample : report.getLoopLatencyTimeline()){
+			if(sample.getTime() != lastTime){
+				if(time > 0 && time % samplesPerRow == 0){
+					printTimelineRow(report, start, lastTime, totals);
+					start = lastTime;
+				}
+				time++;
+				lastTime = sample.getTime();
+			}
+			if(!totals.containsKey(sample.getLoopId()))
+				totals.put(sample.getLoopId(), new double[2]);
+			if(sample.getCount() > 0){
+				totals.get(sample.getLoopId())[0] += sample.getAverageLatency()*sample.getCount();
+				totals.get(sample.getLoopId())[1] += sample.getCount();
+			}
+		}
+		if(time > 0)
+			printTimelineRow(report, start, lastTime, totals);
+		out.println("=========================================");
+	}
+
+	private void printTimelineRow(SimulationReport report, double start, double end, Map<Integer, double[]> totals) {
+		out.println(start + " - " + end);
+		for(Integer loopId : totals.keySet()){
+			LoopLatency loop = report.getLoopLatency(loopId);
+			double[] total = totals.get(loopId);
+			out.println("    " + (loop == null ? loopId : loop.getModules()) + " ---> "
+					+ (total[1] > 0 ? total[0]/total[1] : Double.NaN) + " (" + (int) total[1] + ")");
+			total[0] = 0;
+			total[1] = 0;
+		}
+	}
+}
@@ -5,12 +5,14 @@ import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppLoop;
 import org.fog.entities.Tuple;
 
 public class TimeKeeper {
 
 	private static TimeKeeper instance;
 	
+	private long setupStartTime;
 	private long simulationStartTime;
 	private int count; 
 	private Map<Integer, Double> emitTimes;
@@ -22,6 +24,11 @@ public class TimeKeeper {
 	
 	private Map<Integer, Double> loopIdToCurrentAverage;
 	private Map<Integer, Integer> loopIdToCurrentNum;
+	private Map<Integer, Integer> loopIdToDeadlineTuples;
+	private Map<Integer, Integer> loopIdToDeadlineMisses;
+	private Map<Integer, BatchMeans> loopIdToBatchMeans;
+	/** simulation time before which the loop delays are left out of the batch means */
+	private double warmupTime;
 	
 	public static TimeKeeper getInstance(){
 		if(instance == null)
@@ -48,9 +55,59 @@ public class TimeKeeper {
 			double currentAverage = tupleTypeToAverageCpuTime.get(tuple.getTupleType());
 			int currentCount = tupleTypeToExecutedTupleCount.get(tuple.getTupleType());
 			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), (currentAverage*currentCount+executionTime)/(currentCount+1));
+			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), currentCount+1);
 		}
 	}
 	
+	/**
+	 * Counts the delay of a tuple that completed a loop now in the average of the loop and, after
+	 * the warm-up, in its batch means, and against the deadline of the loop, if any.
+	 * @param delay the time since the emission the tuple results from
+	 */
+	public void loopCompleted(AppLoop loop, double delay){
+		int loopId = loop.getLoopId();
+		if(loop.hasDeadline()){
+			Integer count = loopIdToDeadlineTuples.get(loopId);
+			loopIdToDeadlineTuples.put(loopId, count == null ? 1 : count + 1);
+			Integer misses = loopIdToDeadlineMisses.get(loopId);
+			loopIdToDeadlineMisses.put(loopId, (misses == null ? 0 : misses) + (delay > loop.getDeadline() ? 1 : 0));
+		}
+		if(!loopIdToCurrentAverage.containsKey(loopId)){
+			loopIdToCurrentAverage.put(loopId, 0.0);
+			loopIdToCurrentNum.put(loopId, 0);
+		}
+		double currentAverage = loopIdToCurrentAverage.get(loopId);
+		int currentCount = loopIdToCurrentNum.get(loopId);
+		loopIdToCurrentAverage.put(loopId, (currentAverage*currentCount + delay)/(currentCount+1));
+		loopIdToCurrentNum.put(loopId, currentCount+1);
+		if(CloudSim.clock() < warmupTime)
+			return;
+		BatchMeans batchMeans = loopIdToBatchMeans.get(loopId);
+		if(batchMeans == null){
+			batchMeans = new BatchMeans();
+			loopIdToBatchMeans.put(loopId, batchMeans);
+		}
+		batchMeans.add(delay);
+	}
+	
+	/**
+	 * Clears the loop and tuple statistics collected by a previous run. The id counter is kept,
+	 * since loops created before the reset keep their ids.
+	 */
+	public void resetStatistics(){
+		getEmitTimes().clear();
+		getEndTimes().clear();
+		getLoopIdToTupleIds().clear();
+		getTupleTypeToAverageCpuTime().clear();
+		getTupleTypeToExecutedTupleCount().clear();
+		getTupleIdToCpuStartTime().clear();
+		getLoopIdToCurrentAverage().clear();
+		getLoopIdToCurrentNum().clear();
+		getLoopIdToDeadlineTuples().clear();
+		getLoopIdToDeadlineMisses().clear();
+		getLoopIdToBatchMeans().clear();
+	}
+	
 	public Map<Integer, List<Integer>> loopIdToTupleIds(){
 		return getInstance().getLoopIdToTupleIds();
 	}
@@ -65,6 +122,9 @@ public class TimeKeeper {
 		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
 		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
 		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
+		setLoopIdToDeadlineTuples(new HashMap<Integer, Integer>());
+		setLoopIdToDeadlineMisses(new HashMap<Integer, Integer>());
+		setLoopIdToBatchMeans(new HashMap<Integer, BatchMeans>());
 	}
 	
 	public int getCount() {
@@ -125,6 +185,28 @@ public class TimeKeeper {
 		this.tupleIdToCpuStartTime = tupleIdToCpuStartTime;
 	}
 
+	/**
+	 * @return the wall-clock time at which the set up of the simulation (topology, placement,
+	 * controller) started, 0 if it was not recorded
+	 */
+	public long getSetupStartTime() {
+		return setupStartTime;
+	}
+
+	public void setSetupStartTime(long setupStartTime) {
+		this.setupStartTime = setupStartTime;
+	}
+
+	/**
+	 * @return the wall-clock time between the start of the set up and the start of the
+	 * simulation in milliseconds, -1 if the start of the set up was not recorded
+	 */
+	public long getSetupTime() {
+		if(setupStartTime <= 0 || simulationStartTime < setupStartTime)
+			return -1;
+		return simulationStartTime - setupStartTime;
+	}
+
 	public long getSimulationStartTime() {
 		return simulationStartTime;
 	}
@@ -148,6 +230,51 @@ public class TimeKeeper {
 	public void setLoopIdToCurrentNum(Map<Integer, Integer> loopIdToCurrentNum) {
 		this.loopIdToCurrentNum = loopIdToCurrentNum;
 	}
-	
+
+	/**
+	 * @return the number of tuples that completed a loop with a deadline, by loop
+	 */
+	public Map<Integer, Integer> getLoopIdToDeadlineTuples() {
+		return loopIdToDeadlineTuples;
+	}
+
+	public void setLoopIdToDeadlineTuples(Map<Integer, Integer> loopIdToDeadlineTuples) {
+		this.loopIdToDeadlineTuples = loopIdToDeadlineTuples;
+	}
+
+	/**
+	 * @return the number of tuples that completed a loop after its deadline, by loop
+	 */
+	public Map<Integer, Integer> getLoopIdToDeadlineMisses() {
+		return loopIdToDeadlineMisses;
+	}
+
+	public void setLoopIdToDeadlineMisses(Map<Integer, Integer> loopIdToDeadlineMisses) {
+		this.loopIdToDeadlineMisses = loopIdToDeadlineMisses;
+	}
+
+	/**
+	 * @return the batch means of the delays of the tuples that completed each loop after the
+	 * warm-up, by loop
+	 */
+	public Map<Integer, BatchMeans> getLoopIdToBatchMeans() {
+		return loopIdToBatchMeans;
+	}
+
+	public void setLoopIdToBatchMeans(Map<Integer, BatchMeans> loopIdToBatchMeans) {
+		this.loopIdToBatchMeans = loopIdToBatchMeans;
+	}
+
+	public double getWarmupTime() {
+		return warmupTime;
+	}
+
+	/**
+	 * @param warmupTime the simulation time before which the loop delays are left out of the
+	 * batch means, kept across runs
+	 */
+	public void setWarmupTime(double warmupTime) {
+		this.warmupTime = warmupTime;
+	}
 	
 }
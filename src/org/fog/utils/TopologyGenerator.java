@@ -0,0 +1,310 @@
+package org.fog.utils;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.UniformDistribution;
+import org.json.simple.JSONValue;
+
+/**
+ * Generates hierarchical fog topologies in the JSON format that JsonToTopology reads, for scale
+ * benchmarks. The hierarchy is a tree of device classes, each with the number of devices of
+ * every child class under each of its devices. The bandwidths, uplink latencies and sensor
+ * periods are drawn from distributions, all from one seeded random generator.
+ * <p>
+ * The output is written as a stream: the tree is walked once for the nodes and once more, from
+ * the same seed, for the links, so only the path from the root is held in memory.
+ */
+public class TopologyGenerator {
+
+	private List<DeviceClass> roots = new ArrayList<DeviceClass>();
+	private long seed;
+
+	/** Devices written so far in the current pass */
+	private long deviceCount;
+	/** Whether nothing was written yet in the current array */
+	private boolean first;
+
+	public TopologyGenerator(long seed) {
+		setSeed(seed);
+	}
+
+	public void addRoot(DeviceClass root) {
+		roots.add(root);
+	}
+
+	/**
+	 * Writes the topology to a file.
+	 * @return the number of fog devices
+	 */
+	public long write(String fileName) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"), 1 << 16);
+		try {
+			return write(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the topology.
+	 * @return the number of fog devices
+	 */
+	public long write(Writer writer) throws IOException {
+		writer.write("{\"nodes\":[");
+		writePass(writer, true);
+		writer.write("],\n\"links\":[");
+		writePass(writer, false);
+		writer.write("]}\n");
+		writer.flush();
+		return deviceCount;
+	}
+
+	private void writePass(Writer writer, boolean nodes) throws IOException {
+		Random random = new Random(getSeed());
+		deviceCount = 0;
+		first = true;
+		for(DeviceClass root : roots)
+			root.reset(random);
+		for(DeviceClass root : roots)
+			writeDevice(writer, nodes, root, null, 0);
+	}
+
+	/**
+	 * Writes a device, its sensor and actuator, and the devices under it. Every value is drawn in
+	 * both passes, so that the links meet the same random numbers as the nodes.
+	 */
+	private void writeDevice(Writer writer, boolean nodes, DeviceClass deviceClass, String parent, int level) throws IOException {
+		String name = deviceClass.getName()+"-"+(deviceClass.count++);
+		long upBw = Math.round(deviceClass.getUpBw().getNextValue());
+		long downBw = Math.round(deviceClass.getDownBw().getNextValue());
+		double uplinkLatency = deviceClass.getUplinkLatency().getNextValue();
+		double sensorPeriod = deviceClass.getSensorType() != null ? deviceClass.getSensorPeriod().getNextValue() : 0;
+		if(nodes){
+			writeSeparator(writer);
+			writer.write("{\"type\":\"FOG_DEVICE\",\"name\":\""+JSONValue.escape(name)+"\",\"mips\":"+deviceClass.getMips()
+					+",\"ram\":"+deviceClass.getRam()+",\"upBw\":"+upBw+",\"downBw\":"+downBw+",\"level\":"+level
+					+",\"ratePerMips\":"+deviceClass.getRatePerMips()+"}");
+			if(deviceClass.getSensorType() != null)
+				writer.write(",\n{\"type\":\"SENSOR\",\"name\":\""+JSONValue.escape("s-"+name)+"\",\"sensorType\":\""
+						+JSONValue.escape(deviceClass.getSensorType())+"\",\"distribution\":"+Distribution.DETERMINISTIC
+						+",\"value\":"+sensorPeriod+"}");
+			if(deviceClass.getActuatorType() != null)
+				writer.write(",\n{\"type\":\"ACTUATOR\",\"name\":\""+JSONValue.escape("a-"+name)+"\",\"actuatorType\":\""
+						+JSONValue.escape(deviceClass.getActuatorType())+"\"}");
+		} else {
+			if(parent != null){
+				writeSeparator(writer);
+				writeLink(writer, name, parent, uplinkLatency);
+			}
+			if(deviceClass.getSensorType() != null){
+				writeSeparator(writer);
+				writeLink(writer, "s-"+name, name, deviceClass.getSensorLatency());
+			}
+			if(deviceClass.getActuatorType() != null){
+				writeSeparator(writer);
+				writeLink(writer, "a-"+name, name, deviceClass.getActuatorLatency());
+			}
+		}
+		deviceCount++;
+		for(int i = 0; i < deviceClass.children.size(); i++){
+			for(int j = 0; j < deviceClass.fanOuts.get(i); j++)
+				writeDevice(writer, nodes, deviceClass.children.get(i), name, level+1);
+		}
+	}
+
+	private void writeSeparator(Writer writer) throws IOException {
+		if(!first)
+			writer.write(",\n");
+		first = false;
+	}
+
+	private void writeLink(Writer writer, String source, String destination, double latency) throws IOException {
+		writer.write("{\"source\":\""+JSONValue.escape(source)+"\",\"destination\":\""+JSONValue.escape(destination)
+				+"\",\"latency\":"+latency+"}");
+	}
+
+	/**
+	 * The hierarchy of the car parking example: a cloud, gateways, edge nodes, and cameras and IR
+	 * sensors with a PTZ control each. Bandwidths and latencies vary by 10% around those of the
+	 * example, and sensor periods by 5%.
+	 */
+	public static DeviceClass createCarParkingHierarchy(int gateways, int edgeNodesPerGateway, int camerasPerEdgeNode,
+			int irSensorsPerEdgeNode) {
+		DeviceClass cloud = new DeviceClass("cloud", 50000, 40000, 0.02);
+		cloud.setUpBw(new DeterministicDistribution(100));
+		cloud.setDownBw(new DeterministicDistribution(10000));
+		DeviceClass gateway = new DeviceClass("gateway", 3000, 4000, 0.05);
+		gateway.setUplinkLatency(new UniformDistribution(108, 132));
+		DeviceClass edgeNode = new DeviceClass("EdgeNode", 2000, 4000, 0.05);
+		edgeNode.setUplinkLatency(new UniformDistribution(1.8, 2.2));
+		DeviceClass camera = new DeviceClass("camera", 500, 1000, 1);
+		camera.setUplinkLatency(new UniformDistribution(1.8, 2.2));
+		camera.setSensor("CAMERA", new UniformDistribution(4.75, 5.25), 1);
+		camera.setActuator("PTZ_CONTROL", 1);
+		DeviceClass irSensor = new DeviceClass("ir-sensor", 200, 1000, 0.001);
+		irSensor.setUplinkLatency(new UniformDistribution(1.8, 2.2));
+		irSensor.setSensor("IR_SENSOR", new UniformDistribution(4.75, 5.25), 1);
+		irSensor.setActuator("PTZ_CONTROL", 1);
+		for(DeviceClass deviceClass : new DeviceClass[]{gateway, edgeNode, camera, irSensor}){
+			deviceClass.setUpBw(new UniformDistribution(9000, 11000));
+			deviceClass.setDownBw(new UniformDistribution(9000, 11000));
+		}
+		cloud.addChildren(gateway, gateways);
+		gateway.addChildren(edgeNode, edgeNodesPerGateway);
+		edgeNode.addChildren(camera, camerasPerEdgeNode);
+		edgeNode.addChildren(irSensor, irSensorsPerEdgeNode);
+		return cloud;
+	}
+
+	/**
+	 * Writes a car parking hierarchy.
+	 * @param args output file, gateways, edge nodes per gateway, cameras and IR sensors per edge
+	 * node, seed
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0){
+			System.out.println("Usage: TopologyGenerator <file> [gateways] [edgeNodesPerGateway] [camerasPerEdgeNode] "
+					+ "[irSensorsPerEdgeNode] [seed]");
+			return;
+		}
+		int gateways = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int edgeNodes = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		int cameras = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		int irSensors = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+		TopologyGenerator generator = new TopologyGenerator(seed);
+		generator.addRoot(createCarParkingHierarchy(gateways, edgeNodes, cameras, irSensors));
+		long start = System.currentTimeMillis();
+		long devices = generator.write(args[0]);
+		System.out.println("Wrote "+devices+" fog devices to "+args[0]+" in "+(System.currentTimeMillis()-start)+" ms");
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * A kind of fog device of the hierarchy, with the sensor and actuator attached to each device
+	 * of the kind, if any, and the kinds of devices under it.
+	 */
+	public static class DeviceClass {
+
+		private String name;
+		private long mips;
+		private int ram;
+		private double ratePerMips;
+		private Distribution upBw = new DeterministicDistribution(10000);
+		private Distribution downBw = new DeterministicDistribution(10000);
+		private Distribution uplinkLatency = new DeterministicDistribution(2);
+		private String sensorType;
+		private Distribution sensorPeriod;
+		private double sensorLatency;
+		private String actuatorType;
+		private double actuatorLatency;
+		private List<DeviceClass> children = new ArrayList<DeviceClass>();
+		private List<Integer> fanOuts = new ArrayList<Integer>();
+		/** Devices of the class named so far in the current pass */
+		private long count;
+
+		/**
+		 * @param name the prefix of the names of the devices
+		 */
+		public DeviceClass(String name, long mips, int ram, double ratePerMips) {
+			this.name = name;
+			this.mips = mips;
+			this.ram = ram;
+			this.ratePerMips = ratePerMips;
+		}
+
+		/**
+		 * @param fanOut the number of devices of the child class under each device of this one
+		 */
+		public void addChildren(DeviceClass child, int fanOut) {
+			children.add(child);
+			fanOuts.add(fanOut);
+		}
+
+		/**
+		 * @param period the distribution the period of each sensor is drawn from
+		 */
+		public void setSensor(String sensorType, Distribution period, double latency) {
+			this.sensorType = sensorType;
+			this.sensorPeriod = period;
+			this.sensorLatency = latency;
+		}
+
+		public void setActuator(String actuatorType, double latency) {
+			this.actuatorType = actuatorType;
+			this.actuatorLatency = latency;
+		}
+
+		private void reset(Random random) {
+			count = 0;
+			for(Distribution distribution : new Distribution[]{upBw, downBw, uplinkLatency, sensorPeriod}){
+				if(distribution != null)
+					distribution.setRandom(random);
+			}
+			for(DeviceClass child : children)
+				child.reset(random);
+		}
+
+		public String getName() {
+			return name;
+		}
+		public long getMips() {
+			return mips;
+		}
+		public int getRam() {
+			return ram;
+		}
+		public double getRatePerMips() {
+			return ratePerMips;
+		}
+		public Distribution getUpBw() {
+			return upBw;
+		}
+		public void setUpBw(Distribution upBw) {
+			this.upBw = upBw;
+		}
+		public Distribution getDownBw() {
+			return downBw;
+		}
+		public void setDownBw(Distribution downBw) {
+			this.downBw = downBw;
+		}
+		public Distribution getUplinkLatency() {
+			return uplinkLatency;
+		}
+		public void setUplinkLatency(Distribution uplinkLatency) {
+			this.uplinkLatency = uplinkLatency;
+		}
+		public String getSensorType() {
+			return sensorType;
+		}
+		public Distribution getSensorPeriod() {
+			return sensorPeriod;
+		}
+		public double getSensorLatency() {
+			return sensorLatency;
+		}
+		public String getActuatorType() {
+			return actuatorType;
+		}
+		public double getActuatorLatency() {
+			return actuatorLatency;
+		}
+	}
+}
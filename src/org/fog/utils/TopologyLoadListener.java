@@ -0,0 +1,16 @@
+package org.fog.utils;
+
+/**
+ * Receives the progress of the loading of a large physical topology.
+ */
+public interface TopologyLoadListener {
+
+	/**
+	 * @param pass 1 while the nodes are created, 2 while the links are resolved
+	 * @param entities the nodes or links read so far in the pass
+	 * @param bytesRead the bytes of the file read so far in the pass
+	 * @param totalBytes the size of the file
+	 */
+	public void onProgress(int pass, long entities, long bytesRead, long totalBytes);
+
+}
@@ -0,0 +1,275 @@
+package org.fog.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.PhysicalTopology;
+import org.fog.entities.Sensor;
+
+/**
+ * A physical topology in a compact binary file, which is memory-mapped to create the entities
+ * directly, without parsing, when the same topology is loaded again and again. The file holds a
+ * header, fixed-width records of the fog devices, sensors, actuators and links, and a table of
+ * the strings the records refer to by index. The links refer to the entities by their section and
+ * index, and the entities keep the order of the nodes in the JSON file, so they get the same ids.
+ * Numbers are big-endian.
+ */
+public class TopologySnapshot {
+
+	/** "FTOP" */
+	public static final int MAGIC = 0x46544f50;
+	public static final int VERSION = 1;
+
+	/** magic, version, device, sensor, actuator, link and string counts, string table offset */
+	private static final int HEADER_SIZE = 7*4 + 8;
+	/** order, name, level, ram, mips, upBw, downBw, ratePerMips */
+	private static final int DEVICE_RECORD_SIZE = 4*4 + 4*8;
+	/** order, name, sensor type, distribution and its two parameters */
+	private static final int SENSOR_RECORD_SIZE = 4*4 + 2*8;
+	/** order, name, actuator type */
+	private static final int ACTUATOR_RECORD_SIZE = 3*4;
+	/** section and index of the source and of the destination, latency */
+	private static final int LINK_RECORD_SIZE = 4*4 + 8;
+
+	private static final int DEVICES = 0;
+	private static final int SENSORS = 1;
+	private static final int ACTUATORS = 2;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Writes the snapshot of a JSON topology file.
+	 * @param physicalTopologyFile the file that JsonToTopology reads
+	 * @param snapshotFile the binary file to write
+	 */
+	public static void convert(String physicalTopologyFile, String snapshotFile) throws Exception {
+		final ByteArrayOutputStream[] sections = new ByteArrayOutputStream[4];
+		final DataOutputStream[] records = new DataOutputStream[4];
+		for(int i = 0; i < sections.length; i++){
+			sections[i] = new ByteArrayOutputStream();
+			records[i] = new DataOutputStream(sections[i]);
+		}
+		final int[] counts = new int[4];
+		final List<String> strings = new ArrayList<String>();
+		final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+		// section and index of the entities by name in lower case, the first of each name
+		final Map<String, long[]> entities = new HashMap<String, long[]>();
+
+		JsonToTopology.readTopology(physicalTopologyFile, new JsonToTopology.TopologyVisitor() {
+			int order = 0;
+
+			private int getStringIndex(String string) {
+				Integer index = stringIndices.get(string);
+				if(index == null){
+					index = strings.size();
+					strings.add(string);
+					stringIndices.put(string, index);
+				}
+				return index;
+			}
+
+			private void addEntity(int section, String name) throws IOException {
+				String key = name.toLowerCase();
+				long[] entity = entities.get(key);
+				// names resolve to a fog device first, then to a sensor, then to an actuator
+				if(entity == null || entity[0] > section)
+					entities.put(key, new long[]{section, counts[section]});
+				records[section].writeInt(order++);
+				records[section].writeInt(getStringIndex(name));
+				counts[section]++;
+			}
+
+			@Override
+			public void visitNode(Map<String, Object> node) {
+				try {
+					String nodeType = (String) node.get("type");
+					String nodeName = (String) node.get("name");
+					if(nodeType.equalsIgnoreCase("FOG_DEVICE")){
+						DataOutputStream device = records[DEVICES];
+						addEntity(DEVICES, nodeName);
+						device.writeInt((int) JsonToTopology.getLong(node, "level"));
+						device.writeInt(JsonToTopology.getInt(node, "ram"));
+						device.writeLong(JsonToTopology.getLong(node, "mips"));
+						device.writeLong(JsonToTopology.getInt(node, "upBw"));
+						device.writeLong(JsonToTopology.getInt(node, "downBw"));
+						device.writeDouble(JsonToTopology.getDouble(node, "ratePerMips"));
+					} else if(nodeType.equals("SENSOR")){
+						DataOutputStream sensor = records[SENSORS];
+						int distType = (int) JsonToTopology.getLong(node, "distribution");
+						double[] parameters = JsonToTopology.getDistributionParameters(node, distType);
+						addEntity(SENSORS, nodeName);
+						sensor.writeInt(getStringIndex(node.get("sensorType").toString()));
+						sensor.writeInt(distType);
+						sensor.writeDouble(parameters[0]);
+						sensor.writeDouble(parameters[1]);
+					} else if(nodeType.equals("ACTUATOR")){
+						addEntity(ACTUATORS, nodeName);
+						records[ACTUATORS].writeInt(getStringIndex(node.get("actuatorType").toString()));
+					}
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void visitLink(Map<String, Object> link) {
+				long[] src = entities.get(((String) link.get("source")).toLowerCase());
+				long[] dst = entities.get(((String) link.get("destination")).toLowerCase());
+				if(src == null || dst == null)
+					return;
+				try {
+					DataOutputStream record = records[3];
+					record.writeInt((int) src[0]);
+					record.writeInt((int) src[1]);
+					record.writeInt((int) dst[0]);
+					record.writeInt((int) dst[1]);
+					record.writeDouble(JsonToTopology.getDouble(link, "latency"));
+					counts[3]++;
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, null);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotFile)));
+		try {
+			long stringTableOffset = HEADER_SIZE;
+			for(ByteArrayOutputStream section : sections)
+				stringTableOffset += section.size();
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for(int count : counts)
+				out.writeInt(count);
+			out.writeInt(strings.size());
+			out.writeLong(stringTableOffset);
+			for(ByteArrayOutputStream section : sections)
+				section.writeTo(out);
+			// the end of each string in the bytes that follow the ends
+			List<byte[]> bytes = new ArrayList<byte[]>();
+			int end = 0;
+			for(String string : strings){
+				byte[] encoded = string.getBytes(UTF_8);
+				bytes.add(encoded);
+				end += encoded.length;
+				out.writeInt(end);
+			}
+			for(byte[] encoded : bytes)
+				out.write(encoded);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Creates the entities of a snapshot.
+	 * @param snapshotFile the binary file written by {@link #convert(String, String)}
+	 */
+	public static PhysicalTopology getPhysicalTopology(int userId, String appId, String snapshotFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+		MappedByteBuffer buffer;
+		try {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			file.close();
+		}
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException(snapshotFile+" is not a topology snapshot of version "+VERSION);
+		int deviceCount = buffer.getInt(8);
+		int sensorCount = buffer.getInt(12);
+		int actuatorCount = buffer.getInt(16);
+		int linkCount = buffer.getInt(20);
+		int stringCount = buffer.getInt(24);
+		int stringTable = (int) buffer.getLong(28);
+		int devices = HEADER_SIZE;
+		int sensors = devices + deviceCount*DEVICE_RECORD_SIZE;
+		int actuators = sensors + sensorCount*SENSOR_RECORD_SIZE;
+		int links = actuators + actuatorCount*ACTUATOR_RECORD_SIZE;
+		String[] strings = readStrings(buffer, stringTable, stringCount);
+
+		List<FogDevice> fogDevices = new ArrayList<FogDevice>(deviceCount);
+		List<Sensor> sensorList = new ArrayList<Sensor>(sensorCount);
+		List<Actuator> actuatorList = new ArrayList<Actuator>(actuatorCount);
+		// creates the entities in the order of the nodes, merging the sections
+		int device = 0, sensor = 0, actuator = 0;
+		while(device < deviceCount || sensor < sensorCount || actuator < actuatorCount){
+			int deviceOrder = device < deviceCount ? buffer.getInt(devices + device*DEVICE_RECORD_SIZE) : Integer.MAX_VALUE;
+			int sensorOrder = sensor < sensorCount ? buffer.getInt(sensors + sensor*SENSOR_RECORD_SIZE) : Integer.MAX_VALUE;
+			int actuatorOrder = actuator < actuatorCount ? buffer.getInt(actuators + actuator*ACTUATOR_RECORD_SIZE) : Integer.MAX_VALUE;
+			if(deviceOrder < sensorOrder && deviceOrder < actuatorOrder){
+				int record = devices + (device++)*DEVICE_RECORD_SIZE;
+				FogDevice fogDevice = JsonToTopology.createFogDevice(strings[buffer.getInt(record + 4)],
+						buffer.getLong(record + 16), buffer.getInt(record + 12), buffer.getLong(record + 24),
+						buffer.getLong(record + 32), buffer.getInt(record + 8), buffer.getDouble(record + 40));
+				fogDevice.setParentId(-1);
+				fogDevices.add(fogDevice);
+			} else if(sensorOrder < actuatorOrder){
+				int record = sensors + (sensor++)*SENSOR_RECORD_SIZE;
+				sensorList.add(new Sensor(strings[buffer.getInt(record + 4)], strings[buffer.getInt(record + 8)], userId, appId,
+						JsonToTopology.createDistribution(buffer.getInt(record + 12), buffer.getDouble(record + 16),
+								buffer.getDouble(record + 24))));
+			} else {
+				int record = actuators + (actuator++)*ACTUATOR_RECORD_SIZE;
+				actuatorList.add(new Actuator(strings[buffer.getInt(record + 4)], userId, appId,
+						strings[buffer.getInt(record + 8)]));
+			}
+		}
+
+		List<?>[] entities = new List<?>[]{fogDevices, sensorList, actuatorList};
+		for(int link = 0; link < linkCount; link++){
+			int record = links + link*LINK_RECORD_SIZE;
+			JsonToTopology.connectEntities(entities[buffer.getInt(record)].get(buffer.getInt(record + 4)),
+					entities[buffer.getInt(record + 8)].get(buffer.getInt(record + 12)), buffer.getDouble(record + 16));
+		}
+
+		PhysicalTopology physicalTopology = new PhysicalTopology();
+		physicalTopology.setFogDevices(fogDevices);
+		physicalTopology.setSensors(sensorList);
+		physicalTopology.setActuators(actuatorList);
+		return physicalTopology;
+	}
+
+	private static String[] readStrings(MappedByteBuffer buffer, int stringTable, int stringCount) {
+		String[] strings = new String[stringCount];
+		int bytes = stringTable + 4*stringCount;
+		byte[] encoded = new byte[0];
+		int start = 0;
+		for(int i = 0; i < stringCount; i++){
+			int end = buffer.getInt(stringTable + 4*i);
+			if(encoded.length < end - start)
+				encoded = new byte[end - start];
+			for(int b = start; b < end; b++)
+				encoded[b - start] = buffer.get(bytes + b);
+			strings[i] = new String(encoded, 0, end - start, UTF_8);
+			start = end;
+		}
+		return strings;
+	}
+
+	/**
+	 * Converts JSON topology files into snapshots.
+	 * @param args pairs of JSON and snapshot file names
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length == 0 || args.length % 2 != 0){
+			System.out.println("Usage: TopologySnapshot <topology.json> <topology.snapshot> [...]");
+			return;
+		}
+		for(int i = 0; i < args.length; i += 2){
+			convert(args[i], args[i+1]);
+			System.out.println("Wrote "+args[i+1]);
+		}
+	}
+}
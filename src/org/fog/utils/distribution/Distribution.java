@@ -2,16 +2,24 @@ package org.fog.utils.distribution;
 
 import java.util.Random;
 
+import org.cloudbus.cloudsim.distributions.RandomStreams;
+
 public abstract class Distribution {
 
 	public static int NORMAL = 1;
 	public static int DETERMINISTIC = 2;
 	public static int UNIFORM = 3;
+	public static int TRACE = 4;
 	
 	protected Random random;
 	public abstract double getNextValue();
 	
+	/**
+	 * @return the generator of the values, the next stream of the run if none was set
+	 */
 	public Random getRandom() {
+		if(random == null)
+			random = RandomStreams.split();
 		return random;
 	}
 
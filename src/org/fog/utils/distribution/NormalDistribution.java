@@ -1,7 +1,5 @@
 package org.fog.utils.distribution;
 
-import java.util.Random;
-
 public class NormalDistribution extends Distribution{
 
 	private double mean;
@@ -10,12 +8,11 @@ public class NormalDistribution extends Distribution{
 	public NormalDistribution(double mean, double stdDev) {
 		setMean(mean);
 		setStdDev(stdDev);
-		setRandom(new Random());
 	}
 	
 	@Override
 	public double getNextValue() {
-		return random.nextGaussian()*stdDev + mean;
+		return getRandom().nextGaussian()*stdDev + mean;
 	}
 
 	public double getMean() {
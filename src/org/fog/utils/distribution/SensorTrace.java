@@ -0,0 +1,283 @@
+package org.fog.utils.distribution;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.util.ByteLineScanner;
+
+/**
+ * Recorded emission times of many sensors, and optionally the sizes of their tuples, shared by the
+ * {@link TraceDistribution}s that replay them. The records are read from a binary file, mapped a
+ * window at a time per sensor, so a trace of any length takes bounded memory.
+ * <p>
+ * The binary file holds a header, an index entry per sensor (offset and number of its records,
+ * offset and length of its name), the UTF-8 names, then the records of each sensor in time order:
+ * the emission time, in simulation time, and the tuple size if the trace has sizes. Numbers are
+ * big-endian. {@link #convert(String, String)} writes it from <tt>sensor,time[,size]</tt> CSV
+ * lines, in which the times of each sensor do not decrease.
+ */
+public class SensorTrace implements Closeable {
+
+	/** "STRC" */
+	public static final int MAGIC = 0x53545243;
+	public static final int VERSION = 1;
+
+	/** magic, version, sensor count, whether the records have sizes */
+	private static final int HEADER_SIZE = 4*4;
+	/** record offset, record count, name offset, name length */
+	private static final int INDEX_ENTRY_SIZE = 8 + 8 + 4 + 4;
+	/** records mapped at a time per sensor */
+	static final int WINDOW_RECORDS = 4096;
+	/** records buffered per sensor while converting */
+	private static final int CONVERT_BUFFER_RECORDS = 256;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private boolean tupleSizes;
+	/** offset and record count of each sensor, by name */
+	private Map<String, long[]> sensors = new LinkedHashMap<String, long[]>();
+
+	/**
+	 * Opens a binary trace, or a CSV one, converted first to a binary file next to it.
+	 * @param fileName the trace, ending in .csv for a CSV trace
+	 */
+	public static SensorTrace open(String fileName) throws IOException {
+		if(fileName.endsWith(".csv")){
+			String binary = fileName.substring(0, fileName.length() - 4) + ".strace";
+			if(!new File(binary).exists() || new File(binary).lastModified() < new File(fileName).lastModified())
+				convert(fileName, binary);
+			fileName = binary;
+		}
+		return new SensorTrace(fileName);
+	}
+
+	public SensorTrace(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION){
+			close();
+			throw new IOException(fileName+" is not a sensor trace of version "+VERSION);
+		}
+		int sensorCount = header.getInt(8);
+		tupleSizes = header.getInt(12) != 0;
+		ByteBuffer index = ByteBuffer.allocate(sensorCount*INDEX_ENTRY_SIZE);
+		channel.read(index, HEADER_SIZE);
+		for(int i = 0; i < sensorCount; i++){
+			int entry = i*INDEX_ENTRY_SIZE;
+			byte[] name = new byte[index.getInt(entry + 20)];
+			channel.read(ByteBuffer.wrap(name), index.getInt(entry + 16));
+			sensors.put(new String(name, UTF_8), new long[]{index.getLong(entry), index.getLong(entry + 8)});
+		}
+	}
+
+	/**
+	 * @param sensorName the name of a sensor of the trace
+	 * @return a new replay of the emissions of the sensor, from its first one
+	 * @throws IllegalArgumentException if the trace has no such sensor
+	 */
+	public TraceDistribution createDistribution(String sensorName) {
+		long[] sensor = sensors.get(sensorName);
+		if(sensor == null)
+			throw new IllegalArgumentException("The trace has no sensor "+sensorName);
+		return new TraceDistribution(this, sensor[0], sensor[1]);
+	}
+
+	public boolean hasSensor(String sensorName) {
+		return sensors.containsKey(sensorName);
+	}
+
+	public List<String> getSensorNames() {
+		return new ArrayList<String>(sensors.keySet());
+	}
+
+	/**
+	 * @return whether the records have the sizes of the tuples
+	 */
+	public boolean hasTupleSizes() {
+		return tupleSizes;
+	}
+
+	int getRecordSize() {
+		return tupleSizes ? 16 : 8;
+	}
+
+	/**
+	 * Maps records of a sensor.
+	 * @param offset the position of the first record in the file
+	 * @param count the number of records
+	 */
+	MappedByteBuffer map(long offset, int count) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) count*getRecordSize());
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Converts a CSV trace of <tt>sensor,time[,size]</tt> lines into a binary one. Lines starting
+	 * with '#', and a first line whose time is not a number, such as a header, are skipped. The
+	 * file is read twice, first to count the records of each sensor, then to write them, so only
+	 * the names and a small buffer per sensor are held in memory.
+	 * @param csvFile the CSV trace
+	 * @param binaryFile the binary trace to write
+	 * @throws IllegalArgumentException if the times of a sensor decrease
+	 */
+	public static void convert(String csvFile, String binaryFile) throws IOException {
+		// records per sensor, in the order the sensors first appear
+		Map<String, long[]> counts = new LinkedHashMap<String, long[]>();
+		boolean tupleSizes = false;
+		InputStream input = new BufferedInputStream(new FileInputStream(csvFile));
+		try {
+			ByteLineScanner scanner = new ByteLineScanner(input, ",;" + ByteLineScanner.WHITESPACE);
+			while(scanner.nextLine()){
+				if(isSkipped(scanner))
+					continue;
+				String name = scanner.getString(0);
+				long[] count = counts.get(name);
+				if(count == null){
+					count = new long[1];
+					counts.put(name, count);
+				}
+				count[0]++;
+				tupleSizes |= scanner.getFieldCount() > 2;
+			}
+		} finally {
+			input.close();
+		}
+
+		int recordSize = tupleSizes ? 16 : 8;
+		List<byte[]> names = new ArrayList<byte[]>();
+		long namesSize = 0;
+		for(String name : counts.keySet()){
+			byte[] encoded = name.getBytes(UTF_8);
+			names.add(encoded);
+			namesSize += encoded.length;
+		}
+		long recordsStart = HEADER_SIZE + (long) counts.size()*INDEX_ENTRY_SIZE + namesSize;
+		recordsStart = (recordsStart + 7)/8*8;
+
+		RandomAccessFile output = new RandomAccessFile(binaryFile, "rw");
+		try {
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			ByteBuffer head = ByteBuffer.allocate((int) recordsStart);
+			head.putInt(MAGIC).putInt(VERSION).putInt(counts.size()).putInt(tupleSizes ? 1 : 0);
+			// where the next records of each sensor go, and their buffers
+			Map<String, SensorWriter> writers = new HashMap<String, SensorWriter>();
+			long recordOffset = recordsStart;
+			int nameOffset = (int) (HEADER_SIZE + (long) counts.size()*INDEX_ENTRY_SIZE);
+			int i = 0;
+			for(Map.Entry<String, long[]> sensor : counts.entrySet()){
+				long count = sensor.getValue()[0];
+				head.putLong(recordOffset).putLong(count).putInt(nameOffset).putInt(names.get(i).length);
+				writers.put(sensor.getKey(), new SensorWriter(recordOffset, recordSize));
+				recordOffset += count*recordSize;
+				nameOffset += names.get(i).length;
+				i++;
+			}
+			for(byte[] name : names)
+				head.put(name);
+			head.rewind();
+			channel.write(head, 0);
+
+			input = new BufferedInputStream(new FileInputStream(csvFile));
+			try {
+				ByteLineScanner scanner = new ByteLineScanner(input, ",;" + ByteLineScanner.WHITESPACE);
+				while(scanner.nextLine()){
+					if(isSkipped(scanner))
+						continue;
+					SensorWriter writer = writers.get(scanner.getString(0));
+					double time = scanner.getDouble(1);
+					if(time < writer.lastTime)
+						throw new IllegalArgumentException(csvFile+":"+scanner.getLineNumber()+": the times of sensor "
+								+scanner.getString(0)+" decrease");
+					writer.lastTime = time;
+					writer.buffer.putDouble(time);
+					if(tupleSizes)
+						writer.buffer.putDouble(scanner.getFieldCount() > 2 ? scanner.getDouble(2) : 0);
+					if(!writer.buffer.hasRemaining())
+						writer.flush(channel);
+				}
+			} finally {
+				input.close();
+			}
+			for(SensorWriter writer : writers.values())
+				writer.flush(channel);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return whether the line is empty, a comment, or the header
+	 */
+	private static boolean isSkipped(ByteLineScanner scanner) {
+		if(scanner.getFieldCount() < 2 || scanner.startsWith("#"))
+			return true;
+		if(scanner.getLineNumber() == 1){
+			try {
+				scanner.getDouble(1);
+			} catch (NumberFormatException e) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The records of a sensor not yet written, while converting
+	 */
+	private static class SensorWriter {
+
+		private long position;
+		private ByteBuffer buffer;
+		private double lastTime = Double.NEGATIVE_INFINITY;
+
+		public SensorWriter(long position, int recordSize) {
+			this.position = position;
+			buffer = ByteBuffer.allocate(CONVERT_BUFFER_RECORDS*recordSize);
+		}
+
+		public void flush(FileChannel channel) throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining())
+				position += channel.write(buffer, position);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Converts a CSV trace into a binary one.
+	 * @param args the CSV trace and the binary trace to write
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2){
+			System.out.println("Usage: SensorTrace <trace.csv> <trace.strace>");
+			return;
+		}
+		convert(args[0], args[1]);
+		SensorTrace trace = new SensorTrace(args[1]);
+		System.out.println("Wrote "+trace.getSensorNames().size()+" sensors to "+args[1]);
+		trace.close();
+	}
+}
@@ -0,0 +1,87 @@
+package org.fog.utils.distribution;
+
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Inter-transmission times of another distribution, divided by a factor between two simulation
+ * times: a sensor using it emits that many times faster during the spike.
+ */
+public class SpikeDistribution extends Distribution{
+
+	private Distribution distribution;
+	private double start;
+	private double end;
+	private double factor;
+
+	public SpikeDistribution(Distribution distribution, double start, double end, double factor){
+		super();
+		setDistribution(distribution);
+		setStart(start);
+		setEnd(end);
+		setFactor(factor);
+	}
+
+	@Override
+	public double getNextValue() {
+		double value = getDistribution().getNextValue();
+		double now = CloudSim.clock();
+		return now >= getStart() && now < getEnd() ? value/getFactor() : value;
+	}
+
+	/**
+	 * Draws the values of the spiked distribution from the generator.
+	 */
+	@Override
+	public void setRandom(Random random) {
+		super.setRandom(random);
+		getDistribution().setRandom(random);
+	}
+
+	public Distribution getDistribution() {
+		return distribution;
+	}
+
+	public void setDistribution(Distribution distribution) {
+		this.distribution = distribution;
+	}
+
+	public double getStart() {
+		return start;
+	}
+
+	public void setStart(double start) {
+		this.start = start;
+	}
+
+	public double getEnd() {
+		return end;
+	}
+
+	public void setEnd(double end) {
+		this.end = end;
+	}
+
+	public double getFactor() {
+		return factor;
+	}
+
+	public void setFactor(double factor) {
+		this.factor = factor;
+	}
+
+	@Override
+	public int getDistributionType() {
+		return getDistribution().getDistributionType();
+	}
+
+	/**
+	 * @return the mean of the distribution outside of the spike
+	 */
+	@Override
+	public double getMeanInterTransmitTime() {
+		return getDistribution().getMeanInterTransmitTime();
+	}
+
+}
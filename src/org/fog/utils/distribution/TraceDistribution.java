@@ -0,0 +1,110 @@
+package org.fog.utils.distribution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Inter-transmission times that replay the emissions of a sensor recorded in a {@link SensorTrace},
+ * from simulation time 0. Only a window of the records is mapped at a time. Once the trace is
+ * exhausted the next value is infinite, and the sensor stops emitting.
+ */
+public class TraceDistribution extends Distribution{
+
+	private SensorTrace trace;
+	/** position of the first record of the sensor in the trace */
+	private long offset;
+	private long count;
+
+	private MappedByteBuffer window;
+	/** index of the first record of the window */
+	private long windowStart;
+	/** index of the record whose time was returned last, -1 before the first */
+	private long current = -1;
+	private double lastTime;
+
+	TraceDistribution(SensorTrace trace, long offset, long count) {
+		super();
+		this.trace = trace;
+		this.offset = offset;
+		this.count = count;
+	}
+
+	@Override
+	public double getNextValue() {
+		if(current + 1 >= count){
+			current = count;
+			return Double.POSITIVE_INFINITY;
+		}
+		current++;
+		double time = getTime(current);
+		double value = Math.max(time - lastTime, 0);
+		lastTime = time;
+		return value;
+	}
+
+	/**
+	 * @return the size recorded with the emission whose time was returned last, or -1 if the trace
+	 * has no sizes or no emission is current
+	 */
+	public double getTupleSize() {
+		if(!hasTupleSizes() || current < 0 || current >= count)
+			return -1;
+		return getRecord(current).getDouble(getPosition(current) + 8);
+	}
+
+	public boolean hasTupleSizes() {
+		return trace.hasTupleSizes();
+	}
+
+	/**
+	 * @return whether every recorded emission was returned
+	 */
+	public boolean isExhausted() {
+		return current >= count - 1;
+	}
+
+	private double getTime(long record) {
+		return getRecord(record).getDouble(getPosition(record));
+	}
+
+	private int getPosition(long record) {
+		return (int) (record - windowStart)*trace.getRecordSize();
+	}
+
+	/**
+	 * @return the window holding the record, mapping the next one if the record is past it
+	 */
+	private MappedByteBuffer getRecord(long record) {
+		if(window == null || record < windowStart || record >= windowStart + SensorTrace.WINDOW_RECORDS){
+			windowStart = record;
+			try {
+				window = trace.map(offset + record*trace.getRecordSize(),
+						(int) Math.min(SensorTrace.WINDOW_RECORDS, count - record));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return window;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int getDistributionType() {
+		return Distribution.TRACE;
+	}
+
+	/**
+	 * @return the mean time between the recorded emissions
+	 */
+	@Override
+	public double getMeanInterTransmitTime() {
+		if(count < 2)
+			return count == 1 ? getTime(0) : 0;
+		return (getTime(count - 1) - getTime(0))/(count - 1);
+	}
+
+}
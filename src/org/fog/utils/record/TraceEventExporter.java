@@ -0,0 +1,395 @@
+package org.fog.utils.record;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.simple.JSONValue;
+
+/**
+ * Exports the tuple lifecycles of a {@link TupleRecorder} file as a Chrome Trace Event JSON trace,
+ * which chrome://tracing and the Perfetto UI display as a timeline.
+ * <p>
+ * Every entity is a process: the fog devices, and the sensors and actuators the tuples come from
+ * and go to. The threads of a device are its modules, executing the tuples, and for every peer it
+ * sends to, the link and the queue in front of it. Tuples waiting in a queue, crossing a link or
+ * executing are spans, named by tuple type, and arrows join the successive spans of a tuple, and
+ * the execution of a tuple to the tuples resulting from it. Spans that overlap on a module or a
+ * link, such as tuples sharing the CPU, are spread over numbered lanes of the thread.
+ * <p>
+ * The events are written as the records are read, and only the spans in progress and the last
+ * span of the recent tuples are held in memory, so traces of any length can be exported.
+ * Simulation times are taken as milliseconds.
+ */
+public class TraceEventExporter {
+
+	/** lanes of a thread at most, the spans overlapping beyond them share the last one */
+	public static final int MAX_LANES = 16;
+	/** tuples whose last span is kept to draw the arrows to their next one */
+	private static final int FLOW_TUPLES = 1 << 16;
+
+	private final Writer out;
+	private boolean firstEvent = true;
+	private long eventCount;
+	private double lastTime;
+
+	private Map<String, Integer> processIds = new HashMap<String, Integer>();
+	/** threads by process id and name */
+	private Map<String, Track> tracks = new HashMap<String, Track>();
+	private int nextThreadId = 1;
+
+	/** spans in progress, by kind, tuple, entity and peer or module */
+	private Map<String, Span> openSpans = new HashMap<String, Span>();
+	/** last span of the recent tuples, by tuple id */
+	private Map<Integer, Span> tupleSpans = new LinkedHashMap<Integer, Span>() {
+		protected static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Span> eldest) {
+			return size() > FLOW_TUPLES;
+		}
+	};
+	/** span of the emission or of the last execution the recent tuples result from, by emission id */
+	private Map<Integer, Span> emissionSpans = new LinkedHashMap<Integer, Span>() {
+		protected static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Span> eldest) {
+			return size() > FLOW_TUPLES;
+		}
+	};
+	private long nextFlowId = 1;
+
+	/**
+	 * Starts the trace.
+	 * @param out the output, closed by {@link #close()}
+	 */
+	public TraceEventExporter(Writer out) throws IOException {
+		this.out = out;
+		out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+	}
+
+	/**
+	 * Adds the events of all the records left in the reader.
+	 */
+	public void export(TupleRecordReader reader) throws IOException {
+		while(reader.next())
+			add(reader);
+	}
+
+	/**
+	 * Adds the events of the current record of the reader.
+	 */
+	public void add(TupleRecordReader record) throws IOException {
+		double time = record.getTime();
+		lastTime = Math.max(lastTime, time);
+		String entity = record.getEntity();
+		String peer = record.getPeer();
+		String key = record.getTupleId()+" "+entity+" "+peer;
+		switch(record.getKind()){
+		case TupleRecorder.EMIT:
+			Span emission = open(record, entity, "emissions");
+			emission.args.put("latency", record.getValue());
+			close(emission, time + record.getValue());
+			emissionSpans.put(record.getEmissionId(), emission);
+			break;
+		case TupleRecorder.ARRIVAL:
+			// only the actuators show the arrivals, the fog devices show what they do with the tuple
+			if(record.getModule() != null)
+				close(open(record, entity, record.getModule()), time);
+			break;
+		case TupleRecorder.QUEUED:
+			Span queued = open(record, entity, "queue to "+peer);
+			queued.args.put("queueLength", (int) record.getValue());
+			openSpans.put("q "+key, queued);
+			break;
+		case TupleRecorder.SEND_START:
+			Span waiting = openSpans.remove("q "+key);
+			if(waiting != null)
+				close(waiting, time);
+			Span sending = open(record, entity, "link to "+peer);
+			sending.args.put("sharingTuples", (int) record.getValue());
+			openSpans.put("s "+key, sending);
+			break;
+		case TupleRecorder.SEND_END:
+			Span sent = openSpans.remove("s "+key);
+			if(sent != null){
+				sent.args.put("transmissionTime", record.getValue());
+				close(sent, time);
+			}
+			break;
+		case TupleRecorder.EXEC_START:
+			openSpans.put("x "+record.getTupleId()+" "+entity+" "+record.getModule(),
+					open(record, entity, record.getModule()));
+			break;
+		case TupleRecorder.EXEC_END:
+			Span executed = openSpans.remove("x "+record.getTupleId()+" "+entity+" "+record.getModule());
+			if(executed != null){
+				executed.args.put("cpuTime", record.getValue());
+				close(executed, time);
+				tupleSpans.remove(record.getTupleId());
+				emissionSpans.put(record.getEmissionId(), executed);
+			}
+			break;
+		case TupleRecorder.DROPPED:
+			// the dropped tuple may wait for any of the links of the device
+			String prefix = "q "+record.getTupleId()+" "+entity+" ";
+			for(Iterator<Map.Entry<String, Span>> iterator = openSpans.entrySet().iterator(); iterator.hasNext();){
+				Map.Entry<String, Span> span = iterator.next();
+				if(span.getKey().startsWith(prefix)){
+					span.getValue().name += " (dropped)";
+					close(span.getValue(), time);
+					iterator.remove();
+				}
+			}
+			writeInstant(getProcessId(entity), "dropped "+record.getTupleType(), time);
+			break;
+		}
+	}
+
+	/**
+	 * Starts a span of the tuple of the record on a thread of an entity, with an arrow from the
+	 * last span of the tuple, or from the execution it results from.
+	 */
+	private Span open(TupleRecordReader record, String entity, String thread) throws IOException {
+		int processId = getProcessId(entity);
+		Track track = getTrack(processId, thread);
+		Span span = new Span();
+		span.name = record.getTupleType();
+		span.processId = processId;
+		span.track = track;
+		span.lane = track.acquire(record.getTime());
+		span.threadId = track.getThreadId(span.lane);
+		span.start = record.getTime();
+		span.args.put("tupleId", record.getTupleId());
+		if(record.getActualTupleId() > 0)
+			span.args.put("actualTupleId", record.getActualTupleId());
+		span.args.put("emissionId", record.getEmissionId());
+		span.args.put("size", record.getSize());
+
+		Span previous = tupleSpans.get(record.getTupleId());
+		if(previous == null)
+			previous = emissionSpans.get(record.getEmissionId());
+		if(previous != null)
+			writeFlow(previous, span);
+		tupleSpans.put(record.getTupleId(), span);
+		return span;
+	}
+
+	/**
+	 * Ends a span and writes it as a complete event.
+	 */
+	private void close(Span span, double end) throws IOException {
+		span.track.release(span.lane, end);
+		Map<String, Object> event = event("X", span.name, span.processId, span.threadId, span.start);
+		event.put("cat", "tuple");
+		event.put("dur", toMicroseconds(end - span.start));
+		event.put("args", span.args);
+		write(event);
+	}
+
+	private void writeFlow(Span from, Span to) throws IOException {
+		long id = nextFlowId++;
+		Map<String, Object> start = event("s", "tuple", from.processId, from.threadId, from.start);
+		start.put("cat", "tuple");
+		start.put("id", id);
+		write(start);
+		Map<String, Object> finish = event("f", "tuple", to.processId, to.threadId, to.start);
+		finish.put("cat", "tuple");
+		finish.put("id", id);
+		finish.put("bp", "e");
+		write(finish);
+	}
+
+	private void writeInstant(int processId, String name, double time) throws IOException {
+		Map<String, Object> event = event("i", name, processId, 0, time);
+		event.put("s", "p");
+		write(event);
+	}
+
+	private int getProcessId(String entity) throws IOException {
+		Integer processId = processIds.get(entity);
+		if(processId == null){
+			processId = processIds.size() + 1;
+			processIds.put(entity, processId);
+			writeMetadata("process_name", processId, 0, entity);
+		}
+		return processId;
+	}
+
+	private Track getTrack(int processId, String name) {
+		String key = processId+" "+name;
+		Track track = tracks.get(key);
+		if(track == null){
+			track = new Track(processId, name);
+			tracks.put(key, track);
+		}
+		return track;
+	}
+
+	private void writeMetadata(String name, int processId, int threadId, String value) throws IOException {
+		Map<String, Object> event = new LinkedHashMap<String, Object>();
+		event.put("ph", "M");
+		event.put("name", name);
+		event.put("pid", processId);
+		if(threadId > 0)
+			event.put("tid", threadId);
+		Map<String, Object> args = new HashMap<String, Object>();
+		args.put("name", value);
+		event.put("args", args);
+		write(event);
+	}
+
+	private static Map<String, Object> event(String phase, String name, int processId, int threadId, double time) {
+		Map<String, Object> event = new LinkedHashMap<String, Object>();
+		event.put("ph", phase);
+		event.put("name", name);
+		event.put("pid", processId);
+		if(threadId > 0)
+			event.put("tid", threadId);
+		event.put("ts", toMicroseconds(time));
+		return event;
+	}
+
+	private static double toMicroseconds(double time) {
+		return time*1000;
+	}
+
+	private void write(Map<String, Object> event) throws IOException {
+		if(!firstEvent)
+			out.write(",\n");
+		firstEvent = false;
+		JSONValue.writeJSONString(event, out);
+		eventCount++;
+	}
+
+	/**
+	 * Ends the spans still in progress at the last recorded time, ends the trace and closes the
+	 * output.
+	 */
+	public void close() throws IOException {
+		try {
+			for(Span span : new ArrayList<Span>(openSpans.values())){
+				span.args.put("unfinished", true);
+				close(span, lastTime);
+			}
+			openSpans.clear();
+			out.write("\n]}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the number of events written
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Exports a tuple record file as a trace, gzipped if its name ends in .gz.
+	 * @return the number of events written
+	 */
+	public static long export(String recordFile, String traceFile) throws IOException {
+		TupleRecordReader reader = new TupleRecordReader(recordFile);
+		try {
+			OutputStream output = new FileOutputStream(traceFile);
+			if(traceFile.endsWith(".gz"))
+				output = new GZIPOutputStream(output, 1 << 16);
+			TraceEventExporter exporter = new TraceEventExporter(
+					new BufferedWriter(new OutputStreamWriter(output, TupleRecorder.UTF_8), 1 << 16));
+			try {
+				exporter.export(reader);
+			} finally {
+				exporter.close();
+			}
+			return exporter.getEventCount();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * A span of a tuple on a thread
+	 */
+	private static class Span {
+
+		private String name;
+		private int processId;
+		private Track track;
+		private int lane;
+		private int threadId;
+		private double start;
+		private Map<String, Object> args = new LinkedHashMap<String, Object>();
+	}
+
+	/**
+	 * A thread of a process, as lanes for the spans that overlap
+	 */
+	private class Track {
+
+		private int processId;
+		private String name;
+		private List<Integer> threadIds = new ArrayList<Integer>();
+		/** spans in progress and end of the last span, by lane */
+		private List<Integer> openSpans = new ArrayList<Integer>();
+		private List<Double> ends = new ArrayList<Double>();
+
+		public Track(int processId, String name) {
+			this.processId = processId;
+			this.name = name;
+		}
+
+		/**
+		 * @return the first lane free at the time, a new one if none is, or the last one past the
+		 * maximum number of lanes
+		 */
+		public int acquire(double time) throws IOException {
+			int lane = 0;
+			while(lane < threadIds.size() && (openSpans.get(lane) > 0 || ends.get(lane) > time))
+				lane++;
+			if(lane == MAX_LANES)
+				lane--;
+			if(lane == threadIds.size()){
+				int threadId = nextThreadId++;
+				threadIds.add(threadId);
+				openSpans.add(0);
+				ends.add(time);
+				writeMetadata("thread_name", processId, threadId, lane == 0 ? name : name+" (lane "+(lane + 1)+")");
+			}
+			openSpans.set(lane, openSpans.get(lane) + 1);
+			return lane;
+		}
+
+		public void release(int lane, double end) {
+			openSpans.set(lane, openSpans.get(lane) - 1);
+			ends.set(lane, Math.max(ends.get(lane), end));
+		}
+
+		public int getThreadId(int lane) {
+			return threadIds.get(lane);
+		}
+	}
+
+	/**
+	 * Exports a tuple record file as a trace.
+	 * @param args the tuple record file and the trace to write, ending in .json or .json.gz
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2){
+			System.out.println("Usage: TraceEventExporter <records.ftrc> <trace.json[.gz]>");
+			return;
+		}
+		long events = export(args[0], args[1]);
+		System.out.println("Wrote "+events+" events to "+args[1]);
+	}
+}
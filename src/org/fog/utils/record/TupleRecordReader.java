@@ -0,0 +1,212 @@
+package org.fog.utils.record;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads back the records of a {@link TupleRecorder} file, one chunk in memory at a time. The
+ * reader is a cursor: {@link #next()} moves to the next record, whose fields the getters return.
+ */
+public class TupleRecordReader implements Closeable {
+
+	private DataInputStream input;
+	/** the strings defined so far, by string id */
+	private List<String> strings = new ArrayList<String>();
+
+	/** the columns of the current chunk */
+	private ByteBuffer chunk = ByteBuffer.allocate(0);
+	private int count;
+	/** index of the current record in the chunk */
+	private int index = -1;
+	private long recordNumber = -1;
+
+	private int kindsStart;
+	private int intsStart;
+	private int sizesStart;
+	private int valuesStart;
+
+	public TupleRecordReader(String fileName) throws IOException {
+		input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		try {
+			if(input.readInt() != TupleRecorder.MAGIC || input.readInt() != TupleRecorder.VERSION)
+				throw new IOException(fileName+" is not a tuple record file of version "+TupleRecorder.VERSION);
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves to the next record.
+	 * @return false after the last record
+	 */
+	public boolean next() throws IOException {
+		while(index + 1 >= count){
+			if(!readChunk())
+				return false;
+		}
+		index++;
+		recordNumber++;
+		return true;
+	}
+
+	private boolean readChunk() throws IOException {
+		int records;
+		try {
+			records = input.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		int stringCount = input.readInt();
+		for(int i = 0; i < stringCount; i++){
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			strings.add(new String(bytes, TupleRecorder.UTF_8));
+		}
+		int size = records*TupleRecorder.RECORD_SIZE;
+		if(chunk.capacity() < size)
+			chunk = ByteBuffer.allocate(size);
+		input.readFully(chunk.array(), 0, size);
+		count = records;
+		index = -1;
+		kindsStart = 8*records;
+		intsStart = kindsStart + records;
+		sizesStart = intsStart + TupleRecorder.INT_COLUMNS*4*records;
+		valuesStart = sizesStart + 8*records;
+		return true;
+	}
+
+	public double getTime() {
+		return chunk.getDouble(8*index);
+	}
+
+	/**
+	 * @return the kind of event, as {@link TupleRecorder#EMIT}
+	 */
+	public byte getKind() {
+		return chunk.get(kindsStart + index);
+	}
+
+	public String getKindName() {
+		return getKindName(getKind());
+	}
+
+	public int getTupleId() {
+		return getInt(0);
+	}
+
+	/**
+	 * @return the id of the tuple emitted by the sensor the tuple results from
+	 */
+	public int getActualTupleId() {
+		return getInt(1);
+	}
+
+	/**
+	 * @return the id of the sensor tuple the tuple results from, its own id if it results from no
+	 * emission
+	 */
+	public int getEmissionId() {
+		return getInt(2);
+	}
+
+	/**
+	 * @return the name of the entity where the event happened
+	 */
+	public String getEntity() {
+		return getString(getInt(3));
+	}
+
+	/**
+	 * @return the module concerned, or null
+	 */
+	public String getModule() {
+		return getString(getInt(4));
+	}
+
+	public String getTupleType() {
+		return getString(getInt(5));
+	}
+
+	/**
+	 * @return the entity at the other end of the link concerned, or null
+	 */
+	public String getPeer() {
+		return getString(getInt(6));
+	}
+
+	/**
+	 * @return the size of the tuple, in bytes
+	 */
+	public long getSize() {
+		return chunk.getLong(sizesStart + 8*index);
+	}
+
+	/**
+	 * @return the value of the event, as the queue length or the transmission time
+	 */
+	public double getValue() {
+		return chunk.getDouble(valuesStart + 8*index);
+	}
+
+	/**
+	 * @return the number of the current record in the file, from 0
+	 */
+	public long getRecordNumber() {
+		return recordNumber;
+	}
+
+	private int getInt(int column) {
+		return chunk.getInt(intsStart + 4*(column*count + index));
+	}
+
+	private String getString(int id) {
+		return id < 0 ? null : strings.get(id);
+	}
+
+	public static String getKindName(byte kind) {
+		return kind >= 0 && kind < TupleRecorder.KIND_NAMES.length ? TupleRecorder.KIND_NAMES[kind] : "KIND_"+kind;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Prints the records of a file as CSV.
+	 * @param args the tuple record file
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1){
+			System.out.println("Usage: TupleRecordReader <records.ftrc>");
+			return;
+		}
+		TupleRecordReader reader = new TupleRecordReader(args[0]);
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+		try {
+			out.println("time,kind,tupleId,actualTupleId,emissionId,entity,module,tupleType,peer,size,value");
+			while(reader.next()){
+				out.println(reader.getTime()+","+reader.getKindName()+","+reader.getTupleId()+","+reader.getActualTupleId()
+						+","+reader.getEmissionId()+","+reader.getEntity()+","+emptyIfNull(reader.getModule())
+						+","+reader.getTupleType()+","+emptyIfNull(reader.getPeer())+","+reader.getSize()+","+reader.getValue());
+			}
+		} finally {
+			out.flush();
+			reader.close();
+		}
+	}
+
+	private static String emptyIfNull(String string) {
+		return string == null ? "" : string;
+	}
+}
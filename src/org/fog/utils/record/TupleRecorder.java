@@ -0,0 +1,423 @@
+package org.fog.utils.record;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppLoop;
+import org.fog.entities.Tuple;
+
+/**
+ * Records the lifecycle of sampled tuples, from their emission through every queue, link and
+ * module on their way, into a binary file for offline analysis with {@link TupleRecordReader}.
+ * <p>
+ * The records are collected in column arrays of fixed-size chunks, which a background thread
+ * encodes and writes through a file channel. The chunks come from a fixed pool, so the memory
+ * does not depend on the length of the run. If the writer falls behind and no chunk is free, the
+ * records of the full chunk are discarded and counted as lost, unless the recorder is blocking,
+ * so the simulation never waits for the disk.
+ * <p>
+ * The file holds a header (magic and version) and then the chunks, each with its record count,
+ * the strings it defines, then the columns: time, kind, tuple id, actual tuple id, emission id,
+ * entity, module, tuple type, peer entity, size and value. Names are written once, as string ids numbered in the
+ * order they are defined. Numbers are big-endian.
+ */
+public class TupleRecorder implements Closeable {
+
+	/** "FTRC" */
+	public static final int MAGIC = 0x46545243;
+	public static final int VERSION = 2;
+
+	/** A sensor emitted the tuple. */
+	public static final byte EMIT = 0;
+	/** The tuple reached a fog device or an actuator. */
+	public static final byte ARRIVAL = 1;
+	/** The tuple waits in the link queue towards the peer, the value is the queue length. */
+	public static final byte QUEUED = 2;
+	/** The tuple starts crossing the link towards the peer. */
+	public static final byte SEND_START = 3;
+	/** The last bit of the tuple left on the link towards the peer, the value is the transmission time. */
+	public static final byte SEND_END = 4;
+	/** The module starts executing the tuple. */
+	public static final byte EXEC_START = 5;
+	/** The module finished executing the tuple. */
+	public static final byte EXEC_END = 6;
+	/** A full link queue dropped the tuple. */
+	public static final byte DROPPED = 7;
+
+	static final String[] KIND_NAMES = {"EMIT", "ARRIVAL", "QUEUED", "SEND_START", "SEND_END", "EXEC_START",
+			"EXEC_END", "DROPPED"};
+
+	/** time, kind, tuple id, actual tuple id, emission id, entity, module, tuple type, peer, size, value */
+	static final int RECORD_SIZE = 8 + 1 + 7*4 + 8 + 8;
+	/** the int columns, from the tuple id to the peer */
+	static final int INT_COLUMNS = 7;
+
+	public static final int DEFAULT_CHUNK_RECORDS = 8192;
+	public static final int DEFAULT_CHUNKS = 4;
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The recorder of the run, null if none */
+	private static TupleRecorder recorder;
+
+	private final FileOutputStream output;
+	private final FileChannel channel;
+	private final int chunkRecords;
+	/** Chunks ready to be filled, and full ones waiting for the writer */
+	private final BlockingQueue<Chunk> freeChunks;
+	private final BlockingQueue<Chunk> fullChunks;
+	private final Chunk end = new Chunk(0);
+	private final Thread writer;
+	private volatile IOException error;
+
+	private Chunk chunk;
+	private Map<String, Integer> stringIds = new HashMap<String, Integer>();
+	/** String ids of the entity names, by entity id */
+	private int[] entityStringIds = new int[0];
+
+	private int sampleEvery = 1;
+	private List<AppLoop> sampledLoops = new ArrayList<AppLoop>();
+	private boolean blocking;
+	private long recorded;
+	private long lost;
+	private boolean closed;
+
+	public TupleRecorder(String fileName) throws IOException {
+		this(fileName, DEFAULT_CHUNK_RECORDS, DEFAULT_CHUNKS);
+	}
+
+	/**
+	 * @param chunkRecords the number of records per chunk
+	 * @param chunks the number of chunks, at least 2: one being filled, the others written
+	 */
+	public TupleRecorder(String fileName, int chunkRecords, int chunks) throws IOException {
+		if(chunkRecords <= 0 || chunks < 2)
+			throw new IllegalArgumentException("A tuple recorder needs at least 2 chunks of 1 record");
+		this.chunkRecords = chunkRecords;
+		output = new FileOutputStream(fileName);
+		channel = output.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		channel.write(header);
+		freeChunks = new ArrayBlockingQueue<Chunk>(chunks);
+		fullChunks = new ArrayBlockingQueue<Chunk>(chunks + 1);
+		chunk = new Chunk(chunkRecords);
+		for(int i = 1; i < chunks; i++)
+			freeChunks.add(new Chunk(chunkRecords));
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeChunks();
+			}
+		}, "tuple-recorder");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public static TupleRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * @param recorder the recorder the entities record into, null to stop recording
+	 */
+	public static void setRecorder(TupleRecorder recorder) {
+		TupleRecorder.recorder = recorder;
+	}
+
+	/**
+	 * Records an event of a tuple now, if a recorder is set and samples the tuple.
+	 * @param entityId the entity where it happens
+	 * @param module the module concerned, or null
+	 * @param peerId the entity at the other end of the link concerned, or -1
+	 */
+	public static void record(byte kind, Tuple tuple, int entityId, String module, int peerId, double value) {
+		record(CloudSim.clock(), kind, tuple, entityId, module, peerId, value);
+	}
+
+	/**
+	 * Records an event of a tuple at a given time, if a recorder is set and samples the tuple.
+	 */
+	public static void record(double time, byte kind, Tuple tuple, int entityId, String module, int peerId, double value) {
+		TupleRecorder current = recorder;
+		if(current != null && current.isSampled(tuple))
+			current.add(time, kind, tuple, entityId, module, peerId, value);
+	}
+
+	/**
+	 * @return whether the tuple results from one of every {@link #getSampleEvery()} sensor
+	 * emissions, so an emission is sampled with all the tuples resulting from it, and goes from or
+	 * to a module of a sampled loop, if any
+	 */
+	public boolean isSampled(Tuple tuple) {
+		if(sampleEvery > 1 && tuple.getEmissionId() % sampleEvery != 0)
+			return false;
+		if(sampledLoops.isEmpty())
+			return true;
+		for(AppLoop loop : sampledLoops){
+			if(loop.getModules().contains(tuple.getSrcModuleName()) || loop.getModules().contains(tuple.getDestModuleName()))
+				return true;
+		}
+		return false;
+	}
+
+	private void add(double time, byte kind, Tuple tuple, int entityId, String module, int peerId, double value) {
+		if(closed)
+			return;
+		Chunk chunk = this.chunk;
+		int i = chunk.count;
+		chunk.times[i] = time;
+		chunk.kinds[i] = kind;
+		chunk.tupleIds[i] = tuple.getCloudletId();
+		chunk.actualTupleIds[i] = tuple.getActualTupleId();
+		chunk.emissionIds[i] = tuple.getEmissionId();
+		chunk.entities[i] = getEntityStringId(entityId);
+		chunk.modules[i] = getStringId(module);
+		chunk.tupleTypes[i] = getStringId(tuple.getTupleType());
+		chunk.peers[i] = peerId < 0 ? -1 : getEntityStringId(peerId);
+		chunk.sizes[i] = tuple.getCloudletFileSize();
+		chunk.values[i] = value;
+		chunk.count++;
+		recorded++;
+		if(chunk.count == chunkRecords)
+			submit();
+	}
+
+	/**
+	 * Hands the current chunk to the writer and takes a free one, or empties the current chunk if
+	 * none is free and the recorder does not block. The strings defined by emptied records are
+	 * kept, since later records refer to them.
+	 */
+	private void submit() {
+		Chunk next = blocking ? take(freeChunks) : freeChunks.poll();
+		if(next == null){
+			lost += chunk.count;
+			chunk.count = 0;
+			return;
+		}
+		put(fullChunks, chunk);
+		chunk = next;
+	}
+
+	private int getStringId(String string) {
+		if(string == null)
+			return -1;
+		Integer id = stringIds.get(string);
+		if(id == null){
+			id = stringIds.size();
+			stringIds.put(string, id);
+			chunk.strings.add(string);
+		}
+		return id;
+	}
+
+	private int getEntityStringId(int entityId) {
+		if(entityId >= entityStringIds.length){
+			int length = entityStringIds.length;
+			entityStringIds = Arrays.copyOf(entityStringIds, Math.max(entityId + 1, 2*length));
+			Arrays.fill(entityStringIds, length, entityStringIds.length, -1);
+		}
+		if(entityStringIds[entityId] < 0)
+			entityStringIds[entityId] = getStringId(CloudSim.getEntityName(entityId));
+		return entityStringIds[entityId];
+	}
+
+	/**
+	 * Encodes and writes the full chunks until the end, then closes the file. After an error the
+	 * chunks are still taken and freed, so the simulation goes on, and the error is reported on
+	 * {@link #close()}.
+	 */
+	private void writeChunks() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(8 + chunkRecords*RECORD_SIZE + 4096);
+		while(true){
+			Chunk full = take(fullChunks);
+			if(full == end)
+				break;
+			if(error == null){
+				try {
+					buffer = full.encode(buffer);
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+			full.count = 0;
+			full.strings.clear();
+			freeChunks.offer(full);
+		}
+	}
+
+	/**
+	 * Writes the records still in memory and closes the file, waiting for the writer.
+	 * @throws IOException if the file could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed = true;
+		if(recorder == this)
+			recorder = null;
+		if(chunk.count > 0 || !chunk.strings.isEmpty())
+			put(fullChunks, chunk);
+		put(fullChunks, end);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the tuple records");
+		} finally {
+			output.close();
+		}
+		if(error != null)
+			throw error;
+	}
+
+	private static <T> T take(BlockingQueue<T> queue) {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static <T> void put(BlockingQueue<T> queue, T element) {
+		try {
+			queue.put(element);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public int getSampleEvery() {
+		return sampleEvery;
+	}
+
+	/**
+	 * @param sampleEvery the tuples sampled, one of every sampleEvery emissions with all the
+	 * tuples resulting from it
+	 */
+	public void setSampleEvery(int sampleEvery) {
+		this.sampleEvery = sampleEvery;
+	}
+
+	public List<AppLoop> getSampledLoops() {
+		return sampledLoops;
+	}
+
+	/**
+	 * @param sampledLoops the loops whose tuples are sampled, all tuples if empty
+	 */
+	public void setSampledLoops(List<AppLoop> sampledLoops) {
+		this.sampledLoops = sampledLoops;
+	}
+
+	public boolean isBlocking() {
+		return blocking;
+	}
+
+	/**
+	 * @param blocking whether the simulation waits for the writer when no chunk is free, instead
+	 * of losing the records
+	 */
+	public void setBlocking(boolean blocking) {
+		this.blocking = blocking;
+	}
+
+	/**
+	 * @return the number of records taken, including the lost ones
+	 */
+	public long getRecorded() {
+		return recorded;
+	}
+
+	/**
+	 * @return the number of records lost because the writer fell behind
+	 */
+	public long getLost() {
+		return lost;
+	}
+
+	/**
+	 * The columns of a chunk of records, and the strings first used by them
+	 */
+	private static class Chunk {
+
+		private int count;
+		private final List<String> strings = new ArrayList<String>();
+		private final double[] times;
+		private final byte[] kinds;
+		private final int[] tupleIds;
+		private final int[] actualTupleIds;
+		private final int[] emissionIds;
+		private final int[] entities;
+		private final int[] modules;
+		private final int[] tupleTypes;
+		private final int[] peers;
+		private final long[] sizes;
+		private final double[] values;
+
+		public Chunk(int records) {
+			times = new double[records];
+			kinds = new byte[records];
+			tupleIds = new int[records];
+			actualTupleIds = new int[records];
+			emissionIds = new int[records];
+			entities = new int[records];
+			modules = new int[records];
+			tupleTypes = new int[records];
+			peers = new int[records];
+			sizes = new long[records];
+			values = new double[records];
+		}
+
+		/**
+		 * @return the buffer holding the encoded chunk, ready to be written, a larger one if the
+		 * given one is too small
+		 */
+		public ByteBuffer encode(ByteBuffer buffer) {
+			List<byte[]> encoded = new ArrayList<byte[]>(strings.size());
+			int size = 8 + count*RECORD_SIZE;
+			for(String string : strings){
+				byte[] bytes = string.getBytes(UTF_8);
+				encoded.add(bytes);
+				size += 4 + bytes.length;
+			}
+			if(buffer.capacity() < size)
+				buffer = ByteBuffer.allocateDirect(size);
+			buffer.clear();
+			buffer.putInt(count).putInt(strings.size());
+			for(byte[] bytes : encoded)
+				buffer.putInt(bytes.length).put(bytes);
+			for(int i = 0; i < count; i++)
+				buffer.putDouble(times[i]);
+			buffer.put(kinds, 0, count);
+			for(int[] column : new int[][]{tupleIds, actualTupleIds, emissionIds, entities, modules, tupleTypes, peers}){
+				for(int i = 0; i < count; i++)
+					buffer.putInt(column[i]);
+			}
+			for(int i = 0; i < count; i++)
+				buffer.putLong(sizes[i]);
+			for(int i = 0; i < count; i++)
+				buffer.putDouble(values[i]);
+			buffer.flip();
+			return buffer;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.fog.utils.scenario;
+
+import java.util.Map;
+
+/**
+ * A kind of fog device of a scenario: the hardware, power, cost and uplink figures shared by all
+ * devices of the class.
+ */
+public class DeviceClass {
+
+	private final String name;
+	private final long mips;
+	private final int ram;
+	private final long upBw;
+	private final long downBw;
+	private final int level;
+	private final double ratePerMips;
+	private final double busyPower;
+	private final double idlePower;
+	private final double uplinkLatency;
+	private final double totalCost;
+	private final long hostBw;
+	private final double costPerBw;
+
+	DeviceClass(String name, Map<String, String> attributes, int lineNumber) {
+		this.name = name;
+		mips = ScenarioReader.getLong(attributes, "mips", lineNumber);
+		ram = (int) ScenarioReader.getLong(attributes, "ram", lineNumber);
+		upBw = ScenarioReader.getLong(attributes, "upBw", lineNumber);
+		downBw = ScenarioReader.getLong(attributes, "downBw", lineNumber);
+		level = (int) ScenarioReader.getLong(attributes, "level", lineNumber);
+		ratePerMips = ScenarioReader.getDouble(attributes, "ratePerMips", 0, lineNumber);
+		busyPower = ScenarioReader.getDouble(attributes, "busyPower", lineNumber);
+		idlePower = ScenarioReader.getDouble(attributes, "idlePower", lineNumber);
+		uplinkLatency = ScenarioReader.getDouble(attributes, "uplinkLatency", 0, lineNumber);
+		totalCost = ScenarioReader.getDouble(attributes, "totalCost", 0, lineNumber);
+		hostBw = (long) ScenarioReader.getDouble(attributes, "hostBw", Long.MAX_VALUE, lineNumber);
+		costPerBw = ScenarioReader.getDouble(attributes, "costPerBw", 2.0, lineNumber);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getMips() {
+		return mips;
+	}
+
+	public int getRam() {
+		return ram;
+	}
+
+	public long getUpBw() {
+		return upBw;
+	}
+
+	public long getDownBw() {
+		return downBw;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public double getRatePerMips() {
+		return ratePerMips;
+	}
+
+	public double getBusyPower() {
+		return busyPower;
+	}
+
+	public double getIdlePower() {
+		return idlePower;
+	}
+
+	public double getUplinkLatency() {
+		return uplinkLatency;
+	}
+
+	/**
+	 * @return the cost the devices start with
+	 */
+	public double getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * @return the bandwidth of the host of the device
+	 */
+	public long getHostBw() {
+		return hostBw;
+	}
+
+	public double getCostPerBw() {
+		return costPerBw;
+	}
+}
@@ -0,0 +1,59 @@
+package org.fog.utils.scenario;
+
+import java.util.Map;
+
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+
+/**
+ * A kind of sensor or actuator of a scenario: its type, the latency of the link to its gateway
+ * device and, for sensors, the distribution of the inter-transmission time.
+ */
+public class EndpointClass {
+
+	private final String name;
+	private final String type;
+	private final double latency;
+	private final Map<String, String> attributes;
+	private final int lineNumber;
+
+	EndpointClass(String name, Map<String, String> attributes, int lineNumber) {
+		this.name = name;
+		this.type = ScenarioReader.getString(attributes, "type", lineNumber);
+		this.latency = ScenarioReader.getDouble(attributes, "latency", 0, lineNumber);
+		this.attributes = attributes;
+		this.lineNumber = lineNumber;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public double getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Creates the inter-transmission time distribution of a sensor. Every sensor gets its own
+	 * instance.
+	 * @return the distribution
+	 */
+	public Distribution createDistribution() {
+		String distribution = ScenarioReader.getString(attributes, "distribution", "deterministic");
+		if(distribution.equals("deterministic"))
+			return new DeterministicDistribution(ScenarioReader.getDouble(attributes, "value", lineNumber));
+		if(distribution.equals("normal"))
+			return new NormalDistribution(ScenarioReader.getDouble(attributes, "mean", lineNumber),
+					ScenarioReader.getDouble(attributes, "stdDev", lineNumber));
+		if(distribution.equals("uniform"))
+			return new UniformDistribution(ScenarioReader.getDouble(attributes, "min", lineNumber),
+					ScenarioReader.getDouble(attributes, "max", lineNumber));
+		throw new IllegalArgumentException("line " + lineNumber + ": unknown distribution " + distribution);
+	}
+}
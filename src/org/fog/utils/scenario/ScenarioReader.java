@@ -0,0 +1,385 @@
+package org.fog.utils.scenario;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PhysicalTopology;
+import org.fog.entities.Sensor;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.Config;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+
+/**
+ * Builds the physical topology of a scenario file. The file is read line by line and the
+ * entities are created as soon as the line describing them is read, so the whole topology is
+ * never held as text or as a parse tree.
+ * <p>
+ * A scenario is made of whitespace separated <tt>key=value</tt> lines (a '#' at the start of a
+ * line or after a blank starts a comment):
+ * <pre>
+ * device-class   &lt;name&gt; mips= ram= upBw= downBw= level= busyPower= idlePower= [ratePerMips= uplinkLatency= totalCost= hostBw= costPerBw=]
+ * sensor-class   &lt;name&gt; type= [latency=] [distribution=deterministic value= | normal mean= stdDev= | uniform min= max=]
+ * actuator-class &lt;name&gt; type= [latency=]
+ * device &lt;name pattern&gt; class= [parent=] [count=] [sensor=&lt;class&gt;:&lt;name pattern&gt;,...] [actuator=&lt;class&gt;:&lt;name pattern&gt;,...]
+ * template &lt;name&gt;
+ *   device ...
+ *   area ...
+ * end
+ * area &lt;template&gt; name=&lt;name pattern&gt; parent= [count=]
+ * </pre>
+ * An <tt>area</tt> line instantiates the devices and nested areas of a template <tt>count</tt>
+ * times. Name patterns may use <tt>{i}</tt> (index of the device in its <tt>count</tt>),
+ * <tt>{n}</tt> (index of the area), <tt>{area}</tt> (name of the area) and <tt>{parent}</tt>
+ * (parent of the area). A device is created with its sensors and actuators right after it, and
+ * parents must be declared before their children. Devices are looked up by name in a hash map,
+ * so reading is linear in the number of entities.
+ */
+public class ScenarioReader {
+
+	private final int userId;
+	private final String appId;
+
+	private final Map<String, DeviceClass> deviceClasses = new HashMap<String, DeviceClass>();
+	private final Map<String, EndpointClass> sensorClasses = new HashMap<String, EndpointClass>();
+	private final Map<String, EndpointClass> actuatorClasses = new HashMap<String, EndpointClass>();
+	private final Map<String, List<TemplateLine>> templates = new HashMap<String, List<TemplateLine>>();
+
+	private final Map<String, FogDevice> devicesByName = new HashMap<String, FogDevice>();
+	private final List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private final List<Sensor> sensors = new ArrayList<Sensor>();
+	private final List<Actuator> actuators = new ArrayList<Actuator>();
+
+	/**
+	 * A device or area line of a template, instantiated by every area of the template.
+	 */
+	private static class TemplateLine {
+		final String keyword;
+		final String namePattern;
+		final Map<String, String> attributes;
+		final int lineNumber;
+
+		TemplateLine(String keyword, String namePattern, Map<String, String> attributes, int lineNumber) {
+			this.keyword = keyword;
+			this.namePattern = namePattern;
+			this.attributes = attributes;
+			this.lineNumber = lineNumber;
+		}
+	}
+
+	public ScenarioReader(int userId, String appId) {
+		this.userId = userId;
+		this.appId = appId;
+	}
+
+	public PhysicalTopology read(File scenarioFile) throws IOException {
+		Reader in = new FileReader(scenarioFile);
+		try {
+			return read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public PhysicalTopology read(Reader in) throws IOException {
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		int lineNumber = 0;
+		List<TemplateLine> currentTemplate = null;
+		String currentTemplateName = null;
+		while((line = reader.readLine()) != null){
+			lineNumber++;
+			line = stripComment(line);
+			line = line.trim();
+			if(line.isEmpty())
+				continue;
+			String[] tokens = line.split("\\s+");
+			String keyword = tokens[0];
+			if(keyword.equals("end")){
+				if(currentTemplate == null)
+					throw error(lineNumber, "'end' outside of a template");
+				currentTemplate = null;
+				continue;
+			}
+			if(tokens.length < 2)
+				throw error(lineNumber, "missing name after '" + keyword + "'");
+			String name = tokens[1];
+			Map<String, String> attributes = parseAttributes(tokens, lineNumber);
+			if(currentTemplate != null){
+				if(!keyword.equals("device") && !keyword.equals("area"))
+					throw error(lineNumber, "only devices and areas can be declared in a template");
+				if(name.equals(currentTemplateName))
+					throw error(lineNumber, "a template cannot contain itself");
+				currentTemplate.add(new TemplateLine(keyword, name, attributes, lineNumber));
+			} else if(keyword.equals("device-class")){
+				deviceClasses.put(name, new DeviceClass(name, attributes, lineNumber));
+			} else if(keyword.equals("sensor-class")){
+				sensorClasses.put(name, new EndpointClass(name, attributes, lineNumber));
+			} else if(keyword.equals("actuator-class")){
+				actuatorClasses.put(name, new EndpointClass(name, attributes, lineNumber));
+			} else if(keyword.equals("template")){
+				currentTemplate = new ArrayList<TemplateLine>();
+				currentTemplateName = name;
+				templates.put(name, currentTemplate);
+			} else if(keyword.equals("device")){
+				createDevices(name, attributes, new HashMap<String, String>(), lineNumber);
+			} else if(keyword.equals("area")){
+				createAreas(name, attributes, new HashMap<String, String>(), lineNumber);
+			} else {
+				throw error(lineNumber, "unknown keyword '" + keyword + "'");
+			}
+		}
+		if(currentTemplate != null)
+			throw error(lineNumber, "template not closed with 'end'");
+
+		PhysicalTopology physicalTopology = new PhysicalTopology();
+		physicalTopology.setFogDevices(fogDevices);
+		physicalTopology.setSensors(sensors);
+		physicalTopology.setActuators(actuators);
+		return physicalTopology;
+	}
+
+	/**
+	 * Instantiates a template. Inside an enclosing area, the name and parent patterns can refer to
+	 * the variables of the enclosing area, e.g. name={area}-{n}.
+	 */
+	private void createAreas(String templateName, Map<String, String> attributes, Map<String, String> outer,
+			int lineNumber) {
+		List<TemplateLine> template = templates.get(templateName);
+		if(template == null)
+			throw error(lineNumber, "unknown template '" + templateName + "'");
+		String namePattern = getString(attributes, "name", lineNumber);
+		String parentPattern = getString(attributes, "parent", lineNumber);
+		long count = getLong(attributes, "count", 1, lineNumber);
+		Map<String, String> variables = new HashMap<String, String>();
+		for(long n = 0; n < count; n++){
+			variables.clear();
+			variables.putAll(outer);
+			variables.remove("i");
+			variables.put("n", Long.toString(n));
+			String parent = substitute(parentPattern, variables);
+			String area = substitute(namePattern, variables);
+			variables.put("parent", parent);
+			variables.put("area", area);
+			for(TemplateLine line : template){
+				if(line.keyword.equals("area"))
+					createAreas(line.namePattern, line.attributes, variables, line.lineNumber);
+				else
+					createDevices(line.namePattern, line.attributes, variables, line.lineNumber);
+			}
+		}
+	}
+
+	private void createDevices(String namePattern, Map<String, String> attributes, Map<String, String> variables,
+			int lineNumber) {
+		String className = getString(attributes, "class", lineNumber);
+		DeviceClass deviceClass = deviceClasses.get(className);
+		if(deviceClass == null)
+			throw error(lineNumber, "unknown device class '" + className + "'");
+		String parentPattern = getString(attributes, "parent", "-");
+		long count = getLong(attributes, "count", 1, lineNumber);
+		for(long i = 0; i < count; i++){
+			variables.put("i", Long.toString(i));
+			String name = substitute(namePattern, variables);
+			FogDevice device = createFogDevice(name, deviceClass);
+			String parentName = substitute(parentPattern, variables);
+			if(parentName.equals("-")){
+				device.setParentId(-1);
+			} else {
+				FogDevice parent = devicesByName.get(parentName);
+				if(parent == null)
+					throw error(lineNumber, "unknown parent device '" + parentName + "'");
+				device.setParentId(parent.getId());
+			}
+			device.setUplinkLatency(deviceClass.getUplinkLatency());
+			if(deviceClass.getTotalCost() != 0)
+				device.setTotalCost(deviceClass.getTotalCost());
+			if(devicesByName.put(name, device) != null)
+				throw error(lineNumber, "duplicate device name '" + name + "'");
+			createSensors(device, getString(attributes, "sensor", null), variables, lineNumber);
+			createActuators(device, getString(attributes, "actuator", null), variables, lineNumber);
+			fogDevices.add(device);
+		}
+		variables.remove("i");
+	}
+
+	private void createSensors(FogDevice device, String specs, Map<String, String> variables, int lineNumber) {
+		if(specs == null)
+			return;
+		for(String spec : specs.split(",")){
+			String[] parts = spec.split(":", 2);
+			EndpointClass sensorClass = sensorClasses.get(parts[0]);
+			if(sensorClass == null || parts.length < 2)
+				throw error(lineNumber, "sensors are given as <sensor class>:<name pattern>, unknown '" + spec + "'");
+			Sensor sensor = new Sensor(substitute(parts[1], variables), sensorClass.getType(), userId, appId,
+					sensorClass.createDistribution());
+			sensor.setGatewayDeviceId(device.getId());
+			sensor.setLatency(sensorClass.getLatency());
+			sensors.add(sensor);
+		}
+	}
+
+	private void createActuators(FogDevice device, String specs, Map<String, String> variables, int lineNumber) {
+		if(specs == null)
+			return;
+		for(String spec : specs.split(",")){
+			String[] parts = spec.split(":", 2);
+			EndpointClass actuatorClass = actuatorClasses.get(parts[0]);
+			if(actuatorClass == null || parts.length < 2)
+				throw error(lineNumber, "actuators are given as <actuator class>:<name pattern>, unknown '" + spec + "'");
+			Actuator actuator = new Actuator(substitute(parts[1], variables), userId, appId, actuatorClass.getType());
+			actuator.setGatewayDeviceId(device.getId());
+			actuator.setLatency(actuatorClass.getLatency());
+			actuators.add(actuator);
+		}
+	}
+
+	/**
+	 * Removes a comment, which starts with a '#' at the beginning of the line or after a blank.
+	 * A '#' inside a name, as in area#{n}, is kept.
+	 */
+	private static String stripComment(String line) {
+		int comment = line.indexOf('#');
+		while(comment > 0 && !Character.isWhitespace(line.charAt(comment - 1)))
+			comment = line.indexOf('#', comment + 1);
+		return comment >= 0 ? line.substring(0, comment) : line;
+	}
+
+	/**
+	 * Replaces the {variable} references of a name pattern.
+	 */
+	static String substitute(String pattern, Map<String, String> variables) {
+		int open = pattern.indexOf('{');
+		if(open < 0)
+			return pattern;
+		StringBuilder result = new StringBuilder(pattern.length() + 16);
+		int start = 0;
+		while(open >= 0){
+			int close = pattern.indexOf('}', open);
+			if(close < 0)
+				break;
+			String value = variables.get(pattern.substring(open + 1, close));
+			if(value == null)
+				throw new IllegalArgumentException("unknown variable in '" + pattern + "'");
+			result.append(pattern, start, open).append(value);
+			start = close + 1;
+			open = pattern.indexOf('{', start);
+		}
+		result.append(pattern, start, pattern.length());
+		return result.toString();
+	}
+
+	private static Map<String, String> parseAttributes(String[] tokens, int lineNumber) {
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		for(int i = 2; i < tokens.length; i++){
+			int equals = tokens[i].indexOf('=');
+			if(equals <= 0)
+				throw error(lineNumber, "expected key=value but found '" + tokens[i] + "'");
+			attributes.put(tokens[i].substring(0, equals), tokens[i].substring(equals + 1));
+		}
+		return attributes;
+	}
+
+	private static IllegalArgumentException error(int lineNumber, String message) {
+		return new IllegalArgumentException("Scenario line " + lineNumber + ": " + message);
+	}
+
+	static String getString(Map<String, String> attributes, String key, int lineNumber) {
+		String value = attributes.get(key);
+		if(value == null)
+			throw error(lineNumber, "missing attribute '" + key + "'");
+		return value;
+	}
+
+	static String getString(Map<String, String> attributes, String key, String defaultValue) {
+		String value = attributes.get(key);
+		return value == null ? defaultValue : value;
+	}
+
+	static long getLong(Map<String, String> attributes, String key, int lineNumber) {
+		try {
+			return Long.parseLong(getString(attributes, key, lineNumber));
+		} catch (NumberFormatException e) {
+			throw error(lineNumber, "attribute '" + key + "' is not an integer");
+		}
+	}
+
+	static long getLong(Map<String, String> attributes, String key, long defaultValue, int lineNumber) {
+		return attributes.containsKey(key) ? getLong(attributes, key, lineNumber) : defaultValue;
+	}
+
+	static double getDouble(Map<String, String> attributes, String key, int lineNumber) {
+		try {
+			return Double.parseDouble(getString(attributes, key, lineNumber));
+		} catch (NumberFormatException e) {
+			throw error(lineNumber, "attribute '" + key + "' is not a number");
+		}
+	}
+
+	static double getDouble(Map<String, String> attributes, String key, double defaultValue, int lineNumber) {
+		return attributes.containsKey(key) ? getDouble(attributes, key, lineNumber) : defaultValue;
+	}
+
+	private static FogDevice createFogDevice(String nodeName, DeviceClass deviceClass) {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(deviceClass.getMips())));
+
+		int hostId = FogUtils.generateEntityId();
+		long storage = 1000000; // host storage
+
+		PowerHost host = new PowerHost(
+				hostId,
+				new RamProvisionerSimple(deviceClass.getRam()),
+				new BwProvisionerOverbooking(deviceClass.getHostBw()),
+				storage,
+				peList,
+				new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(deviceClass.getBusyPower(), deviceClass.getIdlePower())
+			);
+
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+				Config.FOG_DEVICE_ARCH, Config.FOG_DEVICE_OS, Config.FOG_DEVICE_VMM,
+				host, Config.FOG_DEVICE_TIMEZONE, Config.FOG_DEVICE_COST, Config.FOG_DEVICE_COST_PER_MEMORY,
+				Config.FOG_DEVICE_COST_PER_STORAGE, deviceClass.getCostPerBw());
+
+		FogDevice fogdevice = null;
+		try {
+			fogdevice = new FogDevice(nodeName, characteristics,
+					new AppModuleAllocationPolicy(hostList), new ArrayList<Storage>(), 10,
+					deviceClass.getUpBw(), deviceClass.getDownBw(), 0, deviceClass.getRatePerMips());
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not create fog device " + nodeName, e);
+		}
+		fogdevice.setLevel(deviceClass.getLevel());
+		return fogdevice;
+	}
+
+	/**
+	 * @return the device with the given name, null if it has not been read (yet)
+	 */
+	public FogDevice getFogDevice(String name) {
+		return devicesByName.get(name);
+	}
+}
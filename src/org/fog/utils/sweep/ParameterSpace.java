@@ -0,0 +1,130 @@
+package org.fog.utils.sweep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The parameters of a sweep and the values they can take. A parameter is either a list of
+ * values (<tt>5,10,20</tt>) or, for Latin hypercube designs only, a numeric range
+ * (<tt>2..10</tt>). Ranges whose bounds are both integers produce integer samples.
+ */
+public class ParameterSpace {
+
+	private static final String RANGE_SEPARATOR = "..";
+
+	private final Map<String, String> definitions = new LinkedHashMap<String, String>();
+
+	/**
+	 * Adds a parameter. Parameters are expanded in the order they are added.
+	 * @param name the option name passed to the simulation (without the leading --)
+	 * @param definition comma separated values, or a range <tt>min..max</tt>
+	 */
+	public void addParameter(String name, String definition) {
+		definitions.put(name, definition.trim());
+	}
+
+	public List<String> getParameterNames() {
+		return new ArrayList<String>(definitions.keySet());
+	}
+
+	private static boolean isRange(String definition) {
+		return definition.contains(RANGE_SEPARATOR) && !definition.contains(",");
+	}
+
+	private static List<String> getValues(String definition) {
+		List<String> values = new ArrayList<String>();
+		for(String value : definition.split(","))
+			values.add(value.trim());
+		return values;
+	}
+
+	/**
+	 * Expands the full factorial design: every combination of the values of all parameters.
+	 * @return the cells, the last parameter varying fastest
+	 */
+	public List<SweepCell> grid() {
+		List<SweepCell> cells = new ArrayList<SweepCell>();
+		cells.add(new SweepCell(new LinkedHashMap<String, String>()));
+		for(String name : definitions.keySet()){
+			String definition = definitions.get(name);
+			if(isRange(definition))
+				throw new IllegalArgumentException("Parameter " + name + " is a range, a grid needs a list of values");
+			List<SweepCell> expanded = new ArrayList<SweepCell>();
+			for(SweepCell cell : cells){
+				for(String value : getValues(definition))
+					expanded.add(cell.with(name, value));
+			}
+			cells = expanded;
+		}
+		return cells;
+	}
+
+	/**
+	 * Draws a Latin hypercube design: the range of every parameter is split into <tt>samples</tt>
+	 * strata and every stratum is used exactly once. The design only depends on the seed, so a
+	 * resumed sweep draws the same cells again.
+	 * @param samples the number of cells
+	 * @param seed the seed of the sampling
+	 * @return the cells
+	 */
+	public List<SweepCell> latinHypercube(int samples, long seed) {
+		Random random = new Random(seed);
+		List<Map<String, String>> values = new ArrayList<Map<String, String>>();
+		for(int i = 0; i < samples; i++)
+			values.add(new LinkedHashMap<String, String>());
+		for(String name : definitions.keySet()){
+			String definition = definitions.get(name);
+			List<Integer> strata = new ArrayList<Integer>();
+			for(int i = 0; i < samples; i++)
+				strata.add(i);
+			Collections.shuffle(strata, random);
+			for(int i = 0; i < samples; i++){
+				double position = (strata.get(i) + random.nextDouble()) / samples;
+				values.get(i).put(name, sample(definition, position));
+			}
+		}
+		List<SweepCell> cells = new ArrayList<SweepCell>();
+		for(Map<String, String> cell : values)
+			cells.add(new SweepCell(cell));
+		return cells;
+	}
+
+	/**
+	 * Maps a position in [0, 1) to a value of the parameter.
+	 */
+	private static String sample(String definition, double position) {
+		if(isRange(definition)){
+			String[] bounds = definition.split("\\.\\.");
+			String min = bounds[0].trim();
+			String max = bounds[1].trim();
+			if(isInteger(min) && isInteger(max)){
+				long low = Long.parseLong(min);
+				long high = Long.parseLong(max);
+				return Long.toString(low + (long) Math.floor(position * (high - low + 1)));
+			}
+			double low = Double.parseDouble(min);
+			double high = Double.parseDouble(max);
+			return Double.toString(low + position * (high - low));
+		}
+		List<String> values = getValues(definition);
+		return values.get((int) Math.floor(position * values.size()));
+	}
+
+	private static boolean isInteger(String value) {
+		try {
+			Long.parseLong(value);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return definitions.toString();
+	}
+}
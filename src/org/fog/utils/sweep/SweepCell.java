@@ -0,0 +1,61 @@
+package org.fog.utils.sweep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One point of a sweep: a value for every parameter. Cells are identified by their key, which
+ * lists the assignments in parameter order, e.g. <tt>areas=5;cloud=false;seed=1</tt>.
+ */
+public class SweepCell {
+
+	private final Map<String, String> values;
+
+	public SweepCell(Map<String, String> values) {
+		this.values = Collections.unmodifiableMap(new LinkedHashMap<String, String>(values));
+	}
+
+	SweepCell with(String name, String value) {
+		Map<String, String> extended = new LinkedHashMap<String, String>(values);
+		extended.put(name, value);
+		return new SweepCell(extended);
+	}
+
+	public Map<String, String> getValues() {
+		return values;
+	}
+
+	public String getValue(String name) {
+		return values.get(name);
+	}
+
+	public String getKey() {
+		StringBuilder key = new StringBuilder();
+		for(String name : values.keySet()){
+			if(key.length() > 0)
+				key.append(';');
+			key.append(name).append('=').append(values.get(name));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return the command line options that pass the values to a simulation
+	 */
+	public List<String> toArguments() {
+		List<String> arguments = new ArrayList<String>();
+		for(String name : values.keySet()){
+			arguments.add("--" + name);
+			arguments.add(values.get(name));
+		}
+		return arguments;
+	}
+
+	@Override
+	public String toString() {
+		return getKey();
+	}
+}
@@ -0,0 +1,236 @@
+package org.fog.utils.sweep;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Runs a parameter sweep of a simulation on a pool of forked worker JVMs and collects the
+ * SimulationReport of every run into one {@link SweepSummary}.
+ * <p>
+ * The sweep is described by a properties file:
+ * <pre>
+ * main=org.fog.test.perfeval.CarParkingFogSimulation
+ * design=grid                  # or lhs
+ * samples=20                   # lhs only
+ * sampling.seed=1              # lhs only
+ * workers=0                    # 0 = one worker per available processor
+ * jvm.options=-Xmx1g
+ * timeout=0                    # seconds per run, 0 = none
+ * output=sweep-results
+ * param.areas=5,10
+ * param.cloud=false,true
+ * param.sensor-period=2..10    # ranges are allowed in lhs designs
+ * param.seed=1,2,3
+ * </pre>
+ * Every <tt>param.&lt;name&gt;</tt> is passed to the simulation as <tt>--&lt;name&gt; value</tt>,
+ * together with <tt>--report</tt> and <tt>--quiet</tt>. The output directory holds the summary
+ * (<tt>summary.csv</tt>) and the report, console log and event trace (if the simulation traces)
+ * of every run. Running the same sweep again skips the cells already in the summary, so an
+ * interrupted sweep is resumed by simply restarting it.
+ * <p>
+ * Usage: <tt>java org.fog.utils.sweep.SweepRunner &lt;sweep.properties&gt;</tt>
+ */
+public class SweepRunner {
+
+	private static final String PARAMETER_PREFIX = "param.";
+
+	private final String mainClass;
+	private final List<String> jvmOptions = new ArrayList<String>();
+	private final int workers;
+	private final long timeoutSeconds;
+	private final File outputDir;
+	private final SweepSummary summary;
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	public SweepRunner(String mainClass, String jvmOptions, int workers, long timeoutSeconds, File outputDir)
+			throws IOException {
+		this.mainClass = mainClass;
+		for(String option : jvmOptions.trim().split("\\s+")){
+			if(!option.isEmpty())
+				this.jvmOptions.add(option);
+		}
+		this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+		this.timeoutSeconds = timeoutSeconds;
+		this.outputDir = outputDir;
+		outputDir.mkdirs();
+		this.summary = new SweepSummary(new File(outputDir, "summary.csv"));
+	}
+
+	/**
+	 * Runs the cells that are not in the summary yet and waits for all of them to finish.
+	 * @param cells the cells of the sweep
+	 * @return the number of cells that failed
+	 */
+	public int run(List<SweepCell> cells) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		int skipped = 0;
+		for(int i = 0; i < cells.size(); i++){
+			final SweepCell cell = cells.get(i);
+			final String name = String.format("cell-%05d", i);
+			if(summary.isCompleted(cell)){
+				skipped++;
+				continue;
+			}
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					runCell(name, cell);
+				}
+			});
+		}
+		System.out.println("Sweep: " + cells.size() + " cells, " + skipped + " already completed, "
+				+ workers + " workers");
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		System.out.println("Sweep finished: " + summary.getCompletedCount() + " cells completed, "
+				+ failed.get() + " failed. Summary: " + summary.getFile());
+		return failed.get();
+	}
+
+	private void runCell(String name, SweepCell cell) {
+		File report = new File(outputDir, name + ".json");
+		File log = new File(outputDir, name + ".log");
+		report.delete();
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		// concurrent workers must not share the event trace file, jvm.options may still override it
+		command.add("-Dcloudsim.trace.file=" + new File(outputDir, name + ".trace").getPath());
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(mainClass);
+		command.addAll(cell.toArguments());
+		command.add("--report");
+		command.add(report.getPath());
+		command.add("--quiet");
+		command.add("true");
+		try {
+			long start = System.currentTimeMillis();
+			Process process = new ProcessBuilder(command).redirectErrorStream(true)
+					.redirectOutput(log).start();
+			boolean finished = true;
+			if(timeoutSeconds > 0)
+				finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+			else
+				process.waitFor();
+			if(!finished){
+				process.destroyForcibly();
+				fail(name, cell, "timed out");
+				return;
+			}
+			if(!report.exists()){
+				fail(name, cell, "exit code " + process.exitValue() + ", no report (see " + log + ")");
+				return;
+			}
+			Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+			metrics.put("workerMillis", System.currentTimeMillis() - start);
+			metrics.putAll(readMetrics(report));
+			summary.append(cell, metrics);
+			System.out.println("Sweep: " + name + " [" + cell + "] done");
+		} catch (IOException e) {
+			fail(name, cell, e.getMessage());
+		} catch (ParseException e) {
+			fail(name, cell, "unreadable report " + report);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void fail(String name, SweepCell cell, String reason) {
+		failed.incrementAndGet();
+		System.err.println("Sweep: " + name + " [" + cell + "] failed: " + reason);
+	}
+
+	/**
+	 * Flattens the totals and the loop latencies of a SimulationReport, with the half-widths of their
+	 * confidence intervals, into summary metrics.
+	 */
+	static Map<String, Object> readMetrics(File report) throws IOException, ParseException {
+		Reader in = new FileReader(report);
+		JSONObject json;
+		try {
+			json = (JSONObject) new JSONParser().parse(in);
+		} finally {
+			in.close();
+		}
+		Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+		for(String key : new String[]{"setupTimeMillis", "executionTimeMillis", "simulationTime", "totalTupleCpuTime",
+				"totalEnergy", "totalCost", "cloudCost", "networkUsage", "averageNetworkUsage"})
+			metrics.put(key, json.get(key));
+		Map<String, Object> loops = new TreeMap<String, Object>();
+		for(Object value : (JSONArray) json.get("loopLatencies")){
+			JSONObject loop = (JSONObject) value;
+			StringBuilder column = new StringBuilder("loop");
+			for(Object module : (JSONArray) loop.get("modules"))
+				column.append('_').append(module);
+			loops.put(column.toString(), loop.get("averageLatency"));
+			if(loop.get("halfWidth") != null)
+				loops.put(column + "_halfWidth", loop.get("halfWidth"));
+		}
+		metrics.putAll(loops);
+		return metrics;
+	}
+
+	/**
+	 * Expands the cells of a sweep description.
+	 */
+	static List<SweepCell> createCells(Properties sweep) {
+		ParameterSpace space = new ParameterSpace();
+		List<String> names = new ArrayList<String>(sweep.stringPropertyNames());
+		Collections.sort(names);
+		for(String name : names){
+			if(name.startsWith(PARAMETER_PREFIX))
+				space.addParameter(name.substring(PARAMETER_PREFIX.length()), sweep.getProperty(name));
+		}
+		String design = sweep.getProperty("design", "grid");
+		if(design.equals("grid"))
+			return space.grid();
+		if(design.equals("lhs"))
+			return space.latinHypercube(Integer.parseInt(sweep.getProperty("samples", "10")),
+					Long.parseLong(sweep.getProperty("sampling.seed", "1")));
+		throw new IllegalArgumentException("Unknown sweep design " + design);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length != 1){
+			System.err.println("Usage: SweepRunner <sweep.properties>");
+			System.exit(2);
+		}
+		Properties sweep = new Properties();
+		InputStream in = new FileInputStream(args[0]);
+		try {
+			sweep.load(in);
+		} finally {
+			in.close();
+		}
+		SweepRunner runner = new SweepRunner(
+				sweep.getProperty("main", "org.fog.test.perfeval.CarParkingFogSimulation"),
+				sweep.getProperty("jvm.options", ""),
+				Integer.parseInt(sweep.getProperty("workers", "0")),
+				Long.parseLong(sweep.getProperty("timeout", "0")),
+				new File(sweep.getProperty("output", "sweep-results")));
+		int failures = runner.run(createCells(sweep));
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
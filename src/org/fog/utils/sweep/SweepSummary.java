@@ -0,0 +1,163 @@
+package org.fog.utils.sweep;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fog.utils.SimulationReport;
+
+/**
+ * Summary of a sweep in long format: a CSV file with the columns <tt>cell,kind,name,value</tt> and
+ * one row per parameter and per metric of every completed cell, so cells may report different
+ * metrics. The rows of a cell are appended in one write and closed by a <tt>status,completed</tt>
+ * row, so the file also records the progress of the sweep; the rows of a cell left without that
+ * row by a crash are dropped when the file is opened again, and the cell is run once more.
+ */
+public class SweepSummary {
+
+	public static final String HEADER = "cell,kind,name,value";
+
+	public static final String PARAMETER = "parameter";
+	public static final String METRIC = "metric";
+	public static final String STATUS = "status";
+	public static final String COMPLETED = "completed";
+
+	private final File file;
+
+	private final Set<String> completed = new HashSet<String>();
+
+	public SweepSummary(File file) throws IOException {
+		this.file = file;
+		if(file.exists())
+			load();
+	}
+
+	/**
+	 * Reads the completed cells and rewrites the file without the rows of incomplete ones, which also
+	 * ends a last line cut short by a crash.
+	 */
+	private void load() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		List<List<String>> rows = new ArrayList<List<String>>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line = reader.readLine();
+			if(line == null || line.isEmpty())
+				return;
+			if(!line.equals(HEADER))
+				throw new IOException(file + " is not a sweep summary (header " + line + ")");
+			while((line = reader.readLine()) != null){
+				List<String> fields = parse(line);
+				if(fields == null || fields.size() != 4)
+					continue;
+				lines.add(line);
+				rows.add(fields);
+				if(STATUS.equals(fields.get(1)) && COMPLETED.equals(fields.get(2)) && "true".equals(fields.get(3)))
+					completed.add(fields.get(0));
+			}
+		} finally {
+			reader.close();
+		}
+		StringBuilder kept = new StringBuilder(HEADER).append('\n');
+		for(int i = 0; i < rows.size(); i++)
+			if(completed.contains(rows.get(i).get(0)))
+				kept.append(lines.get(i)).append('\n');
+		rewrite(kept.toString());
+	}
+
+	private void rewrite(String content) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		Writer out = new FileWriter(temp);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		if(!temp.renameTo(file))
+			throw new IOException("Cannot replace " + file);
+	}
+
+	public synchronized boolean isCompleted(SweepCell cell) {
+		return completed.contains(cell.getKey());
+	}
+
+	public synchronized int getCompletedCount() {
+		return completed.size();
+	}
+
+	/**
+	 * Appends the rows of a completed cell: its parameters, its metrics and the completion row.
+	 * @param cell the cell
+	 * @param metrics the metrics of the run
+	 */
+	public synchronized void append(SweepCell cell, Map<String, Object> metrics) throws IOException {
+		String key = cell.getKey();
+		StringBuilder rows = new StringBuilder();
+		boolean newFile = !file.exists() || file.length() == 0;
+		if(newFile)
+			rows.append(HEADER).append('\n');
+		for(Map.Entry<String, String> value : cell.getValues().entrySet())
+			row(rows, key, PARAMETER, value.getKey(), value.getValue());
+		for(Map.Entry<String, Object> metric : metrics.entrySet())
+			row(rows, key, METRIC, metric.getKey(), metric.getValue());
+		row(rows, key, STATUS, COMPLETED, "true");
+		Writer out = new FileWriter(file, !newFile);
+		try {
+			out.write(rows.toString());
+		} finally {
+			out.close();
+		}
+		completed.add(key);
+	}
+
+	private static void row(StringBuilder rows, String cell, String kind, String name, Object value) {
+		rows.append(SimulationReport.csvField(cell)).append(',')
+				.append(kind).append(',')
+				.append(SimulationReport.csvField(name)).append(',')
+				.append(value == null ? "" : SimulationReport.csvField(value.toString())).append('\n');
+	}
+
+	/**
+	 * Splits a CSV line, undoing the quoting of {@link SimulationReport#csvField(String)}.
+	 * @return the fields, or null if the line ends inside a quoted field
+	 */
+	static List<String> parse(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for(int i = 0; i < line.length(); i++){
+			char c = line.charAt(i);
+			if(quoted){
+				if(c != '"')
+					field.append(c);
+				else if(i + 1 < line.length() && line.charAt(i + 1) == '"'){
+					field.append('"');
+					i++;
+				} else
+					quoted = false;
+			} else if(c == '"')
+				quoted = true;
+			else if(c == ','){
+				fields.add(field.toString());
+				field.setLength(0);
+			} else
+				field.append(c);
+		}
+		if(quoted)
+			return null;
+		fields.add(field.toString());
+		return fields;
+	}
+
+	public File getFile() {
+		return file;
+	}
+}